@@ -0,0 +1,29 @@
+package com.bank.ivr.account;
+
+import com.bank.ivr.model.AccountBalance;
+import com.bank.ivr.model.TransactionPage;
+
+/**
+ * The system of record for account data. Calls are slow and should go
+ * through {@link com.bank.ivr.service.AccountService}, which caches them.
+ */
+public interface AccountBackend {
+
+    /**
+     * Fetches a customer's balance.
+     *
+     * @return The balance, or null if the customer has no account
+     * @throws AccountUnavailableException If the backend cannot answer
+     */
+    AccountBalance fetchBalance(String customerId);
+
+    /**
+     * Fetches one page of a customer's transaction history, newest first.
+     *
+     * @param cursor The next cursor of the previous page, or null for the most recent transactions
+     * @param limit Maximum number of transactions
+     * @throws IllegalArgumentException If the cursor was not issued for this customer
+     * @throws AccountUnavailableException If the backend cannot answer
+     */
+    TransactionPage fetchTransactions(String customerId, String cursor, int limit);
+}
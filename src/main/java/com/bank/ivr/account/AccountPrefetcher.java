@@ -0,0 +1,376 @@
+package com.bank.ivr.account;
+
+import com.bank.ivr.config.AccountProperties;
+import com.bank.ivr.flow.CompletedTransitionListener;
+import com.bank.ivr.model.AccountBalance;
+import com.bank.ivr.model.AccountPrefetch;
+import com.bank.ivr.model.HistoryWindow;
+import com.bank.ivr.model.IvrEvent;
+import com.bank.ivr.model.IvrState;
+import com.bank.ivr.model.SessionContext;
+import com.bank.ivr.model.TransactionPage;
+import com.bank.ivr.service.AccountService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.statemachine.listener.StateMachineListener;
+
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Fetches a caller's balance and recent transactions as soon as the caller
+ * authenticates, since almost every authenticated caller asks for one of them.
+ *
+ * <p>The results are kept on the session, so the prompts answer from memory
+ * for as long as a cached value would be served. A prompt reached before its
+ * fetch has finished reads through {@link AccountService}, whose cache joins
+ * the load already in flight. Fetches run on their own small pool with a
+ * bounded queue, apart from the request workers; when the queue is full the
+ * prefetch is skipped. When the call ends, queued fetches are cancelled and
+ * every fetch is counted as used, wasted, cancelled or rejected.
+ *
+ * <p>A caller paging through their transaction history is read one page at a
+ * time. The session keeps the cursor of the page it is on and a window of the
+ * page being read out and the page after it, which is fetched in the
+ * background as soon as the current page is read.
+ */
+public class AccountPrefetcher implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(AccountPrefetcher.class);
+
+    private final AccountService accountService;
+    private final boolean enabled;
+    private final ThreadPoolExecutor executor;
+    private final Meters balanceMeters;
+    private final Meters transactionsMeters;
+    private final Meters historyMeters;
+
+    public AccountPrefetcher(AccountService accountService, AccountProperties properties,
+                             MeterRegistry meterRegistry) {
+        this.accountService = accountService;
+        this.enabled = properties.isPrefetchEnabled();
+        int threads = Math.max(1, properties.getPrefetchThreads());
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, properties.getPrefetchQueueCapacity())), r -> {
+                    Thread thread = new Thread(r, "ivr-account-prefetch-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.balanceMeters = new Meters("balance",
+                TimeUnit.SECONDS.toNanos(properties.getBalanceCache().getTtlSeconds()), meterRegistry);
+        this.transactionsMeters = new Meters("transactions",
+                TimeUnit.SECONDS.toNanos(properties.getTransactionsCache().getTtlSeconds()), meterRegistry);
+        this.historyMeters = new Meters("history",
+                TimeUnit.SECONDS.toNanos(properties.getTransactionsCache().getTtlSeconds()), meterRegistry);
+    }
+
+    /**
+     * Creates a listener starting the prefetch once a session's caller has
+     * authenticated. Each session needs its own.
+     */
+    public StateMachineListener<IvrState, IvrEvent> newListener(SessionContext context) {
+        return new CompletedTransitionListener() {
+            @Override
+            protected void onTransitionCompleted(IvrState from, IvrState to, IvrEvent event) {
+                if (enabled && context.getPrefetch() == null && context.isAuthenticated()
+                        && context.getCustomerId() != null) {
+                    start(context);
+                }
+            }
+        };
+    }
+
+    /**
+     * Gets the caller's balance, prefetched if it is ready and fresh.
+     *
+     * @throws AccountUnavailableException If it has to be read and the backend cannot answer
+     */
+    public AccountBalance getBalance(SessionContext context) {
+        String customerId = context.getCustomerId();
+        AccountPrefetch prefetch = prefetchFor(context);
+        return take(prefetch == null ? null : prefetch.getBalance(), balanceMeters,
+                () -> accountService.getBalance(customerId));
+    }
+
+    /**
+     * Gets the caller's recent transactions, prefetched if they are ready and fresh.
+     *
+     * @throws AccountUnavailableException If they have to be read and the backend cannot answer
+     */
+    public TransactionPage getRecentTransactions(SessionContext context) {
+        String customerId = context.getCustomerId();
+        AccountPrefetch prefetch = prefetchFor(context);
+        return take(prefetch == null ? null : prefetch.getTransactions(), transactionsMeters,
+                () -> accountService.getRecentTransactions(customerId));
+    }
+
+    /**
+     * Starts the caller's transaction history over from the most recent
+     * transactions, dropping any pages held from an earlier reading.
+     */
+    public void openHistory(SessionContext context) {
+        closeHistory(context);
+    }
+
+    /**
+     * Moves the caller to the next page of their transaction history. On the
+     * last page, or if the current page cannot be read, the caller stays put.
+     */
+    public void nextHistoryPage(SessionContext context) {
+        TransactionPage page;
+        try {
+            page = getHistoryPage(context);
+        } catch (AccountUnavailableException e) {
+            logger.warn("Cannot page transaction history: {}", e.getMessage());
+            return;
+        }
+        if (page.hasMore()) {
+            context.setHistoryCursor(page.getNextCursor());
+        }
+    }
+
+    /**
+     * Gets the page of transaction history the caller is on, and starts
+     * fetching the page after it. The page is read once and then held on the
+     * session until the caller moves on.
+     *
+     * @throws AccountUnavailableException If it has to be read and the backend cannot answer
+     */
+    public TransactionPage getHistoryPage(SessionContext context) {
+        String customerId = context.getCustomerId();
+        HistoryWindow window = context.getHistoryWindow();
+        if (window == null || !window.getCustomerId().equals(customerId)) {
+            window = new HistoryWindow(customerId);
+            context.setHistoryWindow(window);
+        }
+        synchronized (window) {
+            String cursor = context.getHistoryCursor();
+            TransactionPage page = window.getPage();
+            if (page == null || !Objects.equals(window.getCursor(), cursor)) {
+                page = readHistoryPage(context, window, cursor);
+                window.setPage(cursor, page);
+            }
+            String nextCursor = page.getNextCursor();
+            if (!Objects.equals(window.getNextCursor(), nextCursor)) {
+                if (window.getNext() != null) {
+                    settle(window.getNext(), historyMeters);
+                }
+                window.setNext(nextCursor, enabled && nextCursor != null
+                        ? submit(() -> accountService.getTransactions(customerId, nextCursor), historyMeters)
+                        : null);
+            }
+            return page;
+        }
+    }
+
+    /**
+     * Drops the pages of transaction history held for the caller once they
+     * leave it, cancelling the fetch of the next page if it has not started.
+     */
+    public void closeHistory(SessionContext context) {
+        context.setHistoryCursor(null);
+        HistoryWindow window = context.getHistoryWindow();
+        if (window == null) {
+            return;
+        }
+        context.setHistoryWindow(null);
+        synchronized (window) {
+            if (window.getNext() != null) {
+                settle(window.getNext(), historyMeters);
+            }
+        }
+    }
+
+    /**
+     * Drops a session's prefetch and history pages when its call ends or it
+     * leaves this node, cancelling fetches that have not started.
+     */
+    public void discard(SessionContext context) {
+        closeHistory(context);
+        AccountPrefetch prefetch = context.getPrefetch();
+        if (prefetch == null) {
+            return;
+        }
+        context.setPrefetch(null);
+        settle(prefetch.getBalance(), balanceMeters);
+        settle(prefetch.getTransactions(), transactionsMeters);
+    }
+
+    /**
+     * Stops the prefetch threads, dropping queued fetches.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private void start(SessionContext context) {
+        String customerId = context.getCustomerId();
+        context.setPrefetch(new AccountPrefetch(customerId,
+                submit(() -> accountService.getBalance(customerId), balanceMeters),
+                submit(() -> accountService.getRecentTransactions(customerId), transactionsMeters)));
+    }
+
+    private <T> AccountPrefetch.Fetch<T> submit(Callable<T> read, Meters meters) {
+        AccountPrefetch.Fetch<T> fetch = new AccountPrefetch.Fetch<>();
+        FutureTask<T> task = new FutureTask<>(() -> {
+            T value = read.call();
+            fetch.setCompletedAtNanos(System.nanoTime());
+            return value;
+        });
+        try {
+            executor.execute(task);
+            fetch.setFuture(task);
+        } catch (RejectedExecutionException e) {
+            meters.rejected.increment();
+        }
+        return fetch;
+    }
+
+    private TransactionPage readHistoryPage(SessionContext context, HistoryWindow window, String cursor) {
+        if (cursor == null) {
+            return getRecentTransactions(context);
+        }
+        String customerId = context.getCustomerId();
+        AccountPrefetch.Fetch<TransactionPage> next = cursor.equals(window.getNextCursor()) ? window.getNext() : null;
+        Future<TransactionPage> future = next == null ? null : next.getFuture();
+        if (future != null && !future.isDone()) {
+            // Pages past the first are not cached, so a read would not join the fetch
+            if (executor.remove((Runnable) future)) {
+                // Still queued: reading here is quicker than waiting for a thread
+                future.cancel(false);
+                historyMeters.cancelled.increment();
+                window.setNext(null, null);
+                next = null;
+            } else {
+                try {
+                    TransactionPage page = future.get();
+                    next.markUsed();
+                    historyMeters.late.increment();
+                    return page;
+                } catch (ExecutionException | CancellationException e) {
+                    // Counted as failed and read again below
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new AccountUnavailableException("Interrupted waiting for transaction history", e);
+                }
+            }
+        }
+        return take(next, historyMeters, () -> accountService.getTransactions(customerId, cursor));
+    }
+
+    private static AccountPrefetch prefetchFor(SessionContext context) {
+        AccountPrefetch prefetch = context.getPrefetch();
+        return prefetch != null && prefetch.getCustomerId().equals(context.getCustomerId()) ? prefetch : null;
+    }
+
+    private <T> T take(AccountPrefetch.Fetch<T> fetch, Meters meters, Supplier<T> read) {
+        Future<T> future = fetch == null ? null : fetch.getFuture();
+        if (future == null) {
+            meters.none.increment();
+            return read.get();
+        }
+        if (!future.isDone()) {
+            // The read joins the cache load the fetch started, so the fetch still pays off
+            fetch.markUsed();
+            meters.late.increment();
+            return read.get();
+        }
+        if (System.nanoTime() - fetch.getCompletedAtNanos() > meters.maxAgeNanos) {
+            meters.stale.increment();
+            return read.get();
+        }
+        try {
+            T value = future.get();
+            fetch.markUsed();
+            meters.hit.increment();
+            return value;
+        } catch (ExecutionException | CancellationException e) {
+            meters.failed.increment();
+            return read.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return read.get();
+        }
+    }
+
+    private void settle(AccountPrefetch.Fetch<?> fetch, Meters meters) {
+        Future<?> future = fetch.getFuture();
+        if (future == null) {
+            return;
+        }
+        if (fetch.isUsed()) {
+            meters.used.increment();
+        } else if (executor.remove((Runnable) future)) {
+            // Only a task still queued is cancelled; one already running is left to finish
+            future.cancel(false);
+            meters.cancelled.increment();
+        } else {
+            meters.wasted.increment();
+            if (logger.isDebugEnabled()) {
+                logger.debug("Prefetched {} was not used", meters.kind);
+            }
+        }
+    }
+
+    /**
+     * Lookup and fetch counters for one kind of data.
+     */
+    private static final class Meters {
+
+        final String kind;
+        final long maxAgeNanos;
+        final Counter hit;
+        final Counter late;
+        final Counter stale;
+        final Counter failed;
+        final Counter none;
+        final Counter used;
+        final Counter wasted;
+        final Counter cancelled;
+        final Counter rejected;
+
+        Meters(String kind, long maxAgeNanos, MeterRegistry meterRegistry) {
+            this.kind = kind;
+            this.maxAgeNanos = maxAgeNanos;
+            this.hit = lookup(kind, "hit", meterRegistry);
+            this.late = lookup(kind, "late", meterRegistry);
+            this.stale = lookup(kind, "stale", meterRegistry);
+            this.failed = lookup(kind, "failed", meterRegistry);
+            this.none = lookup(kind, "none", meterRegistry);
+            this.used = fetch(kind, "used", meterRegistry);
+            this.wasted = fetch(kind, "wasted", meterRegistry);
+            this.cancelled = fetch(kind, "cancelled", meterRegistry);
+            this.rejected = fetch(kind, "rejected", meterRegistry);
+        }
+
+        private static Counter lookup(String kind, String result, MeterRegistry meterRegistry) {
+            return Counter.builder("ivr.prefetch.lookups")
+                    .description("Prompt reads of account data, by whether a prefetch answered them")
+                    .tag("kind", kind)
+                    .tag("result", result)
+                    .register(meterRegistry);
+        }
+
+        private static Counter fetch(String kind, String outcome, MeterRegistry meterRegistry) {
+            return Counter.builder("ivr.prefetch.fetches")
+                    .description("Prefetches by what became of them when the call ended")
+                    .tag("kind", kind)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry);
+        }
+    }
+}
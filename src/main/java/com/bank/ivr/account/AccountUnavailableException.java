@@ -0,0 +1,17 @@
+package com.bank.ivr.account;
+
+/**
+ * Thrown when the account backend cannot answer.
+ */
+public class AccountUnavailableException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public AccountUnavailableException(String message) {
+        super(message);
+    }
+
+    public AccountUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,154 @@
+package com.bank.ivr.account;
+
+import com.bank.ivr.model.AccountBalance;
+import com.bank.ivr.model.AccountTransaction;
+import com.bank.ivr.model.TransactionPage;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process account backend for demos, replays and load tests. Every customer
+ * ID has an account whose balance and history are generated from the ID, so
+ * runs are repeatable; {@code CUST001} has fixed demo figures. Each call
+ * sleeps for the configured latency to stand in for the real backend.
+ *
+ * <p>Histories run to thousands of transactions, so only their length is
+ * kept and each transaction is generated when a page is read. Transactions
+ * are numbered from the oldest, and a cursor names the number to continue
+ * from, so pages stay in place as new transactions are posted.
+ */
+public class StandInAccountBackend implements AccountBackend {
+
+    private static final String DEMO_CUSTOMER_ID = "CUST001";
+    private static final int DEMO_HISTORY_LENGTH = 40;
+    private static final String[] DEMO_RECENT_AMOUNTS = {"-120.00", "-45.50", "-500.00"};
+    private static final String[] DEMO_RECENT_DESCRIPTIONS = {"GROCERY", "GAS", "RENT"};
+    private static final String[] MERCHANTS = {
+        "GROCERY", "GAS", "RESTAURANT", "PHARMACY", "ONLINE RETAIL", "UTILITIES", "COFFEE", "TRANSIT"
+    };
+
+    private final long latencyMillis;
+    private final LocalDate today = LocalDate.now();
+    private final ConcurrentHashMap<String, Account> accounts = new ConcurrentHashMap<>();
+
+    /**
+     * @param latencyMillis Time each call takes
+     */
+    public StandInAccountBackend(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    @Override
+    public AccountBalance fetchBalance(String customerId) {
+        Account account = account(customerId);
+        return new AccountBalance(customerId, account.balance);
+    }
+
+    @Override
+    public TransactionPage fetchTransactions(String customerId, String cursor, int limit) {
+        Account account = account(customerId);
+        int from = cursor == null ? account.length : decodeCursor(customerId, cursor);
+        int to = Math.max(from - Math.max(limit, 1), 0);
+        List<AccountTransaction> transactions = new ArrayList<>(from - to);
+        for (int number = from; number > to; number--) {
+            transactions.add(transaction(customerId, account, number));
+        }
+        return new TransactionPage(transactions, to > 0 ? encodeCursor(customerId, to) : null);
+    }
+
+    private Account account(String customerId) {
+        simulateLatency();
+        return accounts.computeIfAbsent(customerId, this::generate);
+    }
+
+    private void simulateLatency() {
+        if (latencyMillis <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.MILLISECONDS.sleep(latencyMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AccountUnavailableException("Interrupted calling the account backend", e);
+        }
+    }
+
+    private Account generate(String customerId) {
+        Random random = new Random(customerId.hashCode());
+        if (DEMO_CUSTOMER_ID.equals(customerId)) {
+            return new Account(new BigDecimal("1234.56"), DEMO_HISTORY_LENGTH, random.nextLong());
+        }
+        int length = 200 + random.nextInt(4800);
+        BigDecimal balance = BigDecimal.valueOf(random.nextInt(5_000_000), 2);
+        return new Account(balance, length, random.nextLong());
+    }
+
+    /**
+     * Generates one transaction; the same number always gives the same transaction.
+     */
+    private AccountTransaction transaction(String customerId, Account account, int number) {
+        int age = account.length - number;
+        LocalDate postedOn = today.minusDays(age * 3L / 2);
+        if (DEMO_CUSTOMER_ID.equals(customerId) && age < DEMO_RECENT_AMOUNTS.length) {
+            return new AccountTransaction(customerId + "-" + number, postedOn,
+                    new BigDecimal(DEMO_RECENT_AMOUNTS[age]), DEMO_RECENT_DESCRIPTIONS[age]);
+        }
+        Random random = new Random(account.seed ^ number * 0x9E3779B97F4A7C15L);
+        BigDecimal amount;
+        String description;
+        if (random.nextInt(10) == 0) {
+            amount = BigDecimal.valueOf(100_000 + random.nextInt(300_000), 2);
+            description = "PAYROLL DEPOSIT";
+        } else {
+            amount = BigDecimal.valueOf(-(100 + random.nextInt(20_000)), 2);
+            description = MERCHANTS[random.nextInt(MERCHANTS.length)];
+        }
+        return new AccountTransaction(customerId + "-" + number, postedOn, amount, description);
+    }
+
+    private static String encodeCursor(String customerId, int number) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((customerId + ':' + number).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static int decodeCursor(String customerId, String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = decoded.lastIndexOf(':');
+            if (separator >= 0 && decoded.substring(0, separator).equals(customerId)) {
+                int number = Integer.parseInt(decoded.substring(separator + 1));
+                if (number > 0) {
+                    return number;
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            // Reported below, with the cursor that could not be read
+        }
+        throw new IllegalArgumentException("Not a transaction cursor for this customer: " + cursor);
+    }
+
+    /**
+     * One customer's account: its balance, the number of transactions in its
+     * history and the seed they are generated from.
+     */
+    private static final class Account {
+
+        final BigDecimal balance;
+        final int length;
+        final long seed;
+
+        Account(BigDecimal balance, int length, long seed) {
+            this.balance = balance;
+            this.length = length;
+            this.seed = seed;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.bank.ivr.action;
+
+import com.bank.ivr.account.AccountPrefetcher;
+import com.bank.ivr.account.AccountUnavailableException;
+import com.bank.ivr.flow.PromptContent;
+import com.bank.ivr.model.AccountBalance;
+import com.bank.ivr.model.AccountTransaction;
+import com.bank.ivr.model.SessionContext;
+import com.bank.ivr.model.TransactionPage;
+import com.bank.ivr.model.TransferResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Prompt content read from the authenticated caller's account.
+ *
+ * <p>Content is only rendered for a session with a customer ID, from the
+ * session's prefetched data when it is ready. If the account backend cannot
+ * answer, the prompt's unavailable message is played instead.
+ */
+@Component
+public class AccountPrompts {
+
+    private static final Logger logger = LoggerFactory.getLogger(AccountPrompts.class);
+
+    private static final String MORE_PROMPT = "Press 1 for more";
+
+    private final AccountPrefetcher accounts;
+
+    @Autowired
+    public AccountPrompts(AccountPrefetcher accounts) {
+        this.accounts = accounts;
+    }
+
+    /**
+     * Content rendering the caller's available balance, such as {@code $1,234.56}.
+     */
+    public PromptContent balance() {
+        return context -> {
+            if (!hasAccount(context)) {
+                return null;
+            }
+            try {
+                AccountBalance balance = accounts.getBalance(context);
+                return balance == null ? null : formatAmount(balance.getAvailable());
+            } catch (AccountUnavailableException e) {
+                logger.warn("Balance not available: {}", e.getMessage());
+                return null;
+            }
+        };
+    }
+
+    /**
+     * Content listing the page of transaction history the caller is on, such
+     * as {@code $120.00 GROCERY, $45.50 GAS}. Credits are marked with a plus
+     * sign, and the caller is offered the next page if there is one.
+     */
+    public PromptContent transactionHistory() {
+        return context -> {
+            if (!hasAccount(context)) {
+                return null;
+            }
+            TransactionPage page;
+            try {
+                page = accounts.getHistoryPage(context);
+            } catch (AccountUnavailableException e) {
+                logger.warn("Transactions not available: {}", e.getMessage());
+                return null;
+            }
+            List<AccountTransaction> transactions = page.getTransactions();
+            if (transactions.isEmpty()) {
+                return "none";
+            }
+            StringBuilder text = new StringBuilder();
+            for (AccountTransaction transaction : transactions) {
+                if (text.length() > 0) {
+                    text.append(", ");
+                }
+                if (transaction.getAmount().signum() > 0) {
+                    text.append('+');
+                }
+                text.append(formatAmount(transaction.getAmount().abs()))
+                        .append(' ')
+                        .append(transaction.getDescription());
+            }
+            if (page.hasMore()) {
+                text.append(". ").append(MORE_PROMPT);
+            }
+            return text.toString();
+        };
+    }
+
+    /**
+     * Content telling the caller the outcome of their latest transfer, such as
+     * {@code You transferred $10.00 to CUST002. Your new balance is $1,224.56}.
+     */
+    public PromptContent transferResult() {
+        return context -> {
+            TransferResult result = context.getLastTransfer();
+            if (result == null) {
+                return null;
+            }
+            switch (result.getStatus()) {
+                case COMPLETED:
+                    return "You transferred " + formatAmount(result.getAmount()) + " to " + result.getToCustomerId()
+                            + ". Your new balance is " + formatAmount(result.getBalance());
+                case INSUFFICIENT_FUNDS:
+                    return "The transfer was not made because your available balance does not cover "
+                            + formatAmount(result.getAmount());
+                case INVALID_ACCOUNT:
+                    return "The transfer was not made because that account cannot receive transfers";
+                case NOT_OFFERED:
+                    return "Transfers cannot be made by phone at the moment. No funds were moved";
+                default:
+                    return "The transfer was not made because that is not a valid amount";
+            }
+        };
+    }
+
+    /**
+     * Helper method to check the session belongs to an authenticated customer.
+     */
+    private static boolean hasAccount(SessionContext context) {
+        return context.isAuthenticated() && context.getCustomerId() != null;
+    }
+
+    /**
+     * Helper method to format an amount in dollars.
+     */
+    private static String formatAmount(BigDecimal amount) {
+        return String.format(Locale.US, "$%,.2f", amount);
+    }
+}
@@ -1,18 +1,33 @@
 package com.bank.ivr.action;
 
-import com.bank.ivr.model.CustomerCredentials;
+import com.bank.ivr.deadline.Deadline;
+import com.bank.ivr.deadline.DeadlineExceededException;
+import com.bank.ivr.jfr.AuthValidationEvent;
+import com.bank.ivr.metrics.IvrMetrics;
+import com.bank.ivr.metrics.IvrMetrics.AuthOutcome;
+import com.bank.ivr.model.AuthMethod;
 import com.bank.ivr.model.IvrEvent;
 import com.bank.ivr.model.IvrState;
+import com.bank.ivr.model.SessionContext;
 import com.bank.ivr.service.AuthenticationService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.statemachine.StateContext;
 import org.springframework.statemachine.action.Action;
+import org.springframework.statemachine.guard.Guard;
 import org.springframework.stereotype.Component;
 
 /**
- * Action handlers for the authentication process.
+ * Action handlers and guards for the authentication process.
+ *
+ * <p>The validation actions only record the outcome in the session context;
+ * the flow's choice state then routes on it with {@link #authenticated()} as
+ * part of the same transition, so no action sends an event of its own.
+ *
+ * <p>A credential check still running when the request's {@link Deadline}
+ * passes is abandoned: the action rethrows, which stops the transition, so
+ * the caller stays at the prompt and the attempt is not counted.
  */
 @Component
 public class AuthenticationActions {
@@ -20,10 +35,12 @@ public class AuthenticationActions {
     private static final Logger logger = LoggerFactory.getLogger(AuthenticationActions.class);
 
     private final AuthenticationService authenticationService;
+    private final IvrMetrics metrics;
 
     @Autowired
-    public AuthenticationActions(AuthenticationService authenticationService) {
+    public AuthenticationActions(AuthenticationService authenticationService, IvrMetrics metrics) {
         this.authenticationService = authenticationService;
+        this.metrics = metrics;
     }
 
     /**
@@ -31,31 +48,39 @@ public class AuthenticationActions {
      */
     public Action<IvrState, IvrEvent> validateSsn() {
         return context -> {
+            AuthValidationEvent validation = new AuthValidationEvent();
+            validation.begin();
+            long start = System.nanoTime();
             try {
-                CustomerCredentials credentials = getOrCreateCredentials(context);
+                SessionContext session = getSessionContext(context);
                 String ssn = (String) context.getMessageHeader("ssn");
                 
-                logger.debug("Validating SSN: {}", maskSsn(ssn));
-                boolean isValid = authenticationService.authenticateBySSN(ssn);
-                credentials.setSsn(ssn);
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Validating SSN: {}", maskSsn(ssn));
+                }
+                String customerId = authenticationService.authenticateBySSN(ssn, getDeadline(context));
+                boolean isValid = customerId != null;
+                session.incrementSsnAttempts();
+                recordValidation(validation, AuthMethod.SSN,
+                        isValid ? AuthOutcome.SUCCESS : AuthOutcome.FAILURE, start);
                 
                 if (isValid) {
                     logger.info("Authentication successful with SSN");
-                    credentials.setAuthenticated(true);
-                    credentials.setCustomerId(authenticationService.getAuthenticatedCustomerId());
-                    boolean accepted = context.getStateMachine().sendEvent(IvrEvent.AUTHENTICATION_SUCCESS);
-                    logger.debug("AUTHENTICATION_SUCCESS event accepted: {}", accepted);
+                    session.setAuthenticated(true);
+                    session.setCustomerId(customerId);
                 } else {
                     logger.info("Authentication failed with SSN");
-                    credentials.setAuthenticated(false);
-                    boolean accepted = context.getStateMachine().sendEvent(IvrEvent.AUTHENTICATION_FAILURE);
-                    logger.debug("AUTHENTICATION_FAILURE event accepted: {}", accepted);
+                    session.setAuthenticated(false);
                 }
+            } catch (DeadlineExceededException e) {
+                logger.info("Abandoned SSN validation: {}", e.getMessage());
+                throw e;
             } catch (Exception e) {
                 logger.error("Exception during SSN validation", e);
-                // Make sure we still send the failure event in case of exceptions
-                boolean accepted = context.getStateMachine().sendEvent(IvrEvent.AUTHENTICATION_FAILURE);
-                logger.debug("AUTHENTICATION_FAILURE event accepted after exception: {}", accepted);
+                recordValidation(validation, AuthMethod.SSN, AuthOutcome.ERROR, start);
+                countAttempt(context, AuthMethod.SSN);
+                // Make sure the session is routed to the failure branch
+                markFailed(context);
             }
         };
     }
@@ -65,10 +90,12 @@ public class AuthenticationActions {
      */
     public Action<IvrState, IvrEvent> validateCardNumber() {
         return context -> {
-            CustomerCredentials credentials = getOrCreateCredentials(context);
+            SessionContext session = getSessionContext(context);
             String cardNumber = (String) context.getMessageHeader("cardNumber");
-            logger.debug("Storing card number: {}", maskCardNumber(cardNumber));
-            credentials.setCardNumber(cardNumber);
+            if (logger.isDebugEnabled()) {
+                logger.debug("Storing card number: {}", maskCardNumber(cardNumber));
+            }
+            session.setCardNumber(cardNumber == null ? null : cardNumber.toCharArray());
             
             // Just store the card number and proceed to PIN entry
             // Validation will happen after PIN entry
@@ -80,46 +107,109 @@ public class AuthenticationActions {
      */
     public Action<IvrState, IvrEvent> validatePin() {
         return context -> {
+            AuthValidationEvent validation = new AuthValidationEvent();
+            validation.begin();
+            long start = System.nanoTime();
             try {
-                CustomerCredentials credentials = getOrCreateCredentials(context);
+                SessionContext session = getSessionContext(context);
                 String pin = (String) context.getMessageHeader("pin");
                 
                 logger.debug("Validating card and PIN");
-                boolean isValid = authenticationService.authenticateByCardAndPin(
-                    credentials.getCardNumber(), pin);
-                credentials.setPin(pin);
+                char[] cardNumber = session.getCardNumber();
+                String customerId = cardNumber == null ? null : authenticationService.authenticateByCardAndPin(
+                    new String(cardNumber), pin, getDeadline(context));
+                boolean isValid = customerId != null;
+                session.incrementPinAttempts();
+                // The card number is no longer needed whatever the outcome
+                session.clearSensitive();
+                recordValidation(validation, AuthMethod.CARD,
+                        isValid ? AuthOutcome.SUCCESS : AuthOutcome.FAILURE, start);
                 
                 if (isValid) {
                     logger.info("Authentication successful with card/PIN");
-                    credentials.setAuthenticated(true);
-                    credentials.setCustomerId(authenticationService.getAuthenticatedCustomerId());
-                    boolean accepted = context.getStateMachine().sendEvent(IvrEvent.AUTHENTICATION_SUCCESS);
-                    logger.debug("AUTHENTICATION_SUCCESS event accepted: {}", accepted);
+                    session.setAuthenticated(true);
+                    session.setCustomerId(customerId);
                 } else {
                     logger.info("Authentication failed with card/PIN");
-                    credentials.setAuthenticated(false);
-                    boolean accepted = context.getStateMachine().sendEvent(IvrEvent.AUTHENTICATION_FAILURE);
-                    logger.debug("AUTHENTICATION_FAILURE event accepted: {}", accepted);
+                    session.setAuthenticated(false);
                 }
+            } catch (DeadlineExceededException e) {
+                // The card number is kept so that the caller can enter the PIN again
+                logger.info("Abandoned PIN validation: {}", e.getMessage());
+                throw e;
             } catch (Exception e) {
                 logger.error("Exception during PIN validation", e);
-                // Make sure we still send the failure event in case of exceptions
-                boolean accepted = context.getStateMachine().sendEvent(IvrEvent.AUTHENTICATION_FAILURE);
-                logger.debug("AUTHENTICATION_FAILURE event accepted after exception: {}", accepted);
+                recordValidation(validation, AuthMethod.CARD, AuthOutcome.ERROR, start);
+                countAttempt(context, AuthMethod.CARD);
+                // Make sure the session is routed to the failure branch
+                markFailed(context);
             }
         };
     }
 
     /**
-     * Helper method to get or create the credentials object in the state machine context.
+     * Guard passing when the session has been authenticated, for routing out of
+     * the choice state a credential entry leads to.
+     */
+    public Guard<IvrState, IvrEvent> authenticated() {
+        return context -> {
+            SessionContext session = getSessionContext(context);
+            return session != null && session.isAuthenticated();
+        };
+    }
+
+    /**
+     * Helper method to mark the session unauthenticated after a failed check.
      */
-    private CustomerCredentials getOrCreateCredentials(StateContext<IvrState, IvrEvent> context) {
-        CustomerCredentials credentials = context.getExtendedState().get("credentials", CustomerCredentials.class);
-        if (credentials == null) {
-            credentials = new CustomerCredentials();
-            context.getExtendedState().getVariables().put("credentials", credentials);
+    private void markFailed(StateContext<IvrState, IvrEvent> context) {
+        SessionContext session = getSessionContext(context);
+        if (session != null) {
+            session.setAuthenticated(false);
+        }
+    }
+
+    /**
+     * Helper method to count a credential check that failed with an error.
+     */
+    private void countAttempt(StateContext<IvrState, IvrEvent> context, AuthMethod method) {
+        SessionContext session = getSessionContext(context);
+        if (session == null) {
+            return;
+        }
+        if (method == AuthMethod.SSN) {
+            session.incrementSsnAttempts();
+        } else {
+            session.incrementPinAttempts();
         }
-        return credentials;
+    }
+
+    /**
+     * Helper method to record a credential check in metrics and, when enabled, JFR.
+     */
+    private void recordValidation(AuthValidationEvent validation, AuthMethod method,
+                                  AuthOutcome outcome, long startNanos) {
+        metrics.recordAuthentication(method, outcome, System.nanoTime() - startNanos);
+        validation.end();
+        if (validation.shouldCommit()) {
+            validation.method = method.name();
+            validation.outcome = outcome.name();
+            validation.commit();
+        }
+    }
+
+    /**
+     * Helper method to get the typed session context passed with the event.
+     */
+    private SessionContext getSessionContext(StateContext<IvrState, IvrEvent> context) {
+        return (SessionContext) context.getMessageHeader(SessionContext.HEADER);
+    }
+    
+    /**
+     * Helper method to get the deadline of the request the event came from.
+     */
+    private Deadline getDeadline(StateContext<IvrState, IvrEvent> context) {
+        Deadline deadline = (Deadline) context.getMessageHeader(Deadline.HEADER);
+        return deadline == null ? Deadline.none() : deadline;
     }
     
     /**
@@ -0,0 +1,56 @@
+package com.bank.ivr.action;
+
+import com.bank.ivr.account.AccountPrefetcher;
+import com.bank.ivr.model.IvrEvent;
+import com.bank.ivr.model.IvrState;
+import com.bank.ivr.model.SessionContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.statemachine.StateContext;
+import org.springframework.statemachine.action.Action;
+import org.springframework.stereotype.Component;
+
+/**
+ * Actions moving the caller through their transaction history.
+ *
+ * <p>The actions only move the session's history cursor; the page at the
+ * cursor is read when the prompt is rendered, so no action waits on the
+ * account backend unless the caller pages on before a page was read.
+ */
+@Component
+public class TransactionHistoryActions {
+
+    private final AccountPrefetcher accounts;
+
+    @Autowired
+    public TransactionHistoryActions(AccountPrefetcher accounts) {
+        this.accounts = accounts;
+    }
+
+    /**
+     * Action starting the history at the most recent transactions.
+     */
+    public Action<IvrState, IvrEvent> openHistory() {
+        return context -> accounts.openHistory(getSessionContext(context));
+    }
+
+    /**
+     * Action moving to the next page of the history.
+     */
+    public Action<IvrState, IvrEvent> nextPage() {
+        return context -> accounts.nextHistoryPage(getSessionContext(context));
+    }
+
+    /**
+     * Action dropping the pages held once the caller leaves the history.
+     */
+    public Action<IvrState, IvrEvent> closeHistory() {
+        return context -> accounts.closeHistory(getSessionContext(context));
+    }
+
+    /**
+     * Helper method to get the session context passed with the event.
+     */
+    private SessionContext getSessionContext(StateContext<IvrState, IvrEvent> context) {
+        return (SessionContext) context.getMessageHeader(SessionContext.HEADER);
+    }
+}
@@ -0,0 +1,117 @@
+package com.bank.ivr.action;
+
+import com.bank.ivr.account.AccountPrefetcher;
+import com.bank.ivr.account.AccountUnavailableException;
+import com.bank.ivr.flow.CompiledFlow;
+import com.bank.ivr.model.IvrEvent;
+import com.bank.ivr.model.IvrState;
+import com.bank.ivr.model.SessionContext;
+import com.bank.ivr.model.TransferResult;
+import com.bank.ivr.service.TransferService;
+import com.bank.ivr.transfer.TransferUnavailableException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.statemachine.StateContext;
+import org.springframework.statemachine.action.Action;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.Locale;
+
+/**
+ * Actions collecting and making a transfer from the caller's account.
+ *
+ * <p>Each transfer the caller starts gets a request ID of its own, so a
+ * transfer submitted twice is only made once. The outcome is kept in the
+ * session context for the result prompt; if the transfer could not be made
+ * durable, none is kept and the prompt's unavailable message is played.
+ */
+@Component
+public class TransferActions {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransferActions.class);
+
+    private final TransferService transferService;
+    private final AccountPrefetcher accounts;
+
+    @Autowired
+    public TransferActions(TransferService transferService, AccountPrefetcher accounts) {
+        this.transferService = transferService;
+        this.accounts = accounts;
+    }
+
+    /**
+     * Action starting a new transfer.
+     */
+    public Action<IvrState, IvrEvent> startTransfer() {
+        return context -> {
+            SessionContext session = getSessionContext(context);
+            session.setTransferTo(null);
+            session.setLastTransfer(null);
+            session.incrementTransferCount();
+        };
+    }
+
+    /**
+     * Action recording the customer ID to transfer to.
+     */
+    public Action<IvrState, IvrEvent> captureAccount() {
+        return context -> {
+            String account = (String) context.getMessageHeader("transferTo");
+            getSessionContext(context).setTransferTo(
+                    account == null ? null : account.trim().toUpperCase(Locale.ROOT));
+        };
+    }
+
+    /**
+     * Action making the transfer once the amount is entered. The amount is in
+     * dollars, with star or a point before the cents.
+     */
+    public Action<IvrState, IvrEvent> submitTransfer() {
+        return context -> {
+            SessionContext session = getSessionContext(context);
+            String to = session.getTransferTo();
+            BigDecimal amount = parseAmount((String) context.getMessageHeader("amount"));
+            if (amount == null) {
+                session.setLastTransfer(new TransferResult(TransferResult.Status.INVALID_AMOUNT, to, null, null));
+                return;
+            }
+            String sessionId = (String) context.getMessageHeader(CompiledFlow.SESSION_ID_HEADER);
+            try {
+                TransferResult result = transferService.transfer(sessionId, "transfer-" + session.getTransferCount(),
+                        session.getCustomerId(), to, amount);
+                session.setLastTransfer(result);
+                if (result.getStatus() == TransferResult.Status.COMPLETED) {
+                    logger.info("Transfer completed");
+                    // The prefetched balance is out of date; it is fetched again on the next transition
+                    accounts.discard(session);
+                }
+            } catch (AccountUnavailableException | TransferUnavailableException e) {
+                logger.warn("Transfer not confirmed: {}", e.getMessage());
+                session.setLastTransfer(null);
+            }
+        };
+    }
+
+    /**
+     * Helper method to parse an amount entered on the keypad.
+     */
+    private static BigDecimal parseAmount(String input) {
+        if (input == null) {
+            return null;
+        }
+        try {
+            return new BigDecimal(input.trim().replace('*', '.'));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Helper method to get the session context passed with the event.
+     */
+    private SessionContext getSessionContext(StateContext<IvrState, IvrEvent> context) {
+        return (SessionContext) context.getMessageHeader(SessionContext.HEADER);
+    }
+}
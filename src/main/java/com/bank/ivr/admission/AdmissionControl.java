@@ -0,0 +1,146 @@
+package com.bank.ivr.admission;
+
+import com.bank.ivr.config.AdmissionProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.function.IntSupplier;
+
+/**
+ * Decides which requests this node takes on when it is overloaded.
+ *
+ * <p>Existing calls may use the whole adaptive concurrency limit, while new
+ * sessions are only admitted below a share of it and below the cap on live
+ * sessions. Under overload, new calls are therefore turned away first and
+ * callers already in the menu keep being served.
+ */
+public class AdmissionControl {
+
+    private static final Logger logger = LogManager.getLogger(AdmissionControl.class);
+
+    /**
+     * A slot in the concurrency limit, to be released when processing ends.
+     */
+    public final class Permit {
+
+        private final long startNanos;
+
+        private Permit(long startNanos) {
+            this.startNanos = startNanos;
+        }
+
+        public void release() {
+            limiter.release(startNanos);
+        }
+    }
+
+    private final GradientConcurrencyLimiter limiter;
+    private final IntSupplier liveSessions;
+    private final int maxLiveSessions;
+    private final double newSessionShare;
+    private final int retryAfterSeconds;
+
+    private final Counter sessionLimitShed;
+    private final Counter newSessionConcurrencyShed;
+    private final Counter processConcurrencyShed;
+    private final Counter limitIncreases;
+    private final Counter limitDecreases;
+
+    public AdmissionControl(AdmissionProperties properties, IntSupplier liveSessions, MeterRegistry registry) {
+        this.liveSessions = liveSessions;
+        this.maxLiveSessions = properties.getMaxLiveSessions();
+        this.newSessionShare = properties.getNewSessionShare();
+        this.retryAfterSeconds = properties.getRetryAfterSeconds();
+
+        this.sessionLimitShed = shedCounter(registry, "new-session", "session-limit");
+        this.newSessionConcurrencyShed = shedCounter(registry, "new-session", "concurrency-limit");
+        this.processConcurrencyShed = shedCounter(registry, "process", "concurrency-limit");
+        this.limitIncreases = Counter.builder("ivr.admission.limit.changes")
+                .description("Adjustments of the adaptive concurrency limit")
+                .tag("direction", "increase")
+                .register(registry);
+        this.limitDecreases = Counter.builder("ivr.admission.limit.changes")
+                .description("Adjustments of the adaptive concurrency limit")
+                .tag("direction", "decrease")
+                .register(registry);
+
+        this.limiter = new GradientConcurrencyLimiter(
+                properties.getInitialLimit(),
+                properties.getMinLimit(),
+                properties.getMaxLimit(),
+                properties.getLatencyTolerance(),
+                properties.getSampleWindowMs(),
+                properties.getMinWindowSamples(),
+                this::limitChanged);
+
+        Gauge.builder("ivr.admission.concurrency.limit", limiter, GradientConcurrencyLimiter::getLimit)
+                .description("Current adaptive limit on requests processed at once")
+                .register(registry);
+        Gauge.builder("ivr.admission.in.flight", limiter, GradientConcurrencyLimiter::getInFlight)
+                .description("Requests being processed")
+                .register(registry);
+        Gauge.builder("ivr.admission.live.sessions", liveSessions, IntSupplier::getAsInt)
+                .description("Live sessions held by this node")
+                .register(registry);
+    }
+
+    /**
+     * Admits a new session if the node has room for it.
+     *
+     * @return A permit covering the session's setup, or null if the session is shed
+     */
+    public Permit tryAdmitSession() {
+        if (liveSessions.getAsInt() >= maxLiveSessions) {
+            sessionLimitShed.increment();
+            return null;
+        }
+        int threshold = Math.max(1, (int) (limiter.getLimit() * newSessionShare));
+        long start = limiter.tryAcquire(threshold);
+        if (start < 0) {
+            newSessionConcurrencyShed.increment();
+            return null;
+        }
+        return new Permit(start);
+    }
+
+    /**
+     * Admits a request for an existing session.
+     *
+     * @return A permit, or null if the request is shed
+     */
+    public Permit tryAcquire() {
+        long start = limiter.tryAcquire(limiter.getLimit());
+        if (start < 0) {
+            processConcurrencyShed.increment();
+            return null;
+        }
+        return new Permit(start);
+    }
+
+    /**
+     * Gets how long a shed caller is told to wait before retrying.
+     */
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    private void limitChanged(int previous, int current) {
+        if (current > previous) {
+            limitIncreases.increment();
+        } else {
+            limitDecreases.increment();
+        }
+        logger.debug("Concurrency limit changed from {} to {}", previous, current);
+    }
+
+    private static Counter shedCounter(MeterRegistry registry, String request, String reason) {
+        return Counter.builder("ivr.admission.shed")
+                .description("Requests rejected by admission control")
+                .tag("request", request)
+                .tag("reason", reason)
+                .register(registry);
+    }
+}
@@ -0,0 +1,74 @@
+package com.bank.ivr.admission;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Per-caller and per-session rate limits, checked before a request does any
+ * state machine work.
+ *
+ * <p>Callers are identified by their ANI (the calling number the gateway
+ * passes in {@link #ANI_HEADER}); requests without one are only limited per
+ * session.
+ */
+public class CallerRateLimiter {
+
+    /**
+     * Header carrying the caller's ANI.
+     */
+    public static final String ANI_HEADER = "X-Ivr-Ani";
+
+    private final TokenBucketTable callers;
+    private final TokenBucketTable sessions;
+
+    private final Counter callerRejected;
+    private final Counter sessionRejected;
+
+    public CallerRateLimiter(TokenBucketTable callers, TokenBucketTable sessions, MeterRegistry registry) {
+        this.callers = callers;
+        this.sessions = sessions;
+        this.callerRejected = rejectedCounter(registry, "caller");
+        this.sessionRejected = rejectedCounter(registry, "session");
+    }
+
+    /**
+     * Takes a token for a request from the given caller.
+     *
+     * @param ani The caller's ANI, or null if unknown
+     * @return True if the request may proceed
+     */
+    public boolean tryAcquireCaller(String ani) {
+        if (ani == null || ani.isEmpty()) {
+            return true;
+        }
+        if (callers.tryAcquire(ani)) {
+            return true;
+        }
+        callerRejected.increment();
+        return false;
+    }
+
+    /**
+     * Takes tokens for input to a session from the given caller.
+     *
+     * @param ani The caller's ANI, or null if unknown
+     * @return True if the request may proceed
+     */
+    public boolean tryAcquire(String ani, String sessionId) {
+        if (!tryAcquireCaller(ani)) {
+            return false;
+        }
+        if (sessions.tryAcquire(sessionId)) {
+            return true;
+        }
+        sessionRejected.increment();
+        return false;
+    }
+
+    private static Counter rejectedCounter(MeterRegistry registry, String key) {
+        return Counter.builder("ivr.ratelimit.rejected")
+                .description("Requests rejected by per-caller or per-session rate limits")
+                .tag("key", key)
+                .register(registry);
+    }
+}
@@ -0,0 +1,146 @@
+package com.bank.ivr.admission;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Adaptive limit on the number of requests processed at once.
+ *
+ * <p>Request latency is sampled in short windows and compared with a slowly
+ * moving baseline. While the window average stays within the tolerated
+ * multiple of the baseline the limit grows by about its square root per
+ * window; once requests start queueing and latency rises above that, the
+ * limit shrinks in proportion (to at most half per window).
+ *
+ * <p>Acquiring and releasing are lock-free. Whichever release closes a window
+ * recomputes the limit.
+ */
+public class GradientConcurrencyLimiter {
+
+    // Weight of each window in the long-run latency baseline (about 20 windows)
+    private static final double BASELINE_WEIGHT = 0.05;
+    private static final double SMOOTHING = 0.2;
+    private static final double MIN_GRADIENT = 0.5;
+
+    /**
+     * Notified whenever the limit changes.
+     */
+    public interface LimitListener {
+        void limitChanged(int previous, int current);
+    }
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final long windowNanos;
+    private final int minWindowSamples;
+    private final LimitListener listener;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile int limit;
+
+    private final AtomicLong windowEnd;
+    private final LongAdder windowSamples = new LongAdder();
+    private final LongAdder windowLatencyNanos = new LongAdder();
+    private final AtomicInteger windowPeakInFlight = new AtomicInteger();
+    // Only touched by the release that closes a window
+    private double baselineNanos;
+
+    public GradientConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double tolerance,
+                                      long windowMillis, int minWindowSamples, LimitListener listener) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Invalid limit range " + minLimit + ".." + maxLimit);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.windowNanos = windowMillis * 1_000_000L;
+        this.minWindowSamples = minWindowSamples;
+        this.listener = listener;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.windowEnd = new AtomicLong(System.nanoTime() + windowNanos);
+    }
+
+    /**
+     * Takes a slot if fewer than {@code threshold} requests are in flight.
+     *
+     * @return The start time to pass to {@link #release(long)}, or -1 if rejected
+     */
+    public long tryAcquire(int threshold) {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= threshold) {
+                return -1;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        int peak = current + 1;
+        if (peak > windowPeakInFlight.get()) {
+            windowPeakInFlight.accumulateAndGet(peak, Math::max);
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * Frees a slot and records the request's latency.
+     */
+    public void release(long startNanos) {
+        inFlight.decrementAndGet();
+        long now = System.nanoTime();
+        windowLatencyNanos.add(now - startNanos);
+        windowSamples.increment();
+
+        long end = windowEnd.get();
+        if (now - end >= 0 && windowEnd.compareAndSet(end, now + windowNanos)) {
+            closeWindow();
+        }
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private void closeWindow() {
+        long samples = windowSamples.sumThenReset();
+        long latency = windowLatencyNanos.sumThenReset();
+        int peak = windowPeakInFlight.getAndSet(0);
+        if (samples < minWindowSamples) {
+            // Too few requests to judge; carry them into the next window
+            windowSamples.add(samples);
+            windowLatencyNanos.add(latency);
+            windowPeakInFlight.accumulateAndGet(peak, Math::max);
+            return;
+        }
+
+        double average = (double) latency / samples;
+        if (baselineNanos == 0) {
+            baselineNanos = average;
+        } else {
+            baselineNanos = baselineNanos * (1 - BASELINE_WEIGHT) + average * BASELINE_WEIGHT;
+            // Let the baseline follow quickly when latency drops, e.g. after a load spike
+            if (baselineNanos > average * 2) {
+                baselineNanos *= 0.95;
+            }
+        }
+
+        int current = limit;
+        double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, tolerance * baselineNanos / average));
+        double target = current * gradient + Math.sqrt(current);
+        if (target > current && peak < current / 2) {
+            // The limit is not what holds requests back, so do not grow it
+            return;
+        }
+        double smoothed = current * (1 - SMOOTHING) + target * SMOOTHING;
+        int next = (int) (target > current ? Math.ceil(smoothed) : Math.floor(smoothed));
+        next = Math.max(minLimit, Math.min(maxLimit, next));
+        if (next != current) {
+            limit = next;
+            listener.limitChanged(current, next);
+        }
+    }
+}
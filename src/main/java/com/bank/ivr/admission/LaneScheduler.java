@@ -0,0 +1,185 @@
+package com.bank.ivr.admission;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Runs request processing on a fixed set of workers, taking work from
+ * weighted priority lanes.
+ *
+ * <p>Lanes are served by smooth weighted round-robin over the lanes that have
+ * work waiting: with weights 8, 3 and 1, a backlog in every lane is drained
+ * in an interleaved 8:3:1 ratio. A busy higher lane therefore delays lower
+ * lanes but never starves them.
+ */
+public class LaneScheduler {
+
+    private static final RequestLane[] LANES = RequestLane.values();
+
+    private static final class Task<T> {
+        final Supplier<T> work;
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        final long enqueuedNanos = System.nanoTime();
+
+        Task(Supplier<T> work) {
+            this.work = work;
+        }
+
+        void run() {
+            try {
+                result.complete(work.get());
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        }
+    }
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition workAvailable = lock.newCondition();
+    // Guarded by lock
+    private final List<ArrayDeque<Task<?>>> queues = new ArrayList<>();
+    private final int[] weights = new int[LANES.length];
+    private final int[] credits = new int[LANES.length];
+    private boolean shutdown;
+
+    private final AtomicInteger[] depths = new AtomicInteger[LANES.length];
+    private final Timer[] queueTimers = new Timer[LANES.length];
+    private final List<Thread> workers = new ArrayList<>();
+
+    public LaneScheduler(int workerCount, Map<RequestLane, Integer> laneWeights, MeterRegistry registry) {
+        for (RequestLane lane : LANES) {
+            int i = lane.ordinal();
+            Integer weight = laneWeights.get(lane);
+            if (weight == null || weight < 1) {
+                throw new IllegalArgumentException("Lane " + lane + " needs a weight of at least 1");
+            }
+            weights[i] = weight;
+            queues.add(new ArrayDeque<>());
+            depths[i] = new AtomicInteger();
+            String tag = lane.name().toLowerCase().replace('_', '-');
+            queueTimers[i] = Timer.builder("ivr.scheduler.queue.time")
+                    .description("Time requests wait for a worker")
+                    .tag("lane", tag)
+                    .publishPercentiles(0.5, 0.99)
+                    .register(registry);
+            Gauge.builder("ivr.scheduler.queue.depth", depths[i], AtomicInteger::get)
+                    .description("Requests waiting for a worker")
+                    .tag("lane", tag)
+                    .register(registry);
+        }
+        for (int i = 0; i < workerCount; i++) {
+            Thread worker = new Thread(this::runWorker, "ivr-lane-worker-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    /**
+     * Queues work in a lane.
+     *
+     * @return A future completed with the work's result once a worker has run it
+     */
+    public <T> CompletableFuture<T> submit(RequestLane lane, Supplier<T> work) {
+        Task<T> task = new Task<>(work);
+        lock.lock();
+        try {
+            if (shutdown) {
+                throw new RejectedExecutionException("Scheduler is shut down");
+            }
+            queues.get(lane.ordinal()).addLast(task);
+            depths[lane.ordinal()].incrementAndGet();
+            workAvailable.signal();
+        } finally {
+            lock.unlock();
+        }
+        return task.result;
+    }
+
+    /**
+     * Stops the workers and fails any work still queued.
+     */
+    public void shutdown() {
+        List<Task<?>> abandoned = new ArrayList<>();
+        lock.lock();
+        try {
+            shutdown = true;
+            for (ArrayDeque<Task<?>> queue : queues) {
+                abandoned.addAll(queue);
+                queue.clear();
+            }
+            workAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        for (Task<?> task : abandoned) {
+            task.result.completeExceptionally(new RejectedExecutionException("Scheduler is shut down"));
+        }
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+    }
+
+    private void runWorker() {
+        while (true) {
+            Task<?> task;
+            int lane;
+            lock.lock();
+            try {
+                while ((lane = nextLane()) < 0) {
+                    if (shutdown) {
+                        return;
+                    }
+                    workAvailable.await();
+                }
+                task = queues.get(lane).pollFirst();
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+            depths[lane].decrementAndGet();
+            queueTimers[lane].record(System.nanoTime() - task.enqueuedNanos, TimeUnit.NANOSECONDS);
+            task.run();
+        }
+    }
+
+    /**
+     * Picks the lane to serve next by smooth weighted round-robin. Caller holds the lock.
+     *
+     * @return The lane's index, or -1 if nothing is queued
+     */
+    private int nextLane() {
+        int best = -1;
+        int total = 0;
+        for (int i = 0; i < LANES.length; i++) {
+            if (queues.get(i).isEmpty()) {
+                // An idle lane does not bank credit for a later burst
+                credits[i] = 0;
+                continue;
+            }
+            credits[i] += weights[i];
+            total += weights[i];
+            if (best < 0 || credits[i] > credits[best]) {
+                best = i;
+            }
+        }
+        if (best >= 0) {
+            credits[best] -= total;
+        }
+        return best;
+    }
+}
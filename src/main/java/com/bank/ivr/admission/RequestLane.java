@@ -0,0 +1,34 @@
+package com.bank.ivr.admission;
+
+import com.bank.ivr.model.IvrState;
+
+/**
+ * Priority lanes for request processing, highest priority first.
+ */
+public enum RequestLane {
+    AUTHENTICATED,   // Callers past authentication, e.g. in the menus
+    AUTHENTICATING,  // Callers choosing or entering credentials
+    NEW_SESSION;     // Call setup
+
+    /**
+     * Gets the lane for input to a session in the given state.
+     */
+    public static RequestLane forState(IvrState state) {
+        if (state == null) {
+            return AUTHENTICATING;
+        }
+        switch (state) {
+            case AUTHENTICATED:
+            case MAIN_MENU:
+            case ACCOUNT_SERVICES:
+            case TRANSFER_FUNDS:
+            case TRANSFER_AMOUNT:
+            case TRANSFER_RESULT:
+            case BALANCE_INQUIRY:
+            case TRANSACTION_HISTORY:
+                return AUTHENTICATED;
+            default:
+                return AUTHENTICATING;
+        }
+    }
+}
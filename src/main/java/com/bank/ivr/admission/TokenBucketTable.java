@@ -0,0 +1,84 @@
+package com.bank.ivr.admission;
+
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size table of token buckets keyed by string, updated lock-free.
+ *
+ * <p>Each bucket is one {@code long} holding the time of its last refill (in
+ * milliseconds, high 40 bits) and its token count (in thousandths of a token,
+ * low 24 bits), so taking a token is a single compare-and-set. Refill happens
+ * on access. Keys hash to slots with a per-process seed; keys that collide
+ * share a bucket, which a table much larger than the number of active callers
+ * makes rare.
+ */
+public class TokenBucketTable {
+
+    private static final int TOKEN_BITS = 24;
+    private static final long TOKEN_MASK = (1L << TOKEN_BITS) - 1;
+    private static final long ONE_TOKEN = 1000;
+
+    private final AtomicLongArray buckets;
+    private final int mask;
+    private final long capacity;
+    private final long refillPerMilli;
+    private final int seed = new SecureRandom().nextInt();
+    // Keeps stored times above zero, so an unused slot reads as a full bucket
+    private final long epochMillis = System.currentTimeMillis() - 1;
+
+    /**
+     * @param slots Number of buckets, rounded up to a power of two
+     * @param ratePerSecond Tokens added to a bucket per second
+     * @param burst Tokens a bucket holds when full
+     */
+    public TokenBucketTable(int slots, int ratePerSecond, int burst) {
+        if (ratePerSecond < 1 || burst < 1 || burst * ONE_TOKEN > TOKEN_MASK) {
+            throw new IllegalArgumentException("Invalid rate " + ratePerSecond + "/s or burst " + burst);
+        }
+        int size = Integer.highestOneBit(Math.max(1, slots - 1)) << 1;
+        this.buckets = new AtomicLongArray(size);
+        this.mask = size - 1;
+        this.capacity = burst * ONE_TOKEN;
+        // Thousandths of a token per millisecond equals tokens per second
+        this.refillPerMilli = ratePerSecond;
+    }
+
+    /**
+     * Takes a token from the key's bucket.
+     *
+     * @return True if a token was available
+     */
+    public boolean tryAcquire(String key) {
+        int slot = slotOf(key);
+        while (true) {
+            long current = buckets.get(slot);
+            long now = System.currentTimeMillis() - epochMillis;
+            long tokens;
+            if (current == 0) {
+                tokens = capacity;
+            } else {
+                long elapsed = Math.max(0, now - (current >>> TOKEN_BITS));
+                tokens = Math.min(capacity, (current & TOKEN_MASK) + elapsed * refillPerMilli);
+            }
+            if (tokens < ONE_TOKEN) {
+                return false;
+            }
+            long next = (now << TOKEN_BITS) | (tokens - ONE_TOKEN);
+            if (buckets.compareAndSet(slot, current, next)) {
+                return true;
+            }
+        }
+    }
+
+    private int slotOf(String key) {
+        int h = seed;
+        for (int i = 0; i < key.length(); i++) {
+            h = (h ^ key.charAt(i)) * 0x01000193;
+        }
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return h & mask;
+    }
+}
@@ -0,0 +1,50 @@
+package com.bank.ivr.api.controller;
+
+import com.bank.ivr.cluster.ClusterCredentials;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * Admits requests to the admin endpoints only from cluster peers and
+ * operators. Peers present the cluster's shared secret and operators the
+ * admin token. If no admin token is configured, operators must call from
+ * this host.
+ */
+public class AdminAccessInterceptor implements HandlerInterceptor {
+
+    private static final Logger logger = LogManager.getLogger(AdminAccessInterceptor.class);
+
+    private final ClusterCredentials credentials;
+
+    public AdminAccessInterceptor(ClusterCredentials credentials) {
+        this.credentials = credentials;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (credentials.isPeer(request.getHeader(ClusterCredentials.PEER_HEADER))
+                || credentials.isAdmin(request.getHeader(ClusterCredentials.ADMIN_HEADER))
+                || (!credentials.hasAdminToken() && isLoopback(request.getRemoteAddr()))) {
+            return true;
+        }
+        logger.debug("Refusing {} {} from {}", request.getMethod(), request.getRequestURI(), request.getRemoteAddr());
+        response.setStatus(HttpStatus.FORBIDDEN.value());
+        return false;
+    }
+
+    private static boolean isLoopback(String address) {
+        try {
+            // An IP literal is parsed without a name lookup
+            return address != null && InetAddress.getByName(address).isLoopbackAddress();
+        } catch (UnknownHostException e) {
+            return false;
+        }
+    }
+}
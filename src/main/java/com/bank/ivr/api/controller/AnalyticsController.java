@@ -0,0 +1,38 @@
+package com.bank.ivr.api.controller;
+
+import com.bank.ivr.metrics.CallFlowFunnel;
+import com.bank.ivr.metrics.FunnelSnapshot;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * REST controller for call-flow analytics gathered on this node.
+ */
+@RestController
+@RequestMapping("/api/analytics")
+public class AnalyticsController {
+
+    private final CallFlowFunnel funnel;
+
+    @Autowired
+    public AnalyticsController(CallFlowFunnel funnel) {
+        this.funnel = funnel;
+    }
+
+    /**
+     * Gets how callers moved through the call flow recently.
+     *
+     * @param windowMinutes How far back to look
+     * @return Sessions started, state entries, transitions and abandonment per state
+     */
+    @GetMapping("/funnel")
+    public ResponseEntity<FunnelSnapshot> getFunnel(@RequestParam(defaultValue = "15") long windowMinutes) {
+        return ResponseEntity.ok(funnel.snapshot(TimeUnit.MINUTES.toMillis(windowMinutes)));
+    }
+}
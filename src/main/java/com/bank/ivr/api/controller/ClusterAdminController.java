@@ -0,0 +1,72 @@
+package com.bank.ivr.api.controller;
+
+import com.bank.ivr.cluster.ClusterMembership;
+import com.bank.ivr.cluster.ClusterNode;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Admin REST controller for inspecting and changing cluster membership.
+ */
+@RestController
+@RequestMapping("/api/admin/cluster")
+public class ClusterAdminController {
+
+    private static final Logger logger = LogManager.getLogger(ClusterAdminController.class);
+
+    private final ClusterMembership membership;
+
+    @Autowired
+    public ClusterAdminController(ClusterMembership membership) {
+        this.membership = membership;
+    }
+
+    /**
+     * Gets this node's view of the cluster.
+     *
+     * @return The local node, membership epoch and member list
+     */
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getMembership() {
+        return ResponseEntity.ok(describe());
+    }
+
+    /**
+     * Replaces the member list. The same list must be pushed to every node.
+     *
+     * @param members Member definitions as {@code id=baseUrl} pairs
+     * @return The updated view of the cluster
+     */
+    @PutMapping("/members")
+    public ResponseEntity<Map<String, Object>> updateMembers(@RequestBody List<String> members) {
+        logger.info("Received cluster membership update: {}", members);
+
+        List<ClusterNode> nodes = new ArrayList<>();
+        for (String definition : members) {
+            nodes.add(ClusterNode.parse(definition));
+        }
+        membership.updateMembers(nodes);
+
+        return ResponseEntity.ok(describe());
+    }
+
+    private Map<String, Object> describe() {
+        List<String> members = new ArrayList<>();
+        for (ClusterNode node : membership.getMembers()) {
+            members.add(node.toString());
+        }
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("localNode", membership.getLocalNode().toString());
+        view.put("epoch", membership.getEpoch());
+        view.put("members", members);
+        return view;
+    }
+}
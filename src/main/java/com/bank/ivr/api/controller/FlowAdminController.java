@@ -0,0 +1,112 @@
+package com.bank.ivr.api.controller;
+
+import com.bank.ivr.flow.CompiledFlow;
+import com.bank.ivr.flow.FlowDefinition;
+import com.bank.ivr.flow.FlowDefinitionException;
+import com.bank.ivr.flow.FlowRegistry;
+import com.bank.ivr.flow.FlowStatus;
+import com.bank.ivr.session.IvrSession;
+import com.bank.ivr.session.SessionRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Admin REST controller for loading and activating call flow versions on this node.
+ */
+@RestController
+@RequestMapping("/api/admin/flows")
+public class FlowAdminController {
+
+    private static final Logger logger = LogManager.getLogger(FlowAdminController.class);
+
+    private final FlowRegistry flows;
+    private final SessionRegistry sessions;
+
+    @Autowired
+    public FlowAdminController(FlowRegistry flows, SessionRegistry sessions) {
+        this.flows = flows;
+        this.sessions = sessions;
+    }
+
+    /**
+     * Lists the loaded flow versions with the number of live sessions on each.
+     *
+     * @return The loaded versions, oldest first
+     */
+    @GetMapping
+    public ResponseEntity<List<FlowStatus>> listFlows() {
+        Map<String, Integer> counts = countSessionsByVersion();
+        List<FlowStatus> result = new ArrayList<>();
+        for (CompiledFlow flow : flows.getVersions()) {
+            result.add(status(flow, counts.getOrDefault(flow.getVersion(), 0)));
+        }
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * Compiles and loads a new flow version, by default also making it the one
+     * new sessions start on. Sessions in progress stay on their version.
+     *
+     * @param definition The flow definition
+     * @param activate Whether to activate the version once loaded
+     * @return The loaded version
+     */
+    @PostMapping
+    public ResponseEntity<FlowStatus> loadFlow(@RequestBody FlowDefinition definition,
+                                               @RequestParam(defaultValue = "true") boolean activate) {
+        logger.info("Received flow version {}", definition.getVersion());
+        CompiledFlow flow;
+        try {
+            flow = flows.load(definition);
+        } catch (FlowDefinitionException e) {
+            logger.warn("Rejecting flow definition: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            logger.warn("Rejecting flow definition: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        if (activate) {
+            flows.activate(flow.getVersion());
+        }
+        return ResponseEntity.ok(status(flow, 0));
+    }
+
+    /**
+     * Makes a loaded version the one new sessions start on, for example to roll back.
+     *
+     * @param version The flow version
+     * @return The activated version
+     */
+    @PostMapping("/{version}/activate")
+    public ResponseEntity<FlowStatus> activateFlow(@PathVariable String version) {
+        CompiledFlow flow = flows.get(version);
+        if (flow == null) {
+            logger.warn("Cannot activate flow {}: not loaded", version);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+        flows.activate(version);
+        return ResponseEntity.ok(status(flow, countSessionsByVersion().getOrDefault(version, 0)));
+    }
+
+    private Map<String, Integer> countSessionsByVersion() {
+        Map<String, Integer> counts = new HashMap<>();
+        for (IvrSession session : sessions.getSessions()) {
+            counts.merge(session.getFlow().getVersion(), 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    private FlowStatus status(CompiledFlow flow, int sessionCount) {
+        return new FlowStatus(flow.getVersion(), flow.getLoadedAtMillis(),
+                flows.getActive() == flow, sessionCount);
+    }
+}
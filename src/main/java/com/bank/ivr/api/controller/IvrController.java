@@ -1,14 +1,39 @@
 package com.bank.ivr.api.controller;
 
+import com.bank.ivr.admission.AdmissionControl;
+import com.bank.ivr.admission.CallerRateLimiter;
+import com.bank.ivr.admission.LaneScheduler;
+import com.bank.ivr.admission.RequestLane;
 import com.bank.ivr.api.model.IvrRequest;
 import com.bank.ivr.api.model.IvrResponse;
+import com.bank.ivr.cluster.ClusterCredentials;
+import com.bank.ivr.cluster.ClusterForwarder;
+import com.bank.ivr.cluster.ClusterMembership;
+import com.bank.ivr.cluster.ClusterNode;
+import com.bank.ivr.deadline.Deadline;
+import com.bank.ivr.deadline.DeadlineExceededException;
+import com.bank.ivr.logging.LogSampler;
+import com.bank.ivr.logging.TraceEscalations;
+import com.bank.ivr.metrics.IvrMetrics;
+import com.bank.ivr.model.IvrState;
+import com.bank.ivr.push.SessionPushHub;
 import com.bank.ivr.service.IvrSessionService;
+import com.bank.ivr.session.SessionIdGenerator;
+import com.bank.ivr.session.SessionTransferException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * REST controller for the IVR API.
@@ -20,78 +45,263 @@ public class IvrController {
     private static final Logger logger = LogManager.getLogger(IvrController.class);
     
     private final IvrSessionService sessionService;
+    private final ClusterMembership membership;
+    private final ClusterForwarder forwarder;
+    private final ClusterCredentials credentials;
+    private final AdmissionControl admission;
+    private final LaneScheduler scheduler;
+    private final CallerRateLimiter rateLimiter;
+    private final TraceEscalations escalations;
+    private final LogSampler sampler;
+    private final SessionPushHub push;
+    private final IvrMetrics metrics;
     
     @Autowired
-    public IvrController(IvrSessionService sessionService) {
+    public IvrController(IvrSessionService sessionService,
+                         ClusterMembership membership,
+                         ClusterForwarder forwarder,
+                         ClusterCredentials credentials,
+                         AdmissionControl admission,
+                         LaneScheduler scheduler,
+                         CallerRateLimiter rateLimiter,
+                         TraceEscalations escalations,
+                         LogSampler sampler,
+                         SessionPushHub push,
+                         IvrMetrics metrics) {
         this.sessionService = sessionService;
+        this.membership = membership;
+        this.forwarder = forwarder;
+        this.credentials = credentials;
+        this.admission = admission;
+        this.scheduler = scheduler;
+        this.rateLimiter = rateLimiter;
+        this.escalations = escalations;
+        this.sampler = sampler;
+        this.push = push;
+        this.metrics = metrics;
     }
     
     /**
      * Initializes a new IVR session.
      * 
+     * Setup runs in the lowest-priority lane, behind input for calls in progress.
+     * 
+     * @param ani The caller's ANI, if the gateway supplies it
      * @return The initial IVR response
      */
     @PostMapping("/session")
-    public ResponseEntity<IvrResponse> initializeSession() {
-        logger.info("Received request to initialize new IVR session");
+    public CompletableFuture<ResponseEntity<IvrResponse>> initializeSession(
+            @RequestHeader(value = CallerRateLimiter.ANI_HEADER, required = false) String ani) {
+        boolean traced = escalations.isEscalated(null, ani);
+        return TraceEscalations.withTrace(traced, () -> doInitializeSession(ani, traced));
+    }
+    
+    private CompletableFuture<ResponseEntity<IvrResponse>> doInitializeSession(String ani, boolean traced) {
+        if (sampler.shouldLog()) {
+            logger.info("Received request to initialize new IVR session");
+        }
+        
+        if (!rateLimiter.tryAcquireCaller(ani)) {
+            logger.debug("Rate limit exceeded for new session from caller {}", ani);
+            return CompletableFuture.completedFuture(rateLimited(null));
+        }
+        
+        if (!membership.isMember()) {
+            logger.warn("Rejecting new session: node {} is draining", membership.getLocalNode().getId());
+            return CompletableFuture.completedFuture(ResponseEntity
+                    .status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(IvrResponse.builder()
+                            .withErrorMessage("Node is draining")
+                            .build()));
+        }
         
-        IvrResponse response = sessionService.initializeSession(null);
+        AdmissionControl.Permit permit = admission.tryAdmitSession();
+        if (permit == null) {
+            logger.debug("Rejecting new session: node {} is at capacity", membership.getLocalNode().getId());
+            return CompletableFuture.completedFuture(overloaded(null));
+        }
         
-        logger.info("Initialized session: {}", response.getSessionId());
-        return ResponseEntity.ok(response);
+        return schedule(RequestLane.NEW_SESSION, permit, traced, () -> {
+            IvrResponse response = sessionService.initializeSession(null);
+            logger.debug("Initialized session: {}", response.getSessionId());
+            return ResponseEntity.ok(response);
+        });
     }
     
     /**
      * Processes a user input and advances the state machine.
      * 
+     * Sessions owned by another cluster node are forwarded to that node. Local
+     * sessions are processed in a priority lane chosen by their current state.
+     * 
+     * If the gateway sends its time budget, an input still waiting for a worker
+     * or its session when the budget runs out is abandoned, as is a credential
+     * check still running. The answer is then {@code 504 Gateway Timeout} and
+     * the session is left in the state it was in. A negative budget is refused
+     * with {@code 400 Bad Request}.
+     * 
      * @param request The IVR request containing session ID and user input
+     * @param hops Number of times the request has already been forwarded
+     * @param peerSecret The cluster's shared secret, if the request comes from a peer
+     * @param ani The caller's ANI, if the gateway supplies it
+     * @param budgetMillis How long the gateway will wait for the answer, if it says
      * @return The next IVR response based on the new state
      */
     @PostMapping("/process")
-    public ResponseEntity<IvrResponse> processUserInput(@RequestBody IvrRequest request) {
+    public CompletableFuture<ResponseEntity<IvrResponse>> processUserInput(@RequestBody IvrRequest request,
+            @RequestHeader(value = ClusterForwarder.HOPS_HEADER, defaultValue = "0") int hops,
+            @RequestHeader(value = ClusterCredentials.PEER_HEADER, required = false) String peerSecret,
+            @RequestHeader(value = CallerRateLimiter.ANI_HEADER, required = false) String ani,
+            @RequestHeader(value = Deadline.HTTP_HEADER, required = false) Long budgetMillis) {
+        if (hops < 0) {
+            return CompletableFuture.completedFuture(
+                    invalidHeader(request.getSessionId(), ClusterForwarder.HOPS_HEADER));
+        }
+        if (budgetMillis != null && budgetMillis < 0) {
+            return CompletableFuture.completedFuture(invalidHeader(request.getSessionId(), Deadline.HTTP_HEADER));
+        }
+        Deadline deadline = Deadline.fromHeader(budgetMillis);
+        // Only a peer's forward has already been counted against the rate limits
+        boolean counted = hops > 0 && credentials.isPeer(peerSecret);
+        boolean traced = escalations.isEscalated(request.getSessionId(), ani);
+        return TraceEscalations.withTrace(traced,
+                () -> doProcessUserInput(request, hops, counted, ani, deadline, traced));
+    }
+    
+    private CompletableFuture<ResponseEntity<IvrResponse>> doProcessUserInput(IvrRequest request, int hops,
+            boolean counted, String ani, Deadline deadline, boolean traced) {
         String sessionId = request.getSessionId();
-        logger.info("Received user input for session {}: {}", sessionId, request.getInputType());
+        if (sampler.shouldLog()) {
+            logger.info("Received user input for session {}: {}", sessionId, request.getInputType());
+        }
         
         if (sessionId == null || sessionId.isEmpty()) {
             logger.warn("Request missing session ID");
-            return ResponseEntity
+            return CompletableFuture.completedFuture(ResponseEntity
                     .status(HttpStatus.BAD_REQUEST)
                     .body(IvrResponse.builder()
                             .withErrorMessage("Session ID is required")
-                            .build());
+                            .build()));
         }
         
-        if (!sessionService.sessionExists(sessionId)) {
+        if (deadline.isExpired()) {
+            return CompletableFuture.completedFuture(deadlineExceeded(sessionId, null, Deadline.Stage.ARRIVAL));
+        }
+        
+        if (!counted && !rateLimiter.tryAcquire(ani, sessionId)) {
+            logger.debug("Rate limit exceeded for session {}", sessionId);
+            return CompletableFuture.completedFuture(rateLimited(sessionId));
+        }
+        
+        IvrState state = sessionService.getCurrentState(sessionId);
+        if (state == null) {
+            ClusterNode owner = resolveRemoteOwner(sessionId, hops);
+            if (owner != null) {
+                return CompletableFuture.completedFuture(forwarder.forwardProcess(owner, request, hops, deadline));
+            }
             logger.warn("Session not found: {}", sessionId);
-            return ResponseEntity
+            return CompletableFuture.completedFuture(ResponseEntity
                     .status(HttpStatus.NOT_FOUND)
                     .body(IvrResponse.builder()
                             .withSessionId(sessionId)
                             .withErrorMessage("Session not found")
-                            .build());
+                            .build()));
         }
         
-        IvrResponse response = sessionService.processUserInput(request);
+        AdmissionControl.Permit permit = admission.tryAcquire();
+        if (permit == null) {
+            logger.debug("Shedding input for session {}: node is at capacity", sessionId);
+            return CompletableFuture.completedFuture(overloaded(sessionId));
+        }
         
-        if (response.isCallEnded()) {
-            logger.info("Call ended for session {}", sessionId);
-            sessionService.endSession(sessionId);
+        return schedule(RequestLane.forState(state), permit, traced, () -> {
+            if (deadline.isExpired()) {
+                return deadlineExceeded(sessionId, state, Deadline.Stage.QUEUE);
+            }
+            try {
+                IvrResponse response = sessionService.processUserInput(request, deadline);
+                
+                if (response.isCallEnded()) {
+                    logger.info("Call ended for session {}", sessionId);
+                    sessionService.endSession(sessionId);
+                }
+                return ResponseEntity.ok(response);
+            } catch (DeadlineExceededException e) {
+                return deadlineExceeded(sessionId, sessionService.getCurrentState(sessionId), e.getStage());
+            } catch (SessionTransferException e) {
+                return handleTransfer(e, hops, owner -> forwarder.forwardProcess(owner, request, hops, deadline));
+            }
+        });
+    }
+    
+    /**
+     * Opens a Server-Sent Events stream of a session's responses. The first
+     * event is the current response; another follows each time the session
+     * settles in a new state, and the stream ends after the call does.
+     * 
+     * Sessions held by another cluster node are redirected to that node, so
+     * a client whose session moves reconnects to the new holder.
+     * 
+     * @param sessionId The session ID
+     * @param hops Number of times the request has already been forwarded
+     * @return The event stream
+     */
+    @GetMapping(path = "/session/{sessionId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> subscribe(@PathVariable String sessionId,
+            @RequestHeader(value = ClusterForwarder.HOPS_HEADER, defaultValue = "0") int hops) {
+        if (hops < 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (!sessionService.sessionExists(sessionId)) {
+            ClusterNode owner = resolveRemoteOwner(sessionId, hops);
+            if (owner != null) {
+                return ResponseEntity
+                        .status(HttpStatus.TEMPORARY_REDIRECT)
+                        .header(HttpHeaders.LOCATION, owner.getBaseUrl() + "/api/ivr/session/" + sessionId + "/events")
+                        .build();
+            }
+            logger.warn("Session not found: {}", sessionId);
+            return ResponseEntity.notFound().build();
         }
         
-        return ResponseEntity.ok(response);
+        SseEmitter emitter = push.subscribe(sessionId, () -> sessionService.getCurrentResponse(sessionId));
+        if (emitter == null) {
+            logger.debug("Refusing push channel for session {}: too many open channels", sessionId);
+            return ResponseEntity
+                    .status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(admission.getRetryAfterSeconds()))
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CACHE_CONTROL, "no-store")
+                .body(emitter);
     }
     
     /**
      * Ends an IVR session.
      * 
      * @param sessionId The session ID to end
+     * @param hops Number of times the request has already been forwarded
      * @return A success response
      */
     @DeleteMapping("/session/{sessionId}")
-    public ResponseEntity<IvrResponse> endSession(@PathVariable String sessionId) {
+    public ResponseEntity<IvrResponse> endSession(@PathVariable String sessionId,
+            @RequestHeader(value = ClusterForwarder.HOPS_HEADER, defaultValue = "0") int hops) {
+        if (hops < 0) {
+            return invalidHeader(sessionId, ClusterForwarder.HOPS_HEADER);
+        }
+        return TraceEscalations.withTrace(escalations.isEscalated(sessionId, null),
+                () -> doEndSession(sessionId, hops));
+    }
+    
+    private ResponseEntity<IvrResponse> doEndSession(String sessionId, int hops) {
         logger.info("Received request to end session: {}", sessionId);
         
         if (!sessionService.sessionExists(sessionId)) {
+            ClusterNode owner = resolveRemoteOwner(sessionId, hops);
+            if (owner != null) {
+                return forwarder.forwardEndSession(owner, sessionId, hops);
+            }
             logger.warn("Session not found: {}", sessionId);
             return ResponseEntity
                     .status(HttpStatus.NOT_FOUND)
@@ -101,7 +311,11 @@ public class IvrController {
                             .build());
         }
         
-        sessionService.endSession(sessionId);
+        try {
+            sessionService.endSession(sessionId);
+        } catch (SessionTransferException e) {
+            return handleTransfer(e, hops, owner -> forwarder.forwardEndSession(owner, sessionId, hops));
+        }
         
         IvrResponse response = IvrResponse.builder()
                 .withSessionId(sessionId)
@@ -112,4 +326,136 @@ public class IvrController {
         
         return ResponseEntity.ok(response);
     }
-} 
\ No newline at end of file
+    
+    /**
+     * Runs admitted work in a priority lane, releasing its permit when done.
+     * Traced work keeps DEBUG logging enabled on the worker thread.
+     */
+    private CompletableFuture<ResponseEntity<IvrResponse>> schedule(RequestLane lane, AdmissionControl.Permit permit,
+            boolean traced, Supplier<ResponseEntity<IvrResponse>> work) {
+        CompletableFuture<ResponseEntity<IvrResponse>> result;
+        try {
+            result = scheduler.submit(lane, traced ? () -> TraceEscalations.withTrace(true, work) : work);
+        } catch (RejectedExecutionException e) {
+            permit.release();
+            return CompletableFuture.completedFuture(overloaded(null));
+        }
+        return result.whenComplete((response, error) -> permit.release());
+    }
+    
+    /**
+     * Answers a request shed by admission control, telling the caller when to retry.
+     */
+    private ResponseEntity<IvrResponse> overloaded(String sessionId) {
+        return ResponseEntity
+                .status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(admission.getRetryAfterSeconds()))
+                .body(IvrResponse.builder()
+                        .withSessionId(sessionId)
+                        .withErrorMessage("Service is at capacity, please retry")
+                        .build());
+    }
+    
+    /**
+     * Answers an input abandoned because the gateway's deadline passed. The
+     * session is in the state it was in before the input.
+     */
+    private ResponseEntity<IvrResponse> deadlineExceeded(String sessionId, IvrState state, Deadline.Stage stage) {
+        logger.debug("Abandoned input for session {} at {}: deadline passed", sessionId, stage);
+        metrics.recordDeadlineExceeded(stage);
+        return ResponseEntity
+                .status(HttpStatus.GATEWAY_TIMEOUT)
+                .body(IvrResponse.builder()
+                        .withSessionId(sessionId)
+                        .withCurrentState(state)
+                        .withErrorMessage("Deadline exceeded")
+                        .build());
+    }
+    
+    /**
+     * Answers a request rejected by the per-caller or per-session rate limit.
+     */
+    private ResponseEntity<IvrResponse> rateLimited(String sessionId) {
+        return ResponseEntity
+                .status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(IvrResponse.builder()
+                        .withSessionId(sessionId)
+                        .withErrorMessage("Too many requests")
+                        .build());
+    }
+    
+    /**
+     * Answers a request with a negative forwarding hop count or deadline budget.
+     */
+    private ResponseEntity<IvrResponse> invalidHeader(String sessionId, String header) {
+        return ResponseEntity
+                .status(HttpStatus.BAD_REQUEST)
+                .body(IvrResponse.builder()
+                        .withSessionId(sessionId)
+                        .withErrorMessage("Invalid " + header + " header")
+                        .build());
+    }
+    
+    /**
+     * Answers a request whose session was being transferred to another node:
+     * forwards it once the session has moved, or asks the caller to retry if
+     * the transfer did not finish in time.
+     */
+    private ResponseEntity<IvrResponse> handleTransfer(SessionTransferException e, int hops,
+            Function<ClusterNode, ResponseEntity<IvrResponse>> forward) {
+        String sessionId = e.getSessionId();
+        if (e.isMigrated()) {
+            ClusterNode owner = resolveRemoteOwner(sessionId, hops);
+            if (owner != null) {
+                return forward.apply(owner);
+            }
+            logger.warn("Session {} moved but its new owner is unknown", sessionId);
+            return ResponseEntity
+                    .status(HttpStatus.NOT_FOUND)
+                    .body(IvrResponse.builder()
+                            .withSessionId(sessionId)
+                            .withErrorMessage("Session not found")
+                            .build());
+        }
+        logger.warn("Session {} still being transferred", sessionId);
+        return ResponseEntity
+                .status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(IvrResponse.builder()
+                        .withSessionId(sessionId)
+                        .withErrorMessage("Session is being transferred")
+                        .build());
+    }
+    
+    /**
+     * Finds the remote node a request for a session not held here should go to:
+     * the node it was explicitly transferred to, the current owner, while a
+     * handoff is in progress the previous owner, or else the node that created it.
+     * 
+     * @return The node to forward to, or null if the request should be answered locally
+     */
+    private ClusterNode resolveRemoteOwner(String sessionId, int hops) {
+        if (hops >= ClusterForwarder.MAX_HOPS) {
+            return null;
+        }
+        ClusterNode relocatedTo = membership.relocationOf(sessionId);
+        if (relocatedTo != null && !membership.isLocal(relocatedTo)) {
+            return relocatedTo;
+        }
+        ClusterNode owner = membership.ownerOf(sessionId);
+        if (!membership.isLocal(owner)) {
+            return owner;
+        }
+        ClusterNode previousOwner = membership.previousOwnerOf(sessionId);
+        if (previousOwner != null && !membership.isLocal(previousOwner)) {
+            return previousOwner;
+        }
+        // Last resort: the node that created the session, named in its ID
+        ClusterNode creator = membership.memberByTag(SessionIdGenerator.nodeTagOf(sessionId));
+        if (creator != null && !membership.isLocal(creator)) {
+            return creator;
+        }
+        return null;
+    }
+}
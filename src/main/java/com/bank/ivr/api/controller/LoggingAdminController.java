@@ -0,0 +1,110 @@
+package com.bank.ivr.api.controller;
+
+import com.bank.ivr.config.LoggingProperties;
+import com.bank.ivr.logging.TraceEscalations;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admin REST controller for turning on DEBUG logging for single sessions or callers.
+ *
+ * Escalations are held by the node that receives them.
+ */
+@RestController
+@RequestMapping("/api/admin/logging/trace")
+public class LoggingAdminController {
+
+    private static final Logger logger = LogManager.getLogger(LoggingAdminController.class);
+
+    private final TraceEscalations escalations;
+    private final LoggingProperties properties;
+
+    @Autowired
+    public LoggingAdminController(TraceEscalations escalations, LoggingProperties properties) {
+        this.escalations = escalations;
+        this.properties = properties;
+    }
+
+    /**
+     * Lists the live escalations.
+     *
+     * @return Expiry times in epoch milliseconds, by session ID and by caller ANI
+     */
+    @GetMapping
+    public ResponseEntity<Map<String, Map<String, Long>>> getEscalations() {
+        Map<String, Map<String, Long>> result = new LinkedHashMap<>();
+        result.put("sessions", escalations.getSessions());
+        result.put("callers", escalations.getCallers());
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * Logs a session at DEBUG until the escalation expires.
+     *
+     * @param sessionId The session ID
+     * @param ttlSeconds How long to keep the escalation
+     * @return No content
+     */
+    @PutMapping("/sessions/{sessionId}")
+    public ResponseEntity<Void> escalateSession(@PathVariable String sessionId,
+                                                @RequestParam(required = false) Long ttlSeconds) {
+        long ttl = ttlOrDefault(ttlSeconds);
+        logger.info("Tracing session {} for {} s", sessionId, ttl);
+        escalations.escalateSession(sessionId, TimeUnit.SECONDS.toMillis(ttl));
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Logs every request from a caller at DEBUG until the escalation expires.
+     *
+     * @param ani The caller's ANI
+     * @param ttlSeconds How long to keep the escalation
+     * @return No content
+     */
+    @PutMapping("/callers/{ani}")
+    public ResponseEntity<Void> escalateCaller(@PathVariable String ani,
+                                               @RequestParam(required = false) Long ttlSeconds) {
+        long ttl = ttlOrDefault(ttlSeconds);
+        logger.info("Tracing caller {} for {} s", ani, ttl);
+        escalations.escalateCaller(ani, TimeUnit.SECONDS.toMillis(ttl));
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Ends a session escalation.
+     *
+     * @param sessionId The session ID
+     * @return No content, or 404 if the session was not escalated
+     */
+    @DeleteMapping("/sessions/{sessionId}")
+    public ResponseEntity<Void> clearSession(@PathVariable String sessionId) {
+        return escalations.clearSession(sessionId)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+    }
+
+    /**
+     * Ends a caller escalation.
+     *
+     * @param ani The caller's ANI
+     * @return No content, or 404 if the caller was not escalated
+     */
+    @DeleteMapping("/callers/{ani}")
+    public ResponseEntity<Void> clearCaller(@PathVariable String ani) {
+        return escalations.clearCaller(ani)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+    }
+
+    private long ttlOrDefault(Long ttlSeconds) {
+        return ttlSeconds == null || ttlSeconds <= 0 ? properties.getDefaultTraceTtlSeconds() : ttlSeconds;
+    }
+}
@@ -0,0 +1,205 @@
+package com.bank.ivr.api.controller;
+
+import com.bank.ivr.cluster.ClusterMembership;
+import com.bank.ivr.cluster.ClusterNode;
+import com.bank.ivr.model.IvrState;
+import com.bank.ivr.service.IvrSessionService;
+import com.bank.ivr.service.SessionMigrationService;
+import com.bank.ivr.session.IvrSession;
+import com.bank.ivr.session.MigrationResult;
+import com.bank.ivr.session.SessionPage;
+import com.bank.ivr.session.SessionRegistry;
+import com.bank.ivr.session.TransitionTrace;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Admin REST controller for inspecting live sessions and moving them between nodes.
+ */
+@RestController
+@RequestMapping("/api/admin/sessions")
+public class SessionAdminController {
+
+    private static final Logger logger = LogManager.getLogger(SessionAdminController.class);
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    private final SessionMigrationService migrationService;
+    private final ClusterMembership membership;
+    private final SessionRegistry sessions;
+    private final IvrSessionService sessionService;
+
+    @Autowired
+    public SessionAdminController(SessionMigrationService migrationService, ClusterMembership membership,
+                                  SessionRegistry sessions, IvrSessionService sessionService) {
+        this.migrationService = migrationService;
+        this.membership = membership;
+        this.sessions = sessions;
+        this.sessionService = sessionService;
+    }
+
+    /**
+     * Counts the sessions held by this node in each state.
+     *
+     * @return Session counts by state
+     */
+    @GetMapping("/states")
+    public ResponseEntity<Map<IvrState, Integer>> countByState() {
+        Map<IvrState, Integer> counts = new EnumMap<>(IvrState.class);
+        for (IvrState state : IvrState.values()) {
+            counts.put(state, sessions.countInState(state));
+        }
+        return ResponseEntity.ok(counts);
+    }
+
+    /**
+     * Lists the sessions held by this node in a state, a page at a time.
+     *
+     * @param state The state
+     * @param cursor The previous page's next cursor, or absent for the first page
+     * @param limit Page size, at most 1000
+     * @return A page of session IDs
+     */
+    @GetMapping(params = "state")
+    public ResponseEntity<SessionPage> listByState(@RequestParam IvrState state,
+                                                   @RequestParam(required = false) String cursor,
+                                                   @RequestParam(defaultValue = "100") int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<String> ids = sessions.findInState(state, cursor, pageSize);
+        String next = ids.size() < pageSize ? null : ids.get(ids.size() - 1);
+        return ResponseEntity.ok(new SessionPage(state, sessions.countInState(state), ids, next));
+    }
+
+    /**
+     * Ends the sessions held by this node in a state, such as calls stuck in ERROR.
+     *
+     * @param state The state
+     * @param limit Maximum number of sessions to end
+     * @return The IDs of the sessions ended
+     */
+    @PostMapping(value = "/terminate", params = "state")
+    public ResponseEntity<List<String>> terminateByState(@RequestParam IvrState state,
+                                                         @RequestParam(defaultValue = "1000") int limit) {
+        logger.info("Received request to end up to {} sessions in state {}", limit, state);
+        return ResponseEntity.ok(sessionService.endSessionsInState(state, Math.max(0, limit)));
+    }
+
+    /**
+     * Dumps the recent transitions of a session held by this node.
+     *
+     * @param sessionId The session ID
+     * @return The trace entries, oldest first
+     */
+    @GetMapping("/{sessionId}/trace")
+    public ResponseEntity<List<TransitionTrace.Entry>> getTrace(@PathVariable String sessionId) {
+        IvrSession session = sessions.get(sessionId);
+        if (session == null) {
+            logger.warn("No local session to trace: {}", sessionId);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+        return ResponseEntity.ok(session.getTrace().dump());
+    }
+
+    /**
+     * Moves every live session to a peer node, or writes a copy of them to a
+     * snapshot file in the export directory.
+     *
+     * @param node ID of the receiving cluster member
+     * @param file Name of the snapshot file to write
+     * @return The transfer result
+     */
+    @PostMapping("/export")
+    public ResponseEntity<MigrationResult> exportSessions(@RequestParam(required = false) String node,
+                                                          @RequestParam(required = false) String file)
+            throws IOException {
+        if (file != null) {
+            logger.info("Copying sessions to file {}", file);
+            return withFile(() -> migrationService.exportToFile(file));
+        }
+        ClusterNode target = findMember(node);
+        if (target == null || membership.isLocal(target)) {
+            logger.warn("Rejecting export to unknown or local node: {}", node);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+        logger.info("Exporting sessions to node {}", node);
+        return ResponseEntity.ok(migrationService.exportToNode(target));
+    }
+
+    /**
+     * Removes this node from the cluster and moves its sessions to their new owners.
+     *
+     * @return The transfer result
+     */
+    @PostMapping("/drain")
+    public ResponseEntity<MigrationResult> drain() throws IOException {
+        logger.info("Received request to drain node {}", membership.getLocalNode().getId());
+        try {
+            return ResponseEntity.ok(migrationService.drain());
+        } catch (IllegalStateException e) {
+            logger.warn("Cannot drain: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    /**
+     * Imports a snapshot stream sent by a peer.
+     *
+     * @param body The binary snapshot stream
+     * @return The import result
+     */
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<MigrationResult> importSessions(InputStream body) throws IOException {
+        return ResponseEntity.ok(migrationService.importSnapshot(body));
+    }
+
+    /**
+     * Imports a snapshot file written by an export.
+     *
+     * @param file Name of the snapshot file in the export directory
+     * @return The import result
+     */
+    @PostMapping(value = "/import", params = "file")
+    public ResponseEntity<MigrationResult> importSessionsFromFile(@RequestParam String file) throws IOException {
+        logger.info("Importing sessions from file {}", file);
+        return withFile(() -> migrationService.importFromFile(file));
+    }
+
+    /**
+     * Runs a snapshot file operation, answering 400 for a file outside the
+     * export directory and 409 if snapshot files are not set up.
+     */
+    private ResponseEntity<MigrationResult> withFile(FileOperation operation) throws IOException {
+        try {
+            return ResponseEntity.ok(operation.run());
+        } catch (IllegalArgumentException e) {
+            logger.warn("Rejecting snapshot file: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (IllegalStateException e) {
+            logger.warn("Cannot use snapshot files: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    private ClusterNode findMember(String nodeId) {
+        for (ClusterNode member : membership.getMembers()) {
+            if (member.getId().equals(nodeId)) {
+                return member;
+            }
+        }
+        return null;
+    }
+
+    private interface FileOperation {
+        MigrationResult run() throws IOException;
+    }
+}
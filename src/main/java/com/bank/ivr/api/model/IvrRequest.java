@@ -11,6 +11,7 @@ public class IvrRequest {
     private String sessionId;
     private String userInput;
     private String inputType;
+    private String requestId;
     
     // Default constructor for JSON serialization
     public IvrRequest() {
@@ -64,11 +65,27 @@ public class IvrRequest {
         this.inputType = inputType;
     }
     
+    /**
+     * Gets the ID the gateway gave this input, or null. A retry of the same
+     * input carries the same ID and is answered without processing it again.
+     */
+    public String getRequestId() {
+        return requestId;
+    }
+
+    /**
+     * Sets the ID the gateway gave this input
+     */
+    public void setRequestId(String requestId) {
+        this.requestId = requestId;
+    }
+    
     @Override
     public String toString() {
         return "IvrRequest{" +
                 "sessionId='" + sessionId + '\'' +
                 ", inputType='" + inputType + '\'' +
+                ", requestId='" + requestId + '\'' +
                 ", userInput='[MASKED]'" +
                 '}';
     }
@@ -0,0 +1,118 @@
+package com.bank.ivr.audit;
+
+import com.bank.ivr.model.AuthMethod;
+import com.bank.ivr.model.IvrEvent;
+import com.bank.ivr.model.IvrState;
+
+/**
+ * One entry in the audit trail: a state transition or an authentication outcome.
+ */
+public class AuditEvent {
+
+    /**
+     * Kind of audit entry. The codes are written to the audit files and must not change.
+     */
+    public enum Type {
+        TRANSITION(1),
+        AUTHENTICATION(2);
+
+        private final int code;
+
+        Type(int code) {
+            this.code = code;
+        }
+
+        public int getCode() {
+            return code;
+        }
+
+        public static Type fromCode(int code) {
+            for (Type type : values()) {
+                if (type.code == code) {
+                    return type;
+                }
+            }
+            throw new IllegalArgumentException("Unknown audit event type " + code);
+        }
+    }
+
+    private final Type type;
+    private final long timestampMillis;
+    private final String sessionId;
+    private final IvrState from;
+    private final IvrState to;
+    private final IvrEvent event;
+    private final AuthMethod authMethod;
+    private final boolean authenticated;
+
+    private AuditEvent(Type type, long timestampMillis, String sessionId, IvrState from, IvrState to,
+                       IvrEvent event, AuthMethod authMethod, boolean authenticated) {
+        this.type = type;
+        this.timestampMillis = timestampMillis;
+        this.sessionId = sessionId;
+        this.from = from;
+        this.to = to;
+        this.event = event;
+        this.authMethod = authMethod;
+        this.authenticated = authenticated;
+    }
+
+    public static AuditEvent transition(long timestampMillis, String sessionId, IvrState from, IvrState to,
+                                        IvrEvent event) {
+        return new AuditEvent(Type.TRANSITION, timestampMillis, sessionId, from, to, event, null, false);
+    }
+
+    public static AuditEvent authentication(long timestampMillis, String sessionId, AuthMethod method,
+                                            boolean authenticated) {
+        return new AuditEvent(Type.AUTHENTICATION, timestampMillis, sessionId, null, null, null, method,
+                authenticated);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public IvrState getFrom() {
+        return from;
+    }
+
+    public IvrState getTo() {
+        return to;
+    }
+
+    /**
+     * Gets the event that triggered a transition, or null for a triggerless one.
+     */
+    public IvrEvent getEvent() {
+        return event;
+    }
+
+    /**
+     * Gets the method of an authentication entry, or null if none was chosen.
+     */
+    public AuthMethod getAuthMethod() {
+        return authMethod;
+    }
+
+    public boolean isAuthenticated() {
+        return authenticated;
+    }
+
+    @Override
+    public String toString() {
+        if (type == Type.TRANSITION) {
+            return timestampMillis + " " + sessionId + " TRANSITION " + from + " -> " + to
+                    + (event == null ? "" : " on " + event);
+        }
+        return timestampMillis + " " + sessionId + " AUTHENTICATION " + authMethod
+                + (authenticated ? " SUCCESS" : " FAILURE");
+    }
+}
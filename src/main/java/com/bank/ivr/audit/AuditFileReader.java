@@ -0,0 +1,142 @@
+package com.bank.ivr.audit;
+
+import com.bank.ivr.model.AuthMethod;
+import com.bank.ivr.model.IvrEvent;
+import com.bank.ivr.model.IvrState;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Reads audit files written by the audit trail.
+ *
+ * <p>Also usable from the command line, printing one line per entry:
+ * <pre>
+ * java -cp ivr-state-machine.jar -Dloader.main=com.bank.ivr.audit.AuditFileReader \
+ *      org.springframework.boot.loader.PropertiesLauncher audit/ [session-id]
+ * </pre>
+ */
+public final class AuditFileReader {
+
+    private AuditFileReader() {
+    }
+
+    /**
+     * Reads every entry of a file in order. A block cut short or failing its
+     * checksum ends the file, since nothing after it can be trusted.
+     *
+     * @param file The audit file
+     * @param consumer Receives each entry
+     * @return The number of entries read
+     */
+    public static long read(Path file, Consumer<AuditEvent> consumer) throws IOException {
+        long count = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != AuditFileWriter.MAGIC) {
+                throw new IOException("Not an audit file: " + file);
+            }
+            short version = in.readShort();
+            if (version != AuditFileWriter.VERSION) {
+                throw new IOException("Unsupported audit file version " + version + ": " + file);
+            }
+            CRC32 crc = new CRC32();
+            while (true) {
+                byte[] block;
+                int records;
+                try {
+                    int length = in.readInt();
+                    records = in.readInt();
+                    int checksum = in.readInt();
+                    block = new byte[length];
+                    in.readFully(block);
+                    crc.reset();
+                    crc.update(block, 0, length);
+                    if ((int) crc.getValue() != checksum) {
+                        return count;
+                    }
+                } catch (EOFException e) {
+                    return count;
+                }
+                DataInputStream entries = new DataInputStream(
+                        new InflaterInputStream(new ByteArrayInputStream(block)));
+                for (int i = 0; i < records; i++) {
+                    consumer.accept(decode(entries));
+                    count++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Lists the audit files in a directory, oldest first.
+     */
+    public static List<Path> list(Path directory) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + AuditFileWriter.EXTENSION)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        files.sort((a, b) -> {
+            try {
+                return Files.getLastModifiedTime(a).compareTo(Files.getLastModifiedTime(b));
+            } catch (IOException e) {
+                return a.compareTo(b);
+            }
+        });
+        return files;
+    }
+
+    /**
+     * Prints the entries of audit files, optionally for one session only.
+     *
+     * @param args A file or directory, then optionally a session ID
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: AuditFileReader <file-or-directory> [session-id]");
+            System.exit(2);
+        }
+        Path path = Paths.get(args[0]);
+        String sessionId = args.length > 1 ? args[1] : null;
+        List<Path> files = Files.isDirectory(path) ? list(path) : Collections.singletonList(path);
+        for (Path file : files) {
+            read(file, event -> {
+                if (sessionId == null || sessionId.equals(event.getSessionId())) {
+                    System.out.println(event);
+                }
+            });
+        }
+    }
+
+    private static AuditEvent decode(DataInputStream in) throws IOException {
+        AuditEvent.Type type = AuditEvent.Type.fromCode(in.readUnsignedByte());
+        long timestamp = in.readLong();
+        String sessionId = in.readUTF();
+        if (type == AuditEvent.Type.TRANSITION) {
+            IvrState from = valueOf(IvrState.class, in.readUTF());
+            IvrState to = valueOf(IvrState.class, in.readUTF());
+            IvrEvent event = valueOf(IvrEvent.class, in.readUTF());
+            return AuditEvent.transition(timestamp, sessionId, from, to, event);
+        }
+        AuthMethod method = valueOf(AuthMethod.class, in.readUTF());
+        return AuditEvent.authentication(timestamp, sessionId, method, in.readBoolean());
+    }
+
+    private static <E extends Enum<E>> E valueOf(Class<E> type, String name) {
+        return name.isEmpty() ? null : Enum.valueOf(type, name);
+    }
+}
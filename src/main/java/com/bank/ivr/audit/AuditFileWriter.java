@@ -0,0 +1,169 @@
+package com.bank.ivr.audit;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes batches of audit events to a series of rolling files.
+ *
+ * <p>A file starts with a header (magic number and format version) followed
+ * by one block per batch. A block is its compressed length, record count and
+ * CRC-32 of the compressed bytes, then the records deflate-compressed. A new
+ * file is started once the current one exceeds its size limit or age limit.
+ * A block cut short by a crash is detected by the reader and skipped.
+ *
+ * <p>Not thread-safe; used only by the audit writer thread.
+ */
+class AuditFileWriter implements AutoCloseable {
+
+    static final int MAGIC = 0x49565241;  // "IVRA"
+    static final short VERSION = 1;
+    static final String EXTENSION = ".ivra";
+
+    private final Path directory;
+    private final String prefix;
+    private final long maxFileBytes;
+    private final long maxFileAgeMillis;
+    private final boolean fsync;
+
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(64 * 1024);
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final CRC32 crc = new CRC32();
+
+    private FileChannel channel;
+    private long fileBytes;
+    private long fileOpenedAt;
+    private int sequence;
+
+    /**
+     * @param directory Directory the files are written to, created if missing
+     * @param prefix File name prefix, such as the node ID
+     * @param maxFileBytes Size after which a new file is started
+     * @param maxFileAgeMillis Age after which a new file is started
+     * @param fsync Whether each block is forced to disk before the next is written
+     */
+    AuditFileWriter(Path directory, String prefix, long maxFileBytes, long maxFileAgeMillis, boolean fsync) {
+        this.directory = directory;
+        this.prefix = prefix;
+        this.maxFileBytes = maxFileBytes;
+        this.maxFileAgeMillis = maxFileAgeMillis;
+        this.fsync = fsync;
+    }
+
+    /**
+     * Writes one batch as a block, opening or rolling the file as needed.
+     */
+    void write(List<AuditEvent> events) throws IOException {
+        byte[] block = encode(events);
+        rollIfDue(System.currentTimeMillis());
+        if (channel == null) {
+            open();
+        }
+        ByteBuffer header = ByteBuffer.allocate(12);
+        header.putInt(block.length).putInt(events.size()).putInt((int) checksum(block));
+        header.flip();
+        ByteBuffer body = ByteBuffer.wrap(block);
+        while (header.hasRemaining() || body.hasRemaining()) {
+            channel.write(new ByteBuffer[] {header, body});
+        }
+        if (fsync) {
+            channel.force(false);
+        }
+        fileBytes += 12 + block.length;
+    }
+
+    /**
+     * Closes the current file if it has reached its size or age limit. Also
+     * called while idle, so that quiet periods do not keep one file open.
+     */
+    void rollIfDue(long now) throws IOException {
+        if (channel != null && (fileBytes >= maxFileBytes || now - fileOpenedAt >= maxFileAgeMillis)) {
+            closeFile();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            closeFile();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private byte[] encode(List<AuditEvent> events) throws IOException {
+        buffer.reset();
+        deflater.reset();
+        DeflaterOutputStream deflated = new DeflaterOutputStream(buffer, deflater, 8192);
+        DataOutputStream out = new DataOutputStream(deflated);
+        for (AuditEvent event : events) {
+            out.writeByte(event.getType().getCode());
+            out.writeLong(event.getTimestampMillis());
+            out.writeUTF(event.getSessionId());
+            if (event.getType() == AuditEvent.Type.TRANSITION) {
+                out.writeUTF(nameOf(event.getFrom()));
+                out.writeUTF(nameOf(event.getTo()));
+                out.writeUTF(nameOf(event.getEvent()));
+            } else {
+                out.writeUTF(nameOf(event.getAuthMethod()));
+                out.writeBoolean(event.isAuthenticated());
+            }
+        }
+        out.flush();
+        deflated.finish();
+        return buffer.toByteArray();
+    }
+
+    private long checksum(byte[] block) {
+        crc.reset();
+        crc.update(block, 0, block.length);
+        return crc.getValue();
+    }
+
+    private void open() throws IOException {
+        Files.createDirectories(directory);
+        long now = System.currentTimeMillis();
+        String stamp = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date(now));
+        Path file = directory.resolve(prefix + "-" + stamp + "-" + (sequence++) + EXTENSION);
+        channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(6);
+        header.putInt(MAGIC).putShort(VERSION);
+        header.flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        fileBytes = header.capacity();
+        fileOpenedAt = now;
+    }
+
+    /**
+     * Closes the current file; the next write starts a new one.
+     */
+    void closeFile() throws IOException {
+        FileChannel current = channel;
+        channel = null;
+        if (current != null) {
+            try {
+                current.force(true);
+            } finally {
+                current.close();
+            }
+        }
+    }
+
+    private static String nameOf(Enum<?> value) {
+        return value == null ? "" : value.name();
+    }
+}
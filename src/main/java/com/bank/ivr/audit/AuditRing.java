@@ -0,0 +1,71 @@
+package com.bank.ivr.audit;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded single-producer, single-consumer queue of audit events. Each
+ * producing thread owns one ring; the audit writer is the only consumer.
+ */
+class AuditRing {
+
+    private final AuditEvent[] slots;
+    private final int mask;
+    private final Thread owner;
+    private final AtomicLong head = new AtomicLong();  // Next slot to consume
+    private final AtomicLong tail = new AtomicLong();  // Next slot to fill
+
+    /**
+     * @param capacity Number of slots, rounded up to a power of two
+     * @param owner The only thread allowed to offer events
+     */
+    AuditRing(int capacity, Thread owner) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.slots = new AuditEvent[size];
+        this.mask = size - 1;
+        this.owner = owner;
+    }
+
+    /**
+     * Adds an event. Called only from the owning thread.
+     *
+     * @return False if the ring is full
+     */
+    boolean offer(AuditEvent event) {
+        long t = tail.get();
+        if (t - head.get() >= slots.length) {
+            return false;
+        }
+        slots[(int) t & mask] = event;
+        tail.lazySet(t + 1);
+        return true;
+    }
+
+    /**
+     * Moves up to {@code max} events into {@code out}. Called only from the consumer.
+     *
+     * @return The number of events moved
+     */
+    int drainTo(List<AuditEvent> out, int max) {
+        long h = head.get();
+        long available = Math.min(tail.get() - h, max);
+        for (long i = 0; i < available; i++) {
+            int index = (int) (h + i) & mask;
+            out.add(slots[index]);
+            slots[index] = null;
+        }
+        head.lazySet(h + available);
+        return (int) available;
+    }
+
+    int size() {
+        return (int) (tail.get() - head.get());
+    }
+
+    /**
+     * Checks whether the ring can be discarded: its thread has died and everything it offered has been drained.
+     */
+    boolean isAbandoned() {
+        return !owner.isAlive() && size() == 0;
+    }
+}
@@ -0,0 +1,240 @@
+package com.bank.ivr.audit;
+
+import com.bank.ivr.config.AuditProperties;
+import com.bank.ivr.flow.CompletedTransitionListener;
+import com.bank.ivr.model.IvrEvent;
+import com.bank.ivr.model.IvrState;
+import com.bank.ivr.model.SessionContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.statemachine.listener.StateMachineListener;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Durable record of every call's path, written off the request path.
+ *
+ * <p>Each thread that records events gets its own bounded ring, so recording
+ * is a few plain writes with no locking or contention between threads. A
+ * background thread drains all rings in batches and hands each batch to an
+ * {@link AuditFileWriter}; under load a batch covers everything recorded
+ * since the previous write, so the cost of compression and fsync is shared.
+ * When a ring is full, because the disk cannot keep up, the event is dropped
+ * rather than delaying the caller. Drops, write failures and the backlog are
+ * published as metrics.
+ *
+ * <p>Entries from one thread are written in order. Entries for one session
+ * recorded on different threads may be interleaved out of order within a
+ * batch; readers should order by timestamp.
+ */
+public class AuditTrail implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(AuditTrail.class);
+    private static final long DROP_WARNING_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final AuditFileWriter fileWriter;
+    private final int ringCapacity;
+    private final int batchSize;
+    private final long idleParkNanos;
+
+    private final List<AuditRing> rings = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<AuditRing> localRing = new ThreadLocal<>();
+    private final Thread writerThread;
+    private volatile boolean running = true;
+
+    private final Counter written;
+    private final Counter dropped;
+    private final Counter failed;
+    private final Timer writeTimer;
+
+    /**
+     * @param properties Audit settings
+     * @param filePrefix Prefix of the audit file names, such as the node ID
+     * @param meterRegistry Registry for the audit metrics
+     */
+    public AuditTrail(AuditProperties properties, String filePrefix, MeterRegistry meterRegistry) {
+        this.fileWriter = new AuditFileWriter(Paths.get(properties.getDirectory()), filePrefix,
+                properties.getMaxFileBytes(), TimeUnit.SECONDS.toMillis(properties.getMaxFileAgeSeconds()),
+                properties.isFsync());
+        this.ringCapacity = properties.getRingCapacity();
+        this.batchSize = Math.max(1, properties.getBatchSize());
+        this.idleParkNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, properties.getFlushIntervalMs()));
+
+        this.written = Counter.builder("ivr.audit.events")
+                .description("Audit events by what became of them")
+                .tag("outcome", "written")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("ivr.audit.events")
+                .description("Audit events by what became of them")
+                .tag("outcome", "dropped")
+                .register(meterRegistry);
+        this.failed = Counter.builder("ivr.audit.events")
+                .description("Audit events by what became of them")
+                .tag("outcome", "failed")
+                .register(meterRegistry);
+        this.writeTimer = Timer.builder("ivr.audit.write")
+                .description("Time taken to compress and write one batch")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("ivr.audit.backlog", this, AuditTrail::backlog)
+                .description("Audit events recorded but not yet written")
+                .register(meterRegistry);
+
+        this.writerThread = new Thread(this::run, "ivr-audit-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Queues an event for writing, dropping it if this thread's ring is full.
+     *
+     * @return False if the event was dropped
+     */
+    public boolean record(AuditEvent event) {
+        AuditRing ring = localRing.get();
+        if (ring == null) {
+            ring = new AuditRing(ringCapacity, Thread.currentThread());
+            localRing.set(ring);
+            rings.add(ring);
+        }
+        if (ring.offer(event)) {
+            return true;
+        }
+        dropped.increment();
+        return false;
+    }
+
+    /**
+     * Creates a listener recording one session's transitions, and the outcome
+     * of each authentication, taken from the session context once the
+     * credential entry that passes through {@link IvrState#VALIDATING} completes.
+     * Each session needs its own.
+     */
+    public StateMachineListener<IvrState, IvrEvent> newListener(String sessionId, SessionContext context) {
+        return new CompletedTransitionListener() {
+            @Override
+            protected void onTransitionCompleted(IvrState from, IvrState to, IvrEvent event) {
+                long now = System.currentTimeMillis();
+                record(AuditEvent.transition(now, sessionId, from, to, event));
+                if (event == IvrEvent.ENTER_SSN || event == IvrEvent.ENTER_PIN) {
+                    record(AuditEvent.authentication(now, sessionId, context.getAuthMethod(),
+                            context.isAuthenticated()));
+                }
+            }
+        };
+    }
+
+    /**
+     * Stops the writer after it has written everything recorded so far.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        List<AuditEvent> batch = new ArrayList<>(batchSize);
+        long droppedSeen = 0;
+        long lastDropWarning = System.nanoTime() - DROP_WARNING_INTERVAL_NANOS;
+        try {
+            while (true) {
+                boolean stopping = !running;
+                drain(batch);
+                if (!batch.isEmpty()) {
+                    write(batch);
+                    batch.clear();
+                    continue;
+                }
+                if (stopping) {
+                    break;
+                }
+                rollIfDue();
+                long droppedNow = (long) dropped.count();
+                if (droppedNow > droppedSeen && System.nanoTime() - lastDropWarning > DROP_WARNING_INTERVAL_NANOS) {
+                    logger.warn("Dropped {} audit events: writer is not keeping up", droppedNow - droppedSeen);
+                    droppedSeen = droppedNow;
+                    lastDropWarning = System.nanoTime();
+                }
+                LockSupport.parkNanos(this, idleParkNanos);
+            }
+        } finally {
+            try {
+                fileWriter.close();
+            } catch (IOException e) {
+                logger.error("Failed to close audit file", e);
+            }
+        }
+    }
+
+    /**
+     * Fills the batch from all rings in turn, discarding rings of threads that have died.
+     */
+    private void drain(List<AuditEvent> batch) {
+        for (AuditRing ring : rings) {
+            int room = batchSize - batch.size();
+            if (room <= 0) {
+                return;
+            }
+            if (ring.drainTo(batch, room) == 0 && ring.isAbandoned()) {
+                rings.remove(ring);
+            }
+        }
+    }
+
+    private void write(List<AuditEvent> batch) {
+        long start = System.nanoTime();
+        try {
+            fileWriter.write(batch);
+            written.increment(batch.size());
+        } catch (IOException e) {
+            failed.increment(batch.size());
+            logger.error("Failed to write {} audit events", batch.size(), e);
+            closeQuietly();
+        } finally {
+            writeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void rollIfDue() {
+        try {
+            fileWriter.rollIfDue(System.currentTimeMillis());
+        } catch (IOException e) {
+            logger.error("Failed to close audit file", e);
+        }
+    }
+
+    /**
+     * Abandons the current file after a failed write, so the next batch starts a new one.
+     */
+    private void closeQuietly() {
+        try {
+            fileWriter.closeFile();
+        } catch (IOException e) {
+            logger.debug("Failed to close audit file after write error", e);
+        }
+    }
+
+    private double backlog() {
+        long total = 0;
+        for (AuditRing ring : rings) {
+            total += ring.size();
+        }
+        return total;
+    }
+}
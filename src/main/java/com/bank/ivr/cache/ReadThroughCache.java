@@ -0,0 +1,332 @@
+package com.bank.ivr.cache;
+
+import com.bank.ivr.config.CacheProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * A bounded cache that loads missing and expired values itself.
+ *
+ * <p>Each entry expires at its own deadline, the TTL shortened by a random
+ * jitter so that entries loaded in a burst do not all expire together. Only
+ * one load per key runs at a time: callers missing on a key that is already
+ * loading wait for that load instead of starting their own, so an expiring
+ * popular entry costs the backend one call. An entry read often enough since
+ * it was loaded is hot, and once most of its TTL has passed it is reloaded in
+ * the background while the old value is still served, so hot keys never miss.
+ *
+ * <p>Beyond the size limit entries are evicted second-chance (CLOCK) style: in
+ * insertion order, but an entry read since it was last considered goes to the
+ * back once. Hits, misses, loads, coalesced misses, refreshes and evictions by
+ * cause are published as metrics tagged with the cache name. Null values are
+ * cached like any other.
+ *
+ * @param <K> Key type
+ * @param <V> Value type
+ */
+public class ReadThroughCache<K, V> {
+
+    private static final Logger logger = LogManager.getLogger(ReadThroughCache.class);
+
+    private final String name;
+    private final Function<K, V> loader;
+    private final Executor refresher;
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final long jitterNanos;
+    private final double refreshAheadFraction;
+    private final int refreshAheadHits;
+
+    private final ConcurrentHashMap<K, Node<K, V>> nodes = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Node<K, V>> clock = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter coalesced;
+    private final Counter loadFailures;
+    private final Counter refreshes;
+    private final Counter evictedForSize;
+    private final Counter evictedExpired;
+    private final Counter invalidated;
+    private final Timer loadTimer;
+
+    /**
+     * @param name Cache name, used as the {@code cache} tag of its metrics
+     * @param properties Cache settings
+     * @param loader Loads the value of a key; exceptions reach the callers waiting for it
+     * @param refresher Runs refresh-ahead loads
+     * @param meterRegistry Registry for the cache metrics
+     */
+    public ReadThroughCache(String name, CacheProperties properties, Function<K, V> loader,
+                            Executor refresher, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.loader = loader;
+        this.refresher = refresher;
+        this.maxEntries = Math.max(1, properties.getMaxEntries());
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(Math.max(1, properties.getTtlSeconds()));
+        this.jitterNanos = (long) (ttlNanos * Math.min(Math.max(properties.getTtlJitter(), 0), 0.5));
+        this.refreshAheadFraction = properties.getRefreshAheadFraction();
+        this.refreshAheadHits = Math.max(1, properties.getRefreshAheadHits());
+
+        this.hits = counter("ivr.cache.gets", "Cache reads by result", meterRegistry, "result", "hit");
+        this.misses = counter("ivr.cache.gets", "Cache reads by result", meterRegistry, "result", "miss");
+        this.coalesced = counter("ivr.cache.coalesced",
+                "Misses that waited for a load already in progress instead of starting one", meterRegistry);
+        this.loadFailures = counter("ivr.cache.load.failures", "Loads that threw", meterRegistry);
+        this.refreshes = counter("ivr.cache.refreshes", "Hot entries reloaded ahead of expiry", meterRegistry);
+        this.evictedForSize = counter("ivr.cache.evictions", "Entries removed, by cause", meterRegistry,
+                "cause", "size");
+        this.evictedExpired = counter("ivr.cache.evictions", "Entries removed, by cause", meterRegistry,
+                "cause", "expired");
+        this.invalidated = counter("ivr.cache.evictions", "Entries removed, by cause", meterRegistry,
+                "cause", "invalidated");
+        this.loadTimer = Timer.builder("ivr.cache.load")
+                .description("Time taken by successful loads")
+                .tag("cache", name)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("ivr.cache.size", size, AtomicInteger::get)
+                .description("Entries held")
+                .tag("cache", name)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Gets the value of a key, loading it on the calling thread if it is
+     * missing or expired, or waiting for a load already in progress.
+     */
+    public V get(K key) {
+        Node<K, V> node = nodeFor(key);
+        Value<V> value = node.value;
+        long now = System.nanoTime();
+        if (value != null && now - value.expiresAt < 0) {
+            hits.increment();
+            node.referenced = true;
+            if (value.reads.get() < refreshAheadHits) {
+                value.reads.incrementAndGet();
+            } else if (now - value.refreshAt >= 0) {
+                refreshAhead(node, value);
+            }
+            return value.value;
+        }
+        misses.increment();
+        return load(node);
+    }
+
+    /**
+     * Drops the value of a key, so the next read loads it again. A load
+     * already in progress still answers the callers waiting for it, but its
+     * value is not kept.
+     */
+    public void invalidate(K key) {
+        Node<K, V> node = nodes.get(key);
+        if (node != null) {
+            node.generation.incrementAndGet();
+            node.loading.set(null);
+            if (node.value != null) {
+                node.value = null;
+                invalidated.increment();
+            }
+        }
+    }
+
+    /**
+     * Gets the number of entries held.
+     */
+    public int size() {
+        return size.get();
+    }
+
+    private Node<K, V> nodeFor(K key) {
+        Node<K, V> node = nodes.get(key);
+        if (node == null) {
+            Node<K, V> created = new Node<>(key);
+            node = nodes.putIfAbsent(key, created);
+            if (node == null) {
+                node = created;
+                clock.offer(created);
+                if (size.incrementAndGet() > maxEntries) {
+                    evict();
+                }
+            }
+        }
+        return node;
+    }
+
+    private V load(Node<K, V> node) {
+        while (true) {
+            CompletableFuture<V> inFlight = node.loading.get();
+            if (inFlight != null) {
+                coalesced.increment();
+                return await(inFlight);
+            }
+            CompletableFuture<V> mine = new CompletableFuture<>();
+            if (node.loading.compareAndSet(null, mine)) {
+                // A load may have finished between the caller's lookup and here
+                Value<V> value = node.value;
+                if (value != null && System.nanoTime() - value.expiresAt < 0) {
+                    node.loading.compareAndSet(mine, null);
+                    mine.complete(value.value);
+                    return value.value;
+                }
+                return runLoad(node, mine);
+            }
+        }
+    }
+
+    private V runLoad(Node<K, V> node, CompletableFuture<V> mine) {
+        int generation = node.generation.get();
+        long start = System.nanoTime();
+        try {
+            V loaded = loader.apply(node.key);
+            long now = System.nanoTime();
+            loadTimer.record(now - start, TimeUnit.NANOSECONDS);
+            if (node.generation.get() == generation) {
+                node.value = newValue(loaded, now);
+            }
+            mine.complete(loaded);
+            return loaded;
+        } catch (RuntimeException | Error e) {
+            loadFailures.increment();
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            node.loading.compareAndSet(mine, null);
+        }
+    }
+
+    /**
+     * Reloads a hot entry in the background, unless a load is already running.
+     */
+    private void refreshAhead(Node<K, V> node, Value<V> current) {
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        if (!node.loading.compareAndSet(null, mine)) {
+            return;
+        }
+        try {
+            refresher.execute(() -> {
+                try {
+                    runLoad(node, mine);
+                    refreshes.increment();
+                } catch (RuntimeException e) {
+                    // Leave the entry to expire; the next miss loads it in the foreground
+                    current.refreshAt = current.expiresAt;
+                    logger.debug("Refresh of {} entry {} failed: {}", name, node.key, e.toString());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            node.loading.compareAndSet(mine, null);
+            // Anyone who joined in the meantime gets the value they would have had
+            mine.complete(current.value);
+        }
+    }
+
+    /**
+     * Evicts entries until the cache is back within its limit.
+     */
+    private void evict() {
+        while (size.get() > maxEntries) {
+            Node<K, V> candidate = clock.poll();
+            if (candidate == null) {
+                return;
+            }
+            if (candidate.referenced) {
+                candidate.referenced = false;
+                clock.offer(candidate);
+                continue;
+            }
+            if (nodes.remove(candidate.key, candidate)) {
+                size.decrementAndGet();
+                Value<V> value = candidate.value;
+                if (value != null && System.nanoTime() - value.expiresAt < 0) {
+                    evictedForSize.increment();
+                } else {
+                    evictedExpired.increment();
+                }
+            }
+        }
+    }
+
+    private Value<V> newValue(V loaded, long now) {
+        long ttl = ttlNanos - (jitterNanos > 0 ? ThreadLocalRandom.current().nextLong(jitterNanos) : 0);
+        long refreshAfter = refreshAheadFraction >= 1 ? ttl : (long) (ttl * Math.max(refreshAheadFraction, 0));
+        return new Value<>(loaded, now + ttl, now + refreshAfter);
+    }
+
+    private V await(CompletableFuture<V> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for " + name + " entry", e);
+        }
+    }
+
+    private Counter counter(String meter, String description, MeterRegistry meterRegistry, String... tags) {
+        return Counter.builder(meter)
+                .description(description)
+                .tag("cache", name)
+                .tags(tags)
+                .register(meterRegistry);
+    }
+
+    /**
+     * The slot of one key: stays in place across reloads, so the eviction
+     * queue holds each key exactly once.
+     */
+    private static final class Node<K, V> {
+
+        final K key;
+        final AtomicReference<CompletableFuture<V>> loading = new AtomicReference<>();
+        final AtomicInteger generation = new AtomicInteger();
+        volatile Value<V> value;
+        volatile boolean referenced;
+
+        Node(K key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * One loaded value and its deadlines.
+     */
+    private static final class Value<V> {
+
+        final V value;
+        final long expiresAt;
+        final AtomicInteger reads = new AtomicInteger();
+        volatile long refreshAt;
+
+        Value(V value, long expiresAt, long refreshAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+            this.refreshAt = refreshAt;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.bank.ivr.cluster;
+
+import org.springframework.http.HttpHeaders;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * The secrets that prove a request comes from a cluster peer or an operator.
+ * Peers present the cluster's shared secret on every request they send each
+ * other; operators present the admin token. A secret that is not configured
+ * matches nothing, so a node without one trusts no request as a peer's.
+ */
+public class ClusterCredentials {
+
+    /**
+     * Header carrying the cluster's shared secret on requests between peers.
+     */
+    public static final String PEER_HEADER = "X-Ivr-Cluster-Secret";
+
+    /**
+     * Header carrying the admin token on operator requests.
+     */
+    public static final String ADMIN_HEADER = "X-Ivr-Admin-Token";
+
+    private final String sharedSecret;
+    private final byte[] sharedSecretBytes;
+    private final byte[] adminTokenBytes;
+
+    public ClusterCredentials(String sharedSecret, String adminToken) {
+        this.sharedSecret = isBlank(sharedSecret) ? null : sharedSecret;
+        this.sharedSecretBytes = bytesOf(this.sharedSecret);
+        this.adminTokenBytes = isBlank(adminToken) ? null : bytesOf(adminToken);
+    }
+
+    public boolean hasSharedSecret() {
+        return sharedSecret != null;
+    }
+
+    public boolean hasAdminToken() {
+        return adminTokenBytes != null;
+    }
+
+    /**
+     * Gets whether a presented secret is the cluster's shared secret.
+     */
+    public boolean isPeer(String presented) {
+        return matches(sharedSecretBytes, presented);
+    }
+
+    /**
+     * Gets whether a presented token is the admin token.
+     */
+    public boolean isAdmin(String presented) {
+        return matches(adminTokenBytes, presented);
+    }
+
+    /**
+     * Adds the shared secret to a request sent to a peer.
+     */
+    public void sign(HttpHeaders headers) {
+        if (sharedSecret != null) {
+            headers.set(PEER_HEADER, sharedSecret);
+        }
+    }
+
+    // Compares in constant time, so the secret cannot be guessed byte by byte
+    private static boolean matches(byte[] expected, String presented) {
+        return expected != null && presented != null && MessageDigest.isEqual(expected, bytesOf(presented));
+    }
+
+    private static byte[] bytesOf(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+}
@@ -0,0 +1,111 @@
+package com.bank.ivr.cluster;
+
+import com.bank.ivr.api.model.IvrRequest;
+import com.bank.ivr.api.model.IvrResponse;
+import com.bank.ivr.deadline.Deadline;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Forwards IVR requests for sessions owned by another node to that node over
+ * the pooled internal HTTP client.
+ */
+public class ClusterForwarder {
+
+    /**
+     * Header carrying the number of times a request has already been forwarded.
+     */
+    public static final String HOPS_HEADER = "X-Ivr-Forward-Hops";
+
+    /**
+     * Upper bound on forwarding hops: one to the current owner, plus one from
+     * the current owner to the previous owner while a handoff is in progress.
+     */
+    public static final int MAX_HOPS = 2;
+
+    private static final Logger logger = LogManager.getLogger(ClusterForwarder.class);
+
+    private final RestTemplate restTemplate;
+    private final ClusterNode localNode;
+    private final ClusterCredentials credentials;
+
+    public ClusterForwarder(RestTemplate restTemplate, ClusterNode localNode, ClusterCredentials credentials) {
+        this.restTemplate = restTemplate;
+        this.localNode = localNode;
+        this.credentials = credentials;
+    }
+
+    /**
+     * Forwards a process request to the given node.
+     *
+     * @param target The node owning the session
+     * @param request The original request
+     * @param hops Hops the request had already taken on arrival
+     * @param deadline The request's deadline, sent on as the time it has left
+     * @return The owner's response, or a 503 response if the owner is unreachable
+     */
+    public ResponseEntity<IvrResponse> forwardProcess(ClusterNode target, IvrRequest request, int hops,
+                                                      Deadline deadline) {
+        HttpHeaders headers = forwardHeaders(hops);
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        if (deadline.isBounded()) {
+            headers.set(Deadline.HTTP_HEADER, Long.toString(deadline.remainingMillis()));
+        }
+        return exchange(target, HttpMethod.POST, "/api/ivr/process", new HttpEntity<>(request, headers),
+                request.getSessionId());
+    }
+
+    /**
+     * Forwards an end-session request to the given node.
+     */
+    public ResponseEntity<IvrResponse> forwardEndSession(ClusterNode target, String sessionId, int hops) {
+        return exchange(target, HttpMethod.DELETE, "/api/ivr/session/" + sessionId,
+                new HttpEntity<>(forwardHeaders(hops)), sessionId);
+    }
+
+    private HttpHeaders forwardHeaders(int hops) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HOPS_HEADER, Integer.toString(hops + 1));
+        credentials.sign(headers);
+        return headers;
+    }
+
+    private ResponseEntity<IvrResponse> exchange(ClusterNode target, HttpMethod method, String path,
+                                                 HttpEntity<?> entity, String sessionId) {
+        logger.debug("Forwarding {} {} for session {} from {} to {}",
+                method, path, sessionId, localNode.getId(), target.getId());
+        try {
+            return relay(restTemplate.exchange(target.getBaseUrl() + path, method, entity, IvrResponse.class));
+        } catch (ResourceAccessException e) {
+            logger.warn("Owner node {} unreachable for session {}: {}", target.getId(), sessionId, e.getMessage());
+            return ResponseEntity
+                    .status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(IvrResponse.builder()
+                            .withSessionId(sessionId)
+                            .withErrorMessage("Owner node unavailable")
+                            .build());
+        }
+    }
+
+    /**
+     * Rebuilds the owner's response from its status, body and {@code Retry-After}.
+     * Its other headers describe the connection to the owner, such as its
+     * framing, and must not be sent on to the client.
+     */
+    private static ResponseEntity<IvrResponse> relay(ResponseEntity<IvrResponse> response) {
+        ResponseEntity.BodyBuilder relayed = ResponseEntity.status(response.getStatusCodeValue());
+        String retryAfter = response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER);
+        if (retryAfter != null) {
+            relayed.header(HttpHeaders.RETRY_AFTER, retryAfter);
+        }
+        return relayed.body(response.getBody());
+    }
+}
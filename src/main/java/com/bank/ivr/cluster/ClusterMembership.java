@@ -0,0 +1,186 @@
+package com.bank.ivr.cluster;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Holds this node's view of the cluster and answers which member owns a
+ * session. There is no external coordinator: every node is configured with the
+ * same member list and an operator pushes membership changes to each node.
+ *
+ * <p>When membership changes, the ring that was in effect before is kept as the
+ * "previous" ring so that a session which has not yet moved to its new owner
+ * can still be found on the node that held it.
+ */
+public class ClusterMembership {
+
+    private static final Logger logger = LogManager.getLogger(ClusterMembership.class);
+
+    // Bound on remembered relocations; the oldest are forgotten first
+    private static final int MAX_RELOCATIONS = 100_000;
+
+    private final ClusterNode localNode;
+    private final int virtualNodes;
+    private final List<MembershipListener> listeners = new CopyOnWriteArrayList<>();
+    private final Map<String, ClusterNode> relocations = Collections.synchronizedMap(
+            new LinkedHashMap<String, ClusterNode>() {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, ClusterNode> eldest) {
+                    return size() > MAX_RELOCATIONS;
+                }
+            });
+
+    private volatile View view;
+    private volatile boolean clustered;
+
+    public ClusterMembership(ClusterNode localNode, List<ClusterNode> members, int virtualNodes) {
+        this.localNode = localNode;
+        this.virtualNodes = virtualNodes;
+        this.view = new View(buildRing(members), null, 1);
+        this.clustered = !members.isEmpty();
+    }
+
+    public ClusterNode getLocalNode() {
+        return localNode;
+    }
+
+    public List<ClusterNode> getMembers() {
+        return view.current.getMembers();
+    }
+
+    /**
+     * Gets the membership epoch, incremented on every change.
+     */
+    public long getEpoch() {
+        return view.epoch;
+    }
+
+    /**
+     * Gets whether this node is part of its own view of the cluster; a drained
+     * node is not, and should no longer accept new sessions.
+     */
+    public boolean isMember() {
+        return view.current.contains(localNode);
+    }
+
+    /**
+     * Gets whether this node has been given a member list. Once it has, it
+     * stays clustered even if the list later shrinks to this node alone, since
+     * its sessions may have been served by other nodes in between.
+     */
+    public boolean isClustered() {
+        return clustered;
+    }
+
+    /**
+     * Gets the node that owns the session under the current ring.
+     */
+    public ClusterNode ownerOf(String sessionId) {
+        return view.current.ownerOf(sessionId);
+    }
+
+    /**
+     * Gets the node that owned the session before the last membership change,
+     * or null if there has been no change since startup or the handoff is done.
+     */
+    public ClusterNode previousOwnerOf(String sessionId) {
+        ConsistentHashRing previous = view.previous;
+        return previous == null ? null : previous.ownerOf(sessionId);
+    }
+
+    /**
+     * Records that a session held here was transferred to a node that is not
+     * necessarily its ring owner, so requests still arriving here can follow it.
+     */
+    public void recordRelocation(String sessionId, ClusterNode node) {
+        relocations.put(sessionId, node);
+    }
+
+    /**
+     * Forgets a relocation, for a session that has come back to this node.
+     */
+    public void clearRelocation(String sessionId) {
+        relocations.remove(sessionId);
+    }
+
+    /**
+     * Gets the node a session held here was last transferred to, or null.
+     */
+    public ClusterNode relocationOf(String sessionId) {
+        return relocations.get(sessionId);
+    }
+
+    /**
+     * Gets the current member with the given session ID tag, or null.
+     */
+    public ClusterNode memberByTag(int tag) {
+        for (ClusterNode member : view.current.getMembers()) {
+            if (member.getTag() == tag) {
+                return member;
+            }
+        }
+        return null;
+    }
+
+    public boolean isLocallyOwned(String sessionId) {
+        return localNode.equals(ownerOf(sessionId));
+    }
+
+    public boolean isLocal(ClusterNode node) {
+        return localNode.equals(node);
+    }
+
+    /**
+     * Replaces the member list and notifies listeners so sessions can be
+     * rebalanced to their new owners.
+     */
+    public synchronized void updateMembers(List<ClusterNode> members) {
+        View old = view;
+        ConsistentHashRing ring = buildRing(members);
+        view = new View(ring, old.current, old.epoch + 1);
+        clustered |= !members.isEmpty();
+        logger.info("Cluster membership changed (epoch {}): {}", view.epoch, ring.getMembers());
+        for (MembershipListener listener : listeners) {
+            listener.membershipChanged(old.current, ring);
+        }
+    }
+
+    /**
+     * Drops the previous ring once every moved session has reached its new owner.
+     */
+    public synchronized void completeHandoff() {
+        View old = view;
+        view = new View(old.current, null, old.epoch);
+    }
+
+    public void addListener(MembershipListener listener) {
+        listeners.add(listener);
+    }
+
+    private ConsistentHashRing buildRing(List<ClusterNode> members) {
+        List<ClusterNode> ringMembers = new ArrayList<>(members);
+        if (ringMembers.isEmpty()) {
+            ringMembers.add(localNode);
+        }
+        return new ConsistentHashRing(ringMembers, virtualNodes);
+    }
+
+    private static final class View {
+        private final ConsistentHashRing current;
+        private final ConsistentHashRing previous;
+        private final long epoch;
+
+        private View(ConsistentHashRing current, ConsistentHashRing previous, long epoch) {
+            this.current = current;
+            this.previous = previous;
+            this.epoch = epoch;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.bank.ivr.cluster;
+
+/**
+ * A member of the IVR cluster, identified by a stable node ID and the base URL
+ * other members use to reach it. Two nodes are the same member if their IDs
+ * match, however their URLs are spelled.
+ */
+public class ClusterNode {
+
+    private final String id;
+    private final String baseUrl;
+    private final int tag;
+
+    public ClusterNode(String id, String baseUrl) {
+        if (id == null || id.isEmpty()) {
+            throw new IllegalArgumentException("Cluster node ID is required");
+        }
+        this.id = id;
+        this.baseUrl = baseUrl;
+        this.tag = computeTag(id);
+    }
+
+    /**
+     * Parses a member definition of the form {@code id=http://host:port}.
+     */
+    public static ClusterNode parse(String definition) {
+        String trimmed = definition.trim();
+        int separator = trimmed.indexOf('=');
+        if (separator <= 0 || separator == trimmed.length() - 1) {
+            throw new IllegalArgumentException("Invalid cluster member definition: " + definition);
+        }
+        return new ClusterNode(trimmed.substring(0, separator).trim(), trimmed.substring(separator + 1).trim());
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    /**
+     * Gets the 16-bit tag embedded in session IDs created by this node.
+     */
+    public int getTag() {
+        return tag;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ClusterNode)) {
+            return false;
+        }
+        return id.equals(((ClusterNode) o).id);
+    }
+
+    @Override
+    public int hashCode() {
+        return id.hashCode();
+    }
+
+    private static int computeTag(String id) {
+        int h = 0x811c9dc5;
+        for (int i = 0; i < id.length(); i++) {
+            h ^= id.charAt(i);
+            h *= 0x01000193;
+        }
+        return (h ^ (h >>> 16)) & 0xFFFF;
+    }
+
+    @Override
+    public String toString() {
+        return id + "=" + baseUrl;
+    }
+}
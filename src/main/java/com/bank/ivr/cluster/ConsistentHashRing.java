@@ -0,0 +1,98 @@
+package com.bank.ivr.cluster;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable consistent-hash ring mapping session IDs to their owning node.
+ * Each member is placed on the ring at a number of virtual positions so that
+ * ownership stays balanced and only about 1/N of the sessions move when a
+ * member joins or leaves.
+ */
+public final class ConsistentHashRing {
+
+    private final List<ClusterNode> members;
+    private final long[] positions;
+    private final ClusterNode[] owners;
+
+    public ConsistentHashRing(List<ClusterNode> members, int virtualNodes) {
+        if (members.isEmpty()) {
+            throw new IllegalArgumentException("A hash ring needs at least one member");
+        }
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("virtualNodes must be positive");
+        }
+        this.members = Collections.unmodifiableList(new ArrayList<>(members));
+
+        int size = members.size() * virtualNodes;
+        long[] points = new long[size];
+        ClusterNode[] pointOwners = new ClusterNode[size];
+        int i = 0;
+        for (ClusterNode member : members) {
+            for (int v = 0; v < virtualNodes; v++) {
+                points[i] = ((hash(member.getId() + "#" + v)) & ~0xFFFFL) | (i & 0xFFFFL);
+                pointOwners[i] = member;
+                i++;
+            }
+        }
+
+        // Sort positions and carry the owners along; the low bits hold the original
+        // index so equal hashes (vanishingly rare) still sort deterministically.
+        Integer[] order = new Integer[size];
+        for (int k = 0; k < size; k++) {
+            order[k] = k;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(points[a], points[b]));
+        this.positions = new long[size];
+        this.owners = new ClusterNode[size];
+        for (int k = 0; k < size; k++) {
+            positions[k] = points[order[k]];
+            owners[k] = pointOwners[order[k]];
+        }
+    }
+
+    /**
+     * Returns the node owning the given key: the first ring position at or
+     * after the key's hash, wrapping around at the end of the ring.
+     */
+    public ClusterNode ownerOf(String key) {
+        long h = hash(key);
+        int idx = Arrays.binarySearch(positions, h);
+        if (idx < 0) {
+            idx = -idx - 1;
+        }
+        if (idx == positions.length) {
+            idx = 0;
+        }
+        return owners[idx];
+    }
+
+    public List<ClusterNode> getMembers() {
+        return members;
+    }
+
+    public boolean contains(ClusterNode node) {
+        return members.contains(node);
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-16 code units followed by the murmur3
+     * finalizer, giving a well-spread hash that is stable across JVMs (unlike
+     * {@link String#hashCode()}, whose 32 bits are too few for a dense ring).
+     */
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
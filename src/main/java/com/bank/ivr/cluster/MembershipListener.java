@@ -0,0 +1,16 @@
+package com.bank.ivr.cluster;
+
+/**
+ * Callback notified after the cluster membership, and therefore session
+ * ownership, has changed.
+ */
+public interface MembershipListener {
+
+    /**
+     * Called once the new ring is in place.
+     *
+     * @param previous The ring that was in effect before the change
+     * @param current The ring now in effect
+     */
+    void membershipChanged(ConsistentHashRing previous, ConsistentHashRing current);
+}
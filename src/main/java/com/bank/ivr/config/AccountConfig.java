@@ -0,0 +1,56 @@
+package com.bank.ivr.config;
+
+import com.bank.ivr.account.AccountBackend;
+import com.bank.ivr.account.AccountPrefetcher;
+import com.bank.ivr.account.StandInAccountBackend;
+import com.bank.ivr.service.AccountService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Configuration for account data: the backend, the pool refreshing its caches
+ * and the prefetcher.
+ */
+@Configuration
+@EnableConfigurationProperties(AccountProperties.class)
+public class AccountConfig {
+
+    // Refreshes beyond this many waiting are skipped; the entries are then loaded on their next miss
+    private static final int REFRESH_QUEUE_CAPACITY = 1024;
+
+    /**
+     * The stand-in backend, used unless a real one is defined.
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public AccountBackend accountBackend(AccountProperties properties) {
+        return new StandInAccountBackend(properties.getBackendLatencyMs());
+    }
+
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService accountRefreshExecutor(AccountProperties properties) {
+        int threads = Math.max(1, properties.getRefreshThreads());
+        AtomicInteger count = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(REFRESH_QUEUE_CAPACITY), r -> {
+                    Thread thread = new Thread(r, "ivr-account-refresh-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @Bean(destroyMethod = "close")
+    public AccountPrefetcher accountPrefetcher(AccountService accountService, AccountProperties properties,
+                                               MeterRegistry meterRegistry) {
+        return new AccountPrefetcher(accountService, properties, meterRegistry);
+    }
+}
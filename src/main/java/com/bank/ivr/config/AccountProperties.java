@@ -0,0 +1,115 @@
+package com.bank.ivr.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Account data settings bound from the {@code ivr.account.*} properties.
+ */
+@ConfigurationProperties(prefix = "ivr.account")
+public class AccountProperties {
+
+    /**
+     * Simulated response time of the stand-in account backend.
+     */
+    private long backendLatencyMs = 50;
+
+    /**
+     * Threads reloading hot cache entries in the background.
+     */
+    private int refreshThreads = 2;
+
+    /**
+     * Transactions read out per page of the transaction history prompt.
+     */
+    private int historyPageSize = 3;
+
+    /**
+     * Whether a caller's balance and transactions are fetched as soon as they
+     * authenticate, and each further page of history while the previous one is read out.
+     */
+    private boolean prefetchEnabled = true;
+
+    /**
+     * Threads running prefetches, apart from the request workers.
+     */
+    private int prefetchThreads = 2;
+
+    /**
+     * Prefetches waiting for a thread before further ones are skipped.
+     */
+    private int prefetchQueueCapacity = 256;
+
+    /**
+     * Cache of account balances.
+     */
+    private CacheProperties balanceCache = new CacheProperties(30);
+
+    /**
+     * Cache of the first page of transaction history.
+     */
+    private CacheProperties transactionsCache = new CacheProperties(120);
+
+    public long getBackendLatencyMs() {
+        return backendLatencyMs;
+    }
+
+    public void setBackendLatencyMs(long backendLatencyMs) {
+        this.backendLatencyMs = backendLatencyMs;
+    }
+
+    public int getRefreshThreads() {
+        return refreshThreads;
+    }
+
+    public void setRefreshThreads(int refreshThreads) {
+        this.refreshThreads = refreshThreads;
+    }
+
+    public int getHistoryPageSize() {
+        return historyPageSize;
+    }
+
+    public void setHistoryPageSize(int historyPageSize) {
+        this.historyPageSize = historyPageSize;
+    }
+
+    public boolean isPrefetchEnabled() {
+        return prefetchEnabled;
+    }
+
+    public void setPrefetchEnabled(boolean prefetchEnabled) {
+        this.prefetchEnabled = prefetchEnabled;
+    }
+
+    public int getPrefetchThreads() {
+        return prefetchThreads;
+    }
+
+    public void setPrefetchThreads(int prefetchThreads) {
+        this.prefetchThreads = prefetchThreads;
+    }
+
+    public int getPrefetchQueueCapacity() {
+        return prefetchQueueCapacity;
+    }
+
+    public void setPrefetchQueueCapacity(int prefetchQueueCapacity) {
+        this.prefetchQueueCapacity = prefetchQueueCapacity;
+    }
+
+    public CacheProperties getBalanceCache() {
+        return balanceCache;
+    }
+
+    public void setBalanceCache(CacheProperties balanceCache) {
+        this.balanceCache = balanceCache;
+    }
+
+    public CacheProperties getTransactionsCache() {
+        return transactionsCache;
+    }
+
+    public void setTransactionsCache(CacheProperties transactionsCache) {
+        this.transactionsCache = transactionsCache;
+    }
+}
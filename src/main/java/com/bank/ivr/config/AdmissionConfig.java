@@ -0,0 +1,48 @@
+package com.bank.ivr.config;
+
+import com.bank.ivr.admission.AdmissionControl;
+import com.bank.ivr.admission.CallerRateLimiter;
+import com.bank.ivr.admission.LaneScheduler;
+import com.bank.ivr.admission.RequestLane;
+import com.bank.ivr.admission.TokenBucketTable;
+import com.bank.ivr.session.SessionRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Configuration for admission control, load shedding, rate limiting and prioritized
+ * request scheduling.
+ */
+@Configuration
+@EnableConfigurationProperties({AdmissionProperties.class, SchedulerProperties.class, RateLimitProperties.class})
+public class AdmissionConfig {
+
+    @Bean
+    public AdmissionControl admissionControl(AdmissionProperties properties,
+                                             SessionRegistry sessionRegistry,
+                                             MeterRegistry meterRegistry) {
+        return new AdmissionControl(properties, sessionRegistry::size, meterRegistry);
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public LaneScheduler laneScheduler(SchedulerProperties properties, MeterRegistry meterRegistry) {
+        Map<RequestLane, Integer> weights = new EnumMap<>(RequestLane.class);
+        weights.put(RequestLane.AUTHENTICATED, properties.getAuthenticatedWeight());
+        weights.put(RequestLane.AUTHENTICATING, properties.getAuthenticatingWeight());
+        weights.put(RequestLane.NEW_SESSION, properties.getNewSessionWeight());
+        return new LaneScheduler(properties.getWorkers(), weights, meterRegistry);
+    }
+
+    @Bean
+    public CallerRateLimiter callerRateLimiter(RateLimitProperties properties, MeterRegistry meterRegistry) {
+        return new CallerRateLimiter(
+                new TokenBucketTable(properties.getSlots(), properties.getCallerRatePerSecond(), properties.getCallerBurst()),
+                new TokenBucketTable(properties.getSlots(), properties.getSessionRatePerSecond(), properties.getSessionBurst()),
+                meterRegistry);
+    }
+}
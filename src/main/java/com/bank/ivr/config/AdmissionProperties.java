@@ -0,0 +1,115 @@
+package com.bank.ivr.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Admission control settings bound from the {@code ivr.admission.*} properties.
+ */
+@ConfigurationProperties(prefix = "ivr.admission")
+public class AdmissionProperties {
+
+    /**
+     * Live sessions above which new sessions are rejected.
+     */
+    private int maxLiveSessions = 10000;
+
+    /**
+     * Starting point and bounds of the adaptive limit on requests processed at once.
+     */
+    private int initialLimit = 50;
+    private int minLimit = 4;
+    private int maxLimit = 500;
+
+    /**
+     * Multiple of the baseline latency tolerated before the limit shrinks.
+     */
+    private double latencyTolerance = 1.5;
+
+    /**
+     * Length of a latency sampling window, and the samples needed to adjust the limit.
+     */
+    private long sampleWindowMs = 250;
+    private int minWindowSamples = 10;
+
+    /**
+     * Share of the concurrency limit new sessions may use; the rest is kept for existing calls.
+     */
+    private double newSessionShare = 0.8;
+
+    /**
+     * Retry-After value sent with rejections, in seconds.
+     */
+    private int retryAfterSeconds = 1;
+
+    public int getMaxLiveSessions() {
+        return maxLiveSessions;
+    }
+
+    public void setMaxLiveSessions(int maxLiveSessions) {
+        this.maxLiveSessions = maxLiveSessions;
+    }
+
+    public int getInitialLimit() {
+        return initialLimit;
+    }
+
+    public void setInitialLimit(int initialLimit) {
+        this.initialLimit = initialLimit;
+    }
+
+    public int getMinLimit() {
+        return minLimit;
+    }
+
+    public void setMinLimit(int minLimit) {
+        this.minLimit = minLimit;
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    public void setMaxLimit(int maxLimit) {
+        this.maxLimit = maxLimit;
+    }
+
+    public double getLatencyTolerance() {
+        return latencyTolerance;
+    }
+
+    public void setLatencyTolerance(double latencyTolerance) {
+        this.latencyTolerance = latencyTolerance;
+    }
+
+    public long getSampleWindowMs() {
+        return sampleWindowMs;
+    }
+
+    public void setSampleWindowMs(long sampleWindowMs) {
+        this.sampleWindowMs = sampleWindowMs;
+    }
+
+    public int getMinWindowSamples() {
+        return minWindowSamples;
+    }
+
+    public void setMinWindowSamples(int minWindowSamples) {
+        this.minWindowSamples = minWindowSamples;
+    }
+
+    public double getNewSessionShare() {
+        return newSessionShare;
+    }
+
+    public void setNewSessionShare(double newSessionShare) {
+        this.newSessionShare = newSessionShare;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    public void setRetryAfterSeconds(int retryAfterSeconds) {
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
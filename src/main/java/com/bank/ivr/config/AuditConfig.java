@@ -0,0 +1,21 @@
+package com.bank.ivr.config;
+
+import com.bank.ivr.audit.AuditTrail;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration for the call audit trail.
+ */
+@Configuration
+@EnableConfigurationProperties(AuditProperties.class)
+public class AuditConfig {
+
+    @Bean(destroyMethod = "close")
+    public AuditTrail auditTrail(AuditProperties properties, ClusterProperties clusterProperties,
+                                 MeterRegistry meterRegistry) {
+        return new AuditTrail(properties, clusterProperties.getNodeId(), meterRegistry);
+    }
+}
@@ -0,0 +1,101 @@
+package com.bank.ivr.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Audit trail settings bound from the {@code ivr.audit.*} properties.
+ */
+@ConfigurationProperties(prefix = "ivr.audit")
+public class AuditProperties {
+
+    /**
+     * Directory the audit files are written to.
+     */
+    private String directory = "audit";
+
+    /**
+     * Events buffered per recording thread before new events are dropped.
+     */
+    private int ringCapacity = 4096;
+
+    /**
+     * Maximum events written per compressed block.
+     */
+    private int batchSize = 2048;
+
+    /**
+     * How long the writer waits for new events when it has caught up.
+     */
+    private long flushIntervalMs = 50;
+
+    /**
+     * Size at which a new audit file is started.
+     */
+    private long maxFileBytes = 64L * 1024 * 1024;
+
+    /**
+     * Age at which a new audit file is started.
+     */
+    private long maxFileAgeSeconds = 3600;
+
+    /**
+     * Whether each block is forced to disk before the next is written.
+     */
+    private boolean fsync = true;
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public int getRingCapacity() {
+        return ringCapacity;
+    }
+
+    public void setRingCapacity(int ringCapacity) {
+        this.ringCapacity = ringCapacity;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public long getFlushIntervalMs() {
+        return flushIntervalMs;
+    }
+
+    public void setFlushIntervalMs(long flushIntervalMs) {
+        this.flushIntervalMs = flushIntervalMs;
+    }
+
+    public long getMaxFileBytes() {
+        return maxFileBytes;
+    }
+
+    public void setMaxFileBytes(long maxFileBytes) {
+        this.maxFileBytes = maxFileBytes;
+    }
+
+    public long getMaxFileAgeSeconds() {
+        return maxFileAgeSeconds;
+    }
+
+    public void setMaxFileAgeSeconds(long maxFileAgeSeconds) {
+        this.maxFileAgeSeconds = maxFileAgeSeconds;
+    }
+
+    public boolean isFsync() {
+        return fsync;
+    }
+
+    public void setFsync(boolean fsync) {
+        this.fsync = fsync;
+    }
+}
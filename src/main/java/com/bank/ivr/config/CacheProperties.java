@@ -0,0 +1,82 @@
+package com.bank.ivr.config;
+
+/**
+ * Settings of one read-through cache, bound under the prefix of the
+ * properties class that owns it.
+ */
+public class CacheProperties {
+
+    /**
+     * Entries kept; beyond this the least recently read are evicted.
+     */
+    private int maxEntries = 10000;
+
+    /**
+     * How long a loaded value is served before it is loaded again.
+     */
+    private long ttlSeconds = 30;
+
+    /**
+     * Fraction of the TTL by which each entry's lifetime is randomly shortened,
+     * so entries loaded together do not all expire together.
+     */
+    private double ttlJitter = 0.1;
+
+    /**
+     * Fraction of its TTL after which a hot entry is reloaded in the background;
+     * 1 or more turns refresh-ahead off.
+     */
+    private double refreshAheadFraction = 0.8;
+
+    /**
+     * Reads since it was loaded that make an entry hot.
+     */
+    private int refreshAheadHits = 3;
+
+    public CacheProperties() {
+    }
+
+    public CacheProperties(long ttlSeconds) {
+        this.ttlSeconds = ttlSeconds;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    public long getTtlSeconds() {
+        return ttlSeconds;
+    }
+
+    public void setTtlSeconds(long ttlSeconds) {
+        this.ttlSeconds = ttlSeconds;
+    }
+
+    public double getTtlJitter() {
+        return ttlJitter;
+    }
+
+    public void setTtlJitter(double ttlJitter) {
+        this.ttlJitter = ttlJitter;
+    }
+
+    public double getRefreshAheadFraction() {
+        return refreshAheadFraction;
+    }
+
+    public void setRefreshAheadFraction(double refreshAheadFraction) {
+        this.refreshAheadFraction = refreshAheadFraction;
+    }
+
+    public int getRefreshAheadHits() {
+        return refreshAheadHits;
+    }
+
+    public void setRefreshAheadHits(int refreshAheadHits) {
+        this.refreshAheadHits = refreshAheadHits;
+    }
+}
@@ -0,0 +1,123 @@
+package com.bank.ivr.config;
+
+import com.bank.ivr.cluster.ClusterCredentials;
+import com.bank.ivr.cluster.ClusterForwarder;
+import com.bank.ivr.cluster.ClusterMembership;
+import com.bank.ivr.cluster.ClusterNode;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.DefaultResponseErrorHandler;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration for cluster membership and inter-node request forwarding.
+ * With no members configured the node runs standalone and owns every session.
+ */
+@Configuration
+@EnableConfigurationProperties(ClusterProperties.class)
+public class ClusterConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterConfig.class);
+
+    @Bean
+    public ClusterMembership clusterMembership(ClusterProperties properties) {
+        ClusterNode localNode = new ClusterNode(properties.getNodeId(), properties.getAdvertisedUrl());
+        List<ClusterNode> members = new ArrayList<>();
+        for (String definition : properties.getMembers()) {
+            if (!definition.trim().isEmpty()) {
+                members.add(ClusterNode.parse(definition));
+            }
+        }
+        checkLocalNodeListed(localNode, members);
+        return new ClusterMembership(localNode, members, properties.getVirtualNodes());
+    }
+
+    /**
+     * Fails startup unless a configured member list names this node, at the
+     * URL it advertises. A node left out of its own list would take itself
+     * for drained and forward its own sessions to itself.
+     */
+    private static void checkLocalNodeListed(ClusterNode localNode, List<ClusterNode> members) {
+        if (members.isEmpty()) {
+            return;
+        }
+        for (ClusterNode member : members) {
+            if (member.equals(localNode)) {
+                if (!normalizeUrl(member.getBaseUrl()).equals(normalizeUrl(localNode.getBaseUrl()))) {
+                    throw new IllegalStateException("ivr.cluster.members lists node " + localNode.getId() + " at "
+                            + member.getBaseUrl() + " but ivr.cluster.advertised-url is " + localNode.getBaseUrl());
+                }
+                return;
+            }
+        }
+        throw new IllegalStateException("ivr.cluster.members does not list this node's ivr.cluster.node-id "
+                + localNode.getId() + ": " + members);
+    }
+
+    private static String normalizeUrl(String url) {
+        String trimmed = url == null ? "" : url.trim();
+        while (trimmed.endsWith("/")) {
+            trimmed = trimmed.substring(0, trimmed.length() - 1);
+        }
+        return trimmed;
+    }
+
+    @Bean
+    public ClusterCredentials clusterCredentials(ClusterProperties properties) {
+        ClusterCredentials credentials = new ClusterCredentials(properties.getSharedSecret(),
+                properties.getAdminToken());
+        if (!credentials.hasSharedSecret() && !properties.getMembers().isEmpty()) {
+            logger.warn("No ivr.cluster.shared-secret set: peers on other hosts cannot move sessions to this node");
+        }
+        return credentials;
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient clusterHttpClient(ClusterProperties properties) {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(properties.getForwardMaxConnections());
+        connectionManager.setDefaultMaxPerRoute(properties.getForwardMaxConnectionsPerPeer());
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectTimeout(properties.getForwardConnectTimeoutMs())
+                        .setConnectionRequestTimeout(properties.getForwardConnectTimeoutMs())
+                        .setSocketTimeout(properties.getForwardReadTimeoutMs())
+                        .build())
+                .build();
+    }
+
+    @Bean
+    public RestTemplate clusterRestTemplate(CloseableHttpClient clusterHttpClient) {
+        HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(clusterHttpClient);
+        // Stream request bodies so session transfers are not buffered in memory
+        requestFactory.setBufferRequestBody(false);
+        RestTemplate restTemplate = new RestTemplate(requestFactory);
+        // Relay the owner's status code and body as-is instead of throwing
+        restTemplate.setErrorHandler(new DefaultResponseErrorHandler() {
+            @Override
+            public boolean hasError(ClientHttpResponse response) {
+                return false;
+            }
+        });
+        return restTemplate;
+    }
+
+    @Bean
+    public ClusterForwarder clusterForwarder(RestTemplate clusterRestTemplate, ClusterMembership clusterMembership,
+                                             ClusterCredentials clusterCredentials) {
+        return new ClusterForwarder(clusterRestTemplate, clusterMembership.getLocalNode(), clusterCredentials);
+    }
+}
@@ -0,0 +1,134 @@
+package com.bank.ivr.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cluster settings bound from the {@code ivr.cluster.*} properties.
+ */
+@ConfigurationProperties(prefix = "ivr.cluster")
+public class ClusterProperties {
+
+    /**
+     * ID of this node; must match one of the member IDs when clustered.
+     */
+    private String nodeId = "node-1";
+
+    /**
+     * Base URL other members use to reach this node.
+     */
+    private String advertisedUrl = "http://localhost:8080";
+
+    /**
+     * Cluster members as {@code id=baseUrl} pairs. Empty means standalone.
+     */
+    private List<String> members = new ArrayList<>();
+
+    /**
+     * Virtual positions per member on the consistent-hash ring.
+     */
+    private int virtualNodes = 160;
+
+    /**
+     * Maximum pooled connections for forwarding, in total and per peer.
+     */
+    private int forwardMaxConnections = 200;
+    private int forwardMaxConnectionsPerPeer = 50;
+
+    private int forwardConnectTimeoutMs = 500;
+    private int forwardReadTimeoutMs = 5000;
+
+    /**
+     * Secret every member sends with requests to the others. Required when
+     * clustered: without it no request is trusted as coming from a peer.
+     */
+    private String sharedSecret;
+
+    /**
+     * Token operators send to use the admin endpoints. Without it, only
+     * requests from this host and from peers may use them.
+     */
+    private String adminToken;
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public void setNodeId(String nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    public String getAdvertisedUrl() {
+        return advertisedUrl;
+    }
+
+    public void setAdvertisedUrl(String advertisedUrl) {
+        this.advertisedUrl = advertisedUrl;
+    }
+
+    public List<String> getMembers() {
+        return members;
+    }
+
+    public void setMembers(List<String> members) {
+        this.members = members;
+    }
+
+    public int getVirtualNodes() {
+        return virtualNodes;
+    }
+
+    public void setVirtualNodes(int virtualNodes) {
+        this.virtualNodes = virtualNodes;
+    }
+
+    public int getForwardMaxConnections() {
+        return forwardMaxConnections;
+    }
+
+    public void setForwardMaxConnections(int forwardMaxConnections) {
+        this.forwardMaxConnections = forwardMaxConnections;
+    }
+
+    public int getForwardMaxConnectionsPerPeer() {
+        return forwardMaxConnectionsPerPeer;
+    }
+
+    public void setForwardMaxConnectionsPerPeer(int forwardMaxConnectionsPerPeer) {
+        this.forwardMaxConnectionsPerPeer = forwardMaxConnectionsPerPeer;
+    }
+
+    public int getForwardConnectTimeoutMs() {
+        return forwardConnectTimeoutMs;
+    }
+
+    public void setForwardConnectTimeoutMs(int forwardConnectTimeoutMs) {
+        this.forwardConnectTimeoutMs = forwardConnectTimeoutMs;
+    }
+
+    public int getForwardReadTimeoutMs() {
+        return forwardReadTimeoutMs;
+    }
+
+    public void setForwardReadTimeoutMs(int forwardReadTimeoutMs) {
+        this.forwardReadTimeoutMs = forwardReadTimeoutMs;
+    }
+
+    public String getSharedSecret() {
+        return sharedSecret;
+    }
+
+    public void setSharedSecret(String sharedSecret) {
+        this.sharedSecret = sharedSecret;
+    }
+
+    public String getAdminToken() {
+        return adminToken;
+    }
+
+    public void setAdminToken(String adminToken) {
+        this.adminToken = adminToken;
+    }
+}
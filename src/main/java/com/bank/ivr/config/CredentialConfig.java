@@ -0,0 +1,41 @@
+package com.bank.ivr.config;
+
+import com.bank.ivr.credential.CredentialBackend;
+import com.bank.ivr.credential.HedgedCredentialLookup;
+import com.bank.ivr.credential.LatencyDistribution;
+import com.bank.ivr.credential.StandInCredentialBackend;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Configuration for the credential store the authentication service checks
+ * callers against.
+ */
+@Configuration
+@EnableConfigurationProperties(CredentialProperties.class)
+public class CredentialConfig {
+
+    /**
+     * Looks credentials up across every {@link CredentialBackend} bean, one
+     * per replica, or across stand-in replicas if none is defined.
+     */
+    @Bean(destroyMethod = "close")
+    public HedgedCredentialLookup credentialLookup(ObjectProvider<CredentialBackend> backends,
+                                                   CredentialProperties properties,
+                                                   MeterRegistry meterRegistry) {
+        List<CredentialBackend> replicas = backends.orderedStream().collect(Collectors.toList());
+        if (replicas.isEmpty()) {
+            LatencyDistribution latency = LatencyDistribution
+                    .logNormal(properties.getStandInMedianMs(), properties.getStandInSigma())
+                    .withStalls(properties.getStandInStallProbability(), properties.getStandInStallMs());
+            replicas = StandInCredentialBackend.replicas(Math.max(1, properties.getReplicas()), latency);
+        }
+        return new HedgedCredentialLookup(replicas, properties, meterRegistry);
+    }
+}
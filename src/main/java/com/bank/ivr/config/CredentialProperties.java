@@ -0,0 +1,192 @@
+package com.bank.ivr.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Credential store settings bound from the {@code ivr.credentials.*} properties.
+ */
+@ConfigurationProperties(prefix = "ivr.credentials")
+public class CredentialProperties {
+
+    /**
+     * Stand-in replicas to create when no {@link com.bank.ivr.credential.CredentialBackend} bean is defined.
+     */
+    private int replicas = 3;
+
+    /**
+     * Threads calling the replicas. Each lookup holds one, or two while hedged.
+     */
+    private int threads = 32;
+
+    /**
+     * Calls waiting for a thread before further lookups are refused.
+     */
+    private int queueCapacity = 256;
+
+    /**
+     * Whether a lookup the first replica is slow to answer is also sent to a second one.
+     */
+    private boolean hedgeEnabled = true;
+
+    /**
+     * Percentile of recent call latencies after which a lookup is hedged.
+     */
+    private double hedgePercentile = 0.95;
+
+    /**
+     * Hedge delay used until enough calls have been timed.
+     */
+    private long hedgeInitialDelayMs = 20;
+
+    /**
+     * Shortest hedge delay, however fast the replicas are.
+     */
+    private long hedgeMinDelayMs = 2;
+
+    /**
+     * Longest hedge delay, however slow the replicas are.
+     */
+    private long hedgeMaxDelayMs = 500;
+
+    /**
+     * Hedged calls allowed, as a percentage of lookups.
+     */
+    private double hedgeBudgetPercent = 10;
+
+    /**
+     * Recent calls the hedge delay is computed from.
+     */
+    private int latencyWindow = 1000;
+
+    /**
+     * Median response time of the stand-in replicas.
+     */
+    private double standInMedianMs = 5;
+
+    /**
+     * Spread of the stand-in replicas' log-normal response time.
+     */
+    private double standInSigma = 0.3;
+
+    /**
+     * Share of stand-in calls that stall.
+     */
+    private double standInStallProbability = 0.01;
+
+    /**
+     * How long a stalled stand-in call takes on top of its usual time.
+     */
+    private long standInStallMs = 150;
+
+    public int getReplicas() {
+        return replicas;
+    }
+
+    public void setReplicas(int replicas) {
+        this.replicas = replicas;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public boolean isHedgeEnabled() {
+        return hedgeEnabled;
+    }
+
+    public void setHedgeEnabled(boolean hedgeEnabled) {
+        this.hedgeEnabled = hedgeEnabled;
+    }
+
+    public double getHedgePercentile() {
+        return hedgePercentile;
+    }
+
+    public void setHedgePercentile(double hedgePercentile) {
+        this.hedgePercentile = hedgePercentile;
+    }
+
+    public long getHedgeInitialDelayMs() {
+        return hedgeInitialDelayMs;
+    }
+
+    public void setHedgeInitialDelayMs(long hedgeInitialDelayMs) {
+        this.hedgeInitialDelayMs = hedgeInitialDelayMs;
+    }
+
+    public long getHedgeMinDelayMs() {
+        return hedgeMinDelayMs;
+    }
+
+    public void setHedgeMinDelayMs(long hedgeMinDelayMs) {
+        this.hedgeMinDelayMs = hedgeMinDelayMs;
+    }
+
+    public long getHedgeMaxDelayMs() {
+        return hedgeMaxDelayMs;
+    }
+
+    public void setHedgeMaxDelayMs(long hedgeMaxDelayMs) {
+        this.hedgeMaxDelayMs = hedgeMaxDelayMs;
+    }
+
+    public double getHedgeBudgetPercent() {
+        return hedgeBudgetPercent;
+    }
+
+    public void setHedgeBudgetPercent(double hedgeBudgetPercent) {
+        this.hedgeBudgetPercent = hedgeBudgetPercent;
+    }
+
+    public int getLatencyWindow() {
+        return latencyWindow;
+    }
+
+    public void setLatencyWindow(int latencyWindow) {
+        this.latencyWindow = latencyWindow;
+    }
+
+    public double getStandInMedianMs() {
+        return standInMedianMs;
+    }
+
+    public void setStandInMedianMs(double standInMedianMs) {
+        this.standInMedianMs = standInMedianMs;
+    }
+
+    public double getStandInSigma() {
+        return standInSigma;
+    }
+
+    public void setStandInSigma(double standInSigma) {
+        this.standInSigma = standInSigma;
+    }
+
+    public double getStandInStallProbability() {
+        return standInStallProbability;
+    }
+
+    public void setStandInStallProbability(double standInStallProbability) {
+        this.standInStallProbability = standInStallProbability;
+    }
+
+    public long getStandInStallMs() {
+        return standInStallMs;
+    }
+
+    public void setStandInStallMs(long standInStallMs) {
+        this.standInStallMs = standInStallMs;
+    }
+}
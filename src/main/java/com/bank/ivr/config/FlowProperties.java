@@ -0,0 +1,23 @@
+package com.bank.ivr.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Call flow settings bound from the {@code ivr.flow.*} properties.
+ */
+@ConfigurationProperties(prefix = "ivr.flow")
+public class FlowProperties {
+
+    /**
+     * Resource holding the flow definition active at startup.
+     */
+    private String location = "classpath:flows/ivr-flow.json";
+
+    public String getLocation() {
+        return location;
+    }
+
+    public void setLocation(String location) {
+        this.location = location;
+    }
+}
@@ -0,0 +1,36 @@
+package com.bank.ivr.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Call-flow funnel settings bound from the {@code ivr.funnel.*} properties.
+ */
+@ConfigurationProperties(prefix = "ivr.funnel")
+public class FunnelProperties {
+
+    /**
+     * Granularity of the sliding window.
+     */
+    private int bucketSeconds = 60;
+
+    /**
+     * Number of buckets kept; together with the bucket length this is the longest window available.
+     */
+    private int buckets = 60;
+
+    public int getBucketSeconds() {
+        return bucketSeconds;
+    }
+
+    public void setBucketSeconds(int bucketSeconds) {
+        this.bucketSeconds = bucketSeconds;
+    }
+
+    public int getBuckets() {
+        return buckets;
+    }
+
+    public void setBuckets(int buckets) {
+        this.buckets = buckets;
+    }
+}
@@ -0,0 +1,25 @@
+package com.bank.ivr.config;
+
+import com.bank.ivr.logging.LogSampler;
+import com.bank.ivr.logging.TraceEscalations;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration for sampled request logging and per-session trace escalation.
+ */
+@Configuration
+@EnableConfigurationProperties(LoggingProperties.class)
+public class LoggingConfig {
+
+    @Bean
+    public TraceEscalations traceEscalations() {
+        return new TraceEscalations();
+    }
+
+    @Bean
+    public LogSampler logSampler(LoggingProperties properties) {
+        return new LogSampler(properties.getSampleRate());
+    }
+}
@@ -0,0 +1,36 @@
+package com.bank.ivr.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Request logging settings bound from the {@code ivr.logging.*} properties.
+ */
+@ConfigurationProperties(prefix = "ivr.logging")
+public class LoggingProperties {
+
+    /**
+     * Per-request INFO lines are written for one request in this many.
+     */
+    private int sampleRate = 100;
+
+    /**
+     * How long a trace escalation lasts when no TTL is given.
+     */
+    private long defaultTraceTtlSeconds = 900;
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public void setSampleRate(int sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    public long getDefaultTraceTtlSeconds() {
+        return defaultTraceTtlSeconds;
+    }
+
+    public void setDefaultTraceTtlSeconds(long defaultTraceTtlSeconds) {
+        this.defaultTraceTtlSeconds = defaultTraceTtlSeconds;
+    }
+}
@@ -0,0 +1,29 @@
+package com.bank.ivr.config;
+
+import com.bank.ivr.metrics.CallFlowFunnel;
+import com.bank.ivr.metrics.IvrMetrics;
+import com.bank.ivr.session.SessionRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Configuration for application metrics, published through Actuator, and call-flow analytics.
+ */
+@Configuration
+@EnableConfigurationProperties(FunnelProperties.class)
+public class MetricsConfig {
+
+    @Bean
+    public IvrMetrics ivrMetrics(MeterRegistry meterRegistry, SessionRegistry sessionRegistry) {
+        return new IvrMetrics(meterRegistry, sessionRegistry);
+    }
+
+    @Bean
+    public CallFlowFunnel callFlowFunnel(FunnelProperties properties) {
+        return new CallFlowFunnel(TimeUnit.SECONDS.toMillis(properties.getBucketSeconds()), properties.getBuckets());
+    }
+}
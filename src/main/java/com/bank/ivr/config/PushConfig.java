@@ -0,0 +1,20 @@
+package com.bank.ivr.config;
+
+import com.bank.ivr.push.SessionPushHub;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration for pushing session updates to clients.
+ */
+@Configuration
+@EnableConfigurationProperties(PushProperties.class)
+public class PushConfig {
+
+    @Bean(destroyMethod = "close")
+    public SessionPushHub sessionPushHub(PushProperties properties, MeterRegistry meterRegistry) {
+        return new SessionPushHub(properties, meterRegistry);
+    }
+}
@@ -0,0 +1,76 @@
+package com.bank.ivr.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Push channel settings bound from the {@code ivr.push.*} properties.
+ */
+@ConfigurationProperties(prefix = "ivr.push")
+public class PushProperties {
+
+    /**
+     * Idle time after which a channel is sent a heartbeat comment.
+     */
+    private int heartbeatSeconds = 15;
+
+    /**
+     * Threads writing updates and heartbeats to channels.
+     */
+    private int senderThreads = 2;
+
+    /**
+     * Open channels allowed on this node; further subscriptions are refused.
+     */
+    private int maxChannels = 20000;
+
+    /**
+     * How long a write may block on a client that is not reading before the
+     * channel is dropped and its sender replaced.
+     */
+    private long writeTimeoutMs = 5000;
+
+    /**
+     * Extra senders started in place of senders stuck in stalled writes.
+     */
+    private int maxReplacementSenders = 16;
+
+    public int getHeartbeatSeconds() {
+        return heartbeatSeconds;
+    }
+
+    public void setHeartbeatSeconds(int heartbeatSeconds) {
+        this.heartbeatSeconds = heartbeatSeconds;
+    }
+
+    public int getSenderThreads() {
+        return senderThreads;
+    }
+
+    public void setSenderThreads(int senderThreads) {
+        this.senderThreads = senderThreads;
+    }
+
+    public int getMaxChannels() {
+        return maxChannels;
+    }
+
+    public void setMaxChannels(int maxChannels) {
+        this.maxChannels = maxChannels;
+    }
+
+    public long getWriteTimeoutMs() {
+        return writeTimeoutMs;
+    }
+
+    public void setWriteTimeoutMs(long writeTimeoutMs) {
+        this.writeTimeoutMs = writeTimeoutMs;
+    }
+
+    public int getMaxReplacementSenders() {
+        return maxReplacementSenders;
+    }
+
+    public void setMaxReplacementSenders(int maxReplacementSenders) {
+        this.maxReplacementSenders = maxReplacementSenders;
+    }
+}
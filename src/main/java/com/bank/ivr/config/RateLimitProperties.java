@@ -0,0 +1,67 @@
+package com.bank.ivr.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Per-caller and per-session rate limit settings bound from the {@code ivr.ratelimit.*} properties.
+ */
+@ConfigurationProperties(prefix = "ivr.ratelimit")
+public class RateLimitProperties {
+
+    /**
+     * Token buckets kept for each kind of key; should well exceed the number of active callers.
+     */
+    private int slots = 65536;
+
+    /**
+     * Sustained requests per second and burst size allowed per caller ANI.
+     */
+    private int callerRatePerSecond = 10;
+    private int callerBurst = 20;
+
+    /**
+     * Sustained requests per second and burst size allowed per session.
+     */
+    private int sessionRatePerSecond = 5;
+    private int sessionBurst = 10;
+
+    public int getSlots() {
+        return slots;
+    }
+
+    public void setSlots(int slots) {
+        this.slots = slots;
+    }
+
+    public int getCallerRatePerSecond() {
+        return callerRatePerSecond;
+    }
+
+    public void setCallerRatePerSecond(int callerRatePerSecond) {
+        this.callerRatePerSecond = callerRatePerSecond;
+    }
+
+    public int getCallerBurst() {
+        return callerBurst;
+    }
+
+    public void setCallerBurst(int callerBurst) {
+        this.callerBurst = callerBurst;
+    }
+
+    public int getSessionRatePerSecond() {
+        return sessionRatePerSecond;
+    }
+
+    public void setSessionRatePerSecond(int sessionRatePerSecond) {
+        this.sessionRatePerSecond = sessionRatePerSecond;
+    }
+
+    public int getSessionBurst() {
+        return sessionBurst;
+    }
+
+    public void setSessionBurst(int sessionBurst) {
+        this.sessionBurst = sessionBurst;
+    }
+}
@@ -0,0 +1,54 @@
+package com.bank.ivr.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Request scheduling settings bound from the {@code ivr.scheduler.*} properties.
+ */
+@ConfigurationProperties(prefix = "ivr.scheduler")
+public class SchedulerProperties {
+
+    /**
+     * Threads processing session requests.
+     */
+    private int workers = 32;
+
+    /**
+     * Relative share of workers for each priority lane when all lanes have work queued.
+     */
+    private int authenticatedWeight = 8;
+    private int authenticatingWeight = 3;
+    private int newSessionWeight = 1;
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public void setWorkers(int workers) {
+        this.workers = workers;
+    }
+
+    public int getAuthenticatedWeight() {
+        return authenticatedWeight;
+    }
+
+    public void setAuthenticatedWeight(int authenticatedWeight) {
+        this.authenticatedWeight = authenticatedWeight;
+    }
+
+    public int getAuthenticatingWeight() {
+        return authenticatingWeight;
+    }
+
+    public void setAuthenticatingWeight(int authenticatingWeight) {
+        this.authenticatingWeight = authenticatingWeight;
+    }
+
+    public int getNewSessionWeight() {
+        return newSessionWeight;
+    }
+
+    public void setNewSessionWeight(int newSessionWeight) {
+        this.newSessionWeight = newSessionWeight;
+    }
+}
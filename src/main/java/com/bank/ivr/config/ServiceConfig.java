@@ -1,5 +1,9 @@
 package com.bank.ivr.config;
 
+import com.bank.ivr.session.IdleSessionParker;
+import com.bank.ivr.session.SessionRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 
@@ -9,8 +13,14 @@ import org.springframework.context.annotation.Configuration;
 @Configuration
 @ComponentScan(basePackages = {
     "com.bank.ivr.service", 
+    "com.bank.ivr.session",
     "com.bank.ivr.action"
 })
+@EnableConfigurationProperties(SessionProperties.class)
 public class ServiceConfig {
-    // Bean definitions can be added here if needed
+
+    @Bean(destroyMethod = "close")
+    public IdleSessionParker idleSessionParker(SessionRegistry sessionRegistry, SessionProperties properties) {
+        return new IdleSessionParker(sessionRegistry, properties.getParkAfterMs());
+    }
 } 
\ No newline at end of file
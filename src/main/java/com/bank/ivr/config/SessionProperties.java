@@ -0,0 +1,92 @@
+package com.bank.ivr.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Session handling settings bound from the {@code ivr.session.*} properties.
+ */
+@ConfigurationProperties(prefix = "ivr.session")
+public class SessionProperties {
+
+    /**
+     * How long a request waits for its session's transfer to another node to finish.
+     */
+    private long fenceTimeoutMs = 5000;
+
+    /**
+     * Transitions kept per session for the trace dump.
+     */
+    private int traceCapacity = 32;
+
+    /**
+     * Whether every state transition is logged at INFO. Off by default, since
+     * the per-session trace covers debugging a single call.
+     */
+    private boolean logTransitions = false;
+
+    /**
+     * How long a session waits for input before its state machine is dropped
+     * to save heap, to be built again on the next input. 0 keeps every machine.
+     */
+    private long parkAfterMs = 10000;
+
+    /**
+     * Directory snapshot files are written to and read from. File names given
+     * to the export and import endpoints are resolved inside it.
+     */
+    private String exportDirectory = "exports";
+
+    /**
+     * Base64-encoded AES key snapshot files are encrypted with. File export and
+     * import are refused without one.
+     */
+    private String exportKey;
+
+    public long getFenceTimeoutMs() {
+        return fenceTimeoutMs;
+    }
+
+    public void setFenceTimeoutMs(long fenceTimeoutMs) {
+        this.fenceTimeoutMs = fenceTimeoutMs;
+    }
+
+    public int getTraceCapacity() {
+        return traceCapacity;
+    }
+
+    public void setTraceCapacity(int traceCapacity) {
+        this.traceCapacity = traceCapacity;
+    }
+
+    public boolean isLogTransitions() {
+        return logTransitions;
+    }
+
+    public void setLogTransitions(boolean logTransitions) {
+        this.logTransitions = logTransitions;
+    }
+
+    public long getParkAfterMs() {
+        return parkAfterMs;
+    }
+
+    public void setParkAfterMs(long parkAfterMs) {
+        this.parkAfterMs = parkAfterMs;
+    }
+
+    public String getExportDirectory() {
+        return exportDirectory;
+    }
+
+    public void setExportDirectory(String exportDirectory) {
+        this.exportDirectory = exportDirectory;
+    }
+
+    public String getExportKey() {
+        return exportKey;
+    }
+
+    public void setExportKey(String exportKey) {
+        this.exportKey = exportKey;
+    }
+}
@@ -0,0 +1,24 @@
+package com.bank.ivr.config;
+
+import com.bank.ivr.account.AccountBackend;
+import com.bank.ivr.transfer.TransferEngine;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+
+/**
+ * Configuration for transfers between accounts.
+ */
+@Configuration
+@EnableConfigurationProperties(TransferProperties.class)
+public class TransferConfig {
+
+    @Bean(destroyMethod = "close")
+    public TransferEngine transferEngine(AccountBackend accountBackend, TransferProperties properties,
+                                         MeterRegistry meterRegistry) throws IOException {
+        return new TransferEngine(accountBackend, properties, meterRegistry);
+    }
+}
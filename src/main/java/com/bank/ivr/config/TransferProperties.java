@@ -0,0 +1,75 @@
+package com.bank.ivr.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Transfer settings bound from the {@code ivr.transfer.*} properties.
+ */
+@ConfigurationProperties(prefix = "ivr.transfer")
+public class TransferProperties {
+
+    /**
+     * File the ledger's write-ahead journal is kept in.
+     */
+    private String journalFile = "transfers/ledger.wal";
+
+    /**
+     * Whether each journal write is forced to disk before the transfers in it are confirmed.
+     */
+    private boolean fsync = true;
+
+    /**
+     * Most transfers written and synced to the journal together.
+     */
+    private int maxBatchRecords = 1024;
+
+    /**
+     * Shards of the in-memory ledger, each with its own lock.
+     */
+    private int shards = 256;
+
+    /**
+     * Transfer outcomes remembered for repeated requests, oldest forgotten first.
+     */
+    private int idempotencyMaxEntries = 100_000;
+
+    public String getJournalFile() {
+        return journalFile;
+    }
+
+    public void setJournalFile(String journalFile) {
+        this.journalFile = journalFile;
+    }
+
+    public boolean isFsync() {
+        return fsync;
+    }
+
+    public void setFsync(boolean fsync) {
+        this.fsync = fsync;
+    }
+
+    public int getMaxBatchRecords() {
+        return maxBatchRecords;
+    }
+
+    public void setMaxBatchRecords(int maxBatchRecords) {
+        this.maxBatchRecords = maxBatchRecords;
+    }
+
+    public int getShards() {
+        return shards;
+    }
+
+    public void setShards(int shards) {
+        this.shards = shards;
+    }
+
+    public int getIdempotencyMaxEntries() {
+        return idempotencyMaxEntries;
+    }
+
+    public void setIdempotencyMaxEntries(int idempotencyMaxEntries) {
+        this.idempotencyMaxEntries = idempotencyMaxEntries;
+    }
+}
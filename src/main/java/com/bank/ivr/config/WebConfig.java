@@ -1,20 +1,40 @@
 package com.bank.ivr.config;
 
+import com.bank.ivr.api.controller.AdminAccessInterceptor;
+import com.bank.ivr.cluster.ClusterCredentials;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 /**
- * Spring Web MVC configuration for the application.
+ * Spring Web MVC configuration for the application. Skipped when running
+ * without a web server, such as during a replay.
  */
 @Configuration
+@ConditionalOnWebApplication
 @EnableWebMvc
 public class WebConfig implements WebMvcConfigurer {
-    
+
+    private final ClusterCredentials clusterCredentials;
+
+    @Autowired
+    public WebConfig(ClusterCredentials clusterCredentials) {
+        this.clusterCredentials = clusterCredentials;
+    }
+
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
         registry.addResourceHandler("/**")
                 .addResourceLocations("classpath:/static/");
     }
-} 
\ No newline at end of file
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new AdminAccessInterceptor(clusterCredentials))
+                .addPathPatterns("/api/admin/**");
+    }
+}
@@ -0,0 +1,31 @@
+package com.bank.ivr.credential;
+
+/**
+ * One replica of the credential store. Calls go through
+ * {@link HedgedCredentialLookup}, which runs them on its own threads and
+ * interrupts a call whose answer is no longer needed.
+ */
+public interface CredentialBackend {
+
+    /**
+     * Gets a name for the replica, used in logs.
+     */
+    String getName();
+
+    /**
+     * Looks up the customer with an SSN.
+     *
+     * @param ssn The SSN as {@code NNN-NN-NNNN}
+     * @return The customer's ID, or null if no customer has the SSN
+     * @throws CredentialUnavailableException If the replica cannot answer
+     */
+    String findCustomerBySsn(String ssn);
+
+    /**
+     * Looks up the customer holding a card, if the PIN is the card's.
+     *
+     * @return The customer's ID, or null if the card is unknown or the PIN is wrong
+     * @throws CredentialUnavailableException If the replica cannot answer
+     */
+    String findCustomerByCard(String cardNumber, String pin);
+}
@@ -0,0 +1,17 @@
+package com.bank.ivr.credential;
+
+/**
+ * Thrown when no credential store replica can answer.
+ */
+public class CredentialUnavailableException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public CredentialUnavailableException(String message) {
+        super(message);
+    }
+
+    public CredentialUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,345 @@
+package com.bank.ivr.credential;
+
+import com.bank.ivr.config.CredentialProperties;
+import com.bank.ivr.deadline.Deadline;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Looks credentials up in a replicated credential store, cutting the tail
+ * latency with hedged requests.
+ *
+ * <p>Each lookup goes to the next replica in turn. If it has not answered
+ * within the hedge delay, the same lookup is also sent to the replica after
+ * it; the first answer is used and the other call is cancelled. The delay is
+ * a high percentile of recent call latencies, so only the slowest few
+ * lookups are hedged, whatever the replicas' usual speed. Latencies are kept
+ * per replica and the fastest replica's percentile is used: one replica
+ * stalling often should make lookups to it hedge sooner, not raise the delay
+ * for all of them. A replica that fails is failed over to the same way,
+ * without waiting for the delay.
+ *
+ * <p>Hedges are paid for from a budget: each lookup earns a fraction of a
+ * hedge, and a hedge is only sent while there is credit. When a replica
+ * slows down for everyone, hedging stops at the budget rather than doubling
+ * the load on a store that is already struggling.
+ */
+public class HedgedCredentialLookup implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(HedgedCredentialLookup.class);
+
+    // Budget credit is counted in thousandths of a hedge
+    private static final long CREDIT_PER_HEDGE = 1000;
+    // Hedges that can be saved up while replicas are quick and spent in a burst
+    private static final long MAX_SAVED_HEDGES = 10;
+
+    private final List<CredentialBackend> replicas;
+    private final ThreadPoolExecutor executor;
+    private final boolean hedgeEnabled;
+    private final long initialDelayNanos;
+    private final long minDelayNanos;
+    private final long maxDelayNanos;
+    private final long creditPerLookup;
+    private final AtomicLong credit = new AtomicLong(MAX_SAVED_HEDGES * CREDIT_PER_HEDGE);
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final LatencyWindow[] latencies;
+
+    private final Timer lookups;
+    private final Counter hedgesWon;
+    private final Counter hedgesLost;
+    private final Counter hedgesDenied;
+    private final Counter failovers;
+
+    public HedgedCredentialLookup(List<CredentialBackend> replicas, CredentialProperties properties,
+                                  MeterRegistry meterRegistry) {
+        if (replicas.isEmpty()) {
+            throw new IllegalArgumentException("No credential store replicas");
+        }
+        this.replicas = new ArrayList<>(replicas);
+        this.hedgeEnabled = properties.isHedgeEnabled() && replicas.size() > 1;
+        this.initialDelayNanos = TimeUnit.MILLISECONDS.toNanos(properties.getHedgeInitialDelayMs());
+        this.minDelayNanos = TimeUnit.MILLISECONDS.toNanos(properties.getHedgeMinDelayMs());
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(properties.getHedgeMaxDelayMs());
+        this.creditPerLookup = Math.round(properties.getHedgeBudgetPercent() * CREDIT_PER_HEDGE / 100);
+        this.latencies = new LatencyWindow[replicas.size()];
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LatencyWindow(properties.getLatencyWindow(), properties.getHedgePercentile());
+        }
+
+        int threads = Math.max(1, properties.getThreads());
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, properties.getQueueCapacity())), r -> {
+                    Thread thread = new Thread(r, "ivr-credentials-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        this.lookups = Timer.builder("ivr.credentials.lookup")
+                .description("Time to look up credentials, hedged or not")
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .register(meterRegistry);
+        this.hedgesWon = hedges("won", meterRegistry);
+        this.hedgesLost = hedges("lost", meterRegistry);
+        this.hedgesDenied = hedges("denied", meterRegistry);
+        this.failovers = Counter.builder("ivr.credentials.failovers")
+                .description("Lookups sent to another replica after one failed")
+                .register(meterRegistry);
+        Gauge.builder("ivr.credentials.hedge.delay", this, lookup -> lookup.hedgeDelayNanos() / 1e6)
+                .description("Time a lookup waits for its first replica before hedging")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+
+        logger.info("Credential lookups over {} replicas, hedging {}", replicas.size(),
+                hedgeEnabled ? "on" : "off");
+    }
+
+    /**
+     * Runs a lookup against the replicas, hedging it if the first is slow.
+     *
+     * @param query The lookup to run on a replica
+     * @return The first answer
+     * @throws com.bank.ivr.deadline.DeadlineExceededException If the deadline passes first; the calls are cancelled
+     * @throws CredentialUnavailableException If no replica could answer
+     */
+    public <T> T lookup(Function<CredentialBackend, T> query, Deadline deadline) {
+        long start = System.nanoTime();
+        int first = Math.floorMod(nextReplica.getAndIncrement(), replicas.size());
+        deposit();
+        Call<T> primary = call(first, query);
+        if (primary == null) {
+            throw new CredentialUnavailableException("Too many credential lookups waiting");
+        }
+        Call<T> hedge = null;
+        try {
+            long delay = hedgeEnabled ? hedgeDelayNanos() : Long.MAX_VALUE;
+            try {
+                return await(primary.result, delay, deadline);
+            } catch (ExecutionException e) {
+                hedge = failOver(primary, first, query, e);
+                return await(hedge.result, Long.MAX_VALUE, deadline);
+            } catch (TimeoutException e) {
+                deadline.check(Deadline.Stage.AUTHENTICATION);
+            }
+
+            hedge = hedge(first, query);
+            if (hedge == null) {
+                return await(primary.result, Long.MAX_VALUE, deadline);
+            }
+            T value = await(firstAnswer(primary.result, hedge.result), Long.MAX_VALUE, deadline);
+            if (primary.result.isDone() && !primary.result.isCompletedExceptionally()) {
+                hedgesLost.increment();
+            } else {
+                hedgesWon.increment();
+            }
+            return value;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof CredentialUnavailableException) {
+                throw (CredentialUnavailableException) cause;
+            }
+            throw new CredentialUnavailableException("Credential lookup failed", cause);
+        } catch (TimeoutException e) {
+            throw deadline.exceeded(Deadline.Stage.AUTHENTICATION);
+        } finally {
+            primary.cancel();
+            if (hedge != null) {
+                hedge.cancel();
+            }
+            lookups.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Gets how long a lookup currently waits for its first replica before hedging.
+     */
+    public long hedgeDelayNanos() {
+        long fastest = -1;
+        for (LatencyWindow window : latencies) {
+            long percentile = window.percentileNanos();
+            if (percentile >= 0 && (fastest < 0 || percentile < fastest)) {
+                fastest = percentile;
+            }
+        }
+        long delay = fastest < 0 ? initialDelayNanos : fastest;
+        return Math.min(Math.max(delay, minDelayNanos), maxDelayNanos);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Sends a lookup whose first replica was slow to the next one, if the budget allows.
+     *
+     * @return The hedged call, or null if none was sent
+     */
+    private <T> Call<T> hedge(int first, Function<CredentialBackend, T> query) {
+        if (!withdraw()) {
+            hedgesDenied.increment();
+            return null;
+        }
+        int second = (first + 1) % replicas.size();
+        if (logger.isDebugEnabled()) {
+            logger.debug("Hedging credential lookup to {} after {} us", replicas.get(second).getName(),
+                    TimeUnit.NANOSECONDS.toMicros(hedgeDelayNanos()));
+        }
+        Call<T> hedge = call(second, query);
+        if (hedge == null) {
+            // No thread to run it on: refund and wait for the first replica
+            credit.addAndGet(CREDIT_PER_HEDGE);
+        }
+        return hedge;
+    }
+
+    /**
+     * Sends a lookup whose first replica failed to the next one, paid for from the hedge budget.
+     *
+     * @throws ExecutionException The first replica's failure, if there is no other replica or no budget
+     */
+    private <T> Call<T> failOver(Call<T> failed, int first, Function<CredentialBackend, T> query,
+                                 ExecutionException failure) throws ExecutionException {
+        if (replicas.size() < 2 || !withdraw()) {
+            throw failure;
+        }
+        int second = (first + 1) % replicas.size();
+        logger.warn("Credential store {} failed, trying {}: {}", failed.replica.getName(),
+                replicas.get(second).getName(), failure.getCause().getMessage());
+        failovers.increment();
+        Call<T> retry = call(second, query);
+        if (retry == null) {
+            throw failure;
+        }
+        return retry;
+    }
+
+    private <T> Call<T> call(int index, Function<CredentialBackend, T> query) {
+        CredentialBackend replica = replicas.get(index);
+        LatencyWindow window = latencies[index];
+        Call<T> call = new Call<>(replica);
+        try {
+            call.task = executor.submit(() -> {
+                long begin = System.nanoTime();
+                try {
+                    T value = query.apply(replica);
+                    window.record(System.nanoTime() - begin);
+                    call.result.complete(value);
+                } catch (RuntimeException e) {
+                    if (call.cancelled) {
+                        // A cancelled call took at least this long, which the delay should know
+                        window.record(System.nanoTime() - begin);
+                    }
+                    call.result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            return null;
+        }
+        return call;
+    }
+
+    /**
+     * Waits for an answer, for no longer than the timeout or the deadline.
+     *
+     * @throws TimeoutException If neither an answer came nor, unless it was the deadline that ended the wait, the timeout
+     */
+    private static <T> T await(CompletableFuture<T> result, long timeoutNanos, Deadline deadline)
+            throws ExecutionException, TimeoutException {
+        long wait = Math.min(timeoutNanos, deadline.remainingNanos());
+        try {
+            return wait == Long.MAX_VALUE ? result.get() : result.get(wait, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CredentialUnavailableException("Interrupted waiting for the credential store", e);
+        }
+    }
+
+    /**
+     * Completes with the first of two answers, or fails once both calls have.
+     */
+    private static <T> CompletableFuture<T> firstAnswer(CompletableFuture<T> a, CompletableFuture<T> b) {
+        CompletableFuture<T> first = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        a.whenComplete((value, error) -> settle(first, failures, value, error));
+        b.whenComplete((value, error) -> settle(first, failures, value, error));
+        return first;
+    }
+
+    private static <T> void settle(CompletableFuture<T> first, AtomicInteger failures, T value, Throwable error) {
+        if (error == null) {
+            first.complete(value);
+        } else if (failures.incrementAndGet() == 2) {
+            first.completeExceptionally(error);
+        }
+    }
+
+    private void deposit() {
+        long max = MAX_SAVED_HEDGES * CREDIT_PER_HEDGE;
+        credit.accumulateAndGet(creditPerLookup, (current, earned) -> Math.min(current + earned, max));
+    }
+
+    private boolean withdraw() {
+        while (true) {
+            long current = credit.get();
+            if (current < CREDIT_PER_HEDGE) {
+                return false;
+            }
+            if (credit.compareAndSet(current, current - CREDIT_PER_HEDGE)) {
+                return true;
+            }
+        }
+    }
+
+    private static Counter hedges(String result, MeterRegistry meterRegistry) {
+        return Counter.builder("ivr.credentials.hedges")
+                .description("Hedges by result: answered first (won), beaten by the first replica (lost) "
+                        + "or not sent because the budget was spent (denied)")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * One call to one replica.
+     */
+    private static final class Call<T> {
+
+        final CredentialBackend replica;
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        volatile Future<?> task;
+        volatile boolean cancelled;
+
+        Call(CredentialBackend replica) {
+            this.replica = replica;
+        }
+
+        /**
+         * Interrupts the call if it is still running, or drops it if it has not started.
+         */
+        void cancel() {
+            Future<?> running = task;
+            if (running != null && !result.isDone()) {
+                cancelled = true;
+                running.cancel(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.bank.ivr.credential;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How long a stand-in replica takes to answer, drawn afresh for each call.
+ */
+@FunctionalInterface
+public interface LatencyDistribution {
+
+    /**
+     * Draws the time the next call takes.
+     */
+    long sampleNanos(ThreadLocalRandom random);
+
+    /**
+     * Every call takes the same time.
+     */
+    static LatencyDistribution fixed(long millis) {
+        long nanos = TimeUnit.MILLISECONDS.toNanos(millis);
+        return random -> nanos;
+    }
+
+    /**
+     * Log-normal latency, the usual shape of a healthy service: most calls
+     * near the median, with a tail that grows with sigma.
+     */
+    static LatencyDistribution logNormal(double medianMillis, double sigma) {
+        double mu = Math.log(Math.max(medianMillis, 0.001));
+        return random -> (long) (Math.exp(mu + sigma * random.nextGaussian()) * 1_000_000);
+    }
+
+    /**
+     * Adds stalls, such as garbage collection pauses or a slow disk: a share
+     * of calls take the stall time on top of their usual latency.
+     */
+    default LatencyDistribution withStalls(double probability, long stallMillis) {
+        long stallNanos = TimeUnit.MILLISECONDS.toNanos(stallMillis);
+        return random -> sampleNanos(random) + (random.nextDouble() < probability ? stallNanos : 0);
+    }
+}
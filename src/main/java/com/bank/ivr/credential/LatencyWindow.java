@@ -0,0 +1,57 @@
+package com.bank.ivr.credential;
+
+import java.util.Arrays;
+
+/**
+ * A percentile of the most recent call latencies. Samples go into a ring;
+ * the percentile is recomputed from a sorted copy every sixteenth of the
+ * ring, so reading it costs nothing and recording stays cheap.
+ */
+final class LatencyWindow {
+
+    private static final int MIN_SAMPLES = 50;
+
+    private final long[] samples;
+    private final double percentile;
+    private final int updateEvery;
+    private final int minSamples;
+
+    private int next;
+    private int count;
+    private int sinceUpdate;
+    private volatile long percentileNanos = -1;
+
+    /**
+     * @param size Number of recent samples kept
+     * @param percentile The percentile to track, such as 0.95
+     */
+    LatencyWindow(int size, double percentile) {
+        this.samples = new long[Math.max(1, size)];
+        this.percentile = Math.min(Math.max(percentile, 0), 1);
+        this.updateEvery = Math.max(1, samples.length / 16);
+        this.minSamples = Math.min(samples.length, MIN_SAMPLES);
+    }
+
+    synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        if (count < samples.length) {
+            count++;
+        }
+        if (++sinceUpdate >= updateEvery && count >= minSamples) {
+            sinceUpdate = 0;
+            // Until the ring has wrapped, the samples are the first count slots
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            int rank = (int) Math.ceil(percentile * count) - 1;
+            percentileNanos = sorted[Math.min(Math.max(rank, 0), count - 1)];
+        }
+    }
+
+    /**
+     * Gets the tracked percentile, or -1 until enough samples have been recorded.
+     */
+    long percentileNanos() {
+        return percentileNanos;
+    }
+}
@@ -0,0 +1,92 @@
+package com.bank.ivr.credential;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process credential store replica for demos and load tests, holding the
+ * demo customers. Each call sleeps for a time drawn from the replica's
+ * latency distribution, so replicas with a heavy tail can be set up to show
+ * what hedging does for the slowest lookups.
+ */
+public class StandInCredentialBackend implements CredentialBackend {
+
+    private static final Map<String, String> SSN_TO_CUSTOMER_ID = new HashMap<>();
+    private static final Map<String, String> CARD_TO_PIN = new HashMap<>();
+    private static final Map<String, String> CARD_TO_CUSTOMER_ID = new HashMap<>();
+
+    static {
+        SSN_TO_CUSTOMER_ID.put("123-45-6789", "CUST001");
+        SSN_TO_CUSTOMER_ID.put("987-65-4321", "CUST002");
+
+        CARD_TO_PIN.put("4111111111111111", "1234");
+        CARD_TO_PIN.put("5555555555554444", "5678");
+
+        CARD_TO_CUSTOMER_ID.put("4111111111111111", "CUST001");
+        CARD_TO_CUSTOMER_ID.put("5555555555554444", "CUST002");
+    }
+
+    private final String name;
+    private final LatencyDistribution latency;
+    private final LongAdder calls = new LongAdder();
+
+    public StandInCredentialBackend(String name, LatencyDistribution latency) {
+        this.name = name;
+        this.latency = latency;
+    }
+
+    /**
+     * Creates replicas that share a latency distribution.
+     */
+    public static List<CredentialBackend> replicas(int count, LatencyDistribution latency) {
+        List<CredentialBackend> replicas = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            replicas.add(new StandInCredentialBackend("stand-in-" + i, latency));
+        }
+        return replicas;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String findCustomerBySsn(String ssn) {
+        simulateLatency();
+        return SSN_TO_CUSTOMER_ID.get(ssn);
+    }
+
+    @Override
+    public String findCustomerByCard(String cardNumber, String pin) {
+        simulateLatency();
+        String expectedPin = CARD_TO_PIN.get(cardNumber);
+        return expectedPin != null && expectedPin.equals(pin) ? CARD_TO_CUSTOMER_ID.get(cardNumber) : null;
+    }
+
+    /**
+     * Gets the number of calls made to this replica, including abandoned ones.
+     */
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    private void simulateLatency() {
+        calls.increment();
+        long nanos = latency.sampleNanos(ThreadLocalRandom.current());
+        if (nanos <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CredentialUnavailableException("Interrupted calling credential store " + name, e);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.bank.ivr.deadline;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The time by which a request's answer is still of use to the gateway.
+ *
+ * <p>The gateway sends its remaining budget rather than a wall-clock time,
+ * so nodes need not agree on the time. The budget is turned into a deadline
+ * on this node's monotonic clock when the request arrives, and is passed
+ * along with the request to every step that may wait. A step that finds the
+ * deadline passed abandons the request with a {@link DeadlineExceededException},
+ * and the deadline remembers where it was missed.
+ *
+ * <p>A deadline belongs to one request and is used by one thread at a time.
+ */
+public final class Deadline {
+
+    /**
+     * HTTP header carrying a request's remaining budget in milliseconds.
+     */
+    public static final String HTTP_HEADER = "X-Ivr-Deadline-Ms";
+
+    /**
+     * State machine message header carrying the deadline to actions.
+     */
+    public static final String HEADER = "deadline";
+
+    /**
+     * Where a request can be abandoned.
+     */
+    public enum Stage {
+        ARRIVAL,         // Before any work, including forwarding
+        QUEUE,           // Waiting for a worker
+        SESSION,         // Waiting for the session to be free
+        AUTHENTICATION   // Checking credentials
+    }
+
+    private final long expiresAtNanos;
+    private final boolean bounded;
+    private volatile Stage missed;
+
+    private Deadline(long expiresAtNanos, boolean bounded) {
+        this.expiresAtNanos = expiresAtNanos;
+        this.bounded = bounded;
+    }
+
+    /**
+     * Creates a deadline that never passes, for requests without a budget.
+     */
+    public static Deadline none() {
+        return new Deadline(0, false);
+    }
+
+    /**
+     * Creates a deadline the given number of milliseconds from now.
+     */
+    public static Deadline afterMillis(long budgetMillis) {
+        return new Deadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, budgetMillis)), true);
+    }
+
+    /**
+     * Creates the deadline of a request from its header, if it has one.
+     */
+    public static Deadline fromHeader(Long budgetMillis) {
+        return budgetMillis == null ? none() : afterMillis(budgetMillis);
+    }
+
+    public boolean isBounded() {
+        return bounded;
+    }
+
+    public boolean isExpired() {
+        return bounded && System.nanoTime() - expiresAtNanos >= 0;
+    }
+
+    /**
+     * Gets the time left in milliseconds, or {@link Long#MAX_VALUE} if unbounded.
+     */
+    public long remainingMillis() {
+        return bounded ? TimeUnit.NANOSECONDS.toMillis(remainingNanos()) : Long.MAX_VALUE;
+    }
+
+    /**
+     * Gets the time left in nanoseconds, or {@link Long#MAX_VALUE} if unbounded.
+     */
+    public long remainingNanos() {
+        return bounded ? Math.max(0, expiresAtNanos - System.nanoTime()) : Long.MAX_VALUE;
+    }
+
+    /**
+     * Shortens a timeout so that it ends no later than the deadline.
+     */
+    public long capMillis(long timeoutMillis) {
+        return Math.min(timeoutMillis, remainingMillis());
+    }
+
+    /**
+     * Abandons the request if the deadline has passed.
+     *
+     * @throws DeadlineExceededException If it has
+     */
+    public void check(Stage stage) {
+        if (isExpired()) {
+            throw exceeded(stage);
+        }
+    }
+
+    /**
+     * Records that the deadline was missed at a stage and creates the exception to abandon the request with.
+     */
+    public DeadlineExceededException exceeded(Stage stage) {
+        if (missed == null) {
+            missed = stage;
+        }
+        return new DeadlineExceededException(stage);
+    }
+
+    /**
+     * Gets the stage at which the request was abandoned, or null if it was not.
+     * Lets a caller find out about an abandonment that was swallowed on the
+     * way, such as by the state machine running an action.
+     */
+    public Stage getMissedStage() {
+        return missed;
+    }
+}
@@ -0,0 +1,23 @@
+package com.bank.ivr.deadline;
+
+/**
+ * Thrown to abandon a request whose {@link Deadline} has passed.
+ */
+public class DeadlineExceededException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Deadline.Stage stage;
+
+    public DeadlineExceededException(Deadline.Stage stage) {
+        super("Deadline exceeded during " + stage.name().toLowerCase());
+        this.stage = stage;
+    }
+
+    /**
+     * Gets where the request was abandoned.
+     */
+    public Deadline.Stage getStage() {
+        return stage;
+    }
+}
@@ -0,0 +1,201 @@
+package com.bank.ivr.flow;
+
+import com.bank.ivr.api.model.IvrResponse;
+import com.bank.ivr.deadline.Deadline;
+import com.bank.ivr.model.AuthMethod;
+import com.bank.ivr.model.IvrEvent;
+import com.bank.ivr.model.IvrState;
+import com.bank.ivr.model.SessionContext;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.statemachine.StateMachine;
+import org.springframework.statemachine.config.StateMachineFactory;
+
+/**
+ * One version of the call flow, ready to run: a state machine factory for its
+ * transitions plus, indexed by state ordinal, how input is decoded and what
+ * prompt is returned. Immutable once built, so any number of sessions share it
+ * and a request costs an array lookup rather than a switch or a parse.
+ */
+public final class CompiledFlow {
+
+    /**
+     * Number of DTMF keys: 0-9, * and #.
+     */
+    static final int KEY_COUNT = 12;
+
+    /**
+     * Marks where a prompt's content goes in its message.
+     */
+    static final String CONTENT_PLACEHOLDER = "{content}";
+
+    /**
+     * Message header under which the session ID is passed to state machine actions.
+     */
+    public static final String SESSION_ID_HEADER = "sessionId";
+
+    private final String version;
+    private final long loadedAtMillis;
+    private final StateMachineFactory<IvrState, IvrEvent> factory;
+    private final StateInput[] inputs;
+    private final StatePrompt[] prompts;
+
+    CompiledFlow(String version, StateMachineFactory<IvrState, IvrEvent> factory,
+                 StateInput[] inputs, StatePrompt[] prompts) {
+        this.version = version;
+        this.loadedAtMillis = System.currentTimeMillis();
+        this.factory = factory;
+        this.inputs = inputs;
+        this.prompts = prompts;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public long getLoadedAtMillis() {
+        return loadedAtMillis;
+    }
+
+    /**
+     * Creates a state machine for this flow. The machine is not started.
+     */
+    public StateMachine<IvrState, IvrEvent> newStateMachine() {
+        return factory.getStateMachine();
+    }
+
+    /**
+     * Turns the caller's input in the given state into an event and sends it.
+     *
+     * @param deadline The request's deadline, passed to the actions in the {@link Deadline#HEADER} header
+     * @return Whether the input meant anything in that state; false means no event was sent
+     */
+    public boolean dispatch(StateMachine<IvrState, IvrEvent> machine, String sessionId, SessionContext context,
+                            IvrState state, String input, Deadline deadline) {
+        StateInput decoder = inputs[state.ordinal()];
+        if (decoder == null) {
+            return false;
+        }
+        if (decoder.captureEvent != null) {
+            machine.sendEvent(MessageBuilder
+                    .withPayload(decoder.captureEvent)
+                    .setHeader(decoder.captureHeader, input)
+                    .setHeader(SessionContext.HEADER, context)
+                    .setHeader(SESSION_ID_HEADER, sessionId)
+                    .setHeader(Deadline.HEADER, deadline)
+                    .build());
+            return true;
+        }
+        int key = keyIndex(input);
+        IvrEvent event = key < 0 ? null : decoder.keyEvents[key];
+        if (event == null) {
+            event = decoder.otherwise;
+            if (event == null) {
+                return false;
+            }
+        } else if (decoder.keyAuthMethods[key] != null) {
+            context.setAuthMethod(decoder.keyAuthMethods[key]);
+        }
+        machine.sendEvent(MessageBuilder
+                .withPayload(event)
+                .setHeader(SessionContext.HEADER, context)
+                .setHeader(SESSION_ID_HEADER, sessionId)
+                .setHeader(Deadline.HEADER, deadline)
+                .build());
+        return true;
+    }
+
+    /**
+     * Builds the response for a session now in the given state, looking up
+     * any content its prompt names for the session's caller.
+     */
+    public IvrResponse respond(String sessionId, IvrState state, SessionContext context) {
+        IvrResponse.Builder builder = IvrResponse.builder()
+                .withSessionId(sessionId)
+                .withCurrentState(state);
+        StatePrompt prompt = prompts[state.ordinal()];
+        if (prompt == null) {
+            return builder
+                    .withNextAction("UNKNOWN")
+                    .withPromptMessage("System is in an unknown state")
+                    .withErrorMessage("Unhandled state: " + state)
+                    .build();
+        }
+        return builder
+                .withNextAction(prompt.nextAction)
+                .withPromptMessage(prompt.render(context))
+                .withAuthenticated(prompt.authenticated)
+                .withCallEnded(prompt.callEnded)
+                .build();
+    }
+
+    /**
+     * Maps a single DTMF key to its slot, or -1 for anything else.
+     */
+    static int keyIndex(String input) {
+        if (input == null || input.length() != 1) {
+            return -1;
+        }
+        char key = input.charAt(0);
+        if (key >= '0' && key <= '9') {
+            return key - '0';
+        }
+        if (key == '*') {
+            return 10;
+        }
+        return key == '#' ? 11 : -1;
+    }
+
+    /**
+     * Input decoding for one state.
+     */
+    static final class StateInput {
+
+        final IvrEvent[] keyEvents = new IvrEvent[KEY_COUNT];
+        final AuthMethod[] keyAuthMethods = new AuthMethod[KEY_COUNT];
+        final IvrEvent otherwise;
+        final String captureHeader;
+        final IvrEvent captureEvent;
+
+        StateInput(IvrEvent otherwise, String captureHeader, IvrEvent captureEvent) {
+            this.otherwise = otherwise;
+            this.captureHeader = captureHeader;
+            this.captureEvent = captureEvent;
+        }
+    }
+
+    /**
+     * Response fields for one state.
+     */
+    static final class StatePrompt {
+
+        final String nextAction;
+        final String message;
+        final String messageAfterContent;
+        final PromptContent content;
+        final String unavailableMessage;
+        final boolean authenticated;
+        final boolean callEnded;
+
+        /**
+         * @param message The whole message or, if there is content, the part before it
+         */
+        StatePrompt(String nextAction, String message, String messageAfterContent, PromptContent content,
+                    String unavailableMessage, boolean authenticated, boolean callEnded) {
+            this.nextAction = nextAction;
+            this.message = message;
+            this.messageAfterContent = messageAfterContent;
+            this.content = content;
+            this.unavailableMessage = unavailableMessage;
+            this.authenticated = authenticated;
+            this.callEnded = callEnded;
+        }
+
+        String render(SessionContext context) {
+            if (content == null) {
+                return message;
+            }
+            String rendered = context == null ? null : content.render(context);
+            return rendered == null ? unavailableMessage : message + rendered + messageAfterContent;
+        }
+    }
+}
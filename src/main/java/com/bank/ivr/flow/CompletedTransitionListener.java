@@ -0,0 +1,87 @@
+package com.bank.ivr.flow;
+
+import com.bank.ivr.deadline.Deadline;
+import com.bank.ivr.model.IvrEvent;
+import com.bank.ivr.model.IvrState;
+import org.springframework.messaging.Message;
+import org.springframework.statemachine.StateMachine;
+import org.springframework.statemachine.listener.StateMachineListenerAdapter;
+import org.springframework.statemachine.state.State;
+import org.springframework.statemachine.transition.Transition;
+
+/**
+ * Base for listeners that record each transition of one state machine once it
+ * has completed, with the state the machine actually ended up in.
+ *
+ * <p>A transition into a choice or junction state reports that pseudo-state as
+ * its target; the state it resolves to is only known from the state change
+ * that follows, so that is what is passed on as the target. A transition into
+ * the final state stops the machine without ending, so completion is also
+ * taken from the stop.
+ */
+public abstract class CompletedTransitionListener extends StateMachineListenerAdapter<IvrState, IvrEvent> {
+
+    private Transition<IvrState, IvrEvent> transition;
+    private IvrState entered;
+
+    @Override
+    public void transitionStarted(Transition<IvrState, IvrEvent> transition) {
+        this.transition = transition;
+        this.entered = null;
+        onTransitionStarted();
+    }
+
+    @Override
+    public void stateChanged(State<IvrState, IvrEvent> from, State<IvrState, IvrEvent> to) {
+        if (transition != null && to != null) {
+            entered = to.getId();
+        }
+    }
+
+    @Override
+    public void transitionEnded(Transition<IvrState, IvrEvent> transition) {
+        complete();
+    }
+
+    @Override
+    public void stateMachineStopped(StateMachine<IvrState, IvrEvent> stateMachine) {
+        complete();
+    }
+
+    private void complete() {
+        Transition<IvrState, IvrEvent> ended = transition;
+        IvrState to = entered;
+        transition = null;
+        entered = null;
+        if (ended == null || ended.getSource() == null || ended.getTarget() == null) {
+            return;
+        }
+        onTransitionCompleted(ended.getSource().getId(), to != null ? to : ended.getTarget().getId(),
+                ended.getTrigger() == null ? null : ended.getTrigger().getEvent());
+    }
+
+    /**
+     * Called as a transition starts, before any action runs.
+     */
+    protected void onTransitionStarted() {
+    }
+
+    /**
+     * Gets whether an event that was not accepted was abandoned by an action
+     * because its deadline passed, rather than refused in the current state.
+     * The state machine reports both alike.
+     */
+    protected static boolean isAbandoned(Message<IvrEvent> event) {
+        Deadline deadline = (Deadline) event.getHeaders().get(Deadline.HEADER);
+        return deadline != null && deadline.getMissedStage() != null;
+    }
+
+    /**
+     * Called once a transition has completed.
+     *
+     * @param from The state left
+     * @param to The state entered, after any choice or junction states
+     * @param event The triggering event, or null
+     */
+    protected abstract void onTransitionCompleted(IvrState from, IvrState to, IvrEvent event);
+}
@@ -0,0 +1,293 @@
+package com.bank.ivr.flow;
+
+import com.bank.ivr.model.IvrEvent;
+import com.bank.ivr.model.IvrState;
+import org.springframework.statemachine.action.Action;
+import org.springframework.statemachine.config.StateMachineBuilder;
+import org.springframework.statemachine.config.StateMachineFactory;
+import org.springframework.statemachine.config.configurers.ChoiceTransitionConfigurer;
+import org.springframework.statemachine.config.configurers.ExternalTransitionConfigurer;
+import org.springframework.statemachine.config.configurers.JunctionTransitionConfigurer;
+import org.springframework.statemachine.config.configurers.StateConfigurer;
+import org.springframework.statemachine.guard.Guard;
+import org.springframework.statemachine.listener.StateMachineListener;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Checks a {@link FlowDefinition} and builds its {@link CompiledFlow}. Every
+ * problem is reported when the flow is loaded, so a bad file is rejected before
+ * any call reaches it.
+ */
+public class FlowCompiler {
+
+    private static final String DEFAULT_UNAVAILABLE_MESSAGE =
+            "This information is not available right now. Please try again later.";
+
+    private final Map<String, Action<IvrState, IvrEvent>> actions;
+    private final Map<String, Guard<IvrState, IvrEvent>> guards;
+    private final Map<String, PromptContent> contents;
+    private final StateMachineListener<IvrState, IvrEvent> listener;
+
+    /**
+     * @param actions The actions a flow may name, by name
+     * @param guards The guards a flow's choice and junction branches may name, by name
+     * @param contents The content a flow's prompts may name, by name
+     * @param listener Listener added to every state machine of every flow, or null
+     */
+    public FlowCompiler(Map<String, Action<IvrState, IvrEvent>> actions,
+                        Map<String, Guard<IvrState, IvrEvent>> guards,
+                        Map<String, PromptContent> contents,
+                        StateMachineListener<IvrState, IvrEvent> listener) {
+        this.actions = actions;
+        this.guards = guards;
+        this.contents = contents;
+        this.listener = listener;
+    }
+
+    /**
+     * Compiles a flow definition.
+     *
+     * @throws FlowDefinitionException If the definition is incomplete or inconsistent
+     */
+    public CompiledFlow compile(FlowDefinition definition) {
+        String version = definition.getVersion();
+        if (version == null || version.trim().isEmpty()) {
+            throw new FlowDefinitionException(version, "no version");
+        }
+        if (definition.getInitial() == null || definition.getEnd() == null) {
+            throw new FlowDefinitionException(version, "initial and end states are required");
+        }
+        if (definition.getTransitions() == null || definition.getTransitions().isEmpty()) {
+            throw new FlowDefinitionException(version, "no transitions");
+        }
+
+        int stateCount = IvrState.values().length;
+        int eventCount = IvrEvent.values().length;
+        boolean[] accepted = new boolean[stateCount * eventCount];
+        Set<IvrState> used = EnumSet.of(definition.getInitial(), definition.getEnd());
+        Set<IvrState> pseudoStates = EnumSet.noneOf(IvrState.class);
+        for (FlowDefinition.Choice choice : pseudoStates(definition)) {
+            checkChoice(version, definition, choice, pseudoStates);
+            for (FlowDefinition.Branch branch : choice.getBranches()) {
+                used.add(branch.getTarget());
+            }
+            used.add(choice.getOtherwise());
+        }
+        for (FlowDefinition.Transition transition : definition.getTransitions()) {
+            if (transition.getSource() == null || transition.getTarget() == null || transition.getEvent() == null) {
+                throw new FlowDefinitionException(version, "transition without source, target or event");
+            }
+            if (pseudoStates.contains(transition.getSource())) {
+                throw new FlowDefinitionException(version, "transition on " + transition.getEvent()
+                        + " from " + transition.getSource() + ", which is a choice or junction state");
+            }
+            if (transition.getAction() != null && !actions.containsKey(transition.getAction())) {
+                throw new FlowDefinitionException(version, "unknown action " + transition.getAction());
+            }
+            int slot = transition.getSource().ordinal() * eventCount + transition.getEvent().ordinal();
+            if (accepted[slot]) {
+                throw new FlowDefinitionException(version, "more than one transition from "
+                        + transition.getSource() + " on " + transition.getEvent());
+            }
+            accepted[slot] = true;
+            used.add(transition.getSource());
+            used.add(transition.getTarget());
+        }
+        // Choice and junction states are passed through, never rested in, so they have no prompt or input
+        used.removeAll(pseudoStates);
+
+        Map<IvrState, FlowDefinition.StateDefinition> states = definition.getStates();
+        CompiledFlow.StateInput[] inputs = new CompiledFlow.StateInput[stateCount];
+        CompiledFlow.StatePrompt[] prompts = new CompiledFlow.StatePrompt[stateCount];
+        for (IvrState state : used) {
+            FlowDefinition.StateDefinition stateDefinition = states == null ? null : states.get(state);
+            if (stateDefinition == null || stateDefinition.getPrompt() == null) {
+                throw new FlowDefinitionException(version, "no prompt for state " + state);
+            }
+            prompts[state.ordinal()] = compilePrompt(version, state, stateDefinition.getPrompt());
+            inputs[state.ordinal()] = compileInput(version, state, stateDefinition, accepted, eventCount);
+        }
+
+        return new CompiledFlow(version, buildFactory(definition), inputs, prompts);
+    }
+
+    /**
+     * Lists the choice and junction states, replacing absent lists with empty ones.
+     */
+    private static List<FlowDefinition.Choice> pseudoStates(FlowDefinition definition) {
+        if (definition.getChoices() == null) {
+            definition.setChoices(new ArrayList<>());
+        }
+        if (definition.getJunctions() == null) {
+            definition.setJunctions(new ArrayList<>());
+        }
+        List<FlowDefinition.Choice> all = new ArrayList<>(definition.getChoices());
+        all.addAll(definition.getJunctions());
+        return all;
+    }
+
+    private void checkChoice(String version, FlowDefinition definition, FlowDefinition.Choice choice,
+                             Set<IvrState> pseudoStates) {
+        IvrState state = choice.getState();
+        if (state == null || choice.getOtherwise() == null) {
+            throw new FlowDefinitionException(version, "choice or junction without state or otherwise target");
+        }
+        if (state == definition.getInitial() || state == definition.getEnd()) {
+            throw new FlowDefinitionException(version, "initial or end state " + state + " cannot be a choice or junction");
+        }
+        if (!pseudoStates.add(state)) {
+            throw new FlowDefinitionException(version, "state " + state + " is defined as a choice or junction twice");
+        }
+        if (choice.getBranches() == null) {
+            choice.setBranches(new ArrayList<>());
+        }
+        for (FlowDefinition.Branch branch : choice.getBranches()) {
+            if (branch.getTarget() == null || branch.getGuard() == null) {
+                throw new FlowDefinitionException(version, "branch of " + state + " without guard or target");
+            }
+            if (!guards.containsKey(branch.getGuard())) {
+                throw new FlowDefinitionException(version, "unknown guard " + branch.getGuard());
+            }
+        }
+    }
+
+    private CompiledFlow.StatePrompt compilePrompt(String version, IvrState state, FlowDefinition.Prompt prompt) {
+        String message = prompt.getMessage() == null ? "" : prompt.getMessage();
+        if (prompt.getContent() == null) {
+            return new CompiledFlow.StatePrompt(prompt.getNextAction(), message, null, null, null,
+                    prompt.isAuthenticated(), prompt.isCallEnded());
+        }
+        PromptContent content = contents.get(prompt.getContent());
+        if (content == null) {
+            throw new FlowDefinitionException(version, "unknown content " + prompt.getContent() + " in state " + state);
+        }
+        int placeholder = message.indexOf(CompiledFlow.CONTENT_PLACEHOLDER);
+        if (placeholder < 0) {
+            throw new FlowDefinitionException(version, "prompt of state " + state + " names content but its message has no "
+                    + CompiledFlow.CONTENT_PLACEHOLDER);
+        }
+        String unavailable = prompt.getUnavailableMessage() == null
+                ? DEFAULT_UNAVAILABLE_MESSAGE : prompt.getUnavailableMessage();
+        return new CompiledFlow.StatePrompt(prompt.getNextAction(), message.substring(0, placeholder),
+                message.substring(placeholder + CompiledFlow.CONTENT_PLACEHOLDER.length()), content, unavailable,
+                prompt.isAuthenticated(), prompt.isCallEnded());
+    }
+
+    private static CompiledFlow.StateInput compileInput(String version, IvrState state,
+                                                        FlowDefinition.StateDefinition definition,
+                                                        boolean[] accepted, int eventCount) {
+        FlowDefinition.Capture capture = definition.getCapture();
+        Map<String, FlowDefinition.MenuOption> menu = definition.getMenu();
+        boolean hasMenu = menu != null && !menu.isEmpty();
+        if (capture == null && !hasMenu && definition.getOtherwise() == null) {
+            return null;
+        }
+        if (capture != null) {
+            if (hasMenu || definition.getOtherwise() != null) {
+                throw new FlowDefinitionException(version, "state " + state + " both captures input and has a menu");
+            }
+            if (capture.getHeader() == null || capture.getHeader().isEmpty() || capture.getEvent() == null) {
+                throw new FlowDefinitionException(version, "capture in state " + state + " needs a header and an event");
+            }
+            requireTransition(version, state, capture.getEvent(), accepted, eventCount);
+            return new CompiledFlow.StateInput(null, capture.getHeader(), capture.getEvent());
+        }
+
+        if (definition.getOtherwise() != null) {
+            requireTransition(version, state, definition.getOtherwise(), accepted, eventCount);
+        }
+        CompiledFlow.StateInput input = new CompiledFlow.StateInput(definition.getOtherwise(), null, null);
+        if (hasMenu) {
+            for (Map.Entry<String, FlowDefinition.MenuOption> option : menu.entrySet()) {
+                int key = CompiledFlow.keyIndex(option.getKey());
+                if (key < 0) {
+                    throw new FlowDefinitionException(version, "menu key '" + option.getKey()
+                            + "' in state " + state + " is not a single DTMF key");
+                }
+                IvrEvent event = option.getValue() == null ? null : option.getValue().getEvent();
+                if (event == null) {
+                    throw new FlowDefinitionException(version, "menu key " + option.getKey()
+                            + " in state " + state + " has no event");
+                }
+                requireTransition(version, state, event, accepted, eventCount);
+                input.keyEvents[key] = event;
+                input.keyAuthMethods[key] = option.getValue().getAuthMethod();
+            }
+        }
+        return input;
+    }
+
+    private static void requireTransition(String version, IvrState state, IvrEvent event,
+                                          boolean[] accepted, int eventCount) {
+        if (!accepted[state.ordinal() * eventCount + event.ordinal()]) {
+            throw new FlowDefinitionException(version, "state " + state + " sends " + event
+                    + " but has no transition for it");
+        }
+    }
+
+    private StateMachineFactory<IvrState, IvrEvent> buildFactory(FlowDefinition definition) {
+        try {
+            StateMachineBuilder.Builder<IvrState, IvrEvent> builder = StateMachineBuilder.builder();
+            if (listener != null) {
+                builder.configureConfiguration()
+                    .withConfiguration()
+                        .listener(listener);
+            }
+            StateConfigurer<IvrState, IvrEvent> states = builder.configureStates()
+                .withStates()
+                    .initial(definition.getInitial())
+                    .states(EnumSet.allOf(IvrState.class))
+                    .end(definition.getEnd());
+            for (FlowDefinition.Choice choice : definition.getChoices()) {
+                states.choice(choice.getState());
+                ChoiceTransitionConfigurer<IvrState, IvrEvent> branches = builder.configureTransitions()
+                    .withChoice()
+                        .source(choice.getState());
+                List<FlowDefinition.Branch> guarded = choice.getBranches();
+                for (int i = 0; i < guarded.size(); i++) {
+                    Guard<IvrState, IvrEvent> guard = guards.get(guarded.get(i).getGuard());
+                    if (i == 0) {
+                        branches.first(guarded.get(i).getTarget(), guard);
+                    } else {
+                        branches.then(guarded.get(i).getTarget(), guard);
+                    }
+                }
+                branches.last(choice.getOtherwise());
+            }
+            for (FlowDefinition.Choice junction : definition.getJunctions()) {
+                states.junction(junction.getState());
+                JunctionTransitionConfigurer<IvrState, IvrEvent> branches = builder.configureTransitions()
+                    .withJunction()
+                        .source(junction.getState());
+                List<FlowDefinition.Branch> guarded = junction.getBranches();
+                for (int i = 0; i < guarded.size(); i++) {
+                    Guard<IvrState, IvrEvent> guard = guards.get(guarded.get(i).getGuard());
+                    if (i == 0) {
+                        branches.first(guarded.get(i).getTarget(), guard);
+                    } else {
+                        branches.then(guarded.get(i).getTarget(), guard);
+                    }
+                }
+                branches.last(junction.getOtherwise());
+            }
+            for (FlowDefinition.Transition transition : definition.getTransitions()) {
+                ExternalTransitionConfigurer<IvrState, IvrEvent> external = builder.configureTransitions()
+                    .withExternal()
+                        .source(transition.getSource())
+                        .target(transition.getTarget())
+                        .event(transition.getEvent());
+                if (transition.getAction() != null) {
+                    external.action(actions.get(transition.getAction()));
+                }
+            }
+            return builder.createFactory();
+        } catch (Exception e) {
+            throw new FlowDefinitionException(definition.getVersion(), "cannot build state machine", e);
+        }
+    }
+}
@@ -0,0 +1,364 @@
+package com.bank.ivr.flow;
+
+import com.bank.ivr.model.AuthMethod;
+import com.bank.ivr.model.IvrEvent;
+import com.bank.ivr.model.IvrState;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A call flow as written in a flow file: the state machine's transitions,
+ * the choice and junction states that route a transition on without waiting
+ * for another event, and for each state the prompt played to the caller and
+ * how the caller's input is turned into an event. Bound from JSON;
+ * {@link FlowCompiler} checks it and turns it into a {@link CompiledFlow}.
+ */
+public class FlowDefinition {
+
+    private String version;
+    private IvrState initial;
+    private IvrState end;
+    private List<Transition> transitions = new ArrayList<>();
+    private List<Choice> choices = new ArrayList<>();
+    private List<Choice> junctions = new ArrayList<>();
+    private Map<IvrState, StateDefinition> states = new EnumMap<>(IvrState.class);
+
+    /**
+     * Gets the version label. Versions are immutable once loaded, so a changed
+     * flow needs a new label.
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    public void setVersion(String version) {
+        this.version = version;
+    }
+
+    public IvrState getInitial() {
+        return initial;
+    }
+
+    public void setInitial(IvrState initial) {
+        this.initial = initial;
+    }
+
+    public IvrState getEnd() {
+        return end;
+    }
+
+    public void setEnd(IvrState end) {
+        this.end = end;
+    }
+
+    public List<Transition> getTransitions() {
+        return transitions;
+    }
+
+    public void setTransitions(List<Transition> transitions) {
+        this.transitions = transitions;
+    }
+
+    /**
+     * Gets the choice states: each routes a transition that reaches it on to the
+     * first branch whose guard passes, as part of the same transition.
+     */
+    public List<Choice> getChoices() {
+        return choices;
+    }
+
+    public void setChoices(List<Choice> choices) {
+        this.choices = choices;
+    }
+
+    /**
+     * Gets the junction states, which route like choice states. A junction
+     * with only an {@code otherwise} target passes straight through.
+     */
+    public List<Choice> getJunctions() {
+        return junctions;
+    }
+
+    public void setJunctions(List<Choice> junctions) {
+        this.junctions = junctions;
+    }
+
+    public Map<IvrState, StateDefinition> getStates() {
+        return states;
+    }
+
+    public void setStates(Map<IvrState, StateDefinition> states) {
+        this.states = states;
+    }
+
+    /**
+     * An external transition, optionally running a named action.
+     */
+    public static class Transition {
+
+        private IvrState source;
+        private IvrState target;
+        private IvrEvent event;
+        private String action;
+
+        public IvrState getSource() {
+            return source;
+        }
+
+        public void setSource(IvrState source) {
+            this.source = source;
+        }
+
+        public IvrState getTarget() {
+            return target;
+        }
+
+        public void setTarget(IvrState target) {
+            this.target = target;
+        }
+
+        public IvrEvent getEvent() {
+            return event;
+        }
+
+        public void setEvent(IvrEvent event) {
+            this.event = event;
+        }
+
+        public String getAction() {
+            return action;
+        }
+
+        public void setAction(String action) {
+            this.action = action;
+        }
+    }
+
+    /**
+     * A choice or junction state: guarded branches tried in order, and the
+     * target taken when no guard passes.
+     */
+    public static class Choice {
+
+        private IvrState state;
+        private List<Branch> branches = new ArrayList<>();
+        private IvrState otherwise;
+
+        public IvrState getState() {
+            return state;
+        }
+
+        public void setState(IvrState state) {
+            this.state = state;
+        }
+
+        public List<Branch> getBranches() {
+            return branches;
+        }
+
+        public void setBranches(List<Branch> branches) {
+            this.branches = branches;
+        }
+
+        public IvrState getOtherwise() {
+            return otherwise;
+        }
+
+        public void setOtherwise(IvrState otherwise) {
+            this.otherwise = otherwise;
+        }
+    }
+
+    /**
+     * A branch of a choice or junction, taken when the named guard passes.
+     */
+    public static class Branch {
+
+        private String guard;
+        private IvrState target;
+
+        public String getGuard() {
+            return guard;
+        }
+
+        public void setGuard(String guard) {
+            this.guard = guard;
+        }
+
+        public IvrState getTarget() {
+            return target;
+        }
+
+        public void setTarget(IvrState target) {
+            this.target = target;
+        }
+    }
+
+    /**
+     * The prompt and input handling of one state. A state either captures its
+     * input into a message header or treats it as a menu key; {@code otherwise}
+     * is sent for any input no menu option matches.
+     */
+    public static class StateDefinition {
+
+        private Prompt prompt;
+        private Map<String, MenuOption> menu = new LinkedHashMap<>();
+        private Capture capture;
+        private IvrEvent otherwise;
+
+        public Prompt getPrompt() {
+            return prompt;
+        }
+
+        public void setPrompt(Prompt prompt) {
+            this.prompt = prompt;
+        }
+
+        public Map<String, MenuOption> getMenu() {
+            return menu;
+        }
+
+        public void setMenu(Map<String, MenuOption> menu) {
+            this.menu = menu;
+        }
+
+        public Capture getCapture() {
+            return capture;
+        }
+
+        public void setCapture(Capture capture) {
+            this.capture = capture;
+        }
+
+        public IvrEvent getOtherwise() {
+            return otherwise;
+        }
+
+        public void setOtherwise(IvrEvent otherwise) {
+            this.otherwise = otherwise;
+        }
+    }
+
+    /**
+     * What the caller is told in a state. The message may carry content looked
+     * up for the caller when the response is built.
+     */
+    public static class Prompt {
+
+        private String nextAction;
+        private String message;
+        private boolean authenticated;
+        private boolean callEnded;
+        private String content;
+        private String unavailableMessage;
+
+        public String getNextAction() {
+            return nextAction;
+        }
+
+        public void setNextAction(String nextAction) {
+            this.nextAction = nextAction;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public void setMessage(String message) {
+            this.message = message;
+        }
+
+        public boolean isAuthenticated() {
+            return authenticated;
+        }
+
+        public void setAuthenticated(boolean authenticated) {
+            this.authenticated = authenticated;
+        }
+
+        public boolean isCallEnded() {
+            return callEnded;
+        }
+
+        public void setCallEnded(boolean callEnded) {
+            this.callEnded = callEnded;
+        }
+
+        /**
+         * Gets the name of the content filled into the message in place of
+         * {@value CompiledFlow#CONTENT_PLACEHOLDER}, such as the caller's balance.
+         */
+        public String getContent() {
+            return content;
+        }
+
+        public void setContent(String content) {
+            this.content = content;
+        }
+
+        /**
+         * Gets the message played instead when the content cannot be had.
+         */
+        public String getUnavailableMessage() {
+            return unavailableMessage;
+        }
+
+        public void setUnavailableMessage(String unavailableMessage) {
+            this.unavailableMessage = unavailableMessage;
+        }
+    }
+
+    /**
+     * The event sent for one DTMF key, and the authentication method it selects, if any.
+     */
+    public static class MenuOption {
+
+        private IvrEvent event;
+        private AuthMethod authMethod;
+
+        public IvrEvent getEvent() {
+            return event;
+        }
+
+        public void setEvent(IvrEvent event) {
+            this.event = event;
+        }
+
+        public AuthMethod getAuthMethod() {
+            return authMethod;
+        }
+
+        public void setAuthMethod(AuthMethod authMethod) {
+            this.authMethod = authMethod;
+        }
+    }
+
+    /**
+     * Sends the caller's whole input to an action under a message header.
+     */
+    public static class Capture {
+
+        private String header;
+        private IvrEvent event;
+
+        public String getHeader() {
+            return header;
+        }
+
+        public void setHeader(String header) {
+            this.header = header;
+        }
+
+        public IvrEvent getEvent() {
+            return event;
+        }
+
+        public void setEvent(IvrEvent event) {
+            this.event = event;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.bank.ivr.flow;
+
+/**
+ * Thrown when a flow definition cannot be loaded or compiled.
+ */
+public class FlowDefinitionException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String version;
+
+    public FlowDefinitionException(String version, String message) {
+        super("Flow " + version + ": " + message);
+        this.version = version;
+    }
+
+    public FlowDefinitionException(String version, String message, Throwable cause) {
+        super("Flow " + version + ": " + message, cause);
+        this.version = version;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,96 @@
+package com.bank.ivr.flow;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The call flow versions loaded on this node and the one new sessions start on.
+ *
+ * <p>A session keeps the {@link CompiledFlow} it started with, so activating a
+ * version is a single reference swap: calls in progress finish on their own
+ * version while new calls pick up the new one. Loaded versions are kept so that
+ * sessions transferred from other nodes resume on their version, and so that a
+ * bad release can be rolled back by activating the previous one.
+ */
+public class FlowRegistry {
+
+    private static final Logger logger = LogManager.getLogger(FlowRegistry.class);
+
+    private final FlowCompiler compiler;
+    private final ConcurrentMap<String, CompiledFlow> versions = new ConcurrentHashMap<>();
+    private final AtomicReference<CompiledFlow> active = new AtomicReference<>();
+
+    /**
+     * @param compiler Compiles flow definitions
+     * @param initial The flow active at startup
+     */
+    public FlowRegistry(FlowCompiler compiler, FlowDefinition initial) {
+        this.compiler = compiler;
+        CompiledFlow flow = load(initial);
+        active.set(flow);
+        logger.info("Call flow {} active", flow.getVersion());
+    }
+
+    /**
+     * Gets the flow new sessions start on.
+     */
+    public CompiledFlow getActive() {
+        return active.get();
+    }
+
+    /**
+     * Gets a loaded flow version.
+     *
+     * @return The flow, or null if the version is not loaded on this node
+     */
+    public CompiledFlow get(String version) {
+        return version == null ? null : versions.get(version);
+    }
+
+    /**
+     * Compiles and loads a flow version without activating it.
+     *
+     * @throws FlowDefinitionException If the definition does not compile
+     * @throws IllegalStateException If the version is already loaded
+     */
+    public CompiledFlow load(FlowDefinition definition) {
+        CompiledFlow flow = compiler.compile(definition);
+        if (versions.putIfAbsent(flow.getVersion(), flow) != null) {
+            throw new IllegalStateException("Flow version " + flow.getVersion() + " is already loaded");
+        }
+        logger.info("Loaded call flow {}", flow.getVersion());
+        return flow;
+    }
+
+    /**
+     * Makes a loaded version the one new sessions start on.
+     *
+     * @return The previously active flow
+     * @throws IllegalArgumentException If the version is not loaded
+     */
+    public CompiledFlow activate(String version) {
+        CompiledFlow flow = versions.get(version);
+        if (flow == null) {
+            throw new IllegalArgumentException("Flow version " + version + " is not loaded");
+        }
+        CompiledFlow previous = active.getAndSet(flow);
+        logger.info("Call flow {} active, replacing {}", flow.getVersion(), previous.getVersion());
+        return previous;
+    }
+
+    /**
+     * Lists the loaded versions, oldest first.
+     */
+    public List<CompiledFlow> getVersions() {
+        List<CompiledFlow> loaded = new ArrayList<>(versions.values());
+        loaded.sort(Comparator.comparingLong(CompiledFlow::getLoadedAtMillis));
+        return loaded;
+    }
+}
@@ -0,0 +1,41 @@
+package com.bank.ivr.flow;
+
+/**
+ * A loaded call flow version as reported to operators.
+ */
+public class FlowStatus {
+
+    private final String version;
+    private final long loadedAtMillis;
+    private final boolean active;
+    private final int sessions;
+
+    public FlowStatus(String version, long loadedAtMillis, boolean active, int sessions) {
+        this.version = version;
+        this.loadedAtMillis = loadedAtMillis;
+        this.active = active;
+        this.sessions = sessions;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public long getLoadedAtMillis() {
+        return loadedAtMillis;
+    }
+
+    /**
+     * Gets whether new sessions start on this version.
+     */
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Gets the number of live sessions on this node running this version.
+     */
+    public int getSessions() {
+        return sessions;
+    }
+}
@@ -0,0 +1,17 @@
+package com.bank.ivr.flow;
+
+import com.bank.ivr.model.SessionContext;
+
+/**
+ * Caller-specific text a flow's prompts can name, such as the caller's balance.
+ */
+@FunctionalInterface
+public interface PromptContent {
+
+    /**
+     * Renders the content for a session.
+     *
+     * @return The text, or null if it cannot be had, in which case the prompt's unavailable message is played
+     */
+    String render(SessionContext context);
+}
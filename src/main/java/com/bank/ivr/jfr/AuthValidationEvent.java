@@ -0,0 +1,25 @@
+package com.bank.ivr.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A credential check made while authenticating a caller.
+ */
+@Name("com.bank.ivr.AuthValidation")
+@Label("IVR Auth Validation")
+@Category({"IVR", "Authentication"})
+@Description("A check of a caller's SSN or card and PIN")
+@StackTrace(false)
+public class AuthValidationEvent extends Event {
+
+    @Label("Method")
+    public String method;
+
+    @Label("Outcome")
+    public String outcome;
+}
@@ -0,0 +1,50 @@
+package com.bank.ivr.jfr;
+
+import com.bank.ivr.flow.CompletedTransitionListener;
+import com.bank.ivr.model.IvrEvent;
+import com.bank.ivr.model.IvrState;
+
+/**
+ * Emits a {@link TransitionEvent} for each transition of one session's state
+ * machine. While the event type is disabled this costs one flag check per
+ * transition.
+ */
+public class JfrTransitionListener extends CompletedTransitionListener {
+
+    private final int sessionIdHash;
+    private TransitionEvent current;
+
+    public JfrTransitionListener(String sessionId) {
+        this.sessionIdHash = sessionId.hashCode();
+    }
+
+    @Override
+    protected void onTransitionStarted() {
+        TransitionEvent event = new TransitionEvent();
+        if (event.isEnabled()) {
+            event.begin();
+            this.current = event;
+        } else {
+            this.current = null;
+        }
+    }
+
+    @Override
+    protected void onTransitionCompleted(IvrState from, IvrState to, IvrEvent trigger) {
+        TransitionEvent event = current;
+        current = null;
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.sessionIdHash = sessionIdHash;
+            event.fromState = from.name();
+            event.toState = to.name();
+            if (trigger != null) {
+                event.event = trigger.name();
+            }
+            event.commit();
+        }
+    }
+}
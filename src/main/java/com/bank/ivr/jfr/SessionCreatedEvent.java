@@ -0,0 +1,22 @@
+package com.bank.ivr.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A session set up on this node, timed over the setup.
+ */
+@Name("com.bank.ivr.SessionCreated")
+@Label("IVR Session Created")
+@Category({"IVR", "Session"})
+@Description("A new IVR session and the time taken to set it up")
+@StackTrace(false)
+public class SessionCreatedEvent extends Event {
+
+    @Label("Session ID Hash")
+    public int sessionIdHash;
+}
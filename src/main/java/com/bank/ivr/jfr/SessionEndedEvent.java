@@ -0,0 +1,30 @@
+package com.bank.ivr.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A session ended on this node.
+ */
+@Name("com.bank.ivr.SessionEnded")
+@Label("IVR Session Ended")
+@Category({"IVR", "Session"})
+@Description("An IVR session ending, with the state it ended in")
+@StackTrace(false)
+public class SessionEndedEvent extends Event {
+
+    @Label("Session ID Hash")
+    public int sessionIdHash;
+
+    @Label("Final State")
+    public String finalState;
+
+    @Label("Lifetime")
+    @Timespan(Timespan.MILLISECONDS)
+    public long lifetime;
+}
@@ -0,0 +1,34 @@
+package com.bank.ivr.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A state machine transition, timed from its start to its end. Off unless
+ * enabled, e.g. by the {@code ivr-hotpath.jfc} settings.
+ */
+@Name("com.bank.ivr.Transition")
+@Label("IVR Transition")
+@Category({"IVR", "State Machine"})
+@Description("A state transition of an IVR session, including its actions")
+@Enabled(false)
+@StackTrace(false)
+public class TransitionEvent extends Event {
+
+    @Label("Session ID Hash")
+    public int sessionIdHash;
+
+    @Label("From State")
+    public String fromState;
+
+    @Label("To State")
+    public String toState;
+
+    @Label("Event")
+    public String event;
+}
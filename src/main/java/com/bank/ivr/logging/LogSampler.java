@@ -0,0 +1,27 @@
+package com.bank.ivr.logging;
+
+import org.apache.logging.log4j.ThreadContext;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides whether a hot-path log line is written: one request in
+ * {@code rate} at random, or every request while tracing is escalated.
+ */
+public class LogSampler {
+
+    private final int rate;
+
+    /**
+     * @param rate Log one in this many requests; 1 logs every request
+     */
+    public LogSampler(int rate) {
+        this.rate = Math.max(1, rate);
+    }
+
+    public boolean shouldLog() {
+        return rate == 1
+                || ThreadLocalRandom.current().nextInt(rate) == 0
+                || ThreadContext.containsKey(TraceEscalations.TRACE_KEY);
+    }
+}
@@ -0,0 +1,115 @@
+package com.bank.ivr.logging;
+
+import org.apache.logging.log4j.ThreadContext;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Sessions and callers whose requests are logged at DEBUG, each until an expiry time.
+ *
+ * <p>While work for an escalated session or caller runs, the thread's
+ * {@link ThreadContext} carries {@link #TRACE_KEY}, which the
+ * {@code DynamicThresholdFilter} in {@code log4j2.xml} matches to let DEBUG
+ * through regardless of logger levels. With nothing escalated, checking a
+ * request costs two empty-map checks.
+ */
+public class TraceEscalations {
+
+    /**
+     * ThreadContext key the log4j2 filter matches on.
+     */
+    public static final String TRACE_KEY = "ivrTrace";
+    private static final String TRACE_ON = "on";
+
+    private final Map<String, Long> sessions = new ConcurrentHashMap<>();
+    private final Map<String, Long> callers = new ConcurrentHashMap<>();
+
+    public void escalateSession(String sessionId, long ttlMillis) {
+        sessions.put(sessionId, System.currentTimeMillis() + ttlMillis);
+    }
+
+    public void escalateCaller(String ani, long ttlMillis) {
+        callers.put(ani, System.currentTimeMillis() + ttlMillis);
+    }
+
+    public boolean clearSession(String sessionId) {
+        return sessions.remove(sessionId) != null;
+    }
+
+    public boolean clearCaller(String ani) {
+        return callers.remove(ani) != null;
+    }
+
+    /**
+     * Checks whether a request for the given session or from the given caller should be traced.
+     *
+     * @param sessionId The session ID, or null for a new session
+     * @param ani The caller's ANI, or null if unknown
+     */
+    public boolean isEscalated(String sessionId, String ani) {
+        return isActive(sessions, sessionId) || isActive(callers, ani);
+    }
+
+    /**
+     * Gets the live session escalations, by session ID, with their expiry times.
+     */
+    public Map<String, Long> getSessions() {
+        return snapshot(sessions);
+    }
+
+    /**
+     * Gets the live caller escalations, by ANI, with their expiry times.
+     */
+    public Map<String, Long> getCallers() {
+        return snapshot(callers);
+    }
+
+    /**
+     * Runs work with DEBUG tracing enabled on the current thread if {@code traced} is set.
+     */
+    public static <T> T withTrace(boolean traced, Supplier<T> work) {
+        if (!traced) {
+            return work.get();
+        }
+        ThreadContext.put(TRACE_KEY, TRACE_ON);
+        try {
+            return work.get();
+        } finally {
+            ThreadContext.remove(TRACE_KEY);
+        }
+    }
+
+    private static boolean isActive(Map<String, Long> escalations, String key) {
+        if (key == null || escalations.isEmpty()) {
+            return false;
+        }
+        Long expiresAt = escalations.get(key);
+        if (expiresAt == null) {
+            return false;
+        }
+        if (expiresAt < System.currentTimeMillis()) {
+            escalations.remove(key, expiresAt);
+            return false;
+        }
+        return true;
+    }
+
+    private static Map<String, Long> snapshot(Map<String, Long> escalations) {
+        long now = System.currentTimeMillis();
+        Map<String, Long> live = new TreeMap<>();
+        for (Iterator<Map.Entry<String, Long>> it = escalations.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<String, Long> entry = it.next();
+            if (entry.getValue() < now) {
+                it.remove();
+            } else {
+                live.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return Collections.unmodifiableMap(live);
+    }
+}
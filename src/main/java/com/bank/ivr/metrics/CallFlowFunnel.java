@@ -0,0 +1,170 @@
+package com.bank.ivr.metrics;
+
+import com.bank.ivr.flow.CompletedTransitionListener;
+import com.bank.ivr.model.IvrEvent;
+import com.bank.ivr.model.IvrState;
+import org.springframework.statemachine.listener.StateMachineListener;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts how callers move through the call flow, over a sliding time window.
+ *
+ * <p>Time is cut into fixed-length buckets kept in a ring. Each bucket holds
+ * {@link LongAdder} counters for sessions started, for every state-to-state
+ * transition, and for sessions abandoned in each state, indexed by enum
+ * ordinal and created on first use. Recording is an adder increment on the
+ * current bucket, so concurrent calls do not contend. The first recording
+ * in a new period swaps in a fresh bucket; an increment racing with that
+ * swap may land in the bucket being replaced and be lost.
+ */
+public class CallFlowFunnel {
+
+    private static final IvrState[] STATES = IvrState.values();
+
+    private final long bucketMillis;
+    private final AtomicReferenceArray<Bucket> buckets;
+
+    /**
+     * @param bucketMillis Length of one bucket
+     * @param bucketCount Number of buckets kept, which bounds the longest window
+     */
+    public CallFlowFunnel(long bucketMillis, int bucketCount) {
+        this.bucketMillis = Math.max(1, bucketMillis);
+        this.buckets = new AtomicReferenceArray<>(Math.max(1, bucketCount));
+    }
+
+    /**
+     * Records a new call.
+     */
+    public void sessionStarted() {
+        currentBucket().started.increment();
+    }
+
+    /**
+     * Records a transition between two states.
+     */
+    public void transitioned(IvrState from, IvrState to) {
+        Bucket bucket = currentBucket();
+        adder(bucket.transitions, from.ordinal() * STATES.length + to.ordinal()).increment();
+    }
+
+    /**
+     * Records the end of a session. Sessions ending anywhere but
+     * {@link IvrState#END_CALL} count as abandoned in their final state.
+     */
+    public void sessionEnded(IvrState finalState) {
+        if (finalState != IvrState.END_CALL) {
+            adder(currentBucket().abandoned, finalState.ordinal()).increment();
+        }
+    }
+
+    /**
+     * Creates a listener feeding the transitions of one state machine into
+     * the funnel. Each machine needs its own.
+     */
+    public StateMachineListener<IvrState, IvrEvent> newListener() {
+        return new CompletedTransitionListener() {
+            @Override
+            protected void onTransitionCompleted(IvrState from, IvrState to, IvrEvent event) {
+                transitioned(from, to);
+            }
+        };
+    }
+
+    /**
+     * Sums the buckets covering the given window, ending now.
+     *
+     * @param windowMillis Window length, capped at the time covered by the ring
+     */
+    public FunnelSnapshot snapshot(long windowMillis) {
+        long current = System.currentTimeMillis() / bucketMillis;
+        int count = (int) Math.min(buckets.length(), Math.max(1, (windowMillis + bucketMillis - 1) / bucketMillis));
+        long oldest = current - count + 1;
+
+        long started = 0;
+        long[] transitions = new long[STATES.length * STATES.length];
+        long[] abandoned = new long[STATES.length];
+        for (int i = 0; i < buckets.length(); i++) {
+            Bucket bucket = buckets.get(i);
+            if (bucket == null || bucket.index < oldest || bucket.index > current) {
+                continue;
+            }
+            started += bucket.started.sum();
+            sum(bucket.transitions, transitions);
+            sum(bucket.abandoned, abandoned);
+        }
+
+        Map<IvrState, Long> entered = new EnumMap<>(IvrState.class);
+        Map<IvrState, Long> abandonedByState = new EnumMap<>(IvrState.class);
+        Map<IvrState, Map<IvrState, Long>> transitionsByState = new EnumMap<>(IvrState.class);
+        if (started > 0) {
+            entered.put(IvrState.WELCOME, started);
+        }
+        for (IvrState from : STATES) {
+            for (IvrState to : STATES) {
+                long n = transitions[from.ordinal() * STATES.length + to.ordinal()];
+                if (n > 0) {
+                    transitionsByState.computeIfAbsent(from, s -> new EnumMap<>(IvrState.class)).put(to, n);
+                    entered.merge(to, n, Long::sum);
+                }
+            }
+            if (abandoned[from.ordinal()] > 0) {
+                abandonedByState.put(from, abandoned[from.ordinal()]);
+            }
+        }
+        return new FunnelSnapshot(count * bucketMillis / 1000, started, entered, abandonedByState,
+                transitionsByState);
+    }
+
+    private Bucket currentBucket() {
+        long index = System.currentTimeMillis() / bucketMillis;
+        int slot = (int) (index % buckets.length());
+        Bucket bucket = buckets.get(slot);
+        while (bucket == null || bucket.index < index) {
+            Bucket fresh = new Bucket(index);
+            if (buckets.compareAndSet(slot, bucket, fresh)) {
+                return fresh;
+            }
+            bucket = buckets.get(slot);
+        }
+        // A bucket newer than the clock reading means another thread already moved on; count there
+        return bucket;
+    }
+
+    private static LongAdder adder(AtomicReferenceArray<LongAdder> adders, int index) {
+        LongAdder adder = adders.get(index);
+        if (adder == null) {
+            adders.compareAndSet(index, null, new LongAdder());
+            adder = adders.get(index);
+        }
+        return adder;
+    }
+
+    private static void sum(AtomicReferenceArray<LongAdder> adders, long[] totals) {
+        for (int i = 0; i < totals.length; i++) {
+            LongAdder adder = adders.get(i);
+            if (adder != null) {
+                totals[i] += adder.sum();
+            }
+        }
+    }
+
+    /**
+     * Counters for one period.
+     */
+    private static class Bucket {
+
+        final long index;
+        final LongAdder started = new LongAdder();
+        final AtomicReferenceArray<LongAdder> transitions = new AtomicReferenceArray<>(STATES.length * STATES.length);
+        final AtomicReferenceArray<LongAdder> abandoned = new AtomicReferenceArray<>(STATES.length);
+
+        Bucket(long index) {
+            this.index = index;
+        }
+    }
+}
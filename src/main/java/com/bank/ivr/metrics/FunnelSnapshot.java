@@ -0,0 +1,56 @@
+package com.bank.ivr.metrics;
+
+import com.bank.ivr.model.IvrState;
+
+import java.util.Map;
+
+/**
+ * Call-flow counts over a time window. States and transitions that did not
+ * occur in the window are left out.
+ */
+public class FunnelSnapshot {
+
+    private final long windowSeconds;
+    private final long sessionsStarted;
+    private final Map<IvrState, Long> entered;
+    private final Map<IvrState, Long> abandoned;
+    private final Map<IvrState, Map<IvrState, Long>> transitions;
+
+    FunnelSnapshot(long windowSeconds, long sessionsStarted, Map<IvrState, Long> entered,
+                   Map<IvrState, Long> abandoned, Map<IvrState, Map<IvrState, Long>> transitions) {
+        this.windowSeconds = windowSeconds;
+        this.sessionsStarted = sessionsStarted;
+        this.entered = entered;
+        this.abandoned = abandoned;
+        this.transitions = transitions;
+    }
+
+    public long getWindowSeconds() {
+        return windowSeconds;
+    }
+
+    public long getSessionsStarted() {
+        return sessionsStarted;
+    }
+
+    /**
+     * Gets the number of times each state was entered.
+     */
+    public Map<IvrState, Long> getEntered() {
+        return entered;
+    }
+
+    /**
+     * Gets the number of sessions that ended in each state without reaching {@link IvrState#END_CALL}.
+     */
+    public Map<IvrState, Long> getAbandoned() {
+        return abandoned;
+    }
+
+    /**
+     * Gets transition counts, by source state and then target state.
+     */
+    public Map<IvrState, Map<IvrState, Long>> getTransitions() {
+        return transitions;
+    }
+}
@@ -0,0 +1,202 @@
+package com.bank.ivr.metrics;
+
+import com.bank.ivr.deadline.Deadline;
+import com.bank.ivr.flow.CompletedTransitionListener;
+import com.bank.ivr.model.AuthMethod;
+import com.bank.ivr.model.IvrEvent;
+import com.bank.ivr.model.IvrState;
+import com.bank.ivr.session.IvrSession;
+import com.bank.ivr.session.SessionRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.messaging.Message;
+import org.springframework.statemachine.StateMachine;
+import org.springframework.statemachine.listener.StateMachineListener;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Micrometer metrics for sessions, state transitions and authentication.
+ *
+ * <p>Recording is kept cheap enough to leave on: meters are resolved once and
+ * cached in arrays indexed by enum ordinal, so the hot path does no tag
+ * lookups or allocation. Sessions per state are read from the session
+ * registry's state index when scraped.
+ */
+public class IvrMetrics {
+
+    private static final IvrState[] STATES = IvrState.values();
+    private static final IvrEvent[] EVENTS = IvrEvent.values();
+    private static final AuthMethod[] METHODS = AuthMethod.values();
+
+    /**
+     * Outcome of an authentication attempt.
+     */
+    public enum AuthOutcome {
+        SUCCESS,
+        FAILURE,
+        ERROR
+    }
+
+    private final MeterRegistry registry;
+    private final SessionRegistry sessions;
+
+    // Indexed by [from][to][event]; the last event slot is for transitions without one
+    private final AtomicReferenceArray<Timer> transitionTimers =
+            new AtomicReferenceArray<>(STATES.length * STATES.length * (EVENTS.length + 1));
+    private final AtomicReferenceArray<Counter> rejectedEvents =
+            new AtomicReferenceArray<>(STATES.length * EVENTS.length);
+    private final Timer[] authLatency = new Timer[METHODS.length];
+    private final Counter[][] authOutcomes = new Counter[METHODS.length][AuthOutcome.values().length];
+    private final AtomicReferenceArray<Timer> sessionDuration = new AtomicReferenceArray<>(STATES.length);
+    private final Counter deduplicated;
+    private final Counter[] deadlinesExceeded = new Counter[Deadline.Stage.values().length];
+
+    public IvrMetrics(MeterRegistry registry, SessionRegistry sessions) {
+        this.registry = registry;
+        this.sessions = sessions;
+
+        for (IvrState state : STATES) {
+            Gauge.builder("ivr.sessions.active", sessions, live -> live.countInState(state))
+                    .description("Live sessions held by this node, by current state")
+                    .tag("state", state.name())
+                    .register(registry);
+        }
+        for (AuthMethod method : METHODS) {
+            authLatency[method.ordinal()] = Timer.builder("ivr.auth.latency")
+                    .description("Time taken to check credentials")
+                    .tag("method", method.name())
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofMillis(1))
+                    .maximumExpectedValue(Duration.ofSeconds(10))
+                    .register(registry);
+            for (AuthOutcome outcome : AuthOutcome.values()) {
+                authOutcomes[method.ordinal()][outcome.ordinal()] = Counter.builder("ivr.auth.attempts")
+                        .description("Authentication attempts by method and outcome")
+                        .tag("method", method.name())
+                        .tag("outcome", outcome.name())
+                        .register(registry);
+            }
+        }
+        this.deduplicated = Counter.builder("ivr.requests.deduplicated")
+                .description("Retried inputs answered with the response already given")
+                .register(registry);
+        for (Deadline.Stage stage : Deadline.Stage.values()) {
+            deadlinesExceeded[stage.ordinal()] = Counter.builder("ivr.deadline.exceeded")
+                    .description("Inputs abandoned because the gateway's deadline passed, by where")
+                    .tag("stage", stage.name().toLowerCase())
+                    .register(registry);
+        }
+    }
+
+    /**
+     * Creates a listener recording the transitions and rejected events of one
+     * state machine. Each machine needs its own.
+     */
+    public StateMachineListener<IvrState, IvrEvent> newMachineListener(StateMachine<IvrState, IvrEvent> machine) {
+        return new CompletedTransitionListener() {
+
+            private long transitionStartNanos;
+
+            @Override
+            protected void onTransitionStarted() {
+                transitionStartNanos = System.nanoTime();
+            }
+
+            @Override
+            protected void onTransitionCompleted(IvrState from, IvrState to, IvrEvent event) {
+                transitionTimer(from, to, event).record(System.nanoTime() - transitionStartNanos, TimeUnit.NANOSECONDS);
+            }
+
+            @Override
+            public void eventNotAccepted(Message<IvrEvent> event) {
+                // Abandoned events are counted by ivr.deadline.exceeded instead
+                if (machine.getState() != null && !isAbandoned(event)) {
+                    rejectedEventCounter(machine.getState().getId(), event.getPayload()).increment();
+                }
+            }
+        };
+    }
+
+    /**
+     * Records a completed credential check.
+     */
+    public void recordAuthentication(AuthMethod method, AuthOutcome outcome, long elapsedNanos) {
+        if (method == null) {
+            return;
+        }
+        authLatency[method.ordinal()].record(elapsedNanos, TimeUnit.NANOSECONDS);
+        authOutcomes[method.ordinal()][outcome.ordinal()].increment();
+    }
+
+    /**
+     * Records a retried input answered from the session's last response.
+     */
+    public void recordDuplicateRequest() {
+        deduplicated.increment();
+    }
+
+    /**
+     * Records an input abandoned at a stage because its deadline passed.
+     */
+    public void recordDeadlineExceeded(Deadline.Stage stage) {
+        deadlinesExceeded[stage.ordinal()].increment();
+    }
+
+    /**
+     * Records the end of a session in the given state.
+     */
+    public void sessionEnded(IvrSession session, IvrState finalState) {
+        long elapsed = System.currentTimeMillis() - session.getCreatedAtMillis();
+        Timer timer = sessionDuration.get(finalState.ordinal());
+        if (timer == null) {
+            timer = Timer.builder("ivr.session.duration")
+                    .description("Time from session setup to its end, by final state")
+                    .tag("state", finalState.name())
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofSeconds(1))
+                    .maximumExpectedValue(Duration.ofHours(1))
+                    .register(registry);
+            sessionDuration.set(finalState.ordinal(), timer);
+        }
+        timer.record(Math.max(0, elapsed), TimeUnit.MILLISECONDS);
+    }
+
+    private Timer transitionTimer(IvrState from, IvrState to, IvrEvent event) {
+        int eventIndex = event == null ? EVENTS.length : event.ordinal();
+        int index = (from.ordinal() * STATES.length + to.ordinal()) * (EVENTS.length + 1) + eventIndex;
+        Timer timer = transitionTimers.get(index);
+        if (timer == null) {
+            // Registering twice returns the same meter, so a race here is harmless
+            timer = Timer.builder("ivr.transitions")
+                    .description("State transitions and the time taken by their actions")
+                    .tag("from", from.name())
+                    .tag("to", to.name())
+                    .tag("event", event == null ? "none" : event.name())
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofNanos(10_000))
+                    .maximumExpectedValue(Duration.ofSeconds(5))
+                    .register(registry);
+            transitionTimers.set(index, timer);
+        }
+        return timer;
+    }
+
+    private Counter rejectedEventCounter(IvrState state, IvrEvent event) {
+        int index = state.ordinal() * EVENTS.length + event.ordinal();
+        Counter counter = rejectedEvents.get(index);
+        if (counter == null) {
+            counter = Counter.builder("ivr.events.rejected")
+                    .description("Events the state machine did not accept, by state and event")
+                    .tag("state", state.name())
+                    .tag("event", event.name())
+                    .register(registry);
+            rejectedEvents.set(index, counter);
+        }
+        return counter;
+    }
+}
@@ -0,0 +1,25 @@
+package com.bank.ivr.model;
+
+import java.math.BigDecimal;
+
+/**
+ * A customer's account balance as reported by the account backend.
+ */
+public class AccountBalance {
+
+    private final String customerId;
+    private final BigDecimal available;
+
+    public AccountBalance(String customerId, BigDecimal available) {
+        this.customerId = customerId;
+        this.available = available;
+    }
+
+    public String getCustomerId() {
+        return customerId;
+    }
+
+    public BigDecimal getAvailable() {
+        return available;
+    }
+}
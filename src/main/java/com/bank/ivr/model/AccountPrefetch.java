@@ -0,0 +1,77 @@
+package com.bank.ivr.model;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Account data fetched for a session ahead of the caller asking for it,
+ * started once the caller has authenticated.
+ */
+public class AccountPrefetch {
+
+    private final String customerId;
+    private final Fetch<AccountBalance> balance;
+    private final Fetch<TransactionPage> transactions;
+
+    public AccountPrefetch(String customerId, Fetch<AccountBalance> balance,
+                           Fetch<TransactionPage> transactions) {
+        this.customerId = customerId;
+        this.balance = balance;
+        this.transactions = transactions;
+    }
+
+    public String getCustomerId() {
+        return customerId;
+    }
+
+    public Fetch<AccountBalance> getBalance() {
+        return balance;
+    }
+
+    public Fetch<TransactionPage> getTransactions() {
+        return transactions;
+    }
+
+    /**
+     * One prefetched value: the task fetching it, when it completed, and
+     * whether the session has used it.
+     *
+     * @param <T> Value type
+     */
+    public static class Fetch<T> {
+
+        private final AtomicBoolean used = new AtomicBoolean();
+        private volatile Future<T> future;
+        private volatile long completedAtNanos;
+
+        /**
+         * Gets the task, or null if it could not be started.
+         */
+        public Future<T> getFuture() {
+            return future;
+        }
+
+        public void setFuture(Future<T> future) {
+            this.future = future;
+        }
+
+        public long getCompletedAtNanos() {
+            return completedAtNanos;
+        }
+
+        public void setCompletedAtNanos(long completedAtNanos) {
+            this.completedAtNanos = completedAtNanos;
+        }
+
+        /**
+         * Marks the value used; false if it already was.
+         */
+        public boolean markUsed() {
+            return used.compareAndSet(false, true);
+        }
+
+        public boolean isUsed() {
+            return used.get();
+        }
+    }
+}
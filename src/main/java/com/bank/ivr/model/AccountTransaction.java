@@ -0,0 +1,38 @@
+package com.bank.ivr.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * One posted transaction. Debits have a negative amount.
+ */
+public class AccountTransaction {
+
+    private final String transactionId;
+    private final LocalDate postedOn;
+    private final BigDecimal amount;
+    private final String description;
+
+    public AccountTransaction(String transactionId, LocalDate postedOn, BigDecimal amount, String description) {
+        this.transactionId = transactionId;
+        this.postedOn = postedOn;
+        this.amount = amount;
+        this.description = description;
+    }
+
+    public String getTransactionId() {
+        return transactionId;
+    }
+
+    public LocalDate getPostedOn() {
+        return postedOn;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
@@ -0,0 +1,9 @@
+package com.bank.ivr.model;
+
+/**
+ * Enum representing the ways a caller can authenticate.
+ */
+public enum AuthMethod {
+    SSN,   // Social Security Number
+    CARD   // Debit card number and PIN
+}
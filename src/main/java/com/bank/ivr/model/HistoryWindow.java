@@ -0,0 +1,61 @@
+package com.bank.ivr.model;
+
+/**
+ * The part of a caller's transaction history held while they page through
+ * it: the page being read out and the fetch of the page after it, so a
+ * session never holds more than two pages. Callers synchronize on the window.
+ */
+public class HistoryWindow {
+
+    private final String customerId;
+    private String cursor;
+    private TransactionPage page;
+    private String nextCursor;
+    private AccountPrefetch.Fetch<TransactionPage> next;
+
+    public HistoryWindow(String customerId) {
+        this.customerId = customerId;
+    }
+
+    public String getCustomerId() {
+        return customerId;
+    }
+
+    /**
+     * Gets the cursor the current page was read at, null for the first page.
+     */
+    public String getCursor() {
+        return cursor;
+    }
+
+    /**
+     * Gets the page being read out, or null if it has not been read yet.
+     */
+    public TransactionPage getPage() {
+        return page;
+    }
+
+    public void setPage(String cursor, TransactionPage page) {
+        this.cursor = cursor;
+        this.page = page;
+    }
+
+    /**
+     * Gets the cursor the next page is being fetched at, or null.
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * Gets the fetch of the next page, or null.
+     */
+    public AccountPrefetch.Fetch<TransactionPage> getNext() {
+        return next;
+    }
+
+    public void setNext(String nextCursor, AccountPrefetch.Fetch<TransactionPage> next) {
+        this.nextCursor = nextCursor;
+        this.next = next;
+    }
+}
@@ -16,6 +16,9 @@ public enum IvrEvent {
     SELECT_TRANSFER_FUNDS,   // User selects transfer funds
     SELECT_BALANCE_INQUIRY,  // User selects balance inquiry
     SELECT_TRANSACTION_HISTORY, // User selects transaction history
+    NEXT_PAGE,               // User asks for the next page of a listing
+    ENTER_TRANSFER_ACCOUNT,  // User enters the account to transfer to
+    ENTER_TRANSFER_AMOUNT,   // User enters the amount to transfer
     COMPLETE_TRANSACTION,    // Transaction completed
     ERROR_OCCURRED,          // Error occurred
     TIMEOUT,                 // User timeout
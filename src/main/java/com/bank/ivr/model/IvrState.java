@@ -13,7 +13,9 @@ public enum IvrState {
     AUTHENTICATED,         // Successfully authenticated
     MAIN_MENU,             // Main menu after authentication
     ACCOUNT_SERVICES,      // Account services submenu
-    TRANSFER_FUNDS,        // Transfer funds option
+    TRANSFER_FUNDS,        // Transfer funds option, collecting the destination
+    TRANSFER_AMOUNT,       // Collecting the amount to transfer
+    TRANSFER_RESULT,       // Outcome of a transfer
     BALANCE_INQUIRY,       // Balance inquiry option
     TRANSACTION_HISTORY,   // Transaction history option
     ERROR,                 // Error state
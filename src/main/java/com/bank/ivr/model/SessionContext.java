@@ -0,0 +1,189 @@
+package com.bank.ivr.model;
+
+import java.util.Arrays;
+
+/**
+ * Typed per-session data carried alongside the state machine for the life of
+ * a call. Replaces the generic extended-state variable map: fields are read
+ * without lookups or casts, and a session that never authenticates carries
+ * nothing but this object.
+ *
+ * <p>The card number is the only sensitive value held, and only between card
+ * entry and PIN validation; it is kept as a char array so it can be wiped.
+ * SSNs and PINs are never stored.
+ */
+public class SessionContext {
+
+    /**
+     * Message header under which the context is passed to state machine actions.
+     */
+    public static final String HEADER = "sessionContext";
+
+    private AuthMethod authMethod;
+    private char[] cardNumber;
+    private String customerId;
+    private volatile boolean authenticated;
+    private int ssnAttempts;
+    private int pinAttempts;
+    private long lastInputMillis;
+    private volatile String historyCursor;
+    private String transferTo;
+    private int transferCount;
+    // Not carried in snapshots: a session resumed elsewhere fetches again
+    private volatile AccountPrefetch prefetch;
+    private volatile HistoryWindow historyWindow;
+    private volatile TransferResult lastTransfer;
+
+    public AuthMethod getAuthMethod() {
+        return authMethod;
+    }
+
+    public void setAuthMethod(AuthMethod authMethod) {
+        this.authMethod = authMethod;
+    }
+
+    /**
+     * Gets the card number awaiting PIN validation, or null.
+     */
+    public char[] getCardNumber() {
+        return cardNumber;
+    }
+
+    public void setCardNumber(char[] cardNumber) {
+        clearSensitive();
+        this.cardNumber = cardNumber;
+    }
+
+    public String getCustomerId() {
+        return customerId;
+    }
+
+    public void setCustomerId(String customerId) {
+        this.customerId = customerId;
+    }
+
+    public boolean isAuthenticated() {
+        return authenticated;
+    }
+
+    public void setAuthenticated(boolean authenticated) {
+        this.authenticated = authenticated;
+    }
+
+    public int getSsnAttempts() {
+        return ssnAttempts;
+    }
+
+    public void setSsnAttempts(int ssnAttempts) {
+        this.ssnAttempts = ssnAttempts;
+    }
+
+    public int incrementSsnAttempts() {
+        return ++ssnAttempts;
+    }
+
+    public int getPinAttempts() {
+        return pinAttempts;
+    }
+
+    public void setPinAttempts(int pinAttempts) {
+        this.pinAttempts = pinAttempts;
+    }
+
+    public int incrementPinAttempts() {
+        return ++pinAttempts;
+    }
+
+    /**
+     * Gets the time of the caller's last input, in epoch milliseconds.
+     */
+    public long getLastInputMillis() {
+        return lastInputMillis;
+    }
+
+    public void setLastInputMillis(long lastInputMillis) {
+        this.lastInputMillis = lastInputMillis;
+    }
+
+    /**
+     * Gets the opaque cursor of the transaction history page the caller is
+     * hearing, or null for the most recent transactions.
+     */
+    public String getHistoryCursor() {
+        return historyCursor;
+    }
+
+    public void setHistoryCursor(String historyCursor) {
+        this.historyCursor = historyCursor;
+    }
+
+    /**
+     * Gets the customer ID the caller has chosen to transfer to, or null.
+     */
+    public String getTransferTo() {
+        return transferTo;
+    }
+
+    public void setTransferTo(String transferTo) {
+        this.transferTo = transferTo;
+    }
+
+    /**
+     * Gets the number of transfers the caller has started; the latest one's
+     * request ID is derived from it.
+     */
+    public int getTransferCount() {
+        return transferCount;
+    }
+
+    public void setTransferCount(int transferCount) {
+        this.transferCount = transferCount;
+    }
+
+    public int incrementTransferCount() {
+        return ++transferCount;
+    }
+
+    /**
+     * Gets the outcome of the caller's latest transfer, or null.
+     */
+    public TransferResult getLastTransfer() {
+        return lastTransfer;
+    }
+
+    public void setLastTransfer(TransferResult lastTransfer) {
+        this.lastTransfer = lastTransfer;
+    }
+
+    /**
+     * Gets the account data being fetched for the caller ahead of time, or null.
+     */
+    public AccountPrefetch getPrefetch() {
+        return prefetch;
+    }
+
+    public void setPrefetch(AccountPrefetch prefetch) {
+        this.prefetch = prefetch;
+    }
+
+    /**
+     * Gets the transaction history pages held for the caller, or null.
+     */
+    public HistoryWindow getHistoryWindow() {
+        return historyWindow;
+    }
+
+    public void setHistoryWindow(HistoryWindow historyWindow) {
+        this.historyWindow = historyWindow;
+    }
+
+    /**
+     * Wipes the sensitive fields once they have been validated.
+     */
+    public void clearSensitive() {
+        if (cardNumber != null) {
+            Arrays.fill(cardNumber, '\0');
+            cardNumber = null;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.bank.ivr.model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of a customer's transaction history, newest first, with the
+ * cursor to read the page after it.
+ */
+public class TransactionPage {
+
+    private final List<AccountTransaction> transactions;
+    private final String nextCursor;
+
+    public TransactionPage(List<AccountTransaction> transactions, String nextCursor) {
+        this.transactions = Collections.unmodifiableList(transactions);
+        this.nextCursor = nextCursor;
+    }
+
+    public List<AccountTransaction> getTransactions() {
+        return transactions;
+    }
+
+    /**
+     * Gets the opaque cursor of the following page, or null if this is the last one.
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+}
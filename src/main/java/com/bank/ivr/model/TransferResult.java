@@ -0,0 +1,52 @@
+package com.bank.ivr.model;
+
+import java.math.BigDecimal;
+
+/**
+ * The outcome of a transfer request. A request that is repeated gets the
+ * outcome of its first run.
+ */
+public class TransferResult {
+
+    /**
+     * What became of a transfer request.
+     */
+    public enum Status {
+        COMPLETED,          // Funds moved
+        INSUFFICIENT_FUNDS, // The source balance does not cover the amount
+        INVALID_ACCOUNT,    // The destination is unknown or is the source account
+        INVALID_AMOUNT,     // The amount is not a positive number of cents
+        NOT_OFFERED         // This node is clustered, and transfers are not made on clustered nodes
+    }
+
+    private final Status status;
+    private final String toCustomerId;
+    private final BigDecimal amount;
+    private final BigDecimal balance;
+
+    public TransferResult(Status status, String toCustomerId, BigDecimal amount, BigDecimal balance) {
+        this.status = status;
+        this.toCustomerId = toCustomerId;
+        this.amount = amount;
+        this.balance = balance;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public String getToCustomerId() {
+        return toCustomerId;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    /**
+     * Gets the source account's balance after the transfer, or null unless it completed.
+     */
+    public BigDecimal getBalance() {
+        return balance;
+    }
+}
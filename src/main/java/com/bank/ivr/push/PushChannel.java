@@ -0,0 +1,183 @@
+package com.bank.ivr.push;
+
+import com.bank.ivr.api.model.IvrResponse;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One client's stream of updates for a session.
+ *
+ * <p>A channel holds at most one undelivered response, the latest: a newer
+ * one replaces it, so a client that falls behind skips intermediate states
+ * instead of buffering them. Only one sender thread writes to the emitter at
+ * a time, which keeps writes in order without holding a lock across I/O.
+ *
+ * <p>A write blocks while the client's TCP window is full. The hub watches
+ * how long each write has been running, and abandons one that takes too
+ * long: the channel is dropped, and the sender stuck in it is written off.
+ */
+class PushChannel {
+
+    static final String STATE_EVENT = "state";
+
+    // Write states other than the nanoTime a write started
+    private static final long IDLE = Long.MIN_VALUE;
+    private static final long ABANDONED = Long.MIN_VALUE + 1;
+    private static final long RELEASED = Long.MIN_VALUE + 2;
+
+    private final String sessionId;
+    private final SseEmitter emitter;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final AtomicLong writeStarted = new AtomicLong(IDLE);
+
+    // Guarded by this
+    private IvrResponse pending;
+    private boolean published;
+    private boolean heartbeatDue;
+    private boolean closing;
+
+    private volatile long lastSentNanos = System.nanoTime();
+    private volatile boolean closed;
+
+    PushChannel(String sessionId, SseEmitter emitter) {
+        this.sessionId = sessionId;
+        this.emitter = emitter;
+    }
+
+    String getSessionId() {
+        return sessionId;
+    }
+
+    SseEmitter getEmitter() {
+        return emitter;
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    long getLastSentNanos() {
+        return lastSentNanos;
+    }
+
+    /**
+     * Replaces any undelivered response with this one.
+     */
+    synchronized void offer(IvrResponse response) {
+        pending = response;
+        published = true;
+    }
+
+    /**
+     * Offers the session's state as of subscribing, unless a transition has
+     * already been offered, which is at least as recent.
+     */
+    synchronized void offerInitial(IvrResponse response) {
+        if (!published) {
+            pending = response;
+        }
+    }
+
+    synchronized void requestHeartbeat() {
+        heartbeatDue = true;
+    }
+
+    /**
+     * Asks for the channel to be completed once anything pending has been sent.
+     */
+    synchronized void requestClose() {
+        closing = true;
+    }
+
+    /**
+     * Claims the right to write; false if another sender already holds it.
+     */
+    boolean trySchedule() {
+        return scheduled.compareAndSet(false, true);
+    }
+
+    /**
+     * Abandons the write in progress if it has run for at least the given
+     * time. The sender stays blocked in it until the connection fails, but
+     * the hub no longer counts on it.
+     *
+     * @return True if the write was abandoned here
+     */
+    boolean abandonStalledWrite(long nowNanos, long timeoutNanos) {
+        long started = writeStarted.get();
+        return started > RELEASED && nowNanos - started >= timeoutNanos
+                && writeStarted.compareAndSet(started, ABANDONED);
+    }
+
+    /**
+     * Tells the sender that has returned from an abandoned write, once, that
+     * it was written off.
+     */
+    boolean takeAbandoned() {
+        return writeStarted.compareAndSet(ABANDONED, RELEASED);
+    }
+
+    boolean hasWork() {
+        synchronized (this) {
+            return !closed && (pending != null || heartbeatDue || closing);
+        }
+    }
+
+    /**
+     * Writes whatever is pending. Called only by the sender holding the schedule.
+     *
+     * @return False once the channel is finished, either completed here or failed
+     */
+    boolean flush() {
+        IvrResponse response;
+        boolean heartbeat;
+        boolean close;
+        synchronized (this) {
+            response = pending;
+            heartbeat = heartbeatDue && response == null;
+            close = closing;
+            pending = null;
+            heartbeatDue = false;
+        }
+        if (closed) {
+            return false;
+        }
+        long started = System.nanoTime();
+        writeStarted.set(started);
+        try {
+            if (response != null) {
+                emitter.send(SseEmitter.event().name(STATE_EVENT).data(response, MediaType.APPLICATION_JSON));
+                lastSentNanos = System.nanoTime();
+                close |= response.isCallEnded();
+            } else if (heartbeat) {
+                emitter.send(SseEmitter.event().comment(""));
+                lastSentNanos = System.nanoTime();
+            }
+        } catch (IOException | IllegalStateException e) {
+            // The client has gone, or the emitter was already completed
+            closed = true;
+            return false;
+        } finally {
+            // Fails if the hub abandoned the write meanwhile
+            writeStarted.compareAndSet(started, IDLE);
+        }
+        if (close) {
+            closed = true;
+            emitter.complete();
+            return false;
+        }
+        return true;
+    }
+
+    void release() {
+        scheduled.set(false);
+    }
+
+    void markClosed() {
+        closed = true;
+    }
+}
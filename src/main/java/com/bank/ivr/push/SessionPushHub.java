@@ -0,0 +1,282 @@
+package com.bank.ivr.push;
+
+import com.bank.ivr.api.model.IvrResponse;
+import com.bank.ivr.config.PushProperties;
+import com.bank.ivr.flow.CompiledFlow;
+import com.bank.ivr.flow.CompletedTransitionListener;
+import com.bank.ivr.model.IvrEvent;
+import com.bank.ivr.model.IvrState;
+import com.bank.ivr.model.SessionContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.statemachine.listener.StateMachineListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Pushes each session's new prompt to a subscribed client as Server-Sent
+ * Events, as the session's state machine completes a transition.
+ *
+ * <p>A session has at most one channel; subscribing again replaces it. Open
+ * channels hold no thread: a small pool of senders writes to whichever
+ * channels have something pending, and one timer thread sweeps for channels
+ * idle longer than the heartbeat interval, so a heartbeat is only sent on a
+ * connection that has been quiet. A channel completes after a response that
+ * ends the call, and when its session ends or moves to another node; the
+ * client then reconnects and is redirected to the session's new holder.
+ *
+ * <p>Writes block while a client is not reading. The same sweep drops a
+ * channel whose write has run longer than the write timeout and starts a
+ * sender in place of the one stuck in it, so stalled clients cannot take
+ * the whole pool; the stuck sender is retired once its write fails.
+ */
+public class SessionPushHub implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(SessionPushHub.class);
+
+    private final ConcurrentHashMap<String, PushChannel> channels = new ConcurrentHashMap<>();
+    private final int maxChannels;
+    private final long heartbeatNanos;
+    private final long writeTimeoutNanos;
+    private final int senderThreads;
+    private final int maxReplacementSenders;
+    private final ThreadPoolExecutor senders;
+    private final ScheduledExecutorService heartbeats;
+
+    // Senders stuck in abandoned writes, each replaced by an extra pool thread
+    private final AtomicInteger stuckSenders = new AtomicInteger();
+
+    private final Counter pushed;
+    private final Counter refused;
+    private final Counter stalled;
+
+    public SessionPushHub(PushProperties properties, MeterRegistry meterRegistry) {
+        this.maxChannels = properties.getMaxChannels();
+        int heartbeatSeconds = Math.max(1, properties.getHeartbeatSeconds());
+        this.heartbeatNanos = TimeUnit.SECONDS.toNanos(heartbeatSeconds);
+        long writeTimeoutMillis = Math.max(100, properties.getWriteTimeoutMs());
+        this.writeTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(writeTimeoutMillis);
+        this.senderThreads = Math.max(1, properties.getSenderThreads());
+        this.maxReplacementSenders = Math.max(0, properties.getMaxReplacementSenders());
+
+        AtomicInteger senderCount = new AtomicInteger();
+        this.senders = new ThreadPoolExecutor(senderThreads, senderThreads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "ivr-push-sender-" + senderCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.heartbeats = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ivr-push-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Sweeping at half the interval keeps the longest silence under 1.5 intervals
+        long sweepMillis = Math.min(TimeUnit.SECONDS.toMillis(heartbeatSeconds), writeTimeoutMillis) / 2;
+        heartbeats.scheduleWithFixedDelay(this::sweep, sweepMillis, sweepMillis, TimeUnit.MILLISECONDS);
+
+        this.pushed = Counter.builder("ivr.push.updates")
+                .description("Session updates offered to push channels")
+                .register(meterRegistry);
+        this.refused = Counter.builder("ivr.push.refused")
+                .description("Subscriptions refused because the node has too many open channels")
+                .register(meterRegistry);
+        this.stalled = Counter.builder("ivr.push.stalled")
+                .description("Channels dropped because a write to them did not finish in time")
+                .register(meterRegistry);
+        Gauge.builder("ivr.push.channels", channels, ConcurrentHashMap::size)
+                .description("Open push channels")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Opens a channel for a session, replacing any existing one. The first
+     * event is the session's current response, unless a transition overtakes it.
+     *
+     * @param sessionId The session ID
+     * @param current Supplies the session's current response
+     * @return The emitter to return from the request, or null if the node has too many open channels
+     */
+    public SseEmitter subscribe(String sessionId, Supplier<IvrResponse> current) {
+        if (channels.size() >= maxChannels && !channels.containsKey(sessionId)) {
+            refused.increment();
+            return null;
+        }
+        // No timeout: a dead connection is found by the next heartbeat instead
+        SseEmitter emitter = new SseEmitter(0L);
+        PushChannel channel = new PushChannel(sessionId, emitter);
+        emitter.onCompletion(() -> detach(channel));
+        emitter.onTimeout(() -> detach(channel));
+        emitter.onError(e -> detach(channel));
+
+        PushChannel replaced = channels.put(sessionId, channel);
+        if (replaced != null) {
+            replaced.requestClose();
+            signal(replaced);
+        }
+        IvrResponse initial = current.get();
+        if (initial != null) {
+            channel.offerInitial(initial);
+            signal(channel);
+        }
+        logger.debug("Opened push channel for session {}", sessionId);
+        return emitter;
+    }
+
+    /**
+     * Offers a response to the session's channel, if it has one.
+     */
+    public void publish(String sessionId, IvrResponse response) {
+        PushChannel channel = channels.get(sessionId);
+        if (channel != null) {
+            channel.offer(response);
+            pushed.increment();
+            signal(channel);
+        }
+    }
+
+    /**
+     * Completes the session's channel, if it has one, once anything pending has been sent.
+     */
+    public void close(String sessionId) {
+        PushChannel channel = channels.remove(sessionId);
+        if (channel != null) {
+            channel.requestClose();
+            signal(channel);
+        }
+    }
+
+    /**
+     * Gets the number of open channels.
+     */
+    public int size() {
+        return channels.size();
+    }
+
+    /**
+     * Creates a listener publishing the prompt of each state a session's
+     * machine settles in. Costs one map lookup per transition while the
+     * session has no channel. Each session needs its own.
+     */
+    public StateMachineListener<IvrState, IvrEvent> newListener(String sessionId, CompiledFlow flow,
+                                                               SessionContext context) {
+        return new CompletedTransitionListener() {
+            @Override
+            protected void onTransitionCompleted(IvrState from, IvrState to, IvrEvent event) {
+                if (channels.containsKey(sessionId)) {
+                    publish(sessionId, flow.respond(sessionId, to, context));
+                }
+            }
+        };
+    }
+
+    /**
+     * Completes every channel and stops the sender and heartbeat threads.
+     */
+    @Override
+    public void close() {
+        heartbeats.shutdownNow();
+        for (String sessionId : channels.keySet()) {
+            close(sessionId);
+        }
+        senders.shutdown();
+        try {
+            senders.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void sweep() {
+        long now = System.nanoTime();
+        for (PushChannel channel : channels.values()) {
+            if (channel.abandonStalledWrite(now, writeTimeoutNanos)) {
+                dropStalled(channel);
+            } else if (now - channel.getLastSentNanos() >= heartbeatNanos) {
+                channel.requestHeartbeat();
+                signal(channel);
+            }
+        }
+    }
+
+    /**
+     * Drops a channel whose write was abandoned, so nothing more is offered
+     * to it, and starts a sender in place of the one stuck writing to it. The
+     * channel is completed after the write returns.
+     */
+    private void dropStalled(PushChannel channel) {
+        channels.remove(channel.getSessionId(), channel);
+        channel.requestClose();
+        stalled.increment();
+        logger.debug("Dropped push channel for session {}: write stalled", channel.getSessionId());
+        if (stuckSenders.incrementAndGet() <= maxReplacementSenders) {
+            resizeSenders();
+        }
+    }
+
+    /**
+     * Sizes the pool to the configured senders plus one for each stuck
+     * sender, up to the replacement limit.
+     */
+    private synchronized void resizeSenders() {
+        int size = senderThreads + Math.min(stuckSenders.get(), maxReplacementSenders);
+        if (size > senders.getMaximumPoolSize()) {
+            senders.setMaximumPoolSize(size);
+            senders.setCorePoolSize(size);
+        } else if (size < senders.getMaximumPoolSize()) {
+            // Threads beyond the new size exit once idle
+            senders.setCorePoolSize(size);
+            senders.setMaximumPoolSize(size);
+        }
+    }
+
+    /**
+     * Hands a channel with pending work to a sender, unless one already has it.
+     */
+    private void signal(PushChannel channel) {
+        if (!channel.trySchedule()) {
+            return;
+        }
+        try {
+            senders.execute(() -> send(channel));
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+            channel.release();
+        }
+    }
+
+    private void send(PushChannel channel) {
+        try {
+            if (!channel.flush()) {
+                detach(channel);
+            }
+        } finally {
+            if (channel.takeAbandoned()) {
+                stuckSenders.decrementAndGet();
+                resizeSenders();
+            }
+            channel.release();
+        }
+        // Work offered after the flush took its snapshot but before the release
+        if (channel.hasWork()) {
+            signal(channel);
+        }
+    }
+
+    private void detach(PushChannel channel) {
+        channel.markClosed();
+        channels.remove(channel.getSessionId(), channel);
+    }
+}
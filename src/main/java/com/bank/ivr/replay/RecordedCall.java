@@ -0,0 +1,45 @@
+package com.bank.ivr.replay;
+
+import com.bank.ivr.api.model.IvrRequest;
+import com.bank.ivr.model.IvrState;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The inputs of one recorded production call, in the order they were received.
+ */
+public class RecordedCall {
+
+    private final String sessionId;
+    private final List<IvrRequest> inputs = new ArrayList<>();
+    private IvrState recordedFinalState;
+
+    public RecordedCall(String sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public List<IvrRequest> getInputs() {
+        return Collections.unmodifiableList(inputs);
+    }
+
+    void addInput(String inputType, String userInput) {
+        inputs.add(new IvrRequest(sessionId, userInput, inputType));
+    }
+
+    /**
+     * Gets the state the call ended in when it was recorded, or null if not recorded.
+     */
+    public IvrState getRecordedFinalState() {
+        return recordedFinalState;
+    }
+
+    void setRecordedFinalState(IvrState recordedFinalState) {
+        this.recordedFinalState = recordedFinalState;
+    }
+}
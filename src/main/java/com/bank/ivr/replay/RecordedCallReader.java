@@ -0,0 +1,64 @@
+package com.bank.ivr.replay;
+
+import com.bank.ivr.model.IvrState;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads recorded call inputs from a file of comma-separated lines:
+ * <pre>
+ * sessionId,inputType,userInput
+ * </pre>
+ * Lines for one session must appear in the order the inputs were received,
+ * but sessions may be interleaved. A line with input type {@code FINAL}
+ * gives the state the call ended in, which the replay compares against.
+ * Blank lines and lines starting with {@code #} are ignored.
+ */
+public final class RecordedCallReader {
+
+    static final String FINAL_STATE = "FINAL";
+
+    private RecordedCallReader() {
+    }
+
+    public static List<RecordedCall> read(Path file) throws IOException {
+        Map<String, RecordedCall> calls = new LinkedHashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split(",", 3);
+                if (fields.length < 2) {
+                    throw new IOException("Malformed line " + lineNumber + " in " + file);
+                }
+                String sessionId = fields[0].trim();
+                String inputType = fields[1].trim();
+                String userInput = fields.length > 2 ? fields[2].trim() : "";
+                RecordedCall call = calls.computeIfAbsent(sessionId, RecordedCall::new);
+                if (FINAL_STATE.equals(inputType)) {
+                    try {
+                        call.setRecordedFinalState(IvrState.valueOf(userInput));
+                    } catch (IllegalArgumentException e) {
+                        throw new IOException("Unknown state '" + userInput + "' on line " + lineNumber, e);
+                    }
+                } else {
+                    call.addInput(inputType, userInput);
+                }
+            }
+        }
+        return new ArrayList<>(calls.values());
+    }
+}
@@ -0,0 +1,79 @@
+package com.bank.ivr.replay;
+
+import com.bank.ivr.IvrApplication;
+import com.bank.ivr.service.AuthenticationService;
+import com.bank.ivr.service.IvrSessionService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Replays recorded calls against the state machine configuration in this
+ * build, without the web layer and with stand-in authentication:
+ * <pre>
+ * java -cp ivr-state-machine.jar -Dloader.main=com.bank.ivr.replay.ReplayApplication \
+ *      org.springframework.boot.loader.PropertiesLauncher calls.csv [parallelism]
+ * </pre>
+ * See {@link RecordedCallReader} for the input format. Exits with status 1
+ * if any call diverged or failed.
+ */
+public final class ReplayApplication {
+
+    static final String PROFILE = "replay";
+
+    private ReplayApplication() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: ReplayApplication <calls.csv> [parallelism]");
+            System.exit(2);
+        }
+        List<RecordedCall> calls = RecordedCallReader.read(Paths.get(args[0]));
+        int parallelism = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        // Each replay starts from an empty ledger, so earlier runs' transfers cannot answer this one's
+        Path transferJournal = Files.createTempFile("ivr-replay-transfers", ".wal");
+        transferJournal.toFile().deleteOnExit();
+
+        ReplayReport report;
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(IvrApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles(PROFILE)
+                .run("--logging.level.com.bank.ivr=WARN",
+                        "--ivr.audit.directory=" + Paths.get(System.getProperty("java.io.tmpdir"), "ivr-replay-audit"),
+                        "--ivr.audit.fsync=false",
+                        "--ivr.account.backend-latency-ms=0",
+                        "--ivr.transfer.journal-file=" + transferJournal,
+                        "--ivr.transfer.fsync=false")) {
+            report = new ReplayEngine(context.getBean(IvrSessionService.class),
+                    context.getBean(MeterRegistry.class), parallelism).replay(calls);
+        }
+        report.print(System.out);
+        System.exit(report.getDivergenceCount() > 0 || report.getErrors() > 0 ? 1 : 0);
+    }
+
+    /**
+     * Replaces the customer database with {@link StandInAuthenticationService} during replays.
+     */
+    @Configuration
+    @Profile(PROFILE)
+    static class ReplayConfig {
+
+        @Bean
+        @Primary
+        public AuthenticationService standInAuthenticationService() {
+            return new StandInAuthenticationService();
+        }
+    }
+}
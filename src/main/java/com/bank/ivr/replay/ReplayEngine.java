@@ -0,0 +1,160 @@
+package com.bank.ivr.replay;
+
+import com.bank.ivr.api.model.IvrRequest;
+import com.bank.ivr.deadline.Deadline;
+import com.bank.ivr.model.IvrState;
+import com.bank.ivr.service.IvrSessionService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Replays recorded calls through the session service, spreading calls over
+ * a fork-join pool. Inputs of one call are replayed in order on one thread;
+ * calls run in parallel with each other.
+ *
+ * <p>Besides the state changes seen from outside, the engine counts the
+ * transitions the state machines actually took, from the
+ * {@code ivr.transitions} timers. An input that passes through automatic
+ * transitions shows as one state change but several machine transitions.
+ */
+public class ReplayEngine {
+
+    private static final Logger logger = LogManager.getLogger(ReplayEngine.class);
+    private static final IvrState[] STATES = IvrState.values();
+    private static final int MAX_LISTED_DIVERGENCES = 100;
+
+    private final IvrSessionService sessionService;
+    private final MeterRegistry meterRegistry;
+    private final int parallelism;
+
+    // Per-state input handling time, indexed by state ordinal
+    private final LongAdder[] stateCounts = new LongAdder[STATES.length];
+    private final LongAdder[] stateNanos = new LongAdder[STATES.length];
+    private final AtomicLongArray stateMaxNanos = new AtomicLongArray(STATES.length);
+    private final LongAdder inputs = new LongAdder();
+    private final LongAdder transitions = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder divergenceCount = new LongAdder();
+    private final ConcurrentLinkedQueue<ReplayReport.Divergence> divergences = new ConcurrentLinkedQueue<>();
+
+    /**
+     * @param sessionService The service to replay through
+     * @param meterRegistry The registry the replayed state machines record their transitions in
+     * @param parallelism Number of calls replayed at once
+     */
+    public ReplayEngine(IvrSessionService sessionService, MeterRegistry meterRegistry, int parallelism) {
+        this.sessionService = sessionService;
+        this.meterRegistry = meterRegistry;
+        this.parallelism = Math.max(1, parallelism);
+        for (int i = 0; i < STATES.length; i++) {
+            stateCounts[i] = new LongAdder();
+            stateNanos[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Replays the calls and reports on them. An engine is used for one replay only.
+     */
+    public ReplayReport replay(List<RecordedCall> calls) throws InterruptedException {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        long machineTransitionsBefore = countMachineTransitions();
+        long start = System.nanoTime();
+        try {
+            pool.submit(() -> calls.parallelStream().forEach(this::replayCall)).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Replay failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        long elapsed = System.nanoTime() - start;
+        return new ReplayReport(calls.size(), inputs.sum(), transitions.sum(),
+                countMachineTransitions() - machineTransitionsBefore, errors.sum(), elapsed,
+                stateTimings(), listedDivergences(), divergenceCount.sum());
+    }
+
+    private long countMachineTransitions() {
+        long count = 0;
+        for (Timer timer : meterRegistry.find("ivr.transitions").timers()) {
+            count += timer.count();
+        }
+        return count;
+    }
+
+    private void replayCall(RecordedCall call) {
+        String sessionId = call.getSessionId();
+        try {
+            sessionService.initializeSession(sessionId);
+            IvrState state = sessionService.getCurrentState(sessionId);
+            transitions.increment();
+            for (IvrRequest input : call.getInputs()) {
+                long begin = System.nanoTime();
+                sessionService.processUserInput(input, Deadline.none());
+                long elapsed = System.nanoTime() - begin;
+                IvrState next = sessionService.getCurrentState(sessionId);
+                recordInput(state, elapsed);
+                if (next != state) {
+                    transitions.increment();
+                }
+                if (next == null || next == IvrState.END_CALL) {
+                    state = next == null ? IvrState.END_CALL : next;
+                    break;
+                }
+                state = next;
+            }
+            if (call.getRecordedFinalState() != null && call.getRecordedFinalState() != state) {
+                divergenceCount.increment();
+                if (divergences.size() < MAX_LISTED_DIVERGENCES) {
+                    divergences.add(new ReplayReport.Divergence(sessionId, call.getRecordedFinalState(), state));
+                }
+            }
+        } catch (RuntimeException e) {
+            errors.increment();
+            logger.warn("Replay of session {} failed", sessionId, e);
+        } finally {
+            sessionService.endSession(sessionId);
+        }
+    }
+
+    private void recordInput(IvrState state, long elapsedNanos) {
+        int index = state.ordinal();
+        inputs.increment();
+        stateCounts[index].increment();
+        stateNanos[index].add(elapsedNanos);
+        long max;
+        while (elapsedNanos > (max = stateMaxNanos.get(index))
+                && !stateMaxNanos.compareAndSet(index, max, elapsedNanos)) {
+            // Retry until the larger value is stored
+        }
+    }
+
+    private Map<IvrState, ReplayReport.StateTiming> stateTimings() {
+        Map<IvrState, ReplayReport.StateTiming> timings = new EnumMap<>(IvrState.class);
+        for (IvrState state : STATES) {
+            long count = stateCounts[state.ordinal()].sum();
+            if (count > 0) {
+                timings.put(state, new ReplayReport.StateTiming(count, stateNanos[state.ordinal()].sum(),
+                        stateMaxNanos.get(state.ordinal())));
+            }
+        }
+        return timings;
+    }
+
+    private List<ReplayReport.Divergence> listedDivergences() {
+        List<ReplayReport.Divergence> listed = new ArrayList<>(divergences);
+        listed.sort((a, b) -> a.getSessionId().compareTo(b.getSessionId()));
+        return Collections.unmodifiableList(listed);
+    }
+}
@@ -0,0 +1,172 @@
+package com.bank.ivr.replay;
+
+import com.bank.ivr.model.IvrState;
+
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of a replay: throughput, time spent handling input in each state,
+ * and the calls that ended in a different state than when recorded.
+ */
+public class ReplayReport {
+
+    private final int calls;
+    private final long inputs;
+    private final long transitions;
+    private final long machineTransitions;
+    private final long errors;
+    private final long elapsedNanos;
+    private final Map<IvrState, StateTiming> stateTimings;
+    private final List<Divergence> divergences;
+    private final long divergenceCount;
+
+    ReplayReport(int calls, long inputs, long transitions, long machineTransitions, long errors, long elapsedNanos,
+                 Map<IvrState, StateTiming> stateTimings, List<Divergence> divergences, long divergenceCount) {
+        this.calls = calls;
+        this.inputs = inputs;
+        this.transitions = transitions;
+        this.machineTransitions = machineTransitions;
+        this.errors = errors;
+        this.elapsedNanos = elapsedNanos;
+        this.stateTimings = stateTimings;
+        this.divergences = divergences;
+        this.divergenceCount = divergenceCount;
+    }
+
+    public int getCalls() {
+        return calls;
+    }
+
+    public long getInputs() {
+        return inputs;
+    }
+
+    public long getTransitions() {
+        return transitions;
+    }
+
+    /**
+     * Gets the number of transitions the state machines took, including
+     * automatic ones that do not show as separate state changes.
+     */
+    public long getMachineTransitions() {
+        return machineTransitions;
+    }
+
+    /**
+     * Gets the machine transitions per input, leaving out the one transition
+     * each call takes when it connects.
+     */
+    public double getMachineTransitionsPerInput() {
+        return inputs == 0 ? 0 : (double) Math.max(0, machineTransitions - calls) / inputs;
+    }
+
+    /**
+     * Gets the number of calls whose replay failed with an exception.
+     */
+    public long getErrors() {
+        return errors;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedNanos / 1_000_000;
+    }
+
+    public double getTransitionsPerSecond() {
+        return elapsedNanos == 0 ? 0 : transitions * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * Gets the time taken to handle input, by the state the input arrived in.
+     */
+    public Map<IvrState, StateTiming> getStateTimings() {
+        return stateTimings;
+    }
+
+    /**
+     * Gets the first divergent calls found; see {@link #getDivergenceCount()} for the total.
+     */
+    public List<Divergence> getDivergences() {
+        return divergences;
+    }
+
+    public long getDivergenceCount() {
+        return divergenceCount;
+    }
+
+    public void print(PrintStream out) {
+        out.printf("Replayed %d calls, %d inputs, %d transitions in %d ms (%.0f transitions/s), %d errors%n",
+                calls, inputs, transitions, getElapsedMillis(), getTransitionsPerSecond(), errors);
+        out.printf("%d state machine transitions, %.2f per input%n",
+                machineTransitions, getMachineTransitionsPerInput());
+        out.printf("%-22s %10s %12s %12s%n", "State", "Inputs", "Mean (us)", "Max (us)");
+        for (Map.Entry<IvrState, StateTiming> entry : stateTimings.entrySet()) {
+            StateTiming timing = entry.getValue();
+            out.printf("%-22s %10d %12.1f %12.1f%n", entry.getKey(), timing.getCount(),
+                    timing.getMeanMicros(), timing.getMaxMicros());
+        }
+        out.printf("%d calls ended in a different state than recorded%n", divergenceCount);
+        for (Divergence divergence : divergences) {
+            out.printf("  %s: recorded %s, replayed %s%n", divergence.getSessionId(),
+                    divergence.getRecorded(), divergence.getReplayed());
+        }
+    }
+
+    /**
+     * Input handling time in one state.
+     */
+    public static class StateTiming {
+
+        private final long count;
+        private final long totalNanos;
+        private final long maxNanos;
+
+        StateTiming(long count, long totalNanos, long maxNanos) {
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getMeanMicros() {
+            return count == 0 ? 0 : totalNanos / 1000.0 / count;
+        }
+
+        public double getMaxMicros() {
+            return maxNanos / 1000.0;
+        }
+    }
+
+    /**
+     * A call that ended in a different state on replay than when recorded.
+     */
+    public static class Divergence {
+
+        private final String sessionId;
+        private final IvrState recorded;
+        private final IvrState replayed;
+
+        Divergence(String sessionId, IvrState recorded, IvrState replayed) {
+            this.sessionId = sessionId;
+            this.recorded = recorded;
+            this.replayed = replayed;
+        }
+
+        public String getSessionId() {
+            return sessionId;
+        }
+
+        public IvrState getRecorded() {
+            return recorded;
+        }
+
+        public IvrState getReplayed() {
+            return replayed;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.bank.ivr.replay;
+
+import com.bank.ivr.deadline.Deadline;
+import com.bank.ivr.service.AuthenticationService;
+
+/**
+ * Authentication for replays, where real customer data is not available.
+ * Any well-formed credentials are accepted: a nine-digit SSN, or a sixteen-digit
+ * card number with a four-digit PIN. Holds no state, so replays running in
+ * parallel do not interfere.
+ */
+public class StandInAuthenticationService implements AuthenticationService {
+
+    static final String CUSTOMER_ID = "REPLAY";
+
+    @Override
+    public String authenticateBySSN(String ssn, Deadline deadline) {
+        return isDigits(ssn, 9) ? CUSTOMER_ID : null;
+    }
+
+    @Override
+    public String authenticateByCardAndPin(String cardNumber, String pin, Deadline deadline) {
+        return isDigits(cardNumber, 16) && isDigits(pin, 4) ? CUSTOMER_ID : null;
+    }
+
+    private static boolean isDigits(String value, int length) {
+        if (value == null || value.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (!Character.isDigit(value.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,47 @@
+package com.bank.ivr.service;
+
+import com.bank.ivr.model.AccountBalance;
+import com.bank.ivr.model.TransactionPage;
+
+/**
+ * Service interface for reading customers' account data.
+ */
+public interface AccountService {
+
+    /**
+     * Gets a customer's balance.
+     *
+     * @param customerId The customer ID from the session context
+     * @return The balance, or null if the customer has no account
+     * @throws com.bank.ivr.account.AccountUnavailableException If the backend cannot answer
+     */
+    AccountBalance getBalance(String customerId);
+
+    /**
+     * Gets the first page of a customer's transaction history, their most
+     * recent transactions. It is cached, as most callers hear no more.
+     *
+     * @param customerId The customer ID from the session context
+     * @return The page, of at most {@code ivr.account.history-page-size} transactions
+     * @throws com.bank.ivr.account.AccountUnavailableException If the backend cannot answer
+     */
+    TransactionPage getRecentTransactions(String customerId);
+
+    /**
+     * Gets a page of a customer's transaction history. Pages after the first
+     * are read from the backend each time; the session holds the ones it needs.
+     *
+     * @param customerId The customer ID from the session context
+     * @param cursor The next cursor of the previous page, or null for the first page
+     * @return The page, of at most {@code ivr.account.history-page-size} transactions
+     * @throws com.bank.ivr.account.AccountUnavailableException If the backend cannot answer
+     */
+    TransactionPage getTransactions(String customerId, String cursor);
+
+    /**
+     * Drops everything cached for a customer, after their account has changed.
+     *
+     * @param customerId The customer ID
+     */
+    void invalidate(String customerId);
+}
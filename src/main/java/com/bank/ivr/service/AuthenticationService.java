@@ -1,5 +1,7 @@
 package com.bank.ivr.service;
 
+import com.bank.ivr.deadline.Deadline;
+
 /**
  * Service interface for handling user authentication methods.
  */
@@ -9,23 +11,22 @@ public interface AuthenticationService {
      * Authenticates a user by SSN
      * 
      * @param ssn The user's Social Security Number
-     * @return True if authentication is successful, false otherwise
+     * @param deadline When the caller stops waiting for the answer
+     * @return The customer's ID if authentication is successful, or null otherwise
+     * @throws com.bank.ivr.deadline.DeadlineExceededException If the deadline passes before the check is done
+     * @throws com.bank.ivr.credential.CredentialUnavailableException If the credential store cannot answer
      */
-    boolean authenticateBySSN(String ssn);
+    String authenticateBySSN(String ssn, Deadline deadline);
     
     /**
      * Authenticates a user by card number and PIN
      * 
      * @param cardNumber The user's debit card number
      * @param pin The user's PIN
-     * @return True if authentication is successful, false otherwise
-     */
-    boolean authenticateByCardAndPin(String cardNumber, String pin);
-    
-    /**
-     * Retrieves customer ID after successful authentication
-     * 
-     * @return The customer's ID if authenticated, or null otherwise
+     * @param deadline When the caller stops waiting for the answer
+     * @return The customer's ID if authentication is successful, or null otherwise
+     * @throws com.bank.ivr.deadline.DeadlineExceededException If the deadline passes before the check is done
+     * @throws com.bank.ivr.credential.CredentialUnavailableException If the credential store cannot answer
      */
-    String getAuthenticatedCustomerId();
-} 
\ No newline at end of file
+    String authenticateByCardAndPin(String cardNumber, String pin, Deadline deadline);
+}
@@ -2,7 +2,11 @@ package com.bank.ivr.service;
 
 import com.bank.ivr.api.model.IvrRequest;
 import com.bank.ivr.api.model.IvrResponse;
+import com.bank.ivr.deadline.Deadline;
 import com.bank.ivr.model.IvrState;
+import com.bank.ivr.session.SessionSnapshot;
+
+import java.util.List;
 
 /**
  * Service interface for managing IVR sessions and state machine interactions.
@@ -18,12 +22,17 @@ public interface IvrSessionService {
     IvrResponse initializeSession(String sessionId);
     
     /**
-     * Processes a user input and advances the state machine.
+     * Processes a user input and advances the state machine. An input with
+     * the request ID of the last one answered is a retry, and gets the same
+     * response without advancing the state machine again.
      * 
      * @param request The IVR request containing session ID and user input
+     * @param deadline When the gateway stops waiting for the answer
      * @return The next IVR response based on the new state
+     * @throws com.bank.ivr.deadline.DeadlineExceededException If the deadline passed before the state
+     *         machine was advanced, in which case the session is left as it was
      */
-    IvrResponse processUserInput(IvrRequest request);
+    IvrResponse processUserInput(IvrRequest request, Deadline deadline);
     
     /**
      * Gets the current state for a given session.
@@ -33,6 +42,14 @@ public interface IvrSessionService {
      */
     IvrState getCurrentState(String sessionId);
     
+    /**
+     * Gets the response for a session's current state, as last returned to the caller.
+     * 
+     * @param sessionId The session ID
+     * @return The current response, or null if session doesn't exist
+     */
+    IvrResponse getCurrentResponse(String sessionId);
+    
     /**
      * Checks if a session exists.
      * 
@@ -47,4 +64,24 @@ public interface IvrSessionService {
      * @param sessionId The session ID
      */
     void endSession(String sessionId);
+    
+    /**
+     * Ends sessions held by this node that are in the given state.
+     * 
+     * @param state The state
+     * @param limit Maximum number of sessions to end
+     * @return The IDs of the sessions ended
+     */
+    List<String> endSessionsInState(IvrState state, int limit);
+    
+    /**
+     * Resumes a session transferred from another node in its captured state,
+     * on the flow version it was started on. The session's state machine is
+     * built when its next request arrives.
+     * 
+     * @param snapshot The session snapshot
+     * @return False if the session's flow version is not loaded on this node,
+     *         in which case the session is not resumed
+     */
+    boolean restoreSession(SessionSnapshot snapshot);
 } 
\ No newline at end of file
@@ -0,0 +1,61 @@
+package com.bank.ivr.service;
+
+import com.bank.ivr.cluster.ClusterNode;
+import com.bank.ivr.session.MigrationResult;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Service interface for moving live sessions between nodes, so that a node
+ * can be drained or rebalanced without dropping calls.
+ */
+public interface SessionMigrationService {
+
+    /**
+     * Streams every live session to a peer node, which resumes them in place.
+     * Sessions are fenced while in flight and removed here once the peer has
+     * accepted them. Sessions on a flow version the peer has not loaded stay here.
+     *
+     * @param target The receiving node
+     * @return The number of sessions moved and the time taken
+     */
+    MigrationResult exportToNode(ClusterNode target) throws IOException;
+
+    /**
+     * Writes a copy of every live session to an encrypted snapshot file in the
+     * export directory, for import after this node restarts. The sessions
+     * carry on here; input taken after the copy is not in the file.
+     *
+     * @param fileName Name of the snapshot file to create in the export directory
+     * @return The number of sessions written and the time taken
+     * @throws IllegalArgumentException If the name points outside the export directory
+     * @throws IllegalStateException If no snapshot key is configured
+     */
+    MigrationResult exportToFile(String fileName) throws IOException;
+
+    /**
+     * Removes this node from its own view of the cluster and moves each live
+     * session to its new owner.
+     *
+     * @return The number of sessions moved and the time taken
+     */
+    MigrationResult drain() throws IOException;
+
+    /**
+     * Imports a snapshot stream and resumes each session on this node, except
+     * those on a flow version this node has not loaded.
+     *
+     * @param in The snapshot stream
+     * @return The number of sessions imported, those turned away, and the time taken
+     */
+    MigrationResult importSnapshot(InputStream in) throws IOException;
+
+    /**
+     * Imports a snapshot file written by {@link #exportToFile(String)}.
+     *
+     * @throws IllegalArgumentException If the name points outside the export directory
+     * @throws IllegalStateException If no snapshot key is configured
+     */
+    MigrationResult importFromFile(String fileName) throws IOException;
+}
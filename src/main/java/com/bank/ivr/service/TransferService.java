@@ -0,0 +1,28 @@
+package com.bank.ivr.service;
+
+import com.bank.ivr.model.TransferResult;
+
+import java.math.BigDecimal;
+
+/**
+ * Service interface for moving funds between customers' accounts.
+ */
+public interface TransferService {
+
+    /**
+     * Transfers an amount between two customers' accounts. A request repeated
+     * with the same session and request ID gets the outcome of the first
+     * without moving funds again.
+     *
+     * @param sessionId The session making the request
+     * @param requestId Identifies the request within the session
+     * @param fromCustomerId The authenticated customer paying
+     * @param toCustomerId The customer receiving the funds
+     * @param amount The amount in dollars
+     * @return The outcome
+     * @throws com.bank.ivr.account.AccountUnavailableException If an account cannot be read
+     * @throws com.bank.ivr.transfer.TransferUnavailableException If the transfer cannot be made durable
+     */
+    TransferResult transfer(String sessionId, String requestId, String fromCustomerId,
+                            String toCustomerId, BigDecimal amount);
+}
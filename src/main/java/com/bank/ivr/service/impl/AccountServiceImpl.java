@@ -0,0 +1,66 @@
+package com.bank.ivr.service.impl;
+
+import com.bank.ivr.account.AccountBackend;
+import com.bank.ivr.cache.ReadThroughCache;
+import com.bank.ivr.config.AccountProperties;
+import com.bank.ivr.model.AccountBalance;
+import com.bank.ivr.model.TransactionPage;
+import com.bank.ivr.service.AccountService;
+import com.bank.ivr.transfer.TransferEngine;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Implementation of the account service, reading through a cache per kind of data.
+ * The balance of an account that transfers have touched is the ledger's.
+ */
+@Service
+public class AccountServiceImpl implements AccountService {
+
+    private final AccountBackend backend;
+    private final int pageSize;
+    private final ReadThroughCache<String, AccountBalance> balances;
+    private final ReadThroughCache<String, TransactionPage> transactions;
+
+    @Autowired
+    public AccountServiceImpl(AccountBackend backend,
+                              TransferEngine transfers,
+                              AccountProperties properties,
+                              @Qualifier("accountRefreshExecutor") ExecutorService refresher,
+                              MeterRegistry meterRegistry) {
+        this.backend = backend;
+        this.pageSize = Math.max(1, properties.getHistoryPageSize());
+        this.balances = new ReadThroughCache<>("balance", properties.getBalanceCache(),
+                customerId -> {
+                    AccountBalance held = transfers.getBalance(customerId);
+                    return held != null ? held : backend.fetchBalance(customerId);
+                }, refresher, meterRegistry);
+        this.transactions = new ReadThroughCache<>("transactions", properties.getTransactionsCache(),
+                customerId -> backend.fetchTransactions(customerId, null, pageSize), refresher, meterRegistry);
+    }
+
+    @Override
+    public AccountBalance getBalance(String customerId) {
+        return balances.get(customerId);
+    }
+
+    @Override
+    public TransactionPage getRecentTransactions(String customerId) {
+        return transactions.get(customerId);
+    }
+
+    @Override
+    public TransactionPage getTransactions(String customerId, String cursor) {
+        return cursor == null ? transactions.get(customerId) : backend.fetchTransactions(customerId, cursor, pageSize);
+    }
+
+    @Override
+    public void invalidate(String customerId) {
+        balances.invalidate(customerId);
+        transactions.invalidate(customerId);
+    }
+}
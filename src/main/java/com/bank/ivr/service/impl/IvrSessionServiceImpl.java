@@ -1,25 +1,41 @@
 package com.bank.ivr.service.impl;
 
+import com.bank.ivr.account.AccountPrefetcher;
 import com.bank.ivr.api.model.IvrRequest;
 import com.bank.ivr.api.model.IvrResponse;
-import com.bank.ivr.model.CustomerCredentials;
+import com.bank.ivr.audit.AuditTrail;
+import com.bank.ivr.cluster.ClusterMembership;
+import com.bank.ivr.config.SessionProperties;
+import com.bank.ivr.deadline.Deadline;
+import com.bank.ivr.deadline.DeadlineExceededException;
+import com.bank.ivr.flow.CompiledFlow;
+import com.bank.ivr.flow.FlowRegistry;
+import com.bank.ivr.jfr.JfrTransitionListener;
+import com.bank.ivr.jfr.SessionCreatedEvent;
+import com.bank.ivr.jfr.SessionEndedEvent;
+import com.bank.ivr.metrics.CallFlowFunnel;
+import com.bank.ivr.metrics.IvrMetrics;
 import com.bank.ivr.model.IvrEvent;
 import com.bank.ivr.model.IvrState;
+import com.bank.ivr.model.SessionContext;
+import com.bank.ivr.push.SessionPushHub;
 import com.bank.ivr.service.IvrSessionService;
+import com.bank.ivr.session.IvrSession;
+import com.bank.ivr.session.SessionIdGenerator;
+import com.bank.ivr.session.SessionRegistry;
+import com.bank.ivr.session.SessionSnapshot;
+import com.bank.ivr.session.SessionTransferException;
+import com.bank.ivr.session.TransitionTrace;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.statemachine.StateMachine;
-import org.springframework.statemachine.config.StateMachineFactory;
-import org.springframework.statemachine.listener.StateMachineListenerAdapter;
-import org.springframework.statemachine.state.State;
+import org.springframework.statemachine.support.DefaultExtendedState;
+import org.springframework.statemachine.support.DefaultStateMachineContext;
 import org.springframework.stereotype.Service;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Implementation of the IVR session service.
@@ -29,40 +45,85 @@ public class IvrSessionServiceImpl implements IvrSessionService {
     
     private static final Logger logger = LogManager.getLogger(IvrSessionServiceImpl.class);
     
-    private final StateMachineFactory<IvrState, IvrEvent> stateMachineFactory;
-    private final Map<String, StateMachine<IvrState, IvrEvent>> sessions = new ConcurrentHashMap<>();
+    // Upper bound on attempts to mint a locally owned ID before accepting a remote-owned one
+    private static final int MAX_LOCAL_ID_ATTEMPTS = 1024;
+    
+    private final FlowRegistry flows;
+    private final ClusterMembership membership;
+    private final SessionRegistry sessions;
+    private final SessionIdGenerator idGenerator;
+    private final SessionProperties properties;
+    private final IvrMetrics metrics;
+    private final CallFlowFunnel funnel;
+    private final AuditTrail audit;
+    private final SessionPushHub push;
+    private final AccountPrefetcher prefetcher;
     
     @Autowired
-    public IvrSessionServiceImpl(StateMachineFactory<IvrState, IvrEvent> stateMachineFactory) {
-        this.stateMachineFactory = stateMachineFactory;
+    public IvrSessionServiceImpl(FlowRegistry flows,
+                                 ClusterMembership membership,
+                                 SessionRegistry sessions,
+                                 SessionIdGenerator idGenerator,
+                                 SessionProperties properties,
+                                 IvrMetrics metrics,
+                                 CallFlowFunnel funnel,
+                                 AuditTrail audit,
+                                 SessionPushHub push,
+                                 AccountPrefetcher prefetcher) {
+        this.flows = flows;
+        this.membership = membership;
+        this.sessions = sessions;
+        this.idGenerator = idGenerator;
+        this.properties = properties;
+        this.metrics = metrics;
+        this.funnel = funnel;
+        this.audit = audit;
+        this.push = push;
+        this.prefetcher = prefetcher;
     }
     
     @Override
     public IvrResponse initializeSession(String sessionId) {
+        SessionCreatedEvent created = new SessionCreatedEvent();
+        created.begin();
+        
         if (sessionId == null || sessionId.isEmpty()) {
             sessionId = generateSessionId();
         }
         
-        logger.info("Initializing new IVR session: {}", sessionId);
+        logger.debug("Initializing new IVR session: {}", sessionId);
         
-        StateMachine<IvrState, IvrEvent> machine = stateMachineFactory.getStateMachine();
+        CompiledFlow flow = flows.getActive();
+        StateMachine<IvrState, IvrEvent> machine = flow.newStateMachine();
         machine.start();
         
+        SessionContext context = new SessionContext();
+        TransitionTrace trace = new TransitionTrace(properties.getTraceCapacity());
+        
         // Add custom listeners
-        addStateListeners(machine);
+        addStateListeners(machine, sessionId, context, trace, flow);
         
-        sessions.put(sessionId, machine);
+        sessions.register(new IvrSession(sessionId, machine, context, trace, flow,
+                parked -> materializeStateMachine(parked, flow, trace)));
+        funnel.sessionStarted();
         
         // Trigger initial event to move from WELCOME to AUTHENTICATION_METHOD
         machine.sendEvent(IvrEvent.CALL_CONNECTED);
         
-        return createResponseForCurrentState(sessionId, machine.getState().getId());
+        created.end();
+        if (created.shouldCommit()) {
+            created.sessionIdHash = sessionId.hashCode();
+            created.commit();
+        }
+        
+        return flow.respond(sessionId, machine.getState().getId(), context);
     }
     
     @Override
-    public IvrResponse processUserInput(IvrRequest request) {
+    public IvrResponse processUserInput(IvrRequest request, Deadline deadline) {
         String sessionId = request.getSessionId();
-        if (!sessionExists(sessionId)) {
+        IvrSession session = sessions.get(sessionId);
+        if (session == null) {
             logger.warn("Session not found: {}", sessionId);
             return IvrResponse.builder()
                     .withSessionId(sessionId)
@@ -70,70 +131,84 @@ public class IvrSessionServiceImpl implements IvrSessionService {
                     .build();
         }
         
-        StateMachine<IvrState, IvrEvent> machine = sessions.get(sessionId);
+        synchronized (session) {
+            awaitActive(session, deadline);
+            String requestId = request.getRequestId();
+            IvrResponse earlier = session.getResponseTo(requestId);
+            if (earlier != null) {
+                logger.debug("Answering retried request {} of session {} with its earlier response",
+                        requestId, sessionId);
+                metrics.recordDuplicateRequest();
+                return earlier;
+            }
+            deadline.check(Deadline.Stage.SESSION);
+            IvrResponse response = processUserInput(session, request, deadline);
+            if (requestId != null) {
+                session.setResponseTo(requestId, response);
+            }
+            return response;
+        }
+    }
+    
+    /**
+     * Waits until a session is not being transferred, for no longer than the
+     * fence timeout or the request's deadline. Called with the session's monitor held.
+     */
+    private void awaitActive(IvrSession session, Deadline deadline) {
+        try {
+            session.awaitActive(deadline.capMillis(properties.getFenceTimeoutMs()));
+        } catch (SessionTransferException e) {
+            if (!e.isMigrated() && deadline.isExpired()) {
+                throw deadline.exceeded(Deadline.Stage.SESSION);
+            }
+            throw e;
+        }
+    }
+    
+    /**
+     * Processes a user input against the session's state machine. Called with
+     * the session's monitor held.
+     *
+     * @throws DeadlineExceededException If an action abandoned the input, leaving the state unchanged
+     */
+    private IvrResponse processUserInput(IvrSession session, IvrRequest request, Deadline deadline) {
+        String sessionId = session.getSessionId();
+        StateMachine<IvrState, IvrEvent> machine = session.getStateMachine();
+        SessionContext context = session.getContext();
+        context.setLastInputMillis(System.currentTimeMillis());
+        
         IvrState currentState = machine.getState().getId();
         String userInput = request.getUserInput();
-        String inputType = request.getInputType();
+        CompiledFlow flow = session.getFlow();
         
-        logger.info("Processing input for session {}: state={}, inputType={}", 
-                sessionId, currentState, inputType);
+        if (properties.isLogTransitions()) {
+            logger.info("Processing input for session {}: state={}, inputType={}", 
+                    sessionId, currentState, request.getInputType());
+        }
         
-        // Process the input based on the current state
+        // Decode the input with the session's flow and send the resulting event
         try {
-            processStateWithInput(machine, currentState, userInput, inputType);
+            if (!flow.dispatch(machine, sessionId, context, currentState, userInput, deadline)) {
+                logger.warn("Input not handled in state {} of flow {}", currentState, flow.getVersion());
+            }
+            
+            // An action that abandons the input stops the transition; the machine swallows its exception
+            Deadline.Stage missed = deadline.getMissedStage();
+            if (missed != null) {
+                throw new DeadlineExceededException(missed);
+            }
             
             // Get the new state after processing
             IvrState newState = machine.getState().getId();
-            logger.info("State transition: {} -> {}", currentState, newState);
-            
-            // If we're in VALIDATING state, wait a moment for the validation events to be processed
-            if (newState == IvrState.VALIDATING) {
-                // Wait a short time for transitions to complete
-                try {
-                    logger.info("In VALIDATING state, waiting for events to be processed...");
-                    
-                    // Try multiple times with increasing waits
-                    for (int attempt = 1; attempt <= 3; attempt++) {
-                        // Wait with increasing times
-                        Thread.sleep(attempt * 200);
-                        
-                        // Check if we're still in VALIDATING
-                        newState = machine.getState().getId();
-                        logger.info("After waiting attempt {}, state is now: {}", attempt, newState);
-                        
-                        // If we've transitioned out of VALIDATING, break the loop
-                        if (newState != IvrState.VALIDATING) {
-                            break;
-                        }
-                    }
-                    
-                    // If still in VALIDATING state after all attempts, force a transition
-                    if (newState == IvrState.VALIDATING) {
-                        logger.warn("Still in VALIDATING state after multiple attempts - forcing a transition based on credentials");
-                        
-                        // Check credentials to determine the appropriate transition
-                        CustomerCredentials credentials = machine.getExtendedState().get("credentials", CustomerCredentials.class);
-                        if (credentials != null && credentials.isAuthenticated()) {
-                            logger.info("Forcing transition to AUTHENTICATED based on credential status");
-                            machine.sendEvent(IvrEvent.AUTHENTICATION_SUCCESS);
-                        } else {
-                            logger.info("Forcing transition to ERROR based on credential status");
-                            machine.sendEvent(IvrEvent.AUTHENTICATION_FAILURE);
-                        }
-                        
-                        // One final check of the state
-                        newState = machine.getState().getId();
-                        logger.info("Final state after forced transition: {}", newState);
-                    }
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    logger.warn("Interrupted while waiting for validation to complete", e);
-                }
+            if (properties.isLogTransitions()) {
+                logger.info("State transition: {} -> {}", currentState, newState);
             }
             
             // Create response based on new state
-            return createResponseForCurrentState(sessionId, newState);
+            return flow.respond(sessionId, newState, context);
             
+        } catch (DeadlineExceededException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Error processing user input", e);
             return IvrResponse.builder()
@@ -146,315 +221,161 @@ public class IvrSessionServiceImpl implements IvrSessionService {
     
     @Override
     public IvrState getCurrentState(String sessionId) {
-        if (sessionExists(sessionId)) {
-            return sessions.get(sessionId).getState().getId();
+        IvrSession session = sessions.get(sessionId);
+        if (session != null) {
+            return session.getState();
         }
         return null;
     }
     
+    @Override
+    public IvrResponse getCurrentResponse(String sessionId) {
+        IvrSession session = sessions.get(sessionId);
+        if (session == null) {
+            return null;
+        }
+        IvrState state = session.getState();
+        return state == null ? null : session.getFlow().respond(sessionId, state, session.getContext());
+    }
+    
     @Override
     public boolean sessionExists(String sessionId) {
-        return sessions.containsKey(sessionId);
+        return sessions.contains(sessionId);
     }
     
     @Override
     public void endSession(String sessionId) {
-        if (sessionExists(sessionId)) {
-            logger.info("Ending IVR session: {}", sessionId);
-            StateMachine<IvrState, IvrEvent> machine = sessions.get(sessionId);
-            machine.stop();
-            sessions.remove(sessionId);
+        IvrSession session = sessions.get(sessionId);
+        if (session != null) {
+            synchronized (session) {
+                session.awaitActive(properties.getFenceTimeoutMs());
+                logger.debug("Ending IVR session: {}", sessionId);
+                IvrState finalState = session.getState();
+                session.stop();
+                push.close(sessionId);
+                prefetcher.discard(session.getContext());
+                if (sessions.remove(session) && finalState != null) {
+                    metrics.sessionEnded(session, finalState);
+                    funnel.sessionEnded(finalState);
+                    commitSessionEnded(session, finalState);
+                }
+            }
         }
     }
     
-    private String generateSessionId() {
-        return UUID.randomUUID().toString();
+    private static void commitSessionEnded(IvrSession session, IvrState finalState) {
+        SessionEndedEvent ended = new SessionEndedEvent();
+        if (ended.shouldCommit()) {
+            ended.sessionIdHash = session.getSessionId().hashCode();
+            ended.finalState = finalState.name();
+            ended.lifetime = System.currentTimeMillis() - session.getCreatedAtMillis();
+            ended.commit();
+        }
     }
     
-    /**
-     * Process the current state with the given input and transition the state machine
-     */
-    private void processStateWithInput(StateMachine<IvrState, IvrEvent> machine, 
-                                       IvrState currentState, 
-                                       String userInput, 
-                                       String inputType) {
-        switch (currentState) {
-            case AUTHENTICATION_METHOD:
-                processAuthenticationMethodSelection(machine, userInput);
-                break;
-                
-            case SSN_PROMPT:
-                processSsnInput(machine, userInput);
-                break;
-                
-            case CARD_NUMBER_PROMPT:
-                processCardNumberInput(machine, userInput);
-                break;
-                
-            case PIN_PROMPT:
-                processPinInput(machine, userInput);
-                break;
-                
-            case ERROR:
-                processErrorStateInput(machine, userInput);
-                break;
-                
-            case MAIN_MENU:
-                processMainMenuSelection(machine, userInput);
-                break;
-                
-            case ACCOUNT_SERVICES:
-                processAccountServicesSelection(machine, userInput);
-                break;
-                
-            case BALANCE_INQUIRY:
-            case TRANSACTION_HISTORY:
-            case TRANSFER_FUNDS:
-                machine.sendEvent(IvrEvent.COMPLETE_TRANSACTION);
-                break;
-                
-            default:
-                logger.warn("Unhandled state in processStateWithInput: {}", currentState);
+    @Override
+    public List<String> endSessionsInState(IvrState state, int limit) {
+        List<String> ended = new ArrayList<>();
+        String after = null;
+        while (ended.size() < limit) {
+            List<String> page = sessions.findInState(state, after, limit - ended.size());
+            if (page.isEmpty()) {
                 break;
+            }
+            for (String sessionId : page) {
+                try {
+                    if (endIfInState(sessionId, state)) {
+                        ended.add(sessionId);
+                    }
+                } catch (SessionTransferException e) {
+                    logger.debug("Not ending session {}: {}", sessionId, e.getMessage());
+                }
+            }
+            after = page.get(page.size() - 1);
         }
+        logger.info("Ended {} sessions in state {}", ended.size(), state);
+        return ended;
     }
     
-    private void processAuthenticationMethodSelection(StateMachine<IvrState, IvrEvent> machine, String selection) {
-        if ("1".equals(selection)) {
-            machine.sendEvent(IvrEvent.SELECT_SSN_AUTH);
-        } else if ("2".equals(selection)) {
-            machine.sendEvent(IvrEvent.SELECT_CARD_AUTH);
-        } else if ("0".equals(selection)) {
-            machine.sendEvent(IvrEvent.END_CALL);
-        } else {
-            logger.warn("Invalid authentication method selection: {}", selection);
+    /**
+     * Ends a session if it is still in the given state once its monitor is held.
+     */
+    private boolean endIfInState(String sessionId, IvrState state) {
+        IvrSession session = sessions.get(sessionId);
+        if (session == null) {
+            return false;
         }
-    }
-    
-    private void processSsnInput(StateMachine<IvrState, IvrEvent> machine, String ssn) {
-        Map<String, Object> headers = new HashMap<>();
-        headers.put("ssn", ssn);
-        machine.sendEvent(MessageBuilder
-                .withPayload(IvrEvent.ENTER_SSN)
-                .copyHeaders(headers)
-                .build());
-    }
-    
-    private void processCardNumberInput(StateMachine<IvrState, IvrEvent> machine, String cardNumber) {
-        Map<String, Object> headers = new HashMap<>();
-        headers.put("cardNumber", cardNumber);
-        machine.sendEvent(MessageBuilder
-                .withPayload(IvrEvent.ENTER_CARD_NUMBER)
-                .copyHeaders(headers)
-                .build());
-    }
-    
-    private void processPinInput(StateMachine<IvrState, IvrEvent> machine, String pin) {
-        Map<String, Object> headers = new HashMap<>();
-        headers.put("pin", pin);
-        machine.sendEvent(MessageBuilder
-                .withPayload(IvrEvent.ENTER_PIN)
-                .copyHeaders(headers)
-                .build());
-    }
-    
-    private void processErrorStateInput(StateMachine<IvrState, IvrEvent> machine, String selection) {
-        if ("1".equals(selection)) {
-            machine.sendEvent(IvrEvent.BACK);
-        } else {
-            machine.sendEvent(IvrEvent.END_CALL);
+        synchronized (session) {
+            session.awaitActive(properties.getFenceTimeoutMs());
+            if (session.getState() != state) {
+                return false;
+            }
+            endSession(sessionId);
+            return true;
         }
     }
     
-    private void processMainMenuSelection(StateMachine<IvrState, IvrEvent> machine, String selection) {
-        if ("1".equals(selection)) {
-            machine.sendEvent(IvrEvent.SELECT_ACCOUNT_SERVICES);
-        } else if ("0".equals(selection)) {
-            machine.sendEvent(IvrEvent.END_CALL);
+    @Override
+    public boolean restoreSession(SessionSnapshot snapshot) {
+        CompiledFlow flow;
+        if (snapshot.getFlowVersion() == null) {
+            // Captured before flows had versions, when there was only one
+            flow = flows.getActive();
         } else {
-            logger.warn("Invalid main menu selection: {}", selection);
+            flow = flows.get(snapshot.getFlowVersion());
+            if (flow == null) {
+                logger.warn("Flow {} of session {} not loaded, not resuming the session",
+                        snapshot.getFlowVersion(), snapshot.getSessionId());
+                return false;
+            }
         }
+        TransitionTrace trace = new TransitionTrace(properties.getTraceCapacity());
+        sessions.register(new IvrSession(snapshot, trace, flow,
+                pending -> materializeStateMachine(pending, flow, trace)));
+        return true;
     }
     
-    private void processAccountServicesSelection(StateMachine<IvrState, IvrEvent> machine, String selection) {
-        if ("1".equals(selection)) {
-            machine.sendEvent(IvrEvent.SELECT_BALANCE_INQUIRY);
-        } else if ("2".equals(selection)) {
-            machine.sendEvent(IvrEvent.SELECT_TRANSACTION_HISTORY);
-        } else if ("3".equals(selection)) {
-            machine.sendEvent(IvrEvent.SELECT_TRANSFER_FUNDS);
-        } else if ("9".equals(selection)) {
-            machine.sendEvent(IvrEvent.BACK);
-        } else {
-            logger.warn("Invalid account services selection: {}", selection);
-        }
+    /**
+     * Builds a state machine resumed in a transferred or parked session's state.
+     */
+    private StateMachine<IvrState, IvrEvent> materializeStateMachine(SessionSnapshot snapshot, CompiledFlow flow,
+                                                                     TransitionTrace trace) {
+        StateMachine<IvrState, IvrEvent> machine = flow.newStateMachine();
+        
+        DefaultExtendedState extendedState = new DefaultExtendedState();
+        extendedState.getVariables().putAll(snapshot.getVariables());
+        machine.getStateMachineAccessor().doWithAllRegions(access -> access.resetStateMachine(
+                new DefaultStateMachineContext<>(snapshot.getState(), null, null, extendedState)));
+        machine.start();
+        
+        addStateListeners(machine, snapshot.getSessionId(), snapshot.getContext(), trace, flow);
+        return machine;
     }
     
     /**
-     * Create a response object based on the current state
+     * Generates a session ID that hashes to this node, so that the new session
+     * is owned by the node that created it.
      */
-    private IvrResponse createResponseForCurrentState(String sessionId, IvrState state) {
-        IvrResponse.Builder responseBuilder = IvrResponse.builder()
-                .withSessionId(sessionId)
-                .withCurrentState(state);
-        
-        switch (state) {
-            case WELCOME:
-                return responseBuilder
-                        .withNextAction("CONNECT_CALL")
-                        .withPromptMessage("Welcome to the bank IVR system")
-                        .build();
-                
-            case AUTHENTICATION_METHOD:
-                return responseBuilder
-                        .withNextAction("COLLECT_AUTH_METHOD")
-                        .withPromptMessage("Please select your authentication method: 1 for SSN, 2 for Debit Card")
-                        .build();
-                
-            case SSN_PROMPT:
-                return responseBuilder
-                        .withNextAction("COLLECT_SSN")
-                        .withPromptMessage("Please enter your Social Security Number")
-                        .build();
-                
-            case CARD_NUMBER_PROMPT:
-                return responseBuilder
-                        .withNextAction("COLLECT_CARD_NUMBER")
-                        .withPromptMessage("Please enter your debit card number")
-                        .build();
-                
-            case PIN_PROMPT:
-                return responseBuilder
-                        .withNextAction("COLLECT_PIN")
-                        .withPromptMessage("Please enter your PIN")
-                        .build();
-                
-            case VALIDATING:
-                return responseBuilder
-                        .withNextAction("WAIT")
-                        .withPromptMessage("Please wait while we validate your information")
-                        .build();
-                
-            case AUTHENTICATED:
-                return responseBuilder
-                        .withNextAction("PROCEED_TO_MENU")
-                        .withPromptMessage("You have been successfully authenticated")
-                        .withAuthenticated(true)
-                        .build();
-                
-            case ERROR:
-                return responseBuilder
-                        .withNextAction("COLLECT_ERROR_RESPONSE")
-                        .withPromptMessage("Authentication failed. Press 1 to try again or 0 to end the call")
-                        .build();
-                
-            case MAIN_MENU:
-                return responseBuilder
-                        .withNextAction("COLLECT_MENU_SELECTION")
-                        .withPromptMessage("Main Menu: Press 1 for Account Services, 0 to end call")
-                        .withAuthenticated(true)
-                        .build();
-                
-            case ACCOUNT_SERVICES:
-                return responseBuilder
-                        .withNextAction("COLLECT_SERVICE_SELECTION")
-                        .withPromptMessage("Account Services: Press 1 for Balance, 2 for Transactions, 3 for Transfers, 9 to go back")
-                        .withAuthenticated(true)
-                        .build();
-                
-            case BALANCE_INQUIRY:
-                return responseBuilder
-                        .withNextAction("PRESENT_BALANCE")
-                        .withPromptMessage("Your current balance is $1,234.56")
-                        .withAuthenticated(true)
-                        .build();
-                
-            case TRANSACTION_HISTORY:
-                return responseBuilder
-                        .withNextAction("PRESENT_TRANSACTIONS")
-                        .withPromptMessage("Recent transactions: $120.00 GROCERY, $45.50 GAS, $500.00 RENT")
-                        .withAuthenticated(true)
-                        .build();
-                
-            case TRANSFER_FUNDS:
-                return responseBuilder
-                        .withNextAction("PRESENT_TRANSFER_OPTIONS")
-                        .withPromptMessage("Transfer functionality would be implemented here")
-                        .withAuthenticated(true)
-                        .build();
-                
-            case END_CALL:
-                return responseBuilder
-                        .withNextAction("END_CALL")
-                        .withPromptMessage("Thank you for using our banking services. Goodbye!")
-                        .withCallEnded(true)
-                        .build();
-                
-            default:
-                return responseBuilder
-                        .withNextAction("UNKNOWN")
-                        .withPromptMessage("System is in an unknown state")
-                        .withErrorMessage("Unhandled state: " + state)
-                        .build();
+    private String generateSessionId() {
+        String sessionId = idGenerator.generate();
+        for (int attempt = 1; attempt < MAX_LOCAL_ID_ATTEMPTS && !membership.isLocallyOwned(sessionId); attempt++) {
+            sessionId = idGenerator.generate();
         }
+        return sessionId;
     }
     
     /**
      * Add custom listeners to the state machine
      */
-    private void addStateListeners(StateMachine<IvrState, IvrEvent> machine) {
-        // Add state change listener to handle AUTHENTICATED state
-        machine.addStateListener(new StateMachineListenerAdapter<IvrState, IvrEvent>() {
-            @Override
-            public void stateChanged(State<IvrState, IvrEvent> from, State<IvrState, IvrEvent> to) {
-                if (from != null) {
-                    logger.info("State changed from {} to {}", from.getId(), to.getId());
-                    
-                    // Handle VALIDATING state specially
-                    if (from.getId() == IvrState.VALIDATING) {
-                        logger.info("Exited VALIDATING state to {}", to.getId());
-                    }
-                    
-                    // If we entered VALIDATING state, prepare to handle it
-                    if (to.getId() == IvrState.VALIDATING) {
-                        logger.info("Entered VALIDATING state, checking credentials shortly...");
-                        
-                        // Use a separate thread to check credentials after a short delay
-                        // to allow action to complete first
-                        new Thread(() -> {
-                            try {
-                                // Wait briefly to allow the action to process
-                                Thread.sleep(100);
-                                
-                                // If still in VALIDATING state, force a transition
-                                if (machine.getState().getId() == IvrState.VALIDATING) {
-                                    logger.info("Still in VALIDATING state, checking credentials...");
-                                    
-                                    // Get credentials to check if authenticated
-                                    CustomerCredentials credentials = machine.getExtendedState()
-                                        .get("credentials", CustomerCredentials.class);
-                                    
-                                    if (credentials != null && credentials.isAuthenticated()) {
-                                        logger.info("Credentials show authenticated=true, forcing transition to AUTHENTICATED");
-                                        machine.sendEvent(IvrEvent.AUTHENTICATION_SUCCESS);
-                                    } else {
-                                        logger.info("Credentials show authenticated=false or not found, forcing transition to ERROR");
-                                        machine.sendEvent(IvrEvent.AUTHENTICATION_FAILURE);
-                                    }
-                                }
-                            } catch (InterruptedException e) {
-                                Thread.currentThread().interrupt();
-                            }
-                        }).start();
-                    }
-                    
-                    // If we entered AUTHENTICATED state, move to MAIN_MENU automatically
-                    if (to.getId() == IvrState.AUTHENTICATED) {
-                        logger.info("Detected transition to AUTHENTICATED state, proceeding to MAIN_MENU");
-                        machine.sendEvent(IvrEvent.AUTHENTICATION_SUCCESS);
-                    }
-                }
-            }
-        });
+    private void addStateListeners(StateMachine<IvrState, IvrEvent> machine, String sessionId,
+                                   SessionContext context, TransitionTrace trace, CompiledFlow flow) {
+        machine.addStateListener(sessions.newIndexListener(sessionId));
+        machine.addStateListener(trace.newListener(machine));
+        machine.addStateListener(metrics.newMachineListener(machine));
+        machine.addStateListener(funnel.newListener());
+        machine.addStateListener(audit.newListener(sessionId, context));
+        machine.addStateListener(new JfrTransitionListener(sessionId));
+        machine.addStateListener(prefetcher.newListener(context));
+        machine.addStateListener(push.newListener(sessionId, flow, context));
     }
 } 
\ No newline at end of file
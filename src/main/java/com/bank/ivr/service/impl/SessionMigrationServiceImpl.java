@@ -0,0 +1,355 @@
+package com.bank.ivr.service.impl;
+
+import com.bank.ivr.account.AccountPrefetcher;
+import com.bank.ivr.cluster.ClusterCredentials;
+import com.bank.ivr.cluster.ClusterMembership;
+import com.bank.ivr.cluster.ClusterNode;
+import com.bank.ivr.cluster.ConsistentHashRing;
+import com.bank.ivr.cluster.MembershipListener;
+import com.bank.ivr.config.SessionProperties;
+import com.bank.ivr.push.SessionPushHub;
+import com.bank.ivr.service.IvrSessionService;
+import com.bank.ivr.service.SessionMigrationService;
+import com.bank.ivr.session.IvrSession;
+import com.bank.ivr.session.MigrationResult;
+import com.bank.ivr.session.SessionRegistry;
+import com.bank.ivr.session.SessionSnapshot;
+import com.bank.ivr.session.SessionSnapshotCodec;
+import com.bank.ivr.session.SnapshotFileCipher;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.StreamingHttpOutputMessage;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Implementation of the session migration service.
+ *
+ * <p>A transfer fences each session as its snapshot is written, so no input can
+ * change it while the copy is in flight. Once the receiver has imported the
+ * whole stream the fenced sessions are released here and waiting requests are
+ * redirected to the new holder; if the transfer fails they are unfenced and
+ * carry on locally. The receiver turns away sessions whose flow version it
+ * has not loaded, and those too carry on here. The same mechanism moves
+ * sessions to their new owners whenever cluster membership changes.
+ *
+ * <p>A file export only copies the sessions, since nothing would take them
+ * over until the file is imported. Files are encrypted and kept in the
+ * export directory.
+ */
+@Service
+public class SessionMigrationServiceImpl implements SessionMigrationService, MembershipListener {
+
+    private static final Logger logger = LogManager.getLogger(SessionMigrationServiceImpl.class);
+
+    private static final String IMPORT_PATH = "/api/admin/sessions/import";
+
+    private final SessionRegistry sessions;
+    private final IvrSessionService sessionService;
+    private final ClusterMembership membership;
+    private final RestTemplate restTemplate;
+    private final SessionPushHub push;
+    private final AccountPrefetcher prefetcher;
+    private final ClusterCredentials credentials;
+    private final Path exportDirectory;
+    private final SnapshotFileCipher fileCipher;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public SessionMigrationServiceImpl(SessionRegistry sessions,
+                                       IvrSessionService sessionService,
+                                       ClusterMembership membership,
+                                       RestTemplate clusterRestTemplate,
+                                       SessionPushHub push,
+                                       AccountPrefetcher prefetcher,
+                                       ClusterCredentials clusterCredentials,
+                                       SessionProperties properties,
+                                       ObjectMapper objectMapper) {
+        this.sessions = sessions;
+        this.sessionService = sessionService;
+        this.membership = membership;
+        this.restTemplate = clusterRestTemplate;
+        this.push = push;
+        this.prefetcher = prefetcher;
+        this.credentials = clusterCredentials;
+        this.exportDirectory = Paths.get(properties.getExportDirectory()).toAbsolutePath().normalize();
+        String key = properties.getExportKey();
+        this.fileCipher = key == null || key.trim().isEmpty() ? null : new SnapshotFileCipher(key);
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    public void registerMembershipListener() {
+        membership.addListener(this);
+    }
+
+    @Override
+    public MigrationResult exportToNode(ClusterNode target) throws IOException {
+        return transferToNode(target, new ArrayList<>(sessions.getSessions()));
+    }
+
+    @Override
+    public MigrationResult exportToFile(String fileName) throws IOException {
+        SnapshotFileCipher cipher = requireFileCipher();
+        Path file = resolveFile(fileName);
+        Files.createDirectories(exportDirectory);
+
+        long start = System.nanoTime();
+        // Written under another name first, so an export cut short is never mistaken for a whole one
+        Path partial = file.resolveSibling(file.getFileName() + ".partial");
+        int count = 0;
+        try (OutputStream out = cipher.encrypt(Files.newOutputStream(partial))) {
+            SessionSnapshotCodec.Writer writer = SessionSnapshotCodec.newWriter(out);
+            for (IvrSession session : new ArrayList<>(sessions.getSessions())) {
+                if (session.copyTo(writer)) {
+                    count++;
+                }
+            }
+            writer.finish();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(partial);
+            throw e;
+        }
+        Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logger.info("Copied {} sessions to {}", count, file);
+        return new MigrationResult(file.getFileName().toString(), count, elapsedMillis(start));
+    }
+
+    @Override
+    public MigrationResult drain() throws IOException {
+        List<ClusterNode> remaining = new ArrayList<>(membership.getMembers());
+        remaining.remove(membership.getLocalNode());
+        if (remaining.isEmpty()) {
+            throw new IllegalStateException("No other cluster members to drain to");
+        }
+
+        long start = System.nanoTime();
+        int before = sessions.size();
+        logger.info("Draining {} sessions to {}", before, remaining);
+        // The membership listener moves every session to its owner in the new ring
+        membership.updateMembers(remaining);
+        int moved = before - sessions.size();
+        return new MigrationResult("cluster", moved, elapsedMillis(start));
+    }
+
+    @Override
+    public MigrationResult importSnapshot(InputStream in) throws IOException {
+        long start = System.nanoTime();
+        List<String> rejected = new ArrayList<>();
+        int count = SessionSnapshotCodec.read(in, snapshot -> {
+            if (sessionService.restoreSession(snapshot)) {
+                membership.clearRelocation(snapshot.getSessionId());
+            } else {
+                rejected.add(snapshot.getSessionId());
+            }
+        });
+
+        if (rejected.isEmpty()) {
+            logger.info("Imported {} sessions", count);
+        } else {
+            logger.warn("Imported {} sessions; turned away {} whose flow version is not loaded",
+                    count - rejected.size(), rejected.size());
+        }
+        return new MigrationResult("stream", count - rejected.size(), elapsedMillis(start), rejected);
+    }
+
+    @Override
+    public MigrationResult importFromFile(String fileName) throws IOException {
+        SnapshotFileCipher cipher = requireFileCipher();
+        Path file = resolveFile(fileName);
+        try (InputStream in = cipher.decrypt(Files.newInputStream(file))) {
+            MigrationResult result = importSnapshot(in);
+            return new MigrationResult(file.getFileName().toString(), result.getSessions(),
+                    result.getElapsedMillis(), result.getRejected());
+        }
+    }
+
+    /**
+     * Moves sessions this node no longer owns to their new owners.
+     */
+    @Override
+    public void membershipChanged(ConsistentHashRing previous, ConsistentHashRing current) {
+        Map<ClusterNode, List<IvrSession>> moves = new HashMap<>();
+        for (IvrSession session : sessions.getSessions()) {
+            ClusterNode owner = current.ownerOf(session.getSessionId());
+            if (!membership.isLocal(owner)) {
+                moves.computeIfAbsent(owner, node -> new ArrayList<>()).add(session);
+            }
+        }
+
+        boolean complete = true;
+        for (Map.Entry<ClusterNode, List<IvrSession>> move : moves.entrySet()) {
+            try {
+                MigrationResult result = transferToNode(move.getKey(), move.getValue());
+                // Turned-away sessions are still held here, and are found through the previous ring
+                complete &= result.getRejected().isEmpty();
+            } catch (IOException | RuntimeException e) {
+                complete = false;
+                logger.warn("Failed to move {} sessions to {}; they stay here until the next rebalance",
+                        move.getValue().size(), move.getKey().getId(), e);
+            }
+        }
+        if (complete) {
+            membership.completeHandoff();
+        }
+    }
+
+    private MigrationResult transferToNode(ClusterNode target, Collection<IvrSession> candidates) throws IOException {
+        if (membership.isLocal(target)) {
+            throw new IllegalArgumentException("Cannot transfer sessions to the local node");
+        }
+
+        long start = System.nanoTime();
+        List<IvrSession> fenced = new ArrayList<>();
+        Set<String> rejected;
+        try {
+            rejected = restTemplate.execute(target.getBaseUrl() + IMPORT_PATH, HttpMethod.POST,
+                    request -> {
+                        request.getHeaders().setContentType(MediaType.APPLICATION_OCTET_STREAM);
+                        credentials.sign(request.getHeaders());
+                        StreamingHttpOutputMessage.Body body = out -> fenced.addAll(writeFenced(candidates, out));
+                        if (request instanceof StreamingHttpOutputMessage) {
+                            ((StreamingHttpOutputMessage) request).setBody(body);
+                        } else {
+                            body.writeTo(request.getBody());
+                        }
+                    },
+                    response -> {
+                        if (!response.getStatusCode().is2xxSuccessful()) {
+                            throw new IOException("Import rejected by " + target.getId() + ": "
+                                    + response.getRawStatusCode());
+                        }
+                        return readRejected(response.getBody());
+                    });
+        } catch (RuntimeException e) {
+            abort(fenced);
+            throw new IOException("Session transfer to " + target.getId() + " failed", e);
+        }
+
+        List<IvrSession> moved = new ArrayList<>(fenced.size());
+        List<IvrSession> kept = new ArrayList<>();
+        List<String> keptIds = new ArrayList<>();
+        for (IvrSession session : fenced) {
+            if (rejected.contains(session.getSessionId())) {
+                kept.add(session);
+                keptIds.add(session.getSessionId());
+            } else {
+                moved.add(session);
+            }
+        }
+        abort(kept);
+        release(moved, target);
+        if (kept.isEmpty()) {
+            logger.info("Moved {} sessions to {}", moved.size(), target.getId());
+        } else {
+            logger.warn("Moved {} sessions to {}; keeping {} whose flow version it has not loaded",
+                    moved.size(), target.getId(), kept.size());
+        }
+        return new MigrationResult(target.getId(), moved.size(), elapsedMillis(start), keptIds);
+    }
+
+    /**
+     * Fences each session and writes its snapshot. On failure every session
+     * fenced so far is unfenced again before the exception propagates.
+     *
+     * @return The sessions now fenced
+     */
+    private List<IvrSession> writeFenced(Collection<IvrSession> candidates, OutputStream out) throws IOException {
+        List<IvrSession> fenced = new ArrayList<>(candidates.size());
+        try {
+            SessionSnapshotCodec.Writer writer = SessionSnapshotCodec.newWriter(out);
+            for (IvrSession session : candidates) {
+                SessionSnapshot snapshot = session.fence();
+                if (snapshot != null) {
+                    fenced.add(session);
+                    writer.write(snapshot);
+                }
+            }
+            writer.finish();
+            return fenced;
+        } catch (IOException | RuntimeException e) {
+            abort(fenced);
+            throw e;
+        }
+    }
+
+    /**
+     * Drops transferred sessions from this node, wakes requests waiting on them
+     * and closes their push channels, so clients reconnect to the new holder.
+     * Prefetched account data stays behind.
+     * The state machines are not stopped: they hold no threads or external
+     * resources, and stopping them would cost more than the transfer itself.
+     *
+     * @param target The node now holding the sessions
+     */
+    private void release(List<IvrSession> transferred, ClusterNode target) {
+        for (IvrSession session : transferred) {
+            membership.recordRelocation(session.getSessionId(), target);
+            sessions.remove(session);
+            session.completeTransfer();
+            push.close(session.getSessionId());
+            prefetcher.discard(session.getContext());
+        }
+    }
+
+    /**
+     * Reads the IDs of the sessions a peer turned away from its import result.
+     */
+    private Set<String> readRejected(InputStream body) throws IOException {
+        Set<String> rejected = new HashSet<>();
+        for (JsonNode sessionId : objectMapper.readTree(body).path("rejected")) {
+            rejected.add(sessionId.asText());
+        }
+        return rejected;
+    }
+
+    private void abort(List<IvrSession> fenced) {
+        for (IvrSession session : fenced) {
+            session.abortTransfer();
+        }
+    }
+
+    private SnapshotFileCipher requireFileCipher() {
+        if (fileCipher == null) {
+            throw new IllegalStateException("No ivr.session.export-key set for snapshot files");
+        }
+        return fileCipher;
+    }
+
+    /**
+     * Resolves a snapshot file name in the export directory. Only plain names
+     * are accepted, so no caller can reach a file anywhere else.
+     */
+    private Path resolveFile(String fileName) {
+        Path file = exportDirectory.resolve(fileName).normalize();
+        if (!exportDirectory.equals(file.getParent())) {
+            throw new IllegalArgumentException("Snapshot file must be a name in the export directory: " + fileName);
+        }
+        return file;
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+}
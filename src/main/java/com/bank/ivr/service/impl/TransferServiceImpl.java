@@ -0,0 +1,57 @@
+package com.bank.ivr.service.impl;
+
+import com.bank.ivr.cluster.ClusterMembership;
+import com.bank.ivr.model.TransferResult;
+import com.bank.ivr.service.AccountService;
+import com.bank.ivr.service.TransferService;
+import com.bank.ivr.transfer.TransferEngine;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+
+/**
+ * Implementation of the transfer service on the in-memory ledger. Cached
+ * balances of both accounts are dropped once a transfer completes.
+ *
+ * <p>Each node keeps its own ledger and remembers only the outcomes of its own
+ * requests, while sessions are placed on nodes by session ID. A clustered node
+ * therefore refuses every transfer: otherwise a customer could spend the same
+ * funds once on each node, and a session that moved could repeat a transfer.
+ */
+@Service
+public class TransferServiceImpl implements TransferService {
+
+    private static final Logger logger = LogManager.getLogger(TransferServiceImpl.class);
+
+    private final TransferEngine engine;
+    private final AccountService accountService;
+    private final ClusterMembership membership;
+
+    @Autowired
+    public TransferServiceImpl(TransferEngine engine, AccountService accountService, ClusterMembership membership) {
+        this.engine = engine;
+        this.accountService = accountService;
+        this.membership = membership;
+    }
+
+    @Override
+    public TransferResult transfer(String sessionId, String requestId, String fromCustomerId,
+                                   String toCustomerId, BigDecimal amount) {
+        if (membership.isClustered()) {
+            logger.warn("Transfer {} of session {} refused: transfers are not made on clustered nodes",
+                    requestId, sessionId);
+            return new TransferResult(TransferResult.Status.NOT_OFFERED, toCustomerId, amount, null);
+        }
+        TransferResult result = engine.transfer(sessionId, requestId, fromCustomerId, toCustomerId, amount);
+        if (result.getStatus() == TransferResult.Status.COMPLETED) {
+            accountService.invalidate(fromCustomerId);
+            accountService.invalidate(toCustomerId);
+        } else if (logger.isDebugEnabled()) {
+            logger.debug("Transfer {} of session {} refused: {}", requestId, sessionId, result.getStatus());
+        }
+        return result;
+    }
+}
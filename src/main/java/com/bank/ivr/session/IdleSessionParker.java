@@ -0,0 +1,74 @@
+package com.bank.ivr.session;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parks sessions whose callers have not sent input for a while. Callers
+ * spend most of a call listening to prompts, and a state machine is most of
+ * a session's heap, so dropping the machines of waiting sessions is what
+ * keeps the heap per live call small. The next input pays for building the
+ * machine again.
+ */
+public class IdleSessionParker implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(IdleSessionParker.class);
+
+    private final SessionRegistry sessions;
+    private final long parkAfterMillis;
+    private final ScheduledExecutorService sweeper;
+
+    /**
+     * @param parkAfterMillis How long a session waits for input before it is parked; 0 parks none
+     */
+    public IdleSessionParker(SessionRegistry sessions, long parkAfterMillis) {
+        this.sessions = sessions;
+        this.parkAfterMillis = parkAfterMillis;
+        if (parkAfterMillis <= 0) {
+            this.sweeper = null;
+            return;
+        }
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ivr-session-parker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(100, parkAfterMillis / 2);
+        sweeper.scheduleWithFixedDelay(this::sweep, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Parks every session that has waited long enough for input.
+     *
+     * @return The number of sessions parked
+     */
+    public int sweep() {
+        long idleSince = System.currentTimeMillis() - parkAfterMillis;
+        int parked = 0;
+        try {
+            for (IvrSession session : sessions.getSessions()) {
+                if (session.getLastActiveMillis() <= idleSince && session.park()) {
+                    parked++;
+                }
+            }
+        } catch (RuntimeException e) {
+            // Keep sweeping; an exception would cancel the schedule
+            logger.warn("Failed to park idle sessions", e);
+        }
+        if (parked > 0) {
+            logger.debug("Parked {} idle sessions", parked);
+        }
+        return parked;
+    }
+
+    @Override
+    public void close() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+        }
+    }
+}
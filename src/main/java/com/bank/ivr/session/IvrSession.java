@@ -0,0 +1,302 @@
+package com.bank.ivr.session;
+
+import com.bank.ivr.api.model.IvrResponse;
+import com.bank.ivr.flow.CompiledFlow;
+import com.bank.ivr.model.IvrEvent;
+import com.bank.ivr.model.IvrState;
+import com.bank.ivr.model.SessionContext;
+import org.springframework.statemachine.StateMachine;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A live IVR call held by this node: the session's state machine plus the
+ * bookkeeping needed to hand it over to another node.
+ *
+ * <p>All work on a session's state machine is done while holding the session's
+ * monitor. During a transfer the session is fenced: requests wait on the
+ * monitor until the transfer either completes, in which case they are told the
+ * session has moved, or is aborted, in which case they proceed locally.
+ *
+ * <p>A session imported from another node starts out as just its snapshot; the
+ * state machine is built from it on first use, so a bulk import costs little
+ * more than decoding the stream. A session waiting for its caller can be
+ * parked the same way: its state machine, most of the session's heap, is
+ * dropped and built again from the snapshot on the next input.
+ */
+public class IvrSession {
+
+    /**
+     * Transfer phase of a session.
+     */
+    public enum Phase {
+        ACTIVE,   // Serving requests on this node
+        FENCED,   // Snapshot taken, transfer in progress
+        MIGRATED  // Now held by another node
+    }
+
+    private final String sessionId;
+    private final SessionContext context;
+    private final long createdAtMillis;
+    private final TransitionTrace trace;
+    private final CompiledFlow flow;
+    private final Function<SessionSnapshot, StateMachine<IvrState, IvrEvent>> materializer;
+
+    private volatile StateMachine<IvrState, IvrEvent> stateMachine;
+    private volatile SessionSnapshot pending;
+    private volatile Phase phase = Phase.ACTIVE;
+
+    // The last answered input, guarded by the session's monitor
+    private String lastRequestId;
+    private IvrResponse lastResponse;
+
+    /**
+     * Creates a new session.
+     *
+     * @param materializer Builds the state machine again after the session has been parked
+     */
+    public IvrSession(String sessionId, StateMachine<IvrState, IvrEvent> stateMachine, SessionContext context,
+                      TransitionTrace trace, CompiledFlow flow,
+                      Function<SessionSnapshot, StateMachine<IvrState, IvrEvent>> materializer) {
+        this.sessionId = sessionId;
+        this.stateMachine = stateMachine;
+        this.context = context;
+        this.trace = trace;
+        this.flow = flow;
+        this.createdAtMillis = System.currentTimeMillis();
+        this.materializer = materializer;
+    }
+
+    /**
+     * Creates a session resumed from a snapshot.
+     *
+     * @param snapshot The transferred session
+     * @param trace The trace the materialized state machine records into
+     * @param flow The call flow the session resumes on
+     * @param materializer Builds the state machine in the snapshot's state on first use, and after parking
+     */
+    public IvrSession(SessionSnapshot snapshot, TransitionTrace trace, CompiledFlow flow,
+                      Function<SessionSnapshot, StateMachine<IvrState, IvrEvent>> materializer) {
+        this.sessionId = snapshot.getSessionId();
+        this.context = snapshot.getContext();
+        this.trace = trace;
+        this.flow = flow;
+        this.createdAtMillis = snapshot.getCreatedAtMillis();
+        this.pending = snapshot;
+        this.materializer = materializer;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    /**
+     * Gets the session's state machine, building it first if the session was
+     * imported or parked and has not been used since. Call with the session's
+     * monitor held.
+     */
+    public synchronized StateMachine<IvrState, IvrEvent> getStateMachine() {
+        if (stateMachine == null) {
+            stateMachine = materializer.apply(pending);
+            pending = null;
+        }
+        return stateMachine;
+    }
+
+    /**
+     * Gets the current state without waiting for in-progress work or building
+     * the state machine of an imported or parked session.
+     */
+    public IvrState getState() {
+        // Parking sets the snapshot before dropping the machine, and building
+        // sets the machine before dropping the snapshot, so a retry finds one
+        while (true) {
+            SessionSnapshot snapshot = pending;
+            if (snapshot != null) {
+                return snapshot.getState();
+            }
+            StateMachine<IvrState, IvrEvent> machine = stateMachine;
+            if (machine != null) {
+                return machine.getState().getId();
+            }
+        }
+    }
+
+    /**
+     * Drops the state machine of a session that is waiting for its caller,
+     * keeping only its snapshot.
+     *
+     * @return Whether the session was parked; one already parked or being transferred is not
+     */
+    public synchronized boolean park() {
+        if (phase != Phase.ACTIVE || stateMachine == null) {
+            return false;
+        }
+        pending = capture();
+        stateMachine = null;
+        return true;
+    }
+
+    /**
+     * Gets whether the session is held as just its snapshot, having been
+     * parked or imported and not used since.
+     */
+    public boolean isParked() {
+        return stateMachine == null;
+    }
+
+    /**
+     * Gets when the caller last sent input, or when the session was created if they have not.
+     */
+    public long getLastActiveMillis() {
+        return Math.max(createdAtMillis, context.getLastInputMillis());
+    }
+
+    /**
+     * Stops the state machine, if one was ever built.
+     */
+    public void stop() {
+        StateMachine<IvrState, IvrEvent> machine = stateMachine;
+        if (machine != null) {
+            machine.stop();
+        }
+    }
+
+    /**
+     * Gets the typed per-session data, such as authentication progress.
+     */
+    public SessionContext getContext() {
+        return context;
+    }
+
+    /**
+     * Gets the session's recent transitions on this node.
+     */
+    public TransitionTrace getTrace() {
+        return trace;
+    }
+
+    /**
+     * Gets the call flow the session runs on, which stays the same for the
+     * whole call even if another version is activated meanwhile.
+     */
+    public CompiledFlow getFlow() {
+        return flow;
+    }
+
+    /**
+     * Gets the response to the last input if it had the given request ID, so
+     * that a retried input is answered without running it again. Call with
+     * the session's monitor held.
+     *
+     * @return The earlier response, or null if the ID is null or not the last one answered
+     */
+    public IvrResponse getResponseTo(String requestId) {
+        return requestId != null && requestId.equals(lastRequestId) ? lastResponse : null;
+    }
+
+    /**
+     * Keeps the response to an input with a request ID, replacing the one
+     * kept before. Call with the session's monitor held.
+     */
+    public void setResponseTo(String requestId, IvrResponse response) {
+        this.lastRequestId = requestId;
+        this.lastResponse = response;
+    }
+
+    public long getCreatedAtMillis() {
+        return createdAtMillis;
+    }
+
+    public Phase getPhase() {
+        return phase;
+    }
+
+    /**
+     * Waits until the session is no longer fenced. Must be called while holding
+     * the session's monitor, before touching the state machine.
+     *
+     * @param timeoutMillis Maximum time to wait for a transfer to finish
+     * @throws SessionTransferException If the session has moved to another node
+     *         or the transfer did not finish in time
+     */
+    public synchronized void awaitActive(long timeoutMillis) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (phase == Phase.FENCED) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                throw new SessionTransferException(sessionId, false);
+            }
+            try {
+                wait(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SessionTransferException(sessionId, false);
+            }
+        }
+        if (phase == Phase.MIGRATED) {
+            throw new SessionTransferException(sessionId, true);
+        }
+    }
+
+    /**
+     * Fences the session and captures its snapshot.
+     *
+     * @return The snapshot, or null if the session is already being transferred
+     */
+    public synchronized SessionSnapshot fence() {
+        if (phase != Phase.ACTIVE) {
+            return null;
+        }
+        phase = Phase.FENCED;
+        return capture();
+    }
+
+    /**
+     * Writes a snapshot of the session without fencing it, for a copy taken
+     * while the session carries on here. The session's monitor is held while
+     * writing, so no input changes the session part way through.
+     *
+     * @return Whether the session was written; one being transferred is skipped
+     */
+    public synchronized boolean copyTo(SessionSnapshotCodec.Writer writer) throws IOException {
+        if (phase != Phase.ACTIVE) {
+            return false;
+        }
+        writer.write(capture());
+        return true;
+    }
+
+    private SessionSnapshot capture() {
+        if (pending != null) {
+            return pending;
+        }
+        Map<String, Object> variables = new HashMap<>();
+        for (Map.Entry<Object, Object> entry : stateMachine.getExtendedState().getVariables().entrySet()) {
+            variables.put(String.valueOf(entry.getKey()), entry.getValue());
+        }
+        return new SessionSnapshot(sessionId, stateMachine.getState().getId(), createdAtMillis, flow.getVersion(),
+                context, variables);
+    }
+
+    /**
+     * Marks a fenced session as moved and wakes any waiting requests.
+     */
+    public synchronized void completeTransfer() {
+        phase = Phase.MIGRATED;
+        notifyAll();
+    }
+
+    /**
+     * Lifts the fence after a failed transfer and wakes any waiting requests.
+     */
+    public synchronized void abortTransfer() {
+        if (phase == Phase.FENCED) {
+            phase = Phase.ACTIVE;
+        }
+        notifyAll();
+    }
+}
@@ -0,0 +1,56 @@
+package com.bank.ivr.session;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a session export or import.
+ */
+public class MigrationResult {
+
+    private final String target;
+    private final int sessions;
+    private final long elapsedMillis;
+    private final List<String> rejected;
+
+    public MigrationResult(String target, int sessions, long elapsedMillis) {
+        this(target, sessions, elapsedMillis, Collections.emptyList());
+    }
+
+    public MigrationResult(String target, int sessions, long elapsedMillis, List<String> rejected) {
+        this.target = target;
+        this.sessions = sessions;
+        this.elapsedMillis = elapsedMillis;
+        this.rejected = rejected;
+    }
+
+    /**
+     * Gets the peer node or file the sessions were transferred to or from.
+     */
+    public String getTarget() {
+        return target;
+    }
+
+    public int getSessions() {
+        return sessions;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * Gets the IDs of sessions an import did not resume, because their flow
+     * version is not loaded on the importing node.
+     */
+    public List<String> getRejected() {
+        return rejected;
+    }
+
+    /**
+     * Gets the transfer throughput in sessions per second.
+     */
+    public long getSessionsPerSecond() {
+        return elapsedMillis == 0 ? sessions * 1000L : sessions * 1000L / elapsedMillis;
+    }
+}
@@ -0,0 +1,162 @@
+package com.bank.ivr.session;
+
+import com.bank.ivr.cluster.ClusterMembership;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+/**
+ * Generates session IDs that are cheap to mint under a login burst, yet
+ * unguessable, and that say which node created them.
+ *
+ * <p>An ID is 18 bytes rendered as 24 URL-safe base64 characters (a UUID takes
+ * 36): a 16-bit tag of the creating node, the low 16 bits of the cluster
+ * membership epoch at creation, and 112 random bits.
+ *
+ * <p>{@code UUID.randomUUID()} draws from one shared {@code SecureRandom},
+ * which serializes callers. Here each thread has its own instance and takes
+ * random bytes from a thread-local buffer that is refilled in bulk, so
+ * generating an ID touches no shared state.
+ */
+@Component
+public class SessionIdGenerator {
+
+    /**
+     * Length of a generated session ID in characters.
+     */
+    public static final int ID_LENGTH = 24;
+
+    private static final int RANDOM_BYTES = 14;
+    private static final int BUFFER_IDS = 64;
+
+    private static final char[] ALPHABET =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".toCharArray();
+    private static final int[] DECODE = new int[128];
+
+    static {
+        Arrays.fill(DECODE, -1);
+        for (int i = 0; i < ALPHABET.length; i++) {
+            DECODE[ALPHABET[i]] = i;
+        }
+    }
+
+    // Shared, but only used once per thread to seed that thread's generator
+    private static final SecureRandom SEED_SOURCE = new SecureRandom();
+    private static final ThreadLocal<RandomBuffer> RANDOM = ThreadLocal.withInitial(RandomBuffer::new);
+
+    private final ClusterMembership membership;
+    private final int nodeTag;
+
+    @Autowired
+    public SessionIdGenerator(ClusterMembership membership) {
+        this.membership = membership;
+        this.nodeTag = membership.getLocalNode().getTag();
+    }
+
+    /**
+     * Generates a new session ID for this node.
+     */
+    public String generate() {
+        byte[] id = new byte[RANDOM_BYTES + 4];
+        int epoch = (int) membership.getEpoch();
+        id[0] = (byte) (nodeTag >>> 8);
+        id[1] = (byte) nodeTag;
+        id[2] = (byte) (epoch >>> 8);
+        id[3] = (byte) epoch;
+        RANDOM.get().next(id, 4);
+        return encode(id);
+    }
+
+    /**
+     * Extracts the creating node's tag from a session ID.
+     *
+     * @return The tag, or -1 if the ID was not made by this generator
+     */
+    public static int nodeTagOf(String sessionId) {
+        int header = decodeHeader(sessionId);
+        return header < 0 ? -1 : header >>> 16;
+    }
+
+    /**
+     * Extracts the low 16 bits of the membership epoch at creation from a session ID.
+     *
+     * @return The epoch bits, or -1 if the ID was not made by this generator
+     */
+    public static int epochOf(String sessionId) {
+        int header = decodeHeader(sessionId);
+        return header < 0 ? -1 : header & 0xFFFF;
+    }
+
+    /**
+     * Decodes the first four bytes (node tag and epoch) from the first six characters.
+     */
+    private static int decodeHeader(String sessionId) {
+        if (sessionId == null || sessionId.length() != ID_LENGTH) {
+            return -1;
+        }
+        long bits = 0;
+        for (int i = 0; i < 6; i++) {
+            char c = sessionId.charAt(i);
+            int v = c < 128 ? DECODE[c] : -1;
+            if (v < 0) {
+                return -1;
+            }
+            bits = (bits << 6) | v;
+        }
+        // Six characters carry 36 bits; the header is the top 32
+        return (int) (bits >>> 4);
+    }
+
+    private static String encode(byte[] bytes) {
+        char[] out = new char[ID_LENGTH];
+        for (int i = 0, o = 0; i < bytes.length; i += 3) {
+            int b = (bytes[i] & 0xFF) << 16 | (bytes[i + 1] & 0xFF) << 8 | (bytes[i + 2] & 0xFF);
+            out[o++] = ALPHABET[b >>> 18];
+            out[o++] = ALPHABET[(b >>> 12) & 0x3F];
+            out[o++] = ALPHABET[(b >>> 6) & 0x3F];
+            out[o++] = ALPHABET[b & 0x3F];
+        }
+        return new String(out);
+    }
+
+    /**
+     * Per-thread source of random bytes, refilled from the thread's own
+     * {@link SecureRandom} a batch at a time.
+     */
+    private static final class RandomBuffer {
+
+        private final SecureRandom random;
+        private final byte[] buffer = new byte[RANDOM_BYTES * BUFFER_IDS];
+        private int position = buffer.length;
+
+        private RandomBuffer() {
+            SecureRandom instance;
+            try {
+                // SHA1PRNG keeps its state per instance; the platform default
+                // (NativePRNG) funnels every instance through one lock
+                instance = SecureRandom.getInstance("SHA1PRNG");
+            } catch (NoSuchAlgorithmException e) {
+                instance = new SecureRandom();
+            }
+            // Seeding before first use replaces SHA1PRNG's self-seeding, which can block
+            byte[] seed = new byte[32];
+            SEED_SOURCE.nextBytes(seed);
+            instance.setSeed(seed);
+            this.random = instance;
+        }
+
+        private void next(byte[] target, int offset) {
+            if (position == buffer.length) {
+                random.nextBytes(buffer);
+                position = 0;
+            }
+            System.arraycopy(buffer, position, target, offset, RANDOM_BYTES);
+            // Do not leave used random bytes lying around in the buffer
+            Arrays.fill(buffer, position, position + RANDOM_BYTES, (byte) 0);
+            position += RANDOM_BYTES;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.bank.ivr.session;
+
+import com.bank.ivr.model.IvrState;
+
+import java.util.List;
+
+/**
+ * One page of the sessions in a state.
+ */
+public class SessionPage {
+
+    private final IvrState state;
+    private final int total;
+    private final List<String> sessionIds;
+    private final String nextCursor;
+
+    public SessionPage(IvrState state, int total, List<String> sessionIds, String nextCursor) {
+        this.state = state;
+        this.total = total;
+        this.sessionIds = sessionIds;
+        this.nextCursor = nextCursor;
+    }
+
+    public IvrState getState() {
+        return state;
+    }
+
+    /**
+     * Gets the number of sessions in the state, across all pages.
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    public List<String> getSessionIds() {
+        return sessionIds;
+    }
+
+    /**
+     * Gets the cursor for the next page, or null if this is the last.
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -0,0 +1,153 @@
+package com.bank.ivr.session;
+
+import com.bank.ivr.model.IvrEvent;
+import com.bank.ivr.model.IvrState;
+import org.springframework.statemachine.listener.StateMachineListener;
+import org.springframework.statemachine.listener.StateMachineListenerAdapter;
+import org.springframework.statemachine.state.State;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * The live sessions held by this node, keyed by session ID.
+ *
+ * <p>Sessions are also indexed by current state, in a sorted set of IDs per
+ * state with a separate count, so counting the sessions in a state is O(1)
+ * and listing them is O(page size) rather than a scan of every session. The
+ * index is kept up to date by a listener on each session's state machine
+ * (see {@link #newIndexListener(String)}) and, like the map, is weakly
+ * consistent: a session may briefly show under its previous state while
+ * it transitions.
+ */
+@Component
+public class SessionRegistry {
+
+    private static final IvrState[] STATES = IvrState.values();
+
+    private final Map<String, IvrSession> sessions = new ConcurrentHashMap<>();
+    private final List<NavigableSet<String>> byState = new ArrayList<>(STATES.length);
+    private final AtomicIntegerArray stateCounts = new AtomicIntegerArray(STATES.length);
+
+    public SessionRegistry() {
+        for (int i = 0; i < STATES.length; i++) {
+            byState.add(new ConcurrentSkipListSet<>());
+        }
+    }
+
+    public IvrSession get(String sessionId) {
+        return sessions.get(sessionId);
+    }
+
+    public boolean contains(String sessionId) {
+        return sessions.containsKey(sessionId);
+    }
+
+    public void register(IvrSession session) {
+        IvrSession previous = sessions.put(session.getSessionId(), session);
+        if (previous != null) {
+            unindex(previous.getSessionId());
+        }
+        IvrState state = session.getState();
+        if (state != null) {
+            index(session.getSessionId(), state);
+        }
+    }
+
+    /**
+     * Removes the session, but only if it is still the instance given.
+     */
+    public boolean remove(IvrSession session) {
+        boolean removed = sessions.remove(session.getSessionId(), session);
+        if (removed) {
+            unindex(session.getSessionId());
+        }
+        return removed;
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * Gets a weakly consistent view of all live sessions.
+     */
+    public Collection<IvrSession> getSessions() {
+        return sessions.values();
+    }
+
+    /**
+     * Counts the live sessions in a state.
+     */
+    public int countInState(IvrState state) {
+        return stateCounts.get(state.ordinal());
+    }
+
+    /**
+     * Lists the IDs of sessions in a state, in ID order.
+     *
+     * @param state The state
+     * @param after Only return IDs after this one, or null to start at the first
+     * @param limit Maximum number of IDs returned
+     */
+    public List<String> findInState(IvrState state, String after, int limit) {
+        NavigableSet<String> ids = byState.get(state.ordinal());
+        Collection<String> page = after == null ? ids : ids.tailSet(after, false);
+        List<String> result = new ArrayList<>(Math.min(limit, 64));
+        for (String id : page) {
+            if (result.size() >= limit) {
+                break;
+            }
+            result.add(id);
+        }
+        return result;
+    }
+
+    /**
+     * Creates a listener moving a session between states in the index as its
+     * state machine transitions. Each machine needs its own.
+     */
+    public StateMachineListener<IvrState, IvrEvent> newIndexListener(String sessionId) {
+        return new StateMachineListenerAdapter<IvrState, IvrEvent>() {
+            @Override
+            public void stateChanged(State<IvrState, IvrEvent> from, State<IvrState, IvrEvent> to) {
+                if (from != null) {
+                    remove(from.getId(), sessionId);
+                }
+                if (to != null && sessions.containsKey(sessionId)) {
+                    index(sessionId, to.getId());
+                    // Undo if the session was removed while it was being indexed
+                    if (!sessions.containsKey(sessionId)) {
+                        remove(to.getId(), sessionId);
+                    }
+                }
+            }
+        };
+    }
+
+    private void index(String sessionId, IvrState state) {
+        if (byState.get(state.ordinal()).add(sessionId)) {
+            stateCounts.incrementAndGet(state.ordinal());
+        }
+    }
+
+    private void remove(IvrState state, String sessionId) {
+        if (byState.get(state.ordinal()).remove(sessionId)) {
+            stateCounts.decrementAndGet(state.ordinal());
+        }
+    }
+
+    private void unindex(String sessionId) {
+        // A session is in at most one set, but checking all of them is cheap and survives races
+        for (IvrState state : STATES) {
+            remove(state, sessionId);
+        }
+    }
+}
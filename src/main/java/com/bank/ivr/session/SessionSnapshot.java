@@ -0,0 +1,59 @@
+package com.bank.ivr.session;
+
+import com.bank.ivr.model.IvrState;
+import com.bank.ivr.model.SessionContext;
+
+import java.util.Map;
+
+/**
+ * Point-in-time copy of a session, as transferred between nodes.
+ */
+public class SessionSnapshot {
+
+    private final String sessionId;
+    private final IvrState state;
+    private final long createdAtMillis;
+    private final String flowVersion;
+    private final SessionContext context;
+    private final Map<String, Object> variables;
+
+    public SessionSnapshot(String sessionId, IvrState state, long createdAtMillis, String flowVersion,
+                           SessionContext context, Map<String, Object> variables) {
+        this.sessionId = sessionId;
+        this.state = state;
+        this.createdAtMillis = createdAtMillis;
+        this.flowVersion = flowVersion;
+        this.context = context;
+        this.variables = variables;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public IvrState getState() {
+        return state;
+    }
+
+    public long getCreatedAtMillis() {
+        return createdAtMillis;
+    }
+
+    /**
+     * Gets the version of the call flow the session runs on, or null if unknown.
+     */
+    public String getFlowVersion() {
+        return flowVersion;
+    }
+
+    public SessionContext getContext() {
+        return context;
+    }
+
+    /**
+     * Gets the state machine's extended-state variables.
+     */
+    public Map<String, Object> getVariables() {
+        return variables;
+    }
+}
@@ -0,0 +1,250 @@
+package com.bank.ivr.session;
+
+import com.bank.ivr.model.AuthMethod;
+import com.bank.ivr.model.IvrState;
+import com.bank.ivr.model.SessionContext;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Binary stream format for session snapshots.
+ *
+ * <p>A stream is a header (magic, version and the table of state names used to
+ * decode state indexes, so that nodes on different builds agree on states)
+ * followed by one record per session and an end marker. Records are written and
+ * read one at a time, so a transfer never needs the whole snapshot in memory.
+ *
+ * <p>The {@link SessionContext} is written field by field. The only sensitive
+ * value in it is a card number still awaiting its PIN, which the receiving node
+ * needs to resume the call.
+ */
+public final class SessionSnapshotCodec {
+
+    private static final Logger logger = LogManager.getLogger(SessionSnapshotCodec.class);
+
+    private static final int MAGIC = 0x49565253; // "IVRS"
+    private static final short VERSION = 5;
+    // Streams from nodes that predate transfers
+    private static final short VERSION_WITHOUT_TRANSFER = 4;
+    // Streams from nodes that predate history paging; their callers resume at the newest transactions
+    private static final short VERSION_WITHOUT_HISTORY = 3;
+    // Streams from nodes that predate flow versions; their sessions resume on the active flow
+    private static final short VERSION_WITHOUT_FLOW = 2;
+
+    private static final byte RECORD = 1;
+    private static final byte END = 0;
+
+    private static final byte TYPE_NULL = 0;
+    private static final byte TYPE_STRING = 1;
+    private static final byte TYPE_INT = 2;
+    private static final byte TYPE_LONG = 3;
+    private static final byte TYPE_BOOLEAN = 4;
+
+    private static final byte NO_AUTH_METHOD = -1;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private SessionSnapshotCodec() {
+    }
+
+    /**
+     * Starts a snapshot stream on the given output.
+     */
+    public static Writer newWriter(OutputStream out) throws IOException {
+        return new Writer(out);
+    }
+
+    /**
+     * Reads a snapshot stream, handing each session to the consumer as it is decoded.
+     *
+     * @return The number of sessions read
+     */
+    public static int read(InputStream in, Consumer<SessionSnapshot> consumer) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in, BUFFER_SIZE));
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a session snapshot stream");
+        }
+        short version = data.readShort();
+        if (version < VERSION_WITHOUT_FLOW || version > VERSION) {
+            throw new IOException("Unsupported session snapshot version: " + version);
+        }
+
+        int stateCount = data.readUnsignedShort();
+        IvrState[] states = new IvrState[stateCount];
+        for (int i = 0; i < stateCount; i++) {
+            states[i] = IvrState.valueOf(data.readUTF());
+        }
+
+        int count = 0;
+        while (data.readByte() == RECORD) {
+            String sessionId = data.readUTF();
+            IvrState state = states[data.readUnsignedShort()];
+            long createdAtMillis = data.readLong();
+            String flowVersion = version > VERSION_WITHOUT_FLOW ? readNullableUtf(data) : null;
+            SessionContext context = readContext(data, version);
+            int variableCount = data.readUnsignedShort();
+            Map<String, Object> variables = new HashMap<>(variableCount * 2);
+            for (int i = 0; i < variableCount; i++) {
+                String key = data.readUTF();
+                variables.put(key, readValue(data));
+            }
+            consumer.accept(new SessionSnapshot(sessionId, state, createdAtMillis, flowVersion, context, variables));
+            count++;
+        }
+        return count;
+    }
+
+    private static Object readValue(DataInputStream data) throws IOException {
+        byte type = data.readByte();
+        switch (type) {
+            case TYPE_NULL:
+                return null;
+            case TYPE_STRING:
+                return data.readUTF();
+            case TYPE_INT:
+                return data.readInt();
+            case TYPE_LONG:
+                return data.readLong();
+            case TYPE_BOOLEAN:
+                return data.readBoolean();
+            default:
+                throw new IOException("Unknown variable type in session snapshot: " + type);
+        }
+    }
+
+    private static SessionContext readContext(DataInputStream data, short version) throws IOException {
+        SessionContext context = new SessionContext();
+        byte authMethod = data.readByte();
+        context.setAuthMethod(authMethod == NO_AUTH_METHOD ? null : AuthMethod.values()[authMethod]);
+        context.setAuthenticated(data.readBoolean());
+        context.setCustomerId(readNullableUtf(data));
+        String cardNumber = readNullableUtf(data);
+        context.setCardNumber(cardNumber == null ? null : cardNumber.toCharArray());
+        context.setSsnAttempts(data.readUnsignedShort());
+        context.setPinAttempts(data.readUnsignedShort());
+        context.setLastInputMillis(data.readLong());
+        if (version > VERSION_WITHOUT_HISTORY) {
+            context.setHistoryCursor(readNullableUtf(data));
+        }
+        if (version > VERSION_WITHOUT_TRANSFER) {
+            context.setTransferTo(readNullableUtf(data));
+            context.setTransferCount(data.readInt());
+        }
+        return context;
+    }
+
+    private static String readNullableUtf(DataInputStream data) throws IOException {
+        return data.readBoolean() ? data.readUTF() : null;
+    }
+
+    /**
+     * Writes snapshot records to a stream. The header is written on creation;
+     * {@link #finish()} writes the end marker and flushes.
+     */
+    public static final class Writer {
+
+        private final DataOutputStream data;
+
+        private Writer(OutputStream out) throws IOException {
+            this.data = new DataOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+            IvrState[] states = IvrState.values();
+            data.writeInt(MAGIC);
+            data.writeShort(VERSION);
+            data.writeShort(states.length);
+            for (IvrState state : states) {
+                data.writeUTF(state.name());
+            }
+        }
+
+        public void write(SessionSnapshot snapshot) throws IOException {
+            data.writeByte(RECORD);
+            data.writeUTF(snapshot.getSessionId());
+            data.writeShort(snapshot.getState().ordinal());
+            data.writeLong(snapshot.getCreatedAtMillis());
+            writeNullableUtf(snapshot.getFlowVersion());
+            writeContext(snapshot.getContext());
+
+            Map<String, Object> variables = snapshot.getVariables();
+            int writable = 0;
+            for (Object value : variables.values()) {
+                if (isSupported(value)) {
+                    writable++;
+                }
+            }
+            data.writeShort(writable);
+            for (Map.Entry<String, Object> entry : variables.entrySet()) {
+                if (isSupported(entry.getValue())) {
+                    data.writeUTF(entry.getKey());
+                    writeValue(entry.getValue());
+                } else {
+                    logger.warn("Skipping variable {} of unsupported type {} in session {}",
+                            entry.getKey(), entry.getValue().getClass().getName(), snapshot.getSessionId());
+                }
+            }
+        }
+
+        public void finish() throws IOException {
+            data.writeByte(END);
+            data.flush();
+        }
+
+        private void writeValue(Object value) throws IOException {
+            if (value == null) {
+                data.writeByte(TYPE_NULL);
+            } else if (value instanceof String) {
+                data.writeByte(TYPE_STRING);
+                data.writeUTF((String) value);
+            } else if (value instanceof Integer) {
+                data.writeByte(TYPE_INT);
+                data.writeInt((Integer) value);
+            } else if (value instanceof Long) {
+                data.writeByte(TYPE_LONG);
+                data.writeLong((Long) value);
+            } else if (value instanceof Boolean) {
+                data.writeByte(TYPE_BOOLEAN);
+                data.writeBoolean((Boolean) value);
+            }
+        }
+
+        private void writeContext(SessionContext context) throws IOException {
+            AuthMethod authMethod = context.getAuthMethod();
+            data.writeByte(authMethod == null ? NO_AUTH_METHOD : authMethod.ordinal());
+            data.writeBoolean(context.isAuthenticated());
+            writeNullableUtf(context.getCustomerId());
+            char[] cardNumber = context.getCardNumber();
+            writeNullableUtf(cardNumber == null ? null : new String(cardNumber));
+            data.writeShort(context.getSsnAttempts());
+            data.writeShort(context.getPinAttempts());
+            data.writeLong(context.getLastInputMillis());
+            writeNullableUtf(context.getHistoryCursor());
+            writeNullableUtf(context.getTransferTo());
+            data.writeInt(context.getTransferCount());
+        }
+
+        private void writeNullableUtf(String value) throws IOException {
+            data.writeBoolean(value != null);
+            if (value != null) {
+                data.writeUTF(value);
+            }
+        }
+
+        private static boolean isSupported(Object value) {
+            return value == null
+                    || value instanceof String
+                    || value instanceof Integer
+                    || value instanceof Long
+                    || value instanceof Boolean;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.bank.ivr.session;
+
+/**
+ * Thrown when a request reaches a session that is being, or has been,
+ * transferred to another node.
+ */
+public class SessionTransferException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String sessionId;
+    private final boolean migrated;
+
+    public SessionTransferException(String sessionId, boolean migrated) {
+        super(migrated
+                ? "Session " + sessionId + " has moved to another node"
+                : "Session " + sessionId + " is being transferred");
+        this.sessionId = sessionId;
+        this.migrated = migrated;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    /**
+     * Gets whether the session now lives on another node (as opposed to the
+     * transfer still being in progress).
+     */
+    public boolean isMigrated() {
+        return migrated;
+    }
+}
@@ -0,0 +1,86 @@
+package com.bank.ivr.session;
+
+import javax.crypto.Cipher;
+import javax.crypto.CipherInputStream;
+import javax.crypto.CipherOutputStream;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Encrypts snapshot files with AES-GCM, since snapshots carry customer IDs
+ * and the card numbers of callers part way through logging in.
+ *
+ * <p>File layout: magic, a random 12-byte IV, then the encrypted snapshot
+ * stream with its 16-byte tag. Decryption releases nothing until the tag has
+ * been checked, so a file that was altered imports no sessions at all.
+ */
+public final class SnapshotFileCipher {
+
+    private static final int MAGIC = 0x49565245; // "IVRE"
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int IV_BYTES = 12;
+    private static final int TAG_BITS = 128;
+
+    private static final SecureRandom random = new SecureRandom();
+
+    private final SecretKeySpec key;
+
+    /**
+     * @param base64Key A 128, 192 or 256-bit AES key, Base64-encoded
+     * @throws IllegalArgumentException If the key is not such a key
+     */
+    public SnapshotFileCipher(String base64Key) {
+        byte[] bytes = Base64.getDecoder().decode(base64Key.trim());
+        if (bytes.length != 16 && bytes.length != 24 && bytes.length != 32) {
+            throw new IllegalArgumentException("Snapshot key must be 16, 24 or 32 bytes, not " + bytes.length);
+        }
+        this.key = new SecretKeySpec(bytes, "AES");
+    }
+
+    /**
+     * Wraps a file stream so that what is written to it is encrypted. The
+     * tag is written when the returned stream is closed.
+     */
+    public OutputStream encrypt(OutputStream file) throws IOException {
+        byte[] iv = new byte[IV_BYTES];
+        random.nextBytes(iv);
+        DataOutputStream header = new DataOutputStream(file);
+        header.writeInt(MAGIC);
+        header.write(iv);
+        return new CipherOutputStream(file, cipher(Cipher.ENCRYPT_MODE, iv));
+    }
+
+    /**
+     * Wraps a file stream written by {@link #encrypt(OutputStream)} so that it reads decrypted.
+     *
+     * @throws IOException If the file is not an encrypted snapshot, or was
+     *                     altered or encrypted with another key (on read)
+     */
+    public InputStream decrypt(InputStream file) throws IOException {
+        DataInputStream header = new DataInputStream(file);
+        if (header.readInt() != MAGIC) {
+            throw new IOException("Not an encrypted session snapshot file");
+        }
+        byte[] iv = new byte[IV_BYTES];
+        header.readFully(iv);
+        return new CipherInputStream(file, cipher(Cipher.DECRYPT_MODE, iv));
+    }
+
+    private Cipher cipher(int mode, byte[] iv) throws IOException {
+        try {
+            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+            cipher.init(mode, key, new GCMParameterSpec(TAG_BITS, iv));
+            return cipher;
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Cannot set up snapshot encryption", e);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.bank.ivr.session;
+
+import com.bank.ivr.flow.CompletedTransitionListener;
+import com.bank.ivr.model.IvrEvent;
+import com.bank.ivr.model.IvrState;
+import org.springframework.messaging.Message;
+import org.springframework.statemachine.StateMachine;
+import org.springframework.statemachine.listener.StateMachineListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The last few transitions of a session, kept for debugging a single call.
+ *
+ * <p>Each entry is packed into one {@code long} in a fixed-size ring:
+ * milliseconds since the trace started (40 bits), outcome (2 bits), event
+ * (6 bits), and source and target state (8 bits each). Recording claims a
+ * slot with an atomic increment and stores the packed value, so it neither
+ * locks nor allocates. Dumping decodes the ring on demand.
+ */
+public class TransitionTrace {
+
+    /**
+     * What happened to an event.
+     */
+    public enum Outcome {
+        TRANSITIONED,  // The event moved the machine from one state to another
+        REJECTED,      // The machine did not accept the event in its current state
+        ABANDONED      // An action gave up on the event because its deadline passed
+    }
+
+    private static final IvrState[] STATES = IvrState.values();
+    private static final IvrEvent[] EVENTS = IvrEvent.values();
+    private static final Outcome[] OUTCOMES = Outcome.values();
+
+    private static final int NONE = 0xFF;
+    private static final int NO_EVENT = 0x3F;
+    private static final long MAX_ELAPSED = (1L << 40) - 1;
+
+    private final long startMillis = System.currentTimeMillis();
+    private final AtomicLongArray entries;
+    private final int mask;
+    private final AtomicLong position = new AtomicLong();
+
+    /**
+     * @param capacity Number of entries kept, rounded up to a power of two
+     */
+    public TransitionTrace(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.entries = new AtomicLongArray(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Records an entry, overwriting the oldest once the ring is full.
+     */
+    public void record(IvrState from, IvrState to, IvrEvent event, Outcome outcome) {
+        long elapsed = Math.min(MAX_ELAPSED, Math.max(0, System.currentTimeMillis() - startMillis));
+        long packed = elapsed << 24
+                | (long) outcome.ordinal() << 22
+                | (long) (event == null ? NO_EVENT : event.ordinal()) << 16
+                | (long) (from == null ? NONE : from.ordinal()) << 8
+                | (to == null ? NONE : to.ordinal());
+        long slot = position.getAndIncrement();
+        entries.lazySet((int) (slot & mask), packed);
+    }
+
+    /**
+     * Decodes the recorded entries, oldest first. An entry being overwritten
+     * while the trace is dumped may show its newer value.
+     */
+    public List<Entry> dump() {
+        long end = position.get();
+        long begin = Math.max(0, end - entries.length());
+        List<Entry> result = new ArrayList<>((int) (end - begin));
+        for (long i = begin; i < end; i++) {
+            long packed = entries.get((int) (i & mask));
+            int event = (int) (packed >>> 16) & 0x3F;
+            int from = (int) (packed >>> 8) & 0xFF;
+            int to = (int) packed & 0xFF;
+            result.add(new Entry(
+                    startMillis + (packed >>> 24),
+                    event == NO_EVENT ? null : EVENTS[event],
+                    from == NONE ? null : STATES[from],
+                    to == NONE ? null : STATES[to],
+                    OUTCOMES[(int) (packed >>> 22) & 0x3]));
+        }
+        return result;
+    }
+
+    /**
+     * Creates a listener recording one state machine's transitions and rejected
+     * or abandoned events into this trace.
+     */
+    public StateMachineListener<IvrState, IvrEvent> newListener(StateMachine<IvrState, IvrEvent> machine) {
+        return new CompletedTransitionListener() {
+
+            @Override
+            protected void onTransitionCompleted(IvrState from, IvrState to, IvrEvent event) {
+                record(from, to, event, Outcome.TRANSITIONED);
+            }
+
+            @Override
+            public void eventNotAccepted(Message<IvrEvent> event) {
+                IvrState current = machine.getState() == null ? null : machine.getState().getId();
+                Outcome outcome = isAbandoned(event) ? Outcome.ABANDONED : Outcome.REJECTED;
+                record(current, null, event.getPayload(), outcome);
+            }
+        };
+    }
+
+    /**
+     * A decoded trace entry.
+     */
+    public static class Entry {
+
+        private final long timestampMillis;
+        private final IvrEvent event;
+        private final IvrState from;
+        private final IvrState to;
+        private final Outcome outcome;
+
+        Entry(long timestampMillis, IvrEvent event, IvrState from, IvrState to, Outcome outcome) {
+            this.timestampMillis = timestampMillis;
+            this.event = event;
+            this.from = from;
+            this.to = to;
+            this.outcome = outcome;
+        }
+
+        public long getTimestampMillis() {
+            return timestampMillis;
+        }
+
+        public IvrEvent getEvent() {
+            return event;
+        }
+
+        public IvrState getFrom() {
+            return from;
+        }
+
+        public IvrState getTo() {
+            return to;
+        }
+
+        public Outcome getOutcome() {
+            return outcome;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.bank.ivr.transfer;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Balances in cents of the accounts transfers have touched, spread over
+ * shards by customer ID.
+ *
+ * <p>Each shard has its own lock. A transfer locks the shards of its two
+ * accounts, always the lower-numbered shard first so that two transfers can
+ * never wait on each other, and only those: transfers between other shards
+ * run in parallel. Balances are read without locking.
+ */
+final class Ledger {
+
+    /**
+     * Returned by {@link #transfer} when the source balance does not cover the amount.
+     */
+    static final long INSUFFICIENT_FUNDS = Long.MIN_VALUE;
+
+    private final Shard[] shards;
+    private final int mask;
+    private final LongAdder contended = new LongAdder();
+
+    /**
+     * @param shardCount Number of shards, rounded up to a power of two
+     */
+    Ledger(int shardCount) {
+        int count = shardCount <= 1 ? 1 : Integer.highestOneBit(shardCount - 1) << 1;
+        this.shards = new Shard[count];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new Shard();
+        }
+        this.mask = shards.length - 1;
+    }
+
+    /**
+     * Gets an account's balance, or null if it has not been opened.
+     */
+    Long balance(String customerId) {
+        Account account = shardOf(customerId).accounts.get(customerId);
+        return account == null ? null : account.cents;
+    }
+
+    /**
+     * Opens an account at the given balance unless it is already open.
+     *
+     * @param onOpened Run under the shard lock once the account is opened, or null
+     * @return Whether this call opened the account
+     */
+    boolean open(String customerId, long cents, Runnable onOpened) {
+        Shard shard = shardOf(customerId);
+        lock(shard);
+        try {
+            if (shard.accounts.containsKey(customerId)) {
+                return false;
+            }
+            shard.accounts.put(customerId, new Account(cents));
+            if (onOpened != null) {
+                onOpened.run();
+            }
+            return true;
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    /**
+     * Moves an amount between two open accounts as one step.
+     *
+     * @param checkFunds Whether to refuse a transfer the source balance does not cover
+     * @param onApplied Run under the locks once the balances have changed, or null
+     * @return The source account's new balance, or {@link #INSUFFICIENT_FUNDS}
+     * @throws IllegalStateException If either account is not open
+     */
+    long transfer(String from, String to, long cents, boolean checkFunds, Runnable onApplied) {
+        int fromIndex = indexOf(from);
+        int toIndex = indexOf(to);
+        Shard first = shards[Math.min(fromIndex, toIndex)];
+        Shard second = shards[Math.max(fromIndex, toIndex)];
+        lock(first);
+        try {
+            if (second != first) {
+                lock(second);
+            }
+            try {
+                Account source = shards[fromIndex].accounts.get(from);
+                Account target = shards[toIndex].accounts.get(to);
+                if (source == null || target == null) {
+                    throw new IllegalStateException("Transfer between accounts that are not open");
+                }
+                if (checkFunds && source.cents < cents) {
+                    return INSUFFICIENT_FUNDS;
+                }
+                source.cents -= cents;
+                target.cents += cents;
+                if (onApplied != null) {
+                    onApplied.run();
+                }
+                return source.cents;
+            } finally {
+                if (second != first) {
+                    second.lock.unlock();
+                }
+            }
+        } finally {
+            first.lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of open accounts.
+     */
+    int size() {
+        int size = 0;
+        for (Shard shard : shards) {
+            size += shard.accounts.size();
+        }
+        return size;
+    }
+
+    /**
+     * Gets the number of times a shard lock was found held and had to be waited for.
+     */
+    long contended() {
+        return contended.sum();
+    }
+
+    private void lock(Shard shard) {
+        if (!shard.lock.tryLock()) {
+            contended.increment();
+            shard.lock.lock();
+        }
+    }
+
+    private Shard shardOf(String customerId) {
+        return shards[indexOf(customerId)];
+    }
+
+    private int indexOf(String customerId) {
+        int h = customerId.hashCode();
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private static final class Shard {
+
+        final ReentrantLock lock = new ReentrantLock();
+        final ConcurrentHashMap<String, Account> accounts = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * One balance; written under its shard's lock.
+     */
+    private static final class Account {
+
+        volatile long cents;
+
+        Account(long cents) {
+            this.cents = cents;
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package com.bank.ivr.transfer;
+
+import com.bank.ivr.account.AccountBackend;
+import com.bank.ivr.config.TransferProperties;
+import com.bank.ivr.model.AccountBalance;
+import com.bank.ivr.model.TransferResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Moves funds between customers' accounts.
+ *
+ * <p>Balances are held in a sharded in-memory {@link Ledger}. An account is
+ * opened in the ledger at its backend balance the first time a transfer
+ * touches it, and from then on the ledger is its balance. Every change is
+ * queued to the {@link TransferJournal} while its shard locks are held, so
+ * the journal has changes to the same account in the order they were made;
+ * the caller is answered once the journal has synced the change. On start
+ * the journal is replayed to rebuild the ledger.
+ *
+ * <p>Requests are idempotent: the outcome of each is remembered under its
+ * session and request ID, and a repeated request gets the same outcome
+ * without moving funds again, waiting if the first is still running. Only
+ * completed transfers are journaled, so after a restart a refused request
+ * may be tried afresh.
+ *
+ * <p>A transfer whose record failed to be journaled is undone in the ledger
+ * only if the journal has confirmed the record is not in the file. If that
+ * is not known, the transfer stays applied and its caller is told the
+ * outcome is unknown; recovery decides on restart.
+ */
+public class TransferEngine implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(TransferEngine.class);
+
+    private static final byte RECORD_OPEN = 1;
+    private static final byte RECORD_TRANSFER = 2;
+
+    private final AccountBackend backend;
+    private final Ledger ledger;
+    private final TransferJournal journal;
+    private final int maxOutcomes;
+
+    private final ConcurrentHashMap<String, CompletableFuture<TransferResult>> outcomes = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<String> outcomeOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger outcomeCount = new AtomicInteger();
+
+    private final Map<TransferResult.Status, Counter> requests = new EnumMap<>(TransferResult.Status.class);
+    private final Counter failures;
+    private final Counter duplicates;
+    private final Timer latency;
+
+    /**
+     * Replays the journal and opens it for new transfers.
+     *
+     * @throws IOException If the journal cannot be read or opened
+     */
+    public TransferEngine(AccountBackend backend, TransferProperties properties,
+                          MeterRegistry meterRegistry) throws IOException {
+        this(backend, properties, meterRegistry, TransferJournal.FileOpener.DEFAULT);
+    }
+
+    TransferEngine(AccountBackend backend, TransferProperties properties, MeterRegistry meterRegistry,
+                   TransferJournal.FileOpener opener) throws IOException {
+        this.backend = backend;
+        this.ledger = new Ledger(properties.getShards());
+        this.maxOutcomes = Math.max(1, properties.getIdempotencyMaxEntries());
+
+        Path file = Paths.get(properties.getJournalFile());
+        long start = System.nanoTime();
+        int[] recovered = new int[1];
+        long validBytes = TransferJournal.recover(file, record -> {
+            replay(record);
+            recovered[0]++;
+        });
+        if (recovered[0] > 0) {
+            logger.info("Recovered {} accounts from {} journal records in {} ms", ledger.size(), recovered[0],
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+        this.journal = new TransferJournal(file, validBytes, properties.isFsync(),
+                properties.getMaxBatchRecords(), meterRegistry, opener);
+
+        for (TransferResult.Status status : TransferResult.Status.values()) {
+            requests.put(status, Counter.builder("ivr.transfer.requests")
+                    .description("Transfer requests by outcome")
+                    .tag("outcome", status.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+        this.failures = Counter.builder("ivr.transfer.requests")
+                .description("Transfer requests by outcome")
+                .tag("outcome", "failed")
+                .register(meterRegistry);
+        this.duplicates = Counter.builder("ivr.transfer.duplicates")
+                .description("Repeated requests answered with the outcome of the first")
+                .register(meterRegistry);
+        this.latency = Timer.builder("ivr.transfer.latency")
+                .description("Time to run a transfer, including the journal sync")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("ivr.transfer.accounts", ledger, Ledger::size)
+                .description("Accounts held in the ledger")
+                .register(meterRegistry);
+        FunctionCounter.builder("ivr.transfer.ledger.contended", ledger, Ledger::contended)
+                .description("Transfers that waited for a ledger shard lock")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Moves an amount from one customer's account to another's, once per
+     * session and request ID.
+     *
+     * @param amount The amount in dollars, with at most two decimal places
+     * @throws com.bank.ivr.account.AccountUnavailableException If an account has to be opened and the backend cannot answer
+     * @throws TransferUnavailableException If the transfer cannot be journaled; whether it was made
+     *                                      is known once the journal is recovered
+     */
+    public TransferResult transfer(String sessionId, String requestId, String fromCustomerId,
+                                   String toCustomerId, BigDecimal amount) {
+        String key = sessionId + '/' + requestId;
+        CompletableFuture<TransferResult> mine = new CompletableFuture<>();
+        CompletableFuture<TransferResult> earlier = outcomes.putIfAbsent(key, mine);
+        if (earlier != null) {
+            duplicates.increment();
+            return await(earlier);
+        }
+        remember(key);
+        long start = System.nanoTime();
+        try {
+            TransferResult result = execute(key, fromCustomerId, toCustomerId, amount);
+            requests.get(result.getStatus()).increment();
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            // Forget the request so that a retry runs it again
+            outcomes.remove(key, mine);
+            failures.increment();
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Gets a customer's balance if transfers have touched their account, else null.
+     */
+    public AccountBalance getBalance(String customerId) {
+        Long cents = ledger.balance(customerId);
+        return cents == null ? null : new AccountBalance(customerId, BigDecimal.valueOf(cents, 2));
+    }
+
+    /**
+     * Writes the queued journal records and closes the journal.
+     */
+    @Override
+    public void close() {
+        journal.close();
+    }
+
+    private TransferResult execute(String key, String from, String to, BigDecimal amount) {
+        if (amount == null) {
+            return new TransferResult(TransferResult.Status.INVALID_AMOUNT, to, null, null);
+        }
+        long cents;
+        try {
+            BigDecimal inCents = amount.movePointRight(2);
+            if (amount.signum() <= 0 || inCents.stripTrailingZeros().scale() > 0) {
+                return new TransferResult(TransferResult.Status.INVALID_AMOUNT, to, amount, null);
+            }
+            cents = inCents.longValueExact();
+        } catch (ArithmeticException e) {
+            return new TransferResult(TransferResult.Status.INVALID_AMOUNT, to, amount, null);
+        }
+        if (from == null || to == null || from.equals(to) || !open(from) || !open(to)) {
+            return new TransferResult(TransferResult.Status.INVALID_ACCOUNT, to, amount, null);
+        }
+
+        byte[] record = encodeTransfer(key, from, to, cents);
+        AtomicReference<CompletableFuture<Void>> durable = new AtomicReference<>();
+        long balance = ledger.transfer(from, to, cents, true, () -> durable.set(journal.append(record)));
+        if (balance == Ledger.INSUFFICIENT_FUNDS) {
+            return new TransferResult(TransferResult.Status.INSUFFICIENT_FUNDS, to, amount, null);
+        }
+        try {
+            durable.get().get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof TransferJournal.OutcomeUnknownException) {
+                // The record may be in the file, so the change stays until recovery decides
+                throw new TransferUnavailableException("Transfer outcome unknown until the journal is recovered",
+                        e.getCause());
+            }
+            ledger.transfer(to, from, cents, false, null);
+            throw new TransferUnavailableException("Transfer could not be journaled", e.getCause());
+        } catch (InterruptedException e) {
+            // The record may still be written; the journal decides on restart
+            Thread.currentThread().interrupt();
+            throw new TransferUnavailableException("Interrupted waiting for the transfer journal", e);
+        }
+        return new TransferResult(TransferResult.Status.COMPLETED, to, amount, BigDecimal.valueOf(balance, 2));
+    }
+
+    /**
+     * Opens an account at its backend balance unless the ledger already holds it.
+     *
+     * @return False if the backend has no such account
+     */
+    private boolean open(String customerId) {
+        if (ledger.balance(customerId) != null) {
+            return true;
+        }
+        AccountBalance opening = backend.fetchBalance(customerId);
+        if (opening == null) {
+            return false;
+        }
+        long cents = opening.getAvailable().movePointRight(2).setScale(0, RoundingMode.DOWN).longValueExact();
+        byte[] record = encodeOpen(customerId, cents);
+        // Ordered ahead of the account's first transfer, whose sync makes it durable too
+        ledger.open(customerId, cents, () -> journal.append(record));
+        return true;
+    }
+
+    private void replay(byte[] record) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(record))) {
+            byte type = in.readByte();
+            if (type == RECORD_OPEN) {
+                ledger.open(in.readUTF(), in.readLong(), null);
+            } else if (type == RECORD_TRANSFER) {
+                String key = in.readUTF();
+                String from = in.readUTF();
+                String to = in.readUTF();
+                long cents = in.readLong();
+                long balance = ledger.transfer(from, to, cents, false, null);
+                if (outcomes.putIfAbsent(key, CompletableFuture.completedFuture(new TransferResult(
+                        TransferResult.Status.COMPLETED, to, BigDecimal.valueOf(cents, 2),
+                        BigDecimal.valueOf(balance, 2)))) == null) {
+                    remember(key);
+                }
+            } else {
+                throw new IOException("Unknown transfer journal record type " + type);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Tracks a remembered outcome, forgetting the oldest beyond the limit.
+     */
+    private void remember(String key) {
+        outcomeOrder.add(key);
+        if (outcomeCount.incrementAndGet() > maxOutcomes) {
+            String oldest = outcomeOrder.poll();
+            if (oldest != null) {
+                outcomes.remove(oldest);
+                outcomeCount.decrementAndGet();
+            }
+        }
+    }
+
+    private static byte[] encodeOpen(String customerId, long cents) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(RECORD_OPEN);
+            out.writeUTF(customerId);
+            out.writeLong(cents);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] encodeTransfer(String key, String from, String to, long cents) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(96);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(RECORD_TRANSFER);
+            out.writeUTF(key);
+            out.writeUTF(from);
+            out.writeUTF(to);
+            out.writeLong(cents);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static TransferResult await(CompletableFuture<TransferResult> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new TransferUnavailableException("Transfer failed", cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TransferUnavailableException("Interrupted waiting for a repeated transfer", e);
+        }
+    }
+}
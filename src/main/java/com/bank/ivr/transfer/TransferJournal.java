@@ -0,0 +1,330 @@
+package com.bank.ivr.transfer;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead log of ledger changes with group commit.
+ *
+ * <p>The file is a header (magic number and format version) followed by one
+ * record per change: its length, the CRC-32 of its bytes, then the bytes.
+ * Appending only queues a record; a single writer thread takes every record
+ * queued while the previous write was being forced to disk, writes them with
+ * one call and forces them with one more. Each caller waits until its record
+ * is durable, so under load one sync covers many transfers.
+ *
+ * <p>A record cut short by a crash is detected on recovery and truncated
+ * away. When a write or sync fails, the file is cut back to where the batch
+ * began, so that recovery cannot replay changes whose callers were told they
+ * failed. If even that fails, the batch's callers are told its outcome is
+ * unknown ({@link OutcomeUnknownException}) rather than that it failed.
+ * After any failure every later append fails too; the node must be
+ * restarted to recover from the file.
+ */
+final class TransferJournal implements AutoCloseable {
+
+    static final int MAGIC = 0x49565254;  // "IVRT"
+    static final short VERSION = 1;
+
+    private static final Logger logger = LogManager.getLogger(TransferJournal.class);
+
+    private static final int HEADER_BYTES = 6;
+    private static final int RECORD_HEADER_BYTES = 8;
+    private static final int MAX_RECORD_BYTES = 64 * 1024;
+
+    private final FileChannel channel;
+    private final boolean fsync;
+    private final int maxBatchRecords;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private final CRC32 crc = new CRC32();
+    private final DistributionSummary batchSizes;
+    private final Timer syncTimer;
+
+    private volatile boolean closed;
+    private volatile IOException failure;
+
+    /**
+     * Opens the journal's file for writing. Tests substitute one that fails.
+     */
+    interface FileOpener {
+
+        FileOpener DEFAULT = file -> FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+
+        FileChannel open(Path file) throws IOException;
+    }
+
+    /**
+     * Opens the journal for appending after {@link #recover} has read it.
+     *
+     * @param file The journal file, created with its directory if missing
+     * @param validBytes Length of the file that recovery found intact; anything after it is cut off
+     * @param fsync Whether each write is forced to disk before its callers are answered
+     * @param maxBatchRecords Most records written and synced together
+     */
+    TransferJournal(Path file, long validBytes, boolean fsync, int maxBatchRecords,
+                    MeterRegistry meterRegistry, FileOpener opener) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        this.channel = opener.open(file);
+        this.fsync = fsync;
+        this.maxBatchRecords = Math.max(1, maxBatchRecords);
+        if (validBytes < HEADER_BYTES) {
+            channel.truncate(0);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putShort(VERSION);
+            header.flip();
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            channel.force(true);
+        } else if (channel.size() > validBytes) {
+            logger.warn("Truncating {} bytes of incomplete records from transfer journal {}",
+                    channel.size() - validBytes, file);
+            channel.truncate(validBytes);
+            channel.force(true);
+        }
+        channel.position(channel.size());
+
+        this.batchSizes = DistributionSummary.builder("ivr.transfer.journal.batch")
+                .description("Records written and synced together")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.syncTimer = Timer.builder("ivr.transfer.journal.sync")
+                .description("Time taken to write and sync one batch")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+
+        this.writer = new Thread(this::run, "ivr-transfer-journal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Reads the intact records of a journal file in order.
+     *
+     * @return Length of the file up to the end of the last intact record, or 0 if there is no file
+     * @throws IOException If the file is not a transfer journal or cannot be read
+     */
+    static long recover(Path file, Consumer<byte[]> consumer) throws IOException {
+        if (!Files.exists(file) || Files.size(file) < HEADER_BYTES) {
+            return 0;
+        }
+        try (InputStream in = Files.newInputStream(file)) {
+            DataInputStream data = new DataInputStream(new BufferedInputStream(in, 64 * 1024));
+            if (data.readInt() != MAGIC) {
+                throw new IOException("Not a transfer journal: " + file);
+            }
+            short version = data.readShort();
+            if (version != VERSION) {
+                throw new IOException("Unsupported transfer journal version " + version + ": " + file);
+            }
+            long valid = HEADER_BYTES;
+            CRC32 crc = new CRC32();
+            while (true) {
+                byte[] record;
+                try {
+                    int length = data.readInt();
+                    int checksum = data.readInt();
+                    if (length <= 0 || length > MAX_RECORD_BYTES) {
+                        break;
+                    }
+                    record = new byte[length];
+                    data.readFully(record);
+                    crc.reset();
+                    crc.update(record, 0, length);
+                    if ((int) crc.getValue() != checksum) {
+                        break;
+                    }
+                } catch (EOFException e) {
+                    break;
+                }
+                consumer.accept(record);
+                valid += RECORD_HEADER_BYTES + record.length;
+            }
+            return valid;
+        }
+    }
+
+    /**
+     * Queues a record.
+     *
+     * @return Completed once the record is durable, or exceptionally if it cannot be written: with
+     *         {@link OutcomeUnknownException} if it may have been written, else with another exception
+     */
+    CompletableFuture<Void> append(byte[] record) {
+        Pending pending = new Pending(record);
+        if (record.length == 0 || record.length > MAX_RECORD_BYTES) {
+            pending.future.completeExceptionally(new IllegalArgumentException("Record of " + record.length + " bytes"));
+            return pending.future;
+        }
+        IOException failed = failure;
+        if (failed != null || closed) {
+            pending.future.completeExceptionally(failed != null ? failed : new IOException("Transfer journal closed"));
+            return pending.future;
+        }
+        queue.add(pending);
+        // The writer may have stopped between the check and the add
+        if ((closed || failure != null) && queue.remove(pending)) {
+            pending.future.completeExceptionally(new IOException("Transfer journal closed"));
+        }
+        return pending.future;
+    }
+
+    /**
+     * Writes what is queued, then stops the writer and closes the file.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        failAll(new IOException("Transfer journal closed"));
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close transfer journal", e);
+        }
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(maxBatchRecords);
+        try {
+            while (!closed || !queue.isEmpty()) {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatchRecords - 1);
+                long batchStart = channel.position();
+                try {
+                    write(batch);
+                } catch (IOException e) {
+                    logger.error("Transfer journal write failed; transfers are refused until restart", e);
+                    failure = new IOException("Transfer journal failed", e);
+                    IOException outcome = discard(batchStart, e);
+                    for (Pending pending : batch) {
+                        pending.future.completeExceptionally(outcome);
+                    }
+                    failAll(failure);
+                    return;
+                }
+                for (Pending pending : batch) {
+                    pending.future.complete(null);
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            // Only the position of an already broken channel can fail; nothing was written
+            logger.error("Transfer journal failed; transfers are refused until restart", e);
+            failure = e;
+            for (Pending pending : batch) {
+                pending.future.completeExceptionally(e);
+            }
+            failAll(e);
+        }
+    }
+
+    /**
+     * Cuts a batch whose write failed off the end of the file, so that
+     * recovery does not replay it.
+     *
+     * @return The failure to report for the batch: the write's own if the
+     *         batch is gone, else an {@link OutcomeUnknownException}
+     */
+    private IOException discard(long batchStart, IOException writeFailure) {
+        try {
+            channel.truncate(batchStart);
+            channel.force(true);
+            return writeFailure;
+        } catch (IOException e) {
+            logger.error("Could not cut the failed batch off the transfer journal; "
+                    + "its transfers take effect if the file holds them on restart", e);
+            OutcomeUnknownException unknown = new OutcomeUnknownException(writeFailure);
+            unknown.addSuppressed(e);
+            return unknown;
+        }
+    }
+
+    private void write(List<Pending> batch) throws IOException {
+        long start = System.nanoTime();
+        int bytes = 0;
+        for (Pending pending : batch) {
+            bytes += RECORD_HEADER_BYTES + pending.record.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(bytes);
+        for (Pending pending : batch) {
+            crc.reset();
+            crc.update(pending.record, 0, pending.record.length);
+            buffer.putInt(pending.record.length).putInt((int) crc.getValue()).put(pending.record);
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        if (fsync) {
+            channel.force(false);
+        }
+        syncTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        batchSizes.record(batch.size());
+    }
+
+    private void failAll(IOException cause) {
+        Pending pending;
+        while ((pending = queue.poll()) != null) {
+            pending.future.completeExceptionally(cause);
+        }
+    }
+
+    /**
+     * A record failed to be written, and may still be in the file: recovery
+     * decides whether its change happened.
+     */
+    static final class OutcomeUnknownException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        OutcomeUnknownException(IOException cause) {
+            super("Transfer journal write failed and may be on disk", cause);
+        }
+    }
+
+    private static final class Pending {
+
+        final byte[] record;
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        Pending(byte[] record) {
+            this.record = record;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.bank.ivr.transfer;
+
+/**
+ * Thrown when a transfer cannot be made durable. Whether it took effect is
+ * unknown until the journal has been recovered; repeating the request with
+ * the same request ID then returns its outcome.
+ */
+public class TransferUnavailableException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public TransferUnavailableException(String message) {
+        super(message);
+    }
+
+    public TransferUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -4,6 +4,7 @@
 let sessionId = null;
 let currentState = null;
 let selectedOption = null;
+let eventSource = null;
 
 // DOM Elements
 const sessionIdElement = document.getElementById('session-id');
@@ -34,6 +35,9 @@ const buttonActionMap = {
     'SELECT_TRANSFER_FUNDS': '3',
     'BACK': '9',
     
+    // Transaction history
+    'NEXT_PAGE': '1',
+    
     // Error state
     'BACK': '1',
     'END_CALL': '0'
@@ -129,6 +133,9 @@ async function startCall() {
         // Handle the next action
         handleNextAction(data);
         
+        // Receive further prompts as the server pushes them
+        openEventStream();
+        
     } catch (error) {
         console.error('Error starting call:', error);
         showToast('Failed to connect: ' + error.message, 'error');
@@ -154,6 +161,7 @@ async function endCall() {
         addToCallHistory('system', "Call ended");
         
         // Reset session
+        closeEventStream();
         sessionId = null;
         currentState = null;
         
@@ -216,6 +224,7 @@ async function sendRequest(inputType, userInput) {
         
         // Show waiting message
         promptMessageElement.textContent = "Processing...";
+        const stateBefore = currentState;
         
         // Prepare request body
         const requestBody = {
@@ -240,29 +249,10 @@ async function sendRequest(inputType, userInput) {
         
         const data = await response.json();
         
-        // Update current state
-        currentState = data.currentState;
-        currentStateElement.textContent = currentState;
-        
-        // Update prompt message
-        promptMessageElement.textContent = data.promptMessage;
-        
-        // Add to call history
-        addToCallHistory('system', data.promptMessage);
-        
-        // Handle the next action
-        handleNextAction(data);
-        
-        // If call ended, update UI
-        if (data.callEnded) {
-            sessionId = null;
-            startCallButton.disabled = false;
-            endCallButton.disabled = true;
-            inputSection.classList.add('hidden');
-            
-            sessionIdElement.textContent = "Not Started";
-            sessionIdElement.classList.remove('badge-success');
-            sessionIdElement.classList.add('badge-neutral');
+        // While the event stream is open it delivers the new state; unhandled
+        // input leaves the state unchanged, so its prompt is shown from here
+        if (!isEventStreamOpen() || data.errorMessage || data.currentState === stateBefore) {
+            applyResponse(data);
         }
         
     } catch (error) {
@@ -272,6 +262,67 @@ async function sendRequest(inputType, userInput) {
     }
 }
 
+// Show a response from the server: state, prompt and options
+function applyResponse(data) {
+    // Update current state
+    currentState = data.currentState;
+    currentStateElement.textContent = currentState;
+    
+    // Update prompt message
+    promptMessageElement.textContent = data.promptMessage;
+    
+    // Add to call history
+    addToCallHistory('system', data.promptMessage);
+    
+    // Handle the next action
+    handleNextAction(data);
+    
+    // If call ended, update UI
+    if (data.callEnded) {
+        closeEventStream();
+        sessionId = null;
+        startCallButton.disabled = false;
+        endCallButton.disabled = true;
+        inputSection.classList.add('hidden');
+        
+        sessionIdElement.textContent = "Not Started";
+        sessionIdElement.classList.remove('badge-success');
+        sessionIdElement.classList.add('badge-neutral');
+    }
+}
+
+// Subscribe to the session's pushed state updates
+function openEventStream() {
+    closeEventStream();
+    if (!sessionId || typeof EventSource === 'undefined') return;
+    
+    eventSource = new EventSource(`/api/ivr/session/${sessionId}/events`);
+    eventSource.addEventListener('state', function(event) {
+        const data = JSON.parse(event.data);
+        // The first event repeats the state already shown
+        if (data.sessionId === sessionId && data.currentState !== currentState) {
+            applyResponse(data);
+        }
+    });
+    // The browser reconnects on its own; a session that no longer exists closes the stream
+    eventSource.onerror = function() {
+        if (eventSource && eventSource.readyState === EventSource.CLOSED) {
+            eventSource = null;
+        }
+    };
+}
+
+function closeEventStream() {
+    if (eventSource) {
+        eventSource.close();
+        eventSource = null;
+    }
+}
+
+function isEventStreamOpen() {
+    return eventSource !== null && eventSource.readyState === EventSource.OPEN;
+}
+
 // Determine input type based on state
 function determineInputType(state) {
     // Could implement more sophisticated input type determination based on state
@@ -307,12 +358,19 @@ function handleNextAction(response) {
             createOptionButton('Back to Main Menu (9)', 'BACK', '<i class="fas fa-arrow-left mr-1"></i>');
             break;
             
-        case 'BALANCE_INQUIRY':
         case 'TRANSACTION_HISTORY':
-        case 'TRANSFER_FUNDS':
-        case 'PRESENT_BALANCE':
         case 'PRESENT_TRANSACTIONS':
-        case 'PRESENT_TRANSFER_OPTIONS':
+            // Further pages are only offered while there are any
+            if (response.promptMessage && response.promptMessage.endsWith('Press 1 for more')) {
+                createOptionButton('More (1)', 'NEXT_PAGE', '<i class="fas fa-chevron-down mr-1"></i>');
+            }
+            createOptionButton('Complete Transaction', 'COMPLETE_TRANSACTION', '<i class="fas fa-check-circle mr-1"></i>');
+            break;
+            
+        case 'BALANCE_INQUIRY':
+        case 'TRANSFER_RESULT':
+        case 'PRESENT_BALANCE':
+        case 'PRESENT_TRANSFER_RESULT':
             createOptionButton('Complete Transaction', 'COMPLETE_TRANSACTION', '<i class="fas fa-check-circle mr-1"></i>');
             break;
             
@@ -334,7 +392,9 @@ function determineActionFromState(state) {
         case 'ACCOUNT_SERVICES': return 'COLLECT_SERVICE_SELECTION';
         case 'BALANCE_INQUIRY': return 'PRESENT_BALANCE';
         case 'TRANSACTION_HISTORY': return 'PRESENT_TRANSACTIONS';
-        case 'TRANSFER_FUNDS': return 'PRESENT_TRANSFER_OPTIONS';
+        case 'TRANSFER_FUNDS': return 'COLLECT_TRANSFER_ACCOUNT';
+        case 'TRANSFER_AMOUNT': return 'COLLECT_TRANSFER_AMOUNT';
+        case 'TRANSFER_RESULT': return 'PRESENT_TRANSFER_RESULT';
         case 'ERROR': return 'COLLECT_ERROR_RESPONSE';
         default: return state;
     }
@@ -0,0 +1,116 @@
+package com.bank.ivr.credential;
+
+import com.bank.ivr.config.CredentialProperties;
+import com.bank.ivr.deadline.Deadline;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures what hedging does for credential lookup latency against stand-in
+ * replicas with a heavy tail:
+ * <pre>
+ * mvn -q test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.bank.ivr.credential.HedgingBenchmark \
+ *     -Dexec.args="[lookups] [concurrency] [replicas] [median-ms] [stall-probability] [stall-ms]"
+ * </pre>
+ * Runs the same lookups without hedging, with hedging, and with hedging
+ * while one replica stalls ten times as often as the others. Reports the
+ * latency percentiles, the share of lookups hedged or refused a hedge by
+ * the budget, and the calls made per lookup, which is the extra load
+ * hedging puts on the store.
+ */
+public final class HedgingBenchmark {
+
+    private HedgingBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int lookups = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int replicaCount = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+        double medianMillis = args.length > 3 ? Double.parseDouble(args[3]) : 5;
+        double stallProbability = args.length > 4 ? Double.parseDouble(args[4]) : 0.02;
+        long stallMillis = args.length > 5 ? Long.parseLong(args[5]) : 150;
+
+        LatencyDistribution usual = LatencyDistribution.logNormal(medianMillis, 0.3)
+                .withStalls(stallProbability, stallMillis);
+        LatencyDistribution degraded = LatencyDistribution.logNormal(medianMillis, 0.3)
+                .withStalls(Math.min(1, stallProbability * 10), stallMillis);
+
+        PrintStream out = System.out;
+        out.printf("%d lookups, %d at a time, %d replicas, median %.1f ms, %.1f%% stall %d ms%n",
+                lookups, concurrency, replicaCount, medianMillis, stallProbability * 100, stallMillis);
+        out.printf("%-9s %9s %9s %9s %9s %9s %9s %9s %9s%n",
+                "round", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "hedged", "denied", "calls", "delay ms");
+        run("single", false, replicas(replicaCount, usual, usual), lookups, concurrency, out);
+        run("hedged", true, replicas(replicaCount, usual, usual), lookups, concurrency, out);
+        run("degraded", true, replicas(replicaCount, degraded, usual), lookups, concurrency, out);
+    }
+
+    private static List<CredentialBackend> replicas(int count, LatencyDistribution first, LatencyDistribution rest) {
+        List<CredentialBackend> replicas = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            replicas.add(new StandInCredentialBackend("bench-" + i, i == 0 ? first : rest));
+        }
+        return replicas;
+    }
+
+    private static void run(String round, boolean hedged, List<CredentialBackend> replicas, int lookups,
+                            int concurrency, PrintStream out) throws InterruptedException {
+        CredentialProperties properties = new CredentialProperties();
+        properties.setHedgeEnabled(hedged);
+        properties.setThreads(2 * concurrency);
+        properties.setQueueCapacity(4 * concurrency);
+        MeterRegistry registry = new SimpleMeterRegistry();
+        long delayNanos;
+
+        try (HedgedCredentialLookup lookup = new HedgedCredentialLookup(replicas, properties, registry)) {
+            List<Thread> workers = new ArrayList<>(concurrency);
+            for (int t = 0; t < concurrency; t++) {
+                int share = lookups / concurrency + (t < lookups % concurrency ? 1 : 0);
+                Thread worker = new Thread(() -> {
+                    for (int i = 0; i < share; i++) {
+                        lookup.lookup(backend -> backend.findCustomerByCard("4111111111111111", "1234"),
+                                Deadline.none());
+                    }
+                }, "hedging-bench-" + t);
+                workers.add(worker);
+                worker.start();
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            delayNanos = lookup.hedgeDelayNanos();
+        }
+
+        HistogramSnapshot latency = registry.get("ivr.credentials.lookup").timer().takeSnapshot();
+        double hedges = registry.get("ivr.credentials.hedges").tag("result", "won").counter().count()
+                + registry.get("ivr.credentials.hedges").tag("result", "lost").counter().count();
+        double denied = registry.get("ivr.credentials.hedges").tag("result", "denied").counter().count();
+        long calls = 0;
+        for (CredentialBackend replica : replicas) {
+            calls += ((StandInCredentialBackend) replica).getCalls();
+        }
+        out.printf("%-9s %9.2f %9.2f %9.2f %9.2f %8.1f%% %8.1f%% %9.3f %9.2f%n",
+                round, percentile(latency, 0.5), percentile(latency, 0.99), percentile(latency, 0.999),
+                latency.max(TimeUnit.MILLISECONDS), 100 * hedges / lookups, 100 * denied / lookups,
+                calls / (double) lookups,
+                delayNanos / 1e6);
+    }
+
+    private static double percentile(HistogramSnapshot snapshot, double percentile) {
+        for (ValueAtPercentile value : snapshot.percentileValues()) {
+            if (value.percentile() == percentile) {
+                return value.value(TimeUnit.MILLISECONDS);
+            }
+        }
+        return Double.NaN;
+    }
+}
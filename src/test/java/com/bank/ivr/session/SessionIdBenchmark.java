@@ -0,0 +1,106 @@
+package com.bank.ivr.session;
+
+import com.bank.ivr.cluster.ClusterMembership;
+import com.bank.ivr.cluster.ClusterNode;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Compares session ID generation throughput with {@code UUID.randomUUID()}
+ * as threads are added:
+ * <pre>
+ * mvn -q test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.bank.ivr.session.SessionIdBenchmark -Dexec.args="[seconds] [threads...]"
+ * </pre>
+ * Each round runs every thread flat out for the given time and reports
+ * thousands of IDs per second across all threads.
+ */
+public final class SessionIdBenchmark {
+
+    // Consumes every ID, so generating them cannot be optimized away
+    private static volatile int sink;
+
+    private SessionIdBenchmark() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        double seconds = args.length > 0 ? Double.parseDouble(args[0]) : 2;
+        Set<Integer> threadCounts = new TreeSet<>();
+        for (int i = 1; i < args.length; i++) {
+            threadCounts.add(Integer.parseInt(args[i]));
+        }
+        if (threadCounts.isEmpty()) {
+            int cores = Runtime.getRuntime().availableProcessors();
+            threadCounts.addAll(Arrays.asList(1, Math.max(2, cores / 2), cores, 4 * cores, 16 * cores));
+        }
+
+        SessionIdGenerator generator = new SessionIdGenerator(new ClusterMembership(
+                new ClusterNode("bench", "http://localhost:8080"), Collections.<ClusterNode>emptyList(), 160));
+        Supplier<String> sessionIds = generator::generate;
+        Supplier<String> uuids = () -> UUID.randomUUID().toString();
+
+        // Warm up both, so the JIT has compiled them before anything is measured
+        run(sessionIds, 4, 1);
+        run(uuids, 4, 1);
+
+        PrintStream out = System.out;
+        out.printf("%d cores, %.1f s per round, thousands of IDs per second%n",
+                Runtime.getRuntime().availableProcessors(), seconds);
+        out.printf("%8s %14s %14s %8s%n", "threads", "session IDs", "UUIDs", "ratio");
+        for (int threads : threadCounts) {
+            double ids = run(sessionIds, threads, seconds);
+            double uuid = run(uuids, threads, seconds);
+            out.printf("%8d %,14.0f %,14.0f %7.1fx%n", threads, ids / 1000, uuid / 1000, ids / uuid);
+        }
+    }
+
+    /**
+     * Generates IDs on the given number of threads for the given time.
+     *
+     * @return IDs generated per second
+     */
+    private static double run(Supplier<String> ids, int threads, double seconds) throws InterruptedException {
+        long durationNanos = (long) (seconds * 1e9);
+        CountDownLatch start = new CountDownLatch(1);
+        LongAdder generated = new LongAdder();
+        List<Thread> workers = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long end = System.nanoTime() + durationNanos;
+                long count = 0;
+                int hash = 0;
+                while (System.nanoTime() < end) {
+                    for (int i = 0; i < 256; i++) {
+                        hash += ids.get().hashCode();
+                    }
+                    count += 256;
+                }
+                generated.add(count);
+                sink = hash;
+            }, "id-bench-" + t);
+            workers.add(worker);
+            worker.start();
+        }
+        long began = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return generated.sum() / ((System.nanoTime() - began) / 1e9);
+    }
+}
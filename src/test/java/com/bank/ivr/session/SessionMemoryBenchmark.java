@@ -0,0 +1,181 @@
+package com.bank.ivr.session;
+
+import com.bank.ivr.IvrApplication;
+import com.bank.ivr.api.model.IvrRequest;
+import com.bank.ivr.deadline.Deadline;
+import com.bank.ivr.flow.FlowRegistry;
+import com.bank.ivr.model.AuthMethod;
+import com.bank.ivr.model.IvrEvent;
+import com.bank.ivr.model.IvrState;
+import com.bank.ivr.model.SessionContext;
+import com.bank.ivr.service.IvrSessionService;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.statemachine.StateMachine;
+import org.springframework.statemachine.support.DefaultExtendedState;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Measures the heap a live session takes, how it splits between the
+ * session's state machine and the rest, and what parking saves:
+ * <pre>
+ * mvn -q test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.bank.ivr.session.SessionMemoryBenchmark -Dexec.args="[sessions]"
+ * </pre>
+ * Sessions are logged in with stand-in authentication and left at the main
+ * menu, then parked. Each figure is the change in live heap after a full
+ * collection, divided by the number of objects, so it includes everything
+ * they reach that nothing else does. Also measures a session context on its
+ * own against the extended-state map that held the same data before, and
+ * the time to build a parked session's state machine again.
+ */
+public final class SessionMemoryBenchmark {
+
+    // Keeps what has been measured reachable, so each round is measured on its own
+    private static final List<Object> retained = new ArrayList<>();
+
+    private SessionMemoryBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        PrintStream out = System.out;
+
+        Path journal = Files.createTempFile("ivr-memory-transfers", ".wal");
+        journal.toFile().deleteOnExit();
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(IvrApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("replay")
+                .run("--logging.level.com.bank.ivr=WARN",
+                        "--ivr.audit.directory=" + Paths.get(System.getProperty("java.io.tmpdir"), "ivr-memory-audit"),
+                        "--ivr.audit.fsync=false",
+                        "--ivr.account.backend-latency-ms=0",
+                        "--ivr.account.prefetch-enabled=false",
+                        "--ivr.transfer.journal-file=" + journal,
+                        "--ivr.transfer.fsync=false",
+                        "--ivr.session.park-after-ms=0")) {
+            IvrSessionService sessions = context.getBean(IvrSessionService.class);
+            FlowRegistry flows = context.getBean(FlowRegistry.class);
+            SessionRegistry registry = context.getBean(SessionRegistry.class);
+
+            // Warm up, so classes loaded and caches filled on first use are not counted
+            List<String> warmup = logIn(sessions, 1000);
+            for (String sessionId : warmup) {
+                sessions.endSession(sessionId);
+            }
+
+            out.printf("%,d of each, bytes each after full GC%n", count);
+            long live = report(out, "session at main menu", count, () -> logIn(sessions, count));
+            long before = liveHeap();
+            for (IvrSession session : registry.getSessions()) {
+                session.park();
+            }
+            out.printf("%-24s %,10d%n", "  same session parked", live - (before - liveHeap()) / count);
+            report(out, "  state machine only", count, () -> {
+                List<StateMachine<IvrState, IvrEvent>> machines = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    StateMachine<IvrState, IvrEvent> machine = flows.getActive().newStateMachine();
+                    machine.start();
+                    machines.add(machine);
+                }
+                return machines;
+            });
+            report(out, "  session context", count, () -> {
+                List<SessionContext> contexts = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    contexts.add(loggedInContext(i));
+                }
+                return contexts;
+            });
+            report(out, "  extended-state map", count, () -> {
+                List<DefaultExtendedState> states = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    states.add(loggedInVariables(i));
+                }
+                return states;
+            });
+
+            // What the next input of a parked session pays; parked again at once to keep the heap flat
+            long start = System.nanoTime();
+            for (IvrSession session : registry.getSessions()) {
+                session.getStateMachine();
+                session.park();
+            }
+            out.printf("resuming a parked session: %.1f us%n", (System.nanoTime() - start) / 1e3 / count);
+        }
+        System.exit(0);
+    }
+
+    private static List<String> logIn(IvrSessionService sessions, int count) {
+        List<String> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String sessionId = sessions.initializeSession(null).getSessionId();
+            for (String input : new String[] {"2", "4111111111111111", "1234"}) {
+                IvrRequest request = new IvrRequest();
+                request.setSessionId(sessionId);
+                request.setUserInput(input);
+                sessions.processUserInput(request, Deadline.none());
+            }
+            ids.add(sessionId);
+        }
+        return ids;
+    }
+
+    private static SessionContext loggedInContext(int i) {
+        SessionContext context = new SessionContext();
+        context.setAuthMethod(AuthMethod.CARD);
+        context.setCustomerId(customerId(i));
+        context.setAuthenticated(true);
+        context.setPinAttempts(1);
+        context.setLastInputMillis(System.currentTimeMillis());
+        return context;
+    }
+
+    // The same data as the extended-state variables sessions carried before SessionContext
+    private static DefaultExtendedState loggedInVariables(int i) {
+        DefaultExtendedState state = new DefaultExtendedState();
+        state.getVariables().put("authMethod", "CARD");
+        state.getVariables().put("customerId", customerId(i));
+        state.getVariables().put("authenticated", Boolean.TRUE);
+        state.getVariables().put("pinAttempts", 1);
+        state.getVariables().put("lastInputMillis", System.currentTimeMillis());
+        return state;
+    }
+
+    private static String customerId(int i) {
+        return String.format("CUST%06d", i);
+    }
+
+    private static long report(PrintStream out, String label, int count, Supplier<Object> allocate) {
+        long before = liveHeap();
+        retained.add(allocate.get());
+        long each = (liveHeap() - before) / count;
+        out.printf("%-24s %,10d%n", label, each);
+        return each;
+    }
+
+    private static long liveHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long used = Long.MAX_VALUE;
+        // Collect until the heap stops shrinking, so only live objects are left
+        for (int i = 0; i < 10; i++) {
+            System.gc();
+            long now = memory.getHeapMemoryUsage().getUsed();
+            if (now >= used) {
+                break;
+            }
+            used = now;
+        }
+        return used;
+    }
+}
@@ -0,0 +1,186 @@
+package com.bank.ivr.session;
+
+import com.bank.ivr.model.AuthMethod;
+import com.bank.ivr.model.IvrState;
+import com.bank.ivr.model.SessionContext;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SessionSnapshotCodecTest {
+
+    private static final long CREATED = 1_700_000_000_000L;
+    private static final long LAST_INPUT = 1_700_000_060_000L;
+
+    @Test
+    void readsWhatItWrites() throws IOException {
+        SessionContext context = new SessionContext();
+        context.setAuthMethod(AuthMethod.CARD);
+        context.setAuthenticated(true);
+        context.setCustomerId("CUST100");
+        context.setCardNumber("4111111111111111".toCharArray());
+        context.setSsnAttempts(1);
+        context.setPinAttempts(2);
+        context.setLastInputMillis(LAST_INPUT);
+        context.setHistoryCursor("cursor-2");
+        context.setTransferTo("CUST200");
+        context.setTransferCount(3);
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("text", "value");
+        variables.put("int", 7);
+        variables.put("long", 8L);
+        variables.put("flag", true);
+        variables.put("unset", null);
+        variables.put("unsupported", new Object());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SessionSnapshotCodec.Writer writer = SessionSnapshotCodec.newWriter(out);
+        writer.write(new SessionSnapshot("session-1", IvrState.MAIN_MENU, CREATED, "5", context, variables));
+        writer.finish();
+
+        SessionSnapshot read = readOne(out.toByteArray());
+        assertThat(read.getSessionId()).isEqualTo("session-1");
+        assertThat(read.getState()).isEqualTo(IvrState.MAIN_MENU);
+        assertThat(read.getCreatedAtMillis()).isEqualTo(CREATED);
+        assertThat(read.getFlowVersion()).isEqualTo("5");
+
+        SessionContext restored = read.getContext();
+        assertThat(restored.getAuthMethod()).isEqualTo(AuthMethod.CARD);
+        assertThat(restored.isAuthenticated()).isTrue();
+        assertThat(restored.getCustomerId()).isEqualTo("CUST100");
+        assertThat(restored.getCardNumber()).containsExactly("4111111111111111".toCharArray());
+        assertThat(restored.getSsnAttempts()).isEqualTo(1);
+        assertThat(restored.getPinAttempts()).isEqualTo(2);
+        assertThat(restored.getLastInputMillis()).isEqualTo(LAST_INPUT);
+        assertThat(restored.getHistoryCursor()).isEqualTo("cursor-2");
+        assertThat(restored.getTransferTo()).isEqualTo("CUST200");
+        assertThat(restored.getTransferCount()).isEqualTo(3);
+
+        // Variables of other types are left out rather than failing the stream
+        variables.remove("unsupported");
+        assertThat(read.getVariables()).isEqualTo(variables);
+    }
+
+    @Test
+    void readsVersion2WithoutFlowVersion() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DataOutputStream data = header(out, 2);
+        record(data, "session-2", 1);
+        // No flow version; the context has neither a history cursor nor transfer fields
+        data.writeByte(AuthMethod.SSN.ordinal());
+        data.writeBoolean(false);
+        writeNullableUtf(data, null);
+        writeNullableUtf(data, null);
+        data.writeShort(2);
+        data.writeShort(0);
+        data.writeLong(LAST_INPUT);
+        data.writeShort(1);
+        data.writeUTF("text");
+        data.writeByte(1);
+        data.writeUTF("value");
+        data.writeByte(0);
+
+        SessionSnapshot read = readOne(out.toByteArray());
+        // The stream's state table, not this build's ordinals, decides the state
+        assertThat(read.getState()).isEqualTo(IvrState.PIN_PROMPT);
+        assertThat(read.getFlowVersion()).isNull();
+        assertThat(read.getContext().getAuthMethod()).isEqualTo(AuthMethod.SSN);
+        assertThat(read.getContext().isAuthenticated()).isFalse();
+        assertThat(read.getContext().getCustomerId()).isNull();
+        assertThat(read.getContext().getSsnAttempts()).isEqualTo(2);
+        assertThat(read.getContext().getLastInputMillis()).isEqualTo(LAST_INPUT);
+        assertThat(read.getContext().getHistoryCursor()).isNull();
+        assertThat(read.getContext().getTransferTo()).isNull();
+        assertThat(read.getContext().getTransferCount()).isZero();
+        assertThat(read.getVariables()).containsEntry("text", "value").hasSize(1);
+    }
+
+    @Test
+    void readsVersion4WithoutTransferFields() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DataOutputStream data = header(out, 4);
+        record(data, "session-4", 0);
+        writeNullableUtf(data, "3");
+        data.writeByte(AuthMethod.CARD.ordinal());
+        data.writeBoolean(true);
+        writeNullableUtf(data, "CUST100");
+        writeNullableUtf(data, null);
+        data.writeShort(0);
+        data.writeShort(1);
+        data.writeLong(LAST_INPUT);
+        writeNullableUtf(data, "cursor-4");
+        data.writeShort(0);
+        data.writeByte(0);
+
+        SessionSnapshot read = readOne(out.toByteArray());
+        assertThat(read.getState()).isEqualTo(IvrState.MAIN_MENU);
+        assertThat(read.getFlowVersion()).isEqualTo("3");
+        assertThat(read.getContext().getAuthMethod()).isEqualTo(AuthMethod.CARD);
+        assertThat(read.getContext().isAuthenticated()).isTrue();
+        assertThat(read.getContext().getCustomerId()).isEqualTo("CUST100");
+        assertThat(read.getContext().getCardNumber()).isNull();
+        assertThat(read.getContext().getPinAttempts()).isEqualTo(1);
+        assertThat(read.getContext().getHistoryCursor()).isEqualTo("cursor-4");
+        assertThat(read.getContext().getTransferTo()).isNull();
+        assertThat(read.getContext().getTransferCount()).isZero();
+        assertThat(read.getVariables()).isEmpty();
+    }
+
+    @Test
+    void refusesNewerVersion() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        header(out, 6).writeByte(0);
+
+        assertThatThrownBy(() -> SessionSnapshotCodec.read(new ByteArrayInputStream(out.toByteArray()), s -> { }))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("version: 6");
+    }
+
+    /**
+     * Writes a stream header whose state table lists MAIN_MENU then PIN_PROMPT,
+     * an order no build has used.
+     */
+    private static DataOutputStream header(ByteArrayOutputStream out, int version) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(0x49565253);
+        data.writeShort(version);
+        data.writeShort(2);
+        data.writeUTF(IvrState.MAIN_MENU.name());
+        data.writeUTF(IvrState.PIN_PROMPT.name());
+        return data;
+    }
+
+    /**
+     * Writes the fields every record version starts with.
+     */
+    private static void record(DataOutputStream data, String sessionId, int stateIndex) throws IOException {
+        data.writeByte(1);
+        data.writeUTF(sessionId);
+        data.writeShort(stateIndex);
+        data.writeLong(CREATED);
+    }
+
+    private static void writeNullableUtf(DataOutputStream data, String value) throws IOException {
+        data.writeBoolean(value != null);
+        if (value != null) {
+            data.writeUTF(value);
+        }
+    }
+
+    private static SessionSnapshot readOne(byte[] stream) throws IOException {
+        List<SessionSnapshot> read = new ArrayList<>();
+        int count = SessionSnapshotCodec.read(new ByteArrayInputStream(stream), read::add);
+        assertThat(count).isEqualTo(1);
+        return read.get(0);
+    }
+}
@@ -0,0 +1,130 @@
+package com.bank.ivr.transfer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * A file channel that fails on request, standing in for a disk that
+ * rejects a sync, fills up part way through a write, or cannot be truncated.
+ */
+class FaultyFileChannel extends FileChannel {
+
+    private final FileChannel file;
+
+    // Syncs that fail before they start succeeding again
+    volatile int forceFailures;
+    volatile boolean failTruncate;
+    // Bytes each write stores before it fails; negative never fails
+    volatile int failWriteAfter = -1;
+
+    FaultyFileChannel(FileChannel file) {
+        this.file = file;
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        int limit = failWriteAfter;
+        if (limit < 0) {
+            return file.write(src);
+        }
+        ByteBuffer part = src.duplicate();
+        part.limit(part.position() + Math.min(limit, part.remaining()));
+        int written = file.write(part);
+        src.position(src.position() + written);
+        throw new IOException("No space left on device");
+    }
+
+    @Override
+    public void force(boolean metaData) throws IOException {
+        if (forceFailures > 0) {
+            forceFailures--;
+            throw new IOException("Input/output error");
+        }
+        file.force(metaData);
+    }
+
+    @Override
+    public FileChannel truncate(long size) throws IOException {
+        if (failTruncate) {
+            throw new IOException("Input/output error");
+        }
+        file.truncate(size);
+        return this;
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        return file.read(dst);
+    }
+
+    @Override
+    public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+        return file.read(dsts, offset, length);
+    }
+
+    @Override
+    public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+        return file.write(srcs, offset, length);
+    }
+
+    @Override
+    public long position() throws IOException {
+        return file.position();
+    }
+
+    @Override
+    public FileChannel position(long newPosition) throws IOException {
+        file.position(newPosition);
+        return this;
+    }
+
+    @Override
+    public long size() throws IOException {
+        return file.size();
+    }
+
+    @Override
+    public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+        return file.transferTo(position, count, target);
+    }
+
+    @Override
+    public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+        return file.transferFrom(src, position, count);
+    }
+
+    @Override
+    public int read(ByteBuffer dst, long position) throws IOException {
+        return file.read(dst, position);
+    }
+
+    @Override
+    public int write(ByteBuffer src, long position) throws IOException {
+        return file.write(src, position);
+    }
+
+    @Override
+    public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+        return file.map(mode, position, size);
+    }
+
+    @Override
+    public FileLock lock(long position, long size, boolean shared) throws IOException {
+        return file.lock(position, size, shared);
+    }
+
+    @Override
+    public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+        return file.tryLock(position, size, shared);
+    }
+
+    @Override
+    protected void implCloseChannel() throws IOException {
+        file.close();
+    }
+}
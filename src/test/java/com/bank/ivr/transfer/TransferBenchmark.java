@@ -0,0 +1,130 @@
+package com.bank.ivr.transfer;
+
+import com.bank.ivr.account.StandInAccountBackend;
+import com.bank.ivr.config.TransferProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Measures concurrent transfer throughput with the journal on local disk:
+ * <pre>
+ * mvn -q test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.bank.ivr.transfer.TransferBenchmark \
+ *     -Dexec.args="[threads] [seconds] [accounts] [hot-accounts] [fsync]"
+ * </pre>
+ * Runs the same load twice on a fresh ledger: cold, with both accounts of
+ * each transfer drawn from all accounts, and hot, where nine transfers in ten
+ * pay into or out of one of a few hot accounts. Reports transfers per second,
+ * latency, journal batch size and how often a ledger shard lock was waited for.
+ */
+public final class TransferBenchmark {
+
+    private static final double HOT_SHARE = 0.9;
+
+    private TransferBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 4 * Runtime.getRuntime().availableProcessors();
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int accounts = args.length > 2 ? Integer.parseInt(args[2]) : 100_000;
+        int hotAccounts = args.length > 3 ? Integer.parseInt(args[3]) : 8;
+        boolean fsync = args.length <= 4 || Boolean.parseBoolean(args[4]);
+
+        Path directory = Files.createTempDirectory("ivr-transfer-bench");
+        PrintStream out = System.out;
+        out.printf("%d threads, %d s per round, %d accounts, %d hot, fsync %s%n",
+                threads, seconds, accounts, hotAccounts, fsync);
+        out.printf("%-6s %12s %10s %10s %10s %12s %12s%n",
+                "round", "transfers/s", "p50 ms", "p99 ms", "max ms", "batch mean", "contended");
+        try {
+            run("cold", 0, directory, threads, seconds, accounts, hotAccounts, fsync, out);
+            run("hot", HOT_SHARE, directory, threads, seconds, accounts, hotAccounts, fsync, out);
+        } finally {
+            try (Stream<Path> files = Files.list(directory)) {
+                files.forEach(file -> file.toFile().delete());
+            }
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    private static void run(String round, double hotShare, Path directory, int threads, int seconds,
+                            int accounts, int hotAccounts, boolean fsync, PrintStream out)
+            throws IOException, InterruptedException {
+        TransferProperties properties = new TransferProperties();
+        properties.setJournalFile(directory.resolve(round + ".wal").toString());
+        properties.setFsync(fsync);
+        MeterRegistry registry = new SimpleMeterRegistry();
+        LongAdder completed = new LongAdder();
+
+        try (TransferEngine engine = new TransferEngine(new StandInAccountBackend(0), properties, registry)) {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+            List<Thread> workers = new ArrayList<>(threads);
+            for (int t = 0; t < threads; t++) {
+                String sessionId = "bench-" + round + "-" + t;
+                Thread worker = new Thread(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    long request = 0;
+                    while (System.nanoTime() < deadline) {
+                        String from = account(random, accounts);
+                        String to = account(random, accounts);
+                        if (random.nextDouble() < hotShare) {
+                            String hot = "HOT" + random.nextInt(hotAccounts);
+                            if (random.nextBoolean()) {
+                                from = hot;
+                            } else {
+                                to = hot;
+                            }
+                        }
+                        if (from.equals(to)) {
+                            continue;
+                        }
+                        BigDecimal amount = BigDecimal.valueOf(1 + random.nextInt(100), 2);
+                        engine.transfer(sessionId, Long.toString(request++), from, to, amount);
+                        completed.increment();
+                    }
+                }, "transfer-bench-" + t);
+                workers.add(worker);
+                worker.start();
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        }
+
+        HistogramSnapshot latency = registry.get("ivr.transfer.latency").timer().takeSnapshot();
+        double batchMean = registry.get("ivr.transfer.journal.batch").summary().mean();
+        double contended = registry.get("ivr.transfer.ledger.contended").functionCounter().count();
+        out.printf("%-6s %12.0f %10.2f %10.2f %10.2f %12.1f %12.0f%n",
+                round, completed.sum() / (double) seconds,
+                percentile(latency, 0.5), percentile(latency, 0.99),
+                latency.max(TimeUnit.MILLISECONDS), batchMean, contended);
+    }
+
+    private static String account(ThreadLocalRandom random, int accounts) {
+        return "BENCH" + random.nextInt(accounts);
+    }
+
+    private static double percentile(HistogramSnapshot snapshot, double percentile) {
+        for (ValueAtPercentile value : snapshot.percentileValues()) {
+            if (value.percentile() == percentile) {
+                return value.value(TimeUnit.MILLISECONDS);
+            }
+        }
+        return Double.NaN;
+    }
+}
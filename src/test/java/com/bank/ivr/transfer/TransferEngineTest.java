@@ -0,0 +1,170 @@
+package com.bank.ivr.transfer;
+
+import com.bank.ivr.account.AccountBackend;
+import com.bank.ivr.config.TransferProperties;
+import com.bank.ivr.model.AccountBalance;
+import com.bank.ivr.model.TransactionPage;
+import com.bank.ivr.model.TransferResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TransferEngineTest {
+
+    private static final String ALICE = "CUST100";
+    private static final String BOB = "CUST200";
+
+    @TempDir
+    Path directory;
+
+    private final TransferProperties properties = new TransferProperties();
+
+    @BeforeEach
+    void setUp() {
+        properties.setJournalFile(directory.resolve("ledger.wal").toString());
+        properties.setShards(4);
+    }
+
+    @Test
+    void repeatedRequestMovesFundsOnce() throws IOException {
+        try (TransferEngine engine = open()) {
+            TransferResult first = engine.transfer("session", "transfer-0", ALICE, BOB, new BigDecimal("10.00"));
+            TransferResult repeat = engine.transfer("session", "transfer-0", ALICE, BOB, new BigDecimal("10.00"));
+
+            assertThat(first.getStatus()).isEqualTo(TransferResult.Status.COMPLETED);
+            assertThat(repeat).isSameAs(first);
+            assertThat(balance(engine, ALICE)).isEqualByComparingTo("90.00");
+            assertThat(balance(engine, BOB)).isEqualByComparingTo("60.00");
+
+            engine.transfer("session", "transfer-1", ALICE, BOB, new BigDecimal("10.00"));
+            assertThat(balance(engine, ALICE)).isEqualByComparingTo("80.00");
+        }
+    }
+
+    @Test
+    void forgetsOldestOutcomesBeyondLimit() throws IOException {
+        properties.setIdempotencyMaxEntries(2);
+        try (TransferEngine engine = open()) {
+            for (int i = 0; i < 3; i++) {
+                engine.transfer("session", "transfer-" + i, ALICE, BOB, BigDecimal.ONE);
+            }
+            // The first outcome was forgotten, so repeating it moves funds again; the last was not
+            engine.transfer("session", "transfer-0", ALICE, BOB, BigDecimal.ONE);
+            engine.transfer("session", "transfer-2", ALICE, BOB, BigDecimal.ONE);
+
+            assertThat(balance(engine, ALICE)).isEqualByComparingTo("96.00");
+        }
+    }
+
+    @Test
+    void restartRebuildsLedgerAndOutcomes() throws IOException {
+        TransferResult first;
+        try (TransferEngine engine = open()) {
+            first = engine.transfer("session", "transfer-0", ALICE, BOB, new BigDecimal("25.50"));
+        }
+
+        try (TransferEngine engine = open()) {
+            assertThat(balance(engine, ALICE)).isEqualByComparingTo("74.50");
+            assertThat(balance(engine, BOB)).isEqualByComparingTo("75.50");
+
+            TransferResult repeat = engine.transfer("session", "transfer-0", ALICE, BOB, new BigDecimal("25.50"));
+            assertThat(repeat.getStatus()).isEqualTo(TransferResult.Status.COMPLETED);
+            assertThat(repeat.getBalance()).isEqualByComparingTo(first.getBalance());
+            assertThat(balance(engine, ALICE)).isEqualByComparingTo("74.50");
+        }
+    }
+
+    @Test
+    void transferIsUndoneWhenJournalDropsIt() throws IOException {
+        FaultyFileChannel[] channel = new FaultyFileChannel[1];
+        try (TransferEngine engine = open(channel)) {
+            engine.transfer("session", "transfer-0", ALICE, BOB, BigDecimal.TEN);
+            channel[0].forceFailures = 1;
+
+            assertThatThrownBy(() -> engine.transfer("session", "transfer-1", ALICE, BOB, BigDecimal.TEN))
+                    .isInstanceOf(TransferUnavailableException.class)
+                    .hasMessageContaining("could not be journaled");
+            assertThat(balance(engine, ALICE)).isEqualByComparingTo("90.00");
+        }
+
+        // Neither does the journal replay it, so a retry after the restart runs afresh
+        try (TransferEngine engine = open()) {
+            assertThat(balance(engine, ALICE)).isEqualByComparingTo("90.00");
+            engine.transfer("session", "transfer-1", ALICE, BOB, BigDecimal.TEN);
+            assertThat(balance(engine, ALICE)).isEqualByComparingTo("80.00");
+        }
+    }
+
+    @Test
+    void transferIsKeptWhenJournalOutcomeIsUnknown() throws IOException {
+        FaultyFileChannel[] channel = new FaultyFileChannel[1];
+        try (TransferEngine engine = open(channel)) {
+            engine.transfer("session", "transfer-0", ALICE, BOB, BigDecimal.TEN);
+            channel[0].forceFailures = 1;
+            channel[0].failTruncate = true;
+
+            assertThatThrownBy(() -> engine.transfer("session", "transfer-1", ALICE, BOB, BigDecimal.TEN))
+                    .isInstanceOf(TransferUnavailableException.class)
+                    .hasMessageContaining("unknown");
+            // Not undone, since the record may be replayed
+            assertThat(balance(engine, ALICE)).isEqualByComparingTo("80.00");
+        }
+
+        // The record did reach the file, so the transfer stands and its retry is answered from the journal
+        try (TransferEngine engine = open()) {
+            assertThat(balance(engine, ALICE)).isEqualByComparingTo("80.00");
+            TransferResult retry = engine.transfer("session", "transfer-1", ALICE, BOB, BigDecimal.TEN);
+            assertThat(retry.getStatus()).isEqualTo(TransferResult.Status.COMPLETED);
+            assertThat(balance(engine, ALICE)).isEqualByComparingTo("80.00");
+        }
+    }
+
+    private TransferEngine open() throws IOException {
+        return open(null);
+    }
+
+    /**
+     * Opens an engine; if {@code channel} is given, with its journal on a faulty channel stored in it.
+     */
+    private TransferEngine open(FaultyFileChannel[] channel) throws IOException {
+        TransferJournal.FileOpener opener = TransferJournal.FileOpener.DEFAULT;
+        if (channel != null) {
+            opener = path -> channel[0] = new FaultyFileChannel(TransferJournal.FileOpener.DEFAULT.open(path));
+        }
+        return new TransferEngine(new FixedBackend(), properties, new SimpleMeterRegistry(), opener);
+    }
+
+    private static BigDecimal balance(TransferEngine engine, String customerId) {
+        return engine.getBalance(customerId).getAvailable();
+    }
+
+    /**
+     * Alice opens with 100.00 and Bob with 50.00; nobody else has an account.
+     */
+    private static final class FixedBackend implements AccountBackend {
+
+        @Override
+        public AccountBalance fetchBalance(String customerId) {
+            if (ALICE.equals(customerId)) {
+                return new AccountBalance(customerId, new BigDecimal("100.00"));
+            }
+            if (BOB.equals(customerId)) {
+                return new AccountBalance(customerId, new BigDecimal("50.00"));
+            }
+            return null;
+        }
+
+        @Override
+        public TransactionPage fetchTransactions(String customerId, String cursor, int limit) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.bank.ivr.transfer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.zip.CRC32;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class TransferJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recoversRecordsInOrder() throws IOException {
+        Path file = directory.resolve("ledger.wal");
+        try (TransferJournal journal = open(file, 0, null)) {
+            for (String record : new String[] {"one", "two", "three"}) {
+                journal.append(bytes(record)).join();
+            }
+        }
+
+        List<String> records = new ArrayList<>();
+        long valid = TransferJournal.recover(file, record -> records.add(text(record)));
+
+        assertThat(records).containsExactly("one", "two", "three");
+        assertThat(valid).isEqualTo(Files.size(file));
+    }
+
+    @Test
+    void dropsRecordCutShortByCrash() throws IOException {
+        Path file = directory.resolve("ledger.wal");
+        try (TransferJournal journal = open(file, 0, null)) {
+            journal.append(bytes("one")).join();
+            journal.append(bytes("two")).join();
+        }
+        long intact = Files.size(file);
+        // A record header promising ten bytes, of which only four reached the disk
+        ByteBuffer torn = ByteBuffer.allocate(12);
+        torn.putInt(10).putInt(checksum(bytes("0123456789"))).put(bytes("0123"));
+        Files.write(file, torn.array(), StandardOpenOption.APPEND);
+
+        List<String> records = new ArrayList<>();
+        long valid = TransferJournal.recover(file, record -> records.add(text(record)));
+        assertThat(records).containsExactly("one", "two");
+        assertThat(valid).isEqualTo(intact);
+
+        // Reopening cuts the torn record off, and appends follow the intact ones
+        try (TransferJournal journal = open(file, valid, null)) {
+            assertThat(Files.size(file)).isEqualTo(intact);
+            journal.append(bytes("three")).join();
+        }
+        records.clear();
+        TransferJournal.recover(file, record -> records.add(text(record)));
+        assertThat(records).containsExactly("one", "two", "three");
+    }
+
+    @Test
+    void stopsAtRecordWithBadChecksum() throws IOException {
+        Path file = directory.resolve("ledger.wal");
+        try (TransferJournal journal = open(file, 0, null)) {
+            journal.append(bytes("one")).join();
+            journal.append(bytes("two")).join();
+        }
+        byte[] contents = Files.readAllBytes(file);
+        contents[contents.length - 1] ^= 1;
+        Files.write(file, contents);
+
+        List<String> records = new ArrayList<>();
+        TransferJournal.recover(file, record -> records.add(text(record)));
+
+        assertThat(records).containsExactly("one");
+    }
+
+    @Test
+    void cutsBatchOffWhenSyncFails() throws IOException {
+        Path file = directory.resolve("ledger.wal");
+        FaultyFileChannel[] channel = new FaultyFileChannel[1];
+        long before;
+        try (TransferJournal journal = open(file, 0, channel)) {
+            journal.append(bytes("one")).join();
+            before = Files.size(file);
+            channel[0].forceFailures = 1;
+
+            Throwable failure = failureOf(journal.append(bytes("two")));
+            assertThat(failure).isInstanceOf(IOException.class)
+                    .isNotInstanceOf(TransferJournal.OutcomeUnknownException.class);
+            assertThat(Files.size(file)).isEqualTo(before);
+
+            // The journal refuses everything after a failure
+            assertThat(failureOf(journal.append(bytes("three")))).isInstanceOf(IOException.class);
+        }
+
+        List<String> records = new ArrayList<>();
+        TransferJournal.recover(file, record -> records.add(text(record)));
+        assertThat(records).containsExactly("one");
+    }
+
+    @Test
+    void cutsBatchOffWhenWriteStopsPartWay() throws IOException {
+        Path file = directory.resolve("ledger.wal");
+        FaultyFileChannel[] channel = new FaultyFileChannel[1];
+        long before;
+        try (TransferJournal journal = open(file, 0, channel)) {
+            journal.append(bytes("one")).join();
+            before = Files.size(file);
+            channel[0].failWriteAfter = 10;
+
+            Throwable failure = failureOf(journal.append(bytes("two, which does not fit")));
+            assertThat(failure).isInstanceOf(IOException.class)
+                    .isNotInstanceOf(TransferJournal.OutcomeUnknownException.class);
+            assertThat(Files.size(file)).isEqualTo(before);
+        }
+
+        List<String> records = new ArrayList<>();
+        TransferJournal.recover(file, record -> records.add(text(record)));
+        assertThat(records).containsExactly("one");
+    }
+
+    @Test
+    void reportsOutcomeUnknownWhenBatchCannotBeCutOff() throws IOException {
+        Path file = directory.resolve("ledger.wal");
+        FaultyFileChannel[] channel = new FaultyFileChannel[1];
+        try (TransferJournal journal = open(file, 0, channel)) {
+            journal.append(bytes("one")).join();
+            channel[0].forceFailures = 1;
+            channel[0].failTruncate = true;
+
+            assertThat(failureOf(journal.append(bytes("two"))))
+                    .isInstanceOf(TransferJournal.OutcomeUnknownException.class);
+            // Later appends were never written, so their failure is certain
+            assertThat(failureOf(journal.append(bytes("three"))))
+                    .isNotInstanceOf(TransferJournal.OutcomeUnknownException.class);
+        }
+
+        // The record whose outcome was unknown reached the file after all
+        List<String> records = new ArrayList<>();
+        TransferJournal.recover(file, record -> records.add(text(record)));
+        assertThat(records).containsExactly("one", "two");
+    }
+
+    @Test
+    void reportsOutcomeUnknownWhenCutCannotBeSynced() throws IOException {
+        Path file = directory.resolve("ledger.wal");
+        FaultyFileChannel[] channel = new FaultyFileChannel[1];
+        try (TransferJournal journal = open(file, 0, channel)) {
+            journal.append(bytes("one")).join();
+            // The sync of the truncation fails as well as the batch's own
+            channel[0].forceFailures = 2;
+
+            assertThat(failureOf(journal.append(bytes("two"))))
+                    .isInstanceOf(TransferJournal.OutcomeUnknownException.class);
+        }
+    }
+
+    /**
+     * Opens a journal; if {@code channel} is given, on a faulty channel stored in it.
+     */
+    private static TransferJournal open(Path file, long validBytes, FaultyFileChannel[] channel)
+            throws IOException {
+        TransferJournal.FileOpener opener = TransferJournal.FileOpener.DEFAULT;
+        if (channel != null) {
+            opener = path -> channel[0] = new FaultyFileChannel(TransferJournal.FileOpener.DEFAULT.open(path));
+        }
+        return new TransferJournal(file, validBytes, true, 16, new SimpleMeterRegistry(), opener);
+    }
+
+    private static Throwable failureOf(CompletableFuture<Void> future) {
+        Throwable thrown = catchThrowable(future::join);
+        assertThat(thrown).isInstanceOf(CompletionException.class);
+        return thrown.getCause();
+    }
+
+    private static int checksum(byte[] record) {
+        CRC32 crc = new CRC32();
+        crc.update(record, 0, record.length);
+        return (int) crc.getValue();
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(byte[] record) {
+        return new String(record, StandardCharsets.UTF_8);
+    }
+}